@@ -0,0 +1,88 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.ObjectManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base state for benchmarks running against an object store
+ * of {@link #storeSize} files, each having {@link #historyLength} versions.
+ * The store is created once per trial in a temporary directory.
+ * <p>
+ * Throughput and sample time are measured for each benchmark,
+ * the latter reports the latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AObjectStoreBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int storeSize;
+
+    @Param({"1", "10", "100"})
+    public int historyLength;
+
+    protected ObjectStoreFixture fixture;
+
+    protected ITreeStorageAdapter storageAdapter;
+
+    protected ObjectManager objectManager;
+
+    protected List<String> filePaths;
+
+    protected List<String> dirPaths;
+
+    protected int cursor;
+
+    @Setup(Level.Trial)
+    public void setUpStore()
+            throws IOException, InputOutputException {
+        this.fixture = new ObjectStoreFixture("sync-version-bench");
+        this.fixture.populate(this.storeSize, this.historyLength);
+
+        this.storageAdapter = new LocalStorageAdapter(this.fixture.getRootDir());
+        this.objectManager = new ObjectManager(
+                ObjectStoreFixture.INDEX_FILE_NAME,
+                ObjectStoreFixture.OBJECT_DIR_NAME,
+                this.storageAdapter
+        );
+
+        this.filePaths = this.fixture.getFilePaths();
+        this.dirPaths = this.fixture.getDirPaths();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownStore() {
+        this.fixture.delete();
+    }
+
+    /**
+     * Returns the next file path in a round robin manner
+     *
+     * @return A relative file path which exists in the store
+     */
+    protected String nextFilePath() {
+        this.cursor = (this.cursor + 1) % this.filePaths.size();
+        return this.filePaths.get(this.cursor);
+    }
+
+    /**
+     * Returns the next directory path in a round robin manner
+     *
+     * @return A relative directory path which exists in the store
+     */
+    protected String nextDirPath() {
+        this.cursor = (this.cursor + 1) % this.dirPaths.size();
+        return this.dirPaths.get(this.cursor);
+    }
+}
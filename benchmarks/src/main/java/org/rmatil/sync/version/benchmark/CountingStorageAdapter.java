@@ -0,0 +1,170 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.rmatil.sync.persistence.api.IFileMetaInfo;
+import org.rmatil.sync.persistence.api.StorageType;
+import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
+import org.rmatil.sync.persistence.core.tree.TreePathElement;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+import java.util.List;
+
+/**
+ * A storage adapter decorator which counts the operations
+ * and bytes going through it to the wrapped adapter.
+ */
+public class CountingStorageAdapter implements ITreeStorageAdapter {
+
+    protected ITreeStorageAdapter storageAdapter;
+
+    protected long persistOps;
+
+    protected long readOps;
+
+    protected long existsOps;
+
+    protected long deleteOps;
+
+    protected long bytesWritten;
+
+    protected long bytesRead;
+
+    /**
+     * @param storageAdapter The storage adapter to which all calls are delegated
+     */
+    public CountingStorageAdapter(ITreeStorageAdapter storageAdapter) {
+        this.storageAdapter = storageAdapter;
+    }
+
+    @Override
+    public void persist(StorageType type, TreePathElement path, byte[] bytes)
+            throws InputOutputException {
+        this.persistOps++;
+        if (null != bytes) {
+            this.bytesWritten += bytes.length;
+        }
+
+        this.storageAdapter.persist(type, path, bytes);
+    }
+
+    @Override
+    public void persist(StorageType type, TreePathElement path, long offset, byte[] bytes)
+            throws InputOutputException {
+        this.persistOps++;
+        if (null != bytes) {
+            this.bytesWritten += bytes.length;
+        }
+
+        this.storageAdapter.persist(type, path, offset, bytes);
+    }
+
+    @Override
+    public void delete(TreePathElement path)
+            throws InputOutputException {
+        this.deleteOps++;
+        this.storageAdapter.delete(path);
+    }
+
+    @Override
+    public byte[] read(TreePathElement path)
+            throws InputOutputException {
+        this.readOps++;
+        byte[] content = this.storageAdapter.read(path);
+        this.bytesRead += content.length;
+
+        return content;
+    }
+
+    @Override
+    public byte[] read(TreePathElement path, long offset, int length)
+            throws InputOutputException {
+        this.readOps++;
+        byte[] content = this.storageAdapter.read(path, offset, length);
+        this.bytesRead += content.length;
+
+        return content;
+    }
+
+    @Override
+    public void move(StorageType type, TreePathElement oldPath, TreePathElement newPath)
+            throws InputOutputException {
+        this.storageAdapter.move(type, oldPath, newPath);
+    }
+
+    @Override
+    public IFileMetaInfo getMetaInformation(TreePathElement path)
+            throws InputOutputException {
+        return this.storageAdapter.getMetaInformation(path);
+    }
+
+    @Override
+    public boolean exists(StorageType type, TreePathElement path)
+            throws InputOutputException {
+        this.existsOps++;
+        return this.storageAdapter.exists(type, path);
+    }
+
+    @Override
+    public String getChecksum(TreePathElement path)
+            throws InputOutputException {
+        return this.storageAdapter.getChecksum(path);
+    }
+
+    @Override
+    public TreePathElement getRootDir() {
+        return this.storageAdapter.getRootDir();
+    }
+
+    @Override
+    public boolean isFile(TreePathElement path)
+            throws InputOutputException {
+        return this.storageAdapter.isFile(path);
+    }
+
+    @Override
+    public boolean isDir(TreePathElement path)
+            throws InputOutputException {
+        return this.storageAdapter.isDir(path);
+    }
+
+    @Override
+    public List<TreePathElement> getDirectoryContents(TreePathElement directory)
+            throws InputOutputException {
+        return this.storageAdapter.getDirectoryContents(directory);
+    }
+
+    /**
+     * Resets all counters to zero
+     */
+    public void reset() {
+        this.persistOps = 0;
+        this.readOps = 0;
+        this.existsOps = 0;
+        this.deleteOps = 0;
+        this.bytesWritten = 0;
+        this.bytesRead = 0;
+    }
+
+    public long getPersistOps() {
+        return this.persistOps;
+    }
+
+    public long getReadOps() {
+        return this.readOps;
+    }
+
+    public long getExistsOps() {
+        return this.existsOps;
+    }
+
+    public long getDeleteOps() {
+        return this.deleteOps;
+    }
+
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    public long getBytesRead() {
+        return this.bytesRead;
+    }
+}
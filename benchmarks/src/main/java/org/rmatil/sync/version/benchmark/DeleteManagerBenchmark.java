@@ -0,0 +1,41 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.DeleteManager;
+
+/**
+ * Measures toggling the delete state of a file, i.e. adding
+ * a change to its delete history. Each invocation flags the
+ * next file either as deleted or as existent again.
+ */
+public class DeleteManagerBenchmark extends AObjectStoreBenchmark {
+
+    protected DeleteManager deleteManager;
+
+    protected boolean delete;
+
+    @Setup(Level.Trial)
+    public void setUpDeleteManager() {
+        this.deleteManager = new DeleteManager(this.objectManager);
+    }
+
+    @Benchmark
+    public void addChange()
+            throws InputOutputException {
+        String path = this.nextFilePath();
+
+        // switch state once all files have been visited
+        if (0 == this.cursor) {
+            this.delete = ! this.delete;
+        }
+
+        if (this.delete) {
+            this.deleteManager.setIsDeleted(path);
+        } else {
+            this.deleteManager.setIsExistent(path);
+        }
+    }
+}
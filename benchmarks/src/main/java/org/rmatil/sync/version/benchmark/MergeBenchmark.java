@@ -0,0 +1,138 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.ObjectStore;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures merging the object stores of all other peers into the
+ * object store of the first peer. Since merging modifies the store,
+ * the peers are regenerated before each invocation.
+ * <p>
+ * Besides the time, the operations and bytes performed on the
+ * storage adapters of all peers are reported as secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(1)
+public class MergeBenchmark {
+
+    @Param({"2", "4"})
+    public int peerCount;
+
+    @Param({"1000", "10000", "100000"})
+    public int pathCount;
+
+    @Param({"10"})
+    public int historyLength;
+
+    @Param({"0.5", "0.9"})
+    public double overlap;
+
+    @Param({"0.0", "0.1", "0.5"})
+    public double divergence;
+
+    @Param({"0.05"})
+    public double deleteToggles;
+
+    @Param({"0.05"})
+    public double sharerChurn;
+
+    protected List<Peer> peers;
+
+    protected long seed;
+
+    @Setup(Level.Invocation)
+    public void setUpPeers()
+            throws IOException, InputOutputException {
+        this.peers = new PeerWorkloadGenerator(
+                this.peerCount,
+                this.pathCount,
+                this.historyLength,
+                this.overlap,
+                this.divergence,
+                this.deleteToggles,
+                this.sharerChurn,
+                this.seed++
+        ).generate();
+
+        for (Peer peer : this.peers) {
+            peer.getObjectStoreStorageAdapter().reset();
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownPeers() {
+        for (Peer peer : this.peers) {
+            peer.delete();
+        }
+
+        // remove the temporary directory containing the peers
+        this.peers.get(0).getRootDir().getParent().toFile().delete();
+    }
+
+    @Benchmark
+    public HashMap<ObjectStore.MergedObjectType, Set<String>> mergeObjectStore(StorageCounters counters)
+            throws InputOutputException {
+        ObjectStore ourObjectStore = this.peers.get(0).getObjectStore();
+
+        HashMap<ObjectStore.MergedObjectType, Set<String>> result = null;
+        for (int i = 1; i < this.peers.size(); i++) {
+            result = ourObjectStore.mergeObjectStore(this.peers.get(i).getObjectStore());
+        }
+
+        for (Peer peer : this.peers) {
+            counters.add(peer.getObjectStoreStorageAdapter());
+        }
+
+        return result;
+    }
+
+    /**
+     * Storage operations of all peers, reported as totals per iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StorageCounters {
+
+        public long persistOps;
+
+        public long readOps;
+
+        public long existsOps;
+
+        public long deleteOps;
+
+        public long bytesWritten;
+
+        public long bytesRead;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.persistOps = 0;
+            this.readOps = 0;
+            this.existsOps = 0;
+            this.deleteOps = 0;
+            this.bytesWritten = 0;
+            this.bytesRead = 0;
+        }
+
+        protected void add(CountingStorageAdapter storageAdapter) {
+            this.persistOps += storageAdapter.getPersistOps();
+            this.readOps += storageAdapter.getReadOps();
+            this.existsOps += storageAdapter.getExistsOps();
+            this.deleteOps += storageAdapter.getDeleteOps();
+            this.bytesWritten += storageAdapter.getBytesWritten();
+            this.bytesRead += storageAdapter.getBytesRead();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.model.PathObject;
+
+import java.util.List;
+
+/**
+ * Measures reading and writing single objects as well
+ * as resolving the children of a directory
+ */
+public class ObjectManagerBenchmark extends AObjectStoreBenchmark {
+
+    protected PathObject pathObject;
+
+    @Setup(Level.Trial)
+    public void setUpObject()
+            throws InputOutputException {
+        this.pathObject = this.objectManager.getObjectForPath(this.filePaths.get(0));
+    }
+
+    @Benchmark
+    public void writeObject()
+            throws InputOutputException {
+        // rewrites the object and the whole index
+        this.objectManager.writeObject(this.pathObject);
+    }
+
+    @Benchmark
+    public PathObject getObjectForPath()
+            throws InputOutputException {
+        return this.objectManager.getObjectForPath(this.nextFilePath());
+    }
+
+    @Benchmark
+    public List<PathObject> getChildren()
+            throws InputOutputException {
+        return this.objectManager.getChildren(this.nextDirPath());
+    }
+}
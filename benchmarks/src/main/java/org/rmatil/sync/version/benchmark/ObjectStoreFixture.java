@@ -0,0 +1,221 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.rmatil.sync.commons.hashing.Hash;
+import org.rmatil.sync.version.api.DeleteType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.config.Config;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.Index;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates an object store of a given size in a temporary directory.
+ * <p>
+ * Objects and the index are written directly to disk using the
+ * same layout as the {@link org.rmatil.sync.version.core.ObjectManager}
+ * does. Populating through the object manager itself would rewrite
+ * the whole index for every object, which makes fixtures with
+ * hundreds of thousands of paths impossible to build in reasonable time.
+ * <p>
+ * Files are placed in directories of {@link #FAN_OUT} entries each,
+ * i.e. <i>dir-0/file-0</i> up to <i>dir-0/file-99</i>, <i>dir-1/file-100</i>, ...
+ */
+public class ObjectStoreFixture {
+
+    /**
+     * The number of files per directory
+     */
+    public static final int FAN_OUT = 100;
+
+    public static final String INDEX_FILE_NAME = "index.json";
+
+    public static final String OBJECT_DIR_NAME = "object";
+
+    protected Path rootDir;
+
+    protected List<String> filePaths;
+
+    protected List<String> dirPaths;
+
+    /**
+     * @param prefix The prefix of the temporary directory to create
+     *
+     * @throws IOException If the temporary directory could not be created
+     */
+    public ObjectStoreFixture(String prefix)
+            throws IOException {
+        this(Files.createTempDirectory(prefix));
+    }
+
+    /**
+     * @param rootDir The existing directory in which the object store is placed
+     */
+    public ObjectStoreFixture(Path rootDir) {
+        this.rootDir = rootDir;
+        this.filePaths = new ArrayList<>();
+        this.dirPaths = new ArrayList<>();
+    }
+
+    /**
+     * Writes the given amount of file objects, each having the specified
+     * amount of versions, and their parent directories to the object store
+     * and finally persists the index containing all of them.
+     *
+     * @param storeSize     The number of files to create
+     * @param historyLength The number of versions of each file
+     *
+     * @throws IOException If writing to disk fails
+     */
+    public void populate(int storeSize, int historyLength)
+            throws IOException {
+        Map<String, String> paths = new HashMap<>();
+
+        for (int i = 0; i < storeSize; i++) {
+            String dirName = "dir-" + (i / FAN_OUT);
+
+            if (0 == i % FAN_OUT) {
+                PathObject dirObject = createPathObject(dirName, "", PathType.DIRECTORY, 1);
+                paths.put(dirName, this.writeObject(dirObject));
+                this.dirPaths.add(dirName);
+            }
+
+            PathObject fileObject = createPathObject("file-" + i, dirName, PathType.FILE, historyLength);
+            paths.put(fileObject.getAbsolutePath(), this.writeObject(fileObject));
+            this.filePaths.add(fileObject.getAbsolutePath());
+        }
+
+        this.writeIndex(paths);
+    }
+
+    /**
+     * Writes the index containing the given paths
+     *
+     * @param paths The relative paths mapped to their hash
+     *
+     * @throws IOException If writing fails
+     */
+    public void writeIndex(Map<String, String> paths)
+            throws IOException {
+        Files.write(
+                this.rootDir.resolve(INDEX_FILE_NAME),
+                new Index(paths.keySet()).toJson().getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Writes the given object to the location the object manager expects it
+     *
+     * @param pathObject The object to write
+     *
+     * @return The hash of the object's path
+     *
+     * @throws IOException If writing fails
+     */
+    public String writeObject(PathObject pathObject)
+            throws IOException {
+        String hash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), pathObject.getAbsolutePath());
+
+        Path objectDir = this.rootDir
+                .resolve(OBJECT_DIR_NAME)
+                .resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2));
+
+        Files.createDirectories(objectDir);
+        Files.write(
+                objectDir.resolve(hash + ".json"),
+                pathObject.toJson().getBytes(StandardCharsets.UTF_8)
+        );
+
+        return hash;
+    }
+
+    /**
+     * Creates a path object which is existent and not shared
+     *
+     * @param name          The name of the element
+     * @param path          The path to the element without its name
+     * @param pathType      The type of the element
+     * @param historyLength The number of versions to create
+     *
+     * @return The created path object
+     */
+    public static PathObject createPathObject(String name, String path, PathType pathType, int historyLength) {
+        List<Version> versions = new ArrayList<>();
+        String absolutePath = path.isEmpty() ? name : path + "/" + name;
+        for (int i = 0; i < historyLength; i++) {
+            versions.add(new Version(Hash.hash(Config.DEFAULT.getHashingAlgorithm(), absolutePath + i)));
+        }
+
+        List<String> deleteHistory = new ArrayList<>();
+        deleteHistory.add(Hash.hash(Config.DEFAULT.getHashingAlgorithm(), DeleteType.EXISTENT.name()));
+
+        return new PathObject(
+                name,
+                path,
+                pathType,
+                null,
+                false,
+                new Delete(DeleteType.EXISTENT, deleteHistory),
+                null,
+                new HashSet<>(),
+                versions
+        );
+    }
+
+    /**
+     * Returns the root of the object store
+     *
+     * @return The root directory
+     */
+    public Path getRootDir() {
+        return this.rootDir;
+    }
+
+    /**
+     * Returns the relative paths of all created files
+     *
+     * @return The file paths
+     */
+    public List<String> getFilePaths() {
+        return this.filePaths;
+    }
+
+    /**
+     * Returns the relative paths of all created directories
+     *
+     * @return The directory paths
+     */
+    public List<String> getDirPaths() {
+        return this.dirPaths;
+    }
+
+    /**
+     * Removes the temporary directory and all its contents
+     */
+    public void delete() {
+        delete(this.rootDir.toFile());
+    }
+
+    protected static void delete(File file) {
+        File[] contents = file.listFiles();
+        if (null != contents) {
+            for (File child : contents) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
@@ -0,0 +1,103 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.ObjectStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A simulated peer consisting of a synchronized folder
+ * and its object store, both located in a temporary directory.
+ * All accesses to the object store go through a {@link CountingStorageAdapter}.
+ */
+public class Peer {
+
+    protected Path rootDir;
+
+    protected ObjectStoreFixture fixture;
+
+    protected CountingStorageAdapter objectStoreStorageAdapter;
+
+    protected ObjectStore objectStore;
+
+    /**
+     * @param rootDir The directory in which the folder and the object store of the peer is placed
+     *
+     * @throws IOException If the directories could not be created
+     */
+    public Peer(Path rootDir)
+            throws IOException {
+        this.rootDir = rootDir;
+
+        Files.createDirectories(rootDir.resolve("folder"));
+        Files.createDirectories(rootDir.resolve(".sync"));
+
+        this.fixture = new ObjectStoreFixture(rootDir.resolve(".sync"));
+    }
+
+    /**
+     * Opens the object store once all objects have been written
+     * using the fixture.
+     *
+     * @throws InputOutputException If reading the index fails
+     */
+    public void open()
+            throws InputOutputException {
+        this.objectStoreStorageAdapter = new CountingStorageAdapter(
+                new LocalStorageAdapter(this.rootDir.resolve(".sync"))
+        );
+
+        this.objectStore = new ObjectStore(
+                new LocalStorageAdapter(this.rootDir.resolve("folder")),
+                ObjectStoreFixture.INDEX_FILE_NAME,
+                ObjectStoreFixture.OBJECT_DIR_NAME,
+                this.objectStoreStorageAdapter
+        );
+    }
+
+    /**
+     * Returns the directory containing the folder and the object store of this peer
+     *
+     * @return The root directory of the peer
+     */
+    public Path getRootDir() {
+        return this.rootDir;
+    }
+
+    /**
+     * Returns the fixture to write objects directly to the object store
+     *
+     * @return The fixture
+     */
+    public ObjectStoreFixture getFixture() {
+        return this.fixture;
+    }
+
+    /**
+     * Returns the storage adapter counting all accesses to the object store
+     *
+     * @return The counting storage adapter
+     */
+    public CountingStorageAdapter getObjectStoreStorageAdapter() {
+        return this.objectStoreStorageAdapter;
+    }
+
+    /**
+     * Returns the object store of this peer. Only available after {@link #open()}
+     *
+     * @return The object store
+     */
+    public ObjectStore getObjectStore() {
+        return this.objectStore;
+    }
+
+    /**
+     * Removes all files of this peer
+     */
+    public void delete() {
+        ObjectStoreFixture.delete(this.rootDir.toFile());
+    }
+}
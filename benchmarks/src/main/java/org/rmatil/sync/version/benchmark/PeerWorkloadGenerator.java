@@ -0,0 +1,209 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.rmatil.sync.commons.hashing.Hash;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.DeleteType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.config.Config;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Sharer;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Generates the object stores of multiple peers which have
+ * diverged in a controlled way. All stores are written to
+ * a temporary directory on the local machine.
+ * <p>
+ * Each generated path either exists on all peers (with the probability
+ * specified by the overlap) or only on a single random peer. For paths
+ * existing on all peers, a random peer may
+ * <ul>
+ * <li>have additional versions (divergence),</li>
+ * <li>have the path flagged as deleted (delete toggles) or</li>
+ * <li>have a modified set of sharers (sharer churn).</li>
+ * </ul>
+ * The same seed always generates the same stores.
+ */
+public class PeerWorkloadGenerator {
+
+    protected int peerCount;
+
+    protected int pathCount;
+
+    protected int historyLength;
+
+    protected double overlap;
+
+    protected double divergence;
+
+    protected double deleteToggles;
+
+    protected double sharerChurn;
+
+    protected Random random;
+
+    /**
+     * @param peerCount     The number of peers to generate, at least two
+     * @param pathCount     The number of file paths to distribute among the peers
+     * @param historyLength The number of versions every file has in common on all peers holding it
+     * @param overlap       The probability of a path to exist on all peers
+     * @param divergence    The probability of a path existing on all peers to have additional versions on a single peer
+     * @param deleteToggles The probability of a path existing on all peers to be deleted on a single peer
+     * @param sharerChurn   The probability of a path existing on all peers to have different sharers on a single peer
+     * @param seed          The seed for the random generator
+     */
+    public PeerWorkloadGenerator(int peerCount, int pathCount, int historyLength, double overlap, double divergence, double deleteToggles, double sharerChurn, long seed) {
+        if (peerCount < 2) {
+            throw new IllegalArgumentException("At least two peers are required to generate a workload");
+        }
+
+        this.peerCount = peerCount;
+        this.pathCount = pathCount;
+        this.historyLength = historyLength;
+        this.overlap = overlap;
+        this.divergence = divergence;
+        this.deleteToggles = deleteToggles;
+        this.sharerChurn = sharerChurn;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates the object stores of all peers and opens them
+     *
+     * @return The generated peers
+     *
+     * @throws IOException          If writing the object stores fails
+     * @throws InputOutputException If opening the object stores fails
+     */
+    public List<Peer> generate()
+            throws IOException, InputOutputException {
+        Path rootDir = Files.createTempDirectory("sync-version-workload");
+
+        List<Peer> peers = new ArrayList<>();
+        List<Map<String, String>> indices = new ArrayList<>();
+        for (int i = 0; i < this.peerCount; i++) {
+            peers.add(new Peer(rootDir.resolve("peer-" + i)));
+            indices.add(new HashMap<>());
+        }
+
+        for (int i = 0; i < this.pathCount; i++) {
+            String dirName = "dir-" + (i / ObjectStoreFixture.FAN_OUT);
+            String fileName = "file-" + i;
+            String path = dirName + "/" + fileName;
+
+            List<Integer> holders = new ArrayList<>();
+            if (this.random.nextDouble() < this.overlap) {
+                for (int peer = 0; peer < this.peerCount; peer++) {
+                    holders.add(peer);
+                }
+            } else {
+                holders.add(this.random.nextInt(this.peerCount));
+            }
+
+            boolean isShared = holders.size() > 1;
+            int divergingPeer = this.pickPeer(isShared, this.divergence, holders);
+            int deletingPeer = this.pickPeer(isShared, this.deleteToggles, holders);
+            int churningPeer = this.pickPeer(isShared, this.sharerChurn, holders);
+
+            for (int peer : holders) {
+                Map<String, String> index = indices.get(peer);
+                ObjectStoreFixture fixture = peers.get(peer).getFixture();
+
+                if (! index.containsKey(dirName)) {
+                    PathObject dirObject = ObjectStoreFixture.createPathObject(dirName, "", PathType.DIRECTORY, 1);
+                    index.put(dirName, fixture.writeObject(dirObject));
+                }
+
+                PathObject fileObject = ObjectStoreFixture.createPathObject(fileName, dirName, PathType.FILE, this.historyLength);
+
+                if (peer == divergingPeer) {
+                    int additionalVersions = 1 + this.random.nextInt(3);
+                    for (int v = 0; v < additionalVersions; v++) {
+                        fileObject.getVersions().add(new Version(hash(path + "-peer-" + peer + "-" + v)));
+                    }
+                }
+
+                if (peer == deletingPeer) {
+                    fileObject.setDeleted(new Delete(
+                            DeleteType.DELETED,
+                            createHistory(DeleteType.EXISTENT.name(), DeleteType.DELETED.name())
+                    ));
+                }
+
+                // all holders know about the same sharer, the churning peer
+                // has removed its access and added another one
+                if (0 == i % 2 || peer == churningPeer) {
+                    Set<Sharer> sharers = new HashSet<>();
+                    if (peer == churningPeer) {
+                        sharers.add(new Sharer("sharer-" + i, AccessType.ACCESS_REMOVED, createHistory(AccessType.WRITE.name(), AccessType.ACCESS_REMOVED.name())));
+                        sharers.add(new Sharer("other-sharer-" + i, AccessType.READ, createHistory(AccessType.READ.name())));
+                    } else {
+                        sharers.add(new Sharer("sharer-" + i, AccessType.WRITE, createHistory(AccessType.WRITE.name())));
+                    }
+
+                    fileObject.setSharers(sharers);
+                    fileObject.setIsShared(true);
+                }
+
+                index.put(path, fixture.writeObject(fileObject));
+            }
+        }
+
+        for (int i = 0; i < this.peerCount; i++) {
+            peers.get(i).getFixture().writeIndex(indices.get(i));
+            peers.get(i).open();
+        }
+
+        return peers;
+    }
+
+    /**
+     * Picks a random peer of the given holders with the given probability
+     *
+     * @param isShared    Whether the path exists on multiple peers
+     * @param probability The probability to pick a peer at all
+     * @param holders     The peers holding the path
+     *
+     * @return The picked peer or -1 if none is picked
+     */
+    protected int pickPeer(boolean isShared, double probability, List<Integer> holders) {
+        if (! isShared || this.random.nextDouble() >= probability) {
+            return - 1;
+        }
+
+        return holders.get(this.random.nextInt(holders.size()));
+    }
+
+    /**
+     * Creates a history of chained hashes for the given states
+     * in the same way the managers do
+     *
+     * @param states The states to add in order
+     *
+     * @return The history
+     */
+    protected static List<String> createHistory(String... states) {
+        List<String> history = new ArrayList<>();
+        for (String state : states) {
+            String nextEntry = "";
+            for (String entry : history) {
+                nextEntry = hash(nextEntry + entry);
+            }
+
+            history.add(hash(nextEntry + state));
+        }
+
+        return history;
+    }
+
+    protected static String hash(String value) {
+        return Hash.hash(Config.DEFAULT.getHashingAlgorithm(), value);
+    }
+}
@@ -0,0 +1,48 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.core.PermissionResolver;
+import org.rmatil.sync.version.core.SharerManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking the access of a user to files inheriting it from
+ * their shared directories. The same working set of files is checked
+ * repeatedly, so that all but the first checks are answered by the cache.
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PermissionResolverBenchmark extends AObjectStoreBenchmark {
+
+    protected static final String USERNAME = "Eleanor Fant";
+
+    protected static final int WORKING_SET_SIZE = 1024;
+
+    protected PermissionResolver permissionResolver;
+
+    protected int workingSetCursor;
+
+    @Setup(Level.Trial)
+    public void setUpPermissionResolver()
+            throws InputOutputException {
+        SharerManager sharerManager = new SharerManager(this.objectManager);
+        for (String dirPath : this.dirPaths) {
+            sharerManager.addSharer(USERNAME, AccessType.WRITE, dirPath);
+        }
+
+        this.permissionResolver = new PermissionResolver(this.objectManager, 2 * WORKING_SET_SIZE);
+    }
+
+    @Benchmark
+    public boolean hasAccess()
+            throws InputOutputException {
+        this.workingSetCursor = (this.workingSetCursor + 1) % Math.min(WORKING_SET_SIZE, this.filePaths.size());
+
+        return this.permissionResolver.hasAccess(USERNAME, AccessType.WRITE, this.filePaths.get(this.workingSetCursor));
+    }
+}
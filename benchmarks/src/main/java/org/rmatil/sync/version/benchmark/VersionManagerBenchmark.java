@@ -0,0 +1,31 @@
+package org.rmatil.sync.version.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.VersionManager;
+import org.rmatil.sync.version.core.model.Version;
+
+/**
+ * Measures adding a new version to a file. Note, that
+ * the history of the used files grows during the measurement.
+ */
+public class VersionManagerBenchmark extends AObjectStoreBenchmark {
+
+    protected VersionManager versionManager;
+
+    protected long versionCtr;
+
+    @Setup(Level.Trial)
+    public void setUpVersionManager() {
+        this.versionManager = new VersionManager(this.objectManager);
+    }
+
+    @Benchmark
+    public void addVersion()
+            throws InputOutputException {
+        // use a distinct hash every time, otherwise the version is not added
+        this.versionManager.addVersion(new Version("benchmarkHash" + this.versionCtr++), this.nextFilePath());
+    }
+}
@@ -0,0 +1,26 @@
+package org.rmatil.sync.version.api;
+
+/**
+ * A monotonically increasing count of events
+ */
+public interface ICounter {
+
+    /**
+     * Increments the counter by one
+     */
+    void increment();
+
+    /**
+     * Increments the counter by the given amount
+     *
+     * @param amount The amount to add
+     */
+    void increment(long amount);
+
+    /**
+     * Returns the current count
+     *
+     * @return The count
+     */
+    long getCount();
+}
@@ -0,0 +1,48 @@
+package org.rmatil.sync.version.api;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Computes hashes of paths and file contents as lower case hex strings.
+ * Implementations must be thread-safe.
+ */
+public interface IHasher {
+
+    /**
+     * Returns the name of the hashing algorithm
+     *
+     * @return The name
+     */
+    String getName();
+
+    /**
+     * Hashes the UTF-8 encoded bytes of the given value
+     *
+     * @param value The value to hash
+     *
+     * @return The hash
+     */
+    String hash(String value);
+
+    /**
+     * Hashes the given bytes
+     *
+     * @param bytes The bytes to hash
+     *
+     * @return The hash
+     */
+    String hash(byte[] bytes);
+
+    /**
+     * Hashes the content of the given file
+     *
+     * @param file The file to hash
+     *
+     * @return The hash
+     *
+     * @throws IOException If reading the file fails
+     */
+    String hash(File file)
+            throws IOException;
+}
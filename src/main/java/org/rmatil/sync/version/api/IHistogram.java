@@ -0,0 +1,29 @@
+package org.rmatil.sync.version.api;
+
+/**
+ * Records the distribution of values, e.g. the
+ * size in bytes of persisted objects
+ */
+public interface IHistogram {
+
+    /**
+     * Records the given value
+     *
+     * @param value The value to record
+     */
+    void update(long value);
+
+    /**
+     * Returns the number of recorded values
+     *
+     * @return The number of values
+     */
+    long getCount();
+
+    /**
+     * Returns the sum of all recorded values
+     *
+     * @return The sum
+     */
+    long getSum();
+}
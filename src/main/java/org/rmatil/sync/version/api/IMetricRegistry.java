@@ -0,0 +1,44 @@
+package org.rmatil.sync.version.api;
+
+/**
+ * A registry of metrics to which the object store and its
+ * managers report the operations they perform, e.g. how
+ * often the index is rewritten or how many bytes are persisted.
+ * <p>
+ * Requesting a metric with the same name multiple times
+ * must return the same instance.
+ *
+ * @see org.rmatil.sync.version.core.metrics.MetricNames The names of the reported metrics
+ */
+public interface IMetricRegistry {
+
+    /**
+     * Returns the counter registered with the given name.
+     * The counter is created if it does not exist yet.
+     *
+     * @param name The name of the counter
+     *
+     * @return The counter
+     */
+    ICounter counter(String name);
+
+    /**
+     * Returns the timer registered with the given name.
+     * The timer is created if it does not exist yet.
+     *
+     * @param name The name of the timer
+     *
+     * @return The timer
+     */
+    ITimer timer(String name);
+
+    /**
+     * Returns the histogram registered with the given name.
+     * The histogram is created if it does not exist yet.
+     *
+     * @param name The name of the histogram
+     *
+     * @return The histogram
+     */
+    IHistogram histogram(String name);
+}
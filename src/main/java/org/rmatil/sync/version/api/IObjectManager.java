@@ -3,10 +3,15 @@ package org.rmatil.sync.version.api;
 import org.rmatil.sync.persistence.api.IPathElement;
 import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.index.IndexReport;
 import org.rmatil.sync.version.core.model.Index;
 import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Sharer;
+import org.rmatil.sync.version.core.model.Version;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface IObjectManager {
 
@@ -28,6 +33,18 @@ public interface IObjectManager {
     void writeObject(PathObject path)
             throws InputOutputException;
 
+    /**
+     * Writes all given PathObjects to the object store,
+     * persisting the index only once after all of them are written
+     *
+     * @param paths    The path objects to write
+     * @param listener The listener notified after each written object. May be null
+     *
+     * @throws InputOutputException If writing fails
+     */
+    void writeObjects(Collection<PathObject> paths, IProgressListener listener)
+            throws InputOutputException;
+
     /**
      * Returns the path object for the given filename hash, if any
      *
@@ -40,6 +57,24 @@ public interface IObjectManager {
     PathObject getObject(String fileNameHash)
             throws InputOutputException;
 
+    /**
+     * Returns the path object for the given filename hash, reading its versions
+     * only when accessed for the first time. Use this method if the versions are
+     * not needed, e.g. to check or change sharers or the delete state.
+     * <p>
+     * Only the versions existing at the time of this call are read. If the versions
+     * are replaced in the meantime, e.g. by removing and recreating the object,
+     * the versions read are the ones written afterwards.
+     *
+     * @param fileNameHash The file name hash of which to get the path object
+     *
+     * @return The found path object
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    PathObject getObjectHeader(String fileNameHash)
+            throws InputOutputException;
+
     /**
      * Returns the path object for the file on the given relative path
      *
@@ -52,6 +87,80 @@ public interface IObjectManager {
     PathObject getObjectForPath(String relativeFilePath)
             throws InputOutputException;
 
+    /**
+     * Returns a page of the versions of the path object having the given file name hash,
+     * without reading any other version
+     *
+     * @param fileNameHash The file name hash of the path object
+     * @param offset       The index of the first version to return
+     * @param limit        The maximal number of versions to return
+     *
+     * @return The versions from the oldest to the latest
+     *
+     * @throws InputOutputException If reading the versions fails
+     */
+    List<Version> getVersions(String fileNameHash, int offset, int limit)
+            throws InputOutputException;
+
+    /**
+     * Returns the number of versions of the path object having the given file name hash
+     *
+     * @param fileNameHash The file name hash of the path object
+     *
+     * @return The number of versions
+     *
+     * @throws InputOutputException If reading the versions fails
+     */
+    int getVersionCount(String fileNameHash)
+            throws InputOutputException;
+
+    /**
+     * Returns the latest version of the path object having the given file name hash.
+     * If a snapshot of the latest versions is kept, the version logs are not read
+     * for objects which did not change since the snapshot was written
+     *
+     * @param fileNameHash The file name hash of the path object
+     *
+     * @return The latest version or null, if the object has no versions
+     *
+     * @throws InputOutputException If reading the versions fails
+     */
+    Version getLatestVersion(String fileNameHash)
+            throws InputOutputException;
+
+    /**
+     * Appends the given version to the path object having the given
+     * file name hash, without rewriting its other versions
+     *
+     * @param fileNameHash The file name hash of the path object
+     * @param version      The version to append
+     *
+     * @throws InputOutputException If the path object does not exist or writing fails
+     */
+    void appendVersion(String fileNameHash, Version version)
+            throws InputOutputException;
+
+    /**
+     * Writes the header of a path object which is stored already,
+     * e.g. after changing its version vector. Neither its versions nor the index are written
+     *
+     * @param path The path object of which to write the header
+     *
+     * @throws InputOutputException If writing fails
+     */
+    void writeObjectHeader(PathObject path)
+            throws InputOutputException;
+
+    /**
+     * Returns whether a path object is stored for the given relative path.
+     * Answered from the index without reading the object store
+     *
+     * @param relativeFilePath The relative path to check
+     *
+     * @return True, if a path object exists for the path
+     */
+    boolean exists(String relativeFilePath);
+
     /**
      * Returns the corresponding hash for the given file path
      *
@@ -83,6 +192,198 @@ public interface IObjectManager {
     List<PathObject> getChildren(String relativeParentFileName)
             throws InputOutputException;
 
+    /**
+     * Returns the sharers of the given path including the ones inherited from its ancestors.
+     * A sharer stored for a path replaces the sharer having the same username inherited from above
+     *
+     * @param relativeFilePath The path
+     *
+     * @return Copies of the effective sharers, including the ones of which the access has been removed
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    Set<Sharer> getEffectiveSharers(String relativeFilePath)
+            throws InputOutputException;
+
+    /**
+     * Returns whether the given path is shared, either by its own flag or
+     * by an effective sharer whose access has not been removed
+     *
+     * @param relativeFilePath The path
+     *
+     * @return True, if shared
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    boolean isShared(String relativeFilePath)
+            throws InputOutputException;
+
+    /**
+     * Returns the paths which are shared with the given user,
+     * i.e. which have the user as effective sharer whose access has not been removed
+     *
+     * @param username The name of the user
+     *
+     * @return The paths shared with the user
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    Set<String> getPathsSharedWith(String username)
+            throws InputOutputException;
+
+    /**
+     * Returns the owner of the given path, i.e. the owner stored for the path
+     * or, if there is none, for its nearest ancestor storing one
+     *
+     * @param relativeFilePath The path
+     *
+     * @return The owner or null, if neither the path nor any of its ancestors has one
+     *
+     * @throws InputOutputException If reading an object fails
+     */
+    String getEffectiveOwner(String relativeFilePath)
+            throws InputOutputException;
+
+    /**
+     * Returns a counter which is incremented whenever the sharers or the owner stored
+     * for any path change. Values resolved from the sharing of paths remain valid
+     * as long as the counter did not change.
+     * <p>
+     * The counter may also be incremented if a path is written whose previous sharing is not known without reading it
+     *
+     * @return The current sharing version
+     *
+     * @throws InputOutputException If determining the sharing version fails
+     */
+    long getSharingVersion()
+            throws InputOutputException;
+
+    /**
+     * Returns the paths which store the given user as sharer themselves,
+     * regardless of whether the access has been removed. Inherited sharers are not considered
+     *
+     * @param username The name of the user
+     *
+     * @return The paths storing the user as sharer
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    Set<String> getPathsWithExplicitSharer(String username)
+            throws InputOutputException;
+
+    /**
+     * Returns the paths owned by the given user
+     *
+     * @param owner The name of the owner
+     *
+     * @return The paths owned by the user
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    Set<String> getPathsOwnedBy(String owner)
+            throws InputOutputException;
+
+    /**
+     * Returns the paths having the given delete type
+     *
+     * @param deleteType The delete type
+     *
+     * @return The paths having the delete type
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    Set<String> getPathsWithDeleteType(DeleteType deleteType)
+            throws InputOutputException;
+
+    /**
+     * Returns the paths of which the latest version has the given content hash
+     *
+     * @param contentHash The hash of the content
+     *
+     * @return The paths having the content hash
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    Set<String> getPathsWithContentHash(String contentHash)
+            throws InputOutputException;
+
+    /**
+     * Returns the paths having a version with the given content,
+     * i.e. not only the latest one
+     *
+     * @param contentHash The hash of the content
+     *
+     * @return The paths referencing the content
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    Set<String> getPathsWithContent(String contentHash)
+            throws InputOutputException;
+
+    /**
+     * Returns the number of versions of all paths having the given content.
+     * Content referenced at least once has not to be stored or transferred again
+     *
+     * @param contentHash The hash of the content
+     *
+     * @return The number of references, 0 if the content is unknown
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    int getContentReferenceCount(String contentHash)
+            throws InputOutputException;
+
+    /**
+     * Returns the number of chunks of all versions having the given content
+     *
+     * @param chunkHash The hash of the chunk
+     *
+     * @return The number of references, 0 if the chunk is unknown
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    int getChunkReferenceCount(String chunkHash)
+            throws InputOutputException;
+
+    /**
+     * Returns the hashes of all contents and chunks which are not referenced by any version anymore,
+     * e.g. due to removed versions or objects, but were referenced on the last invocation
+     * or since then. The hashes referenced now are recorded in the object store,
+     * so that content released before restarting is returned too. The content may be collected afterwards.
+     * <p>
+     * Content which has never been referenced on any invocation and was released
+     * before the references have been counted in the current session is not returned
+     *
+     * @return The hashes of unreferenced contents and chunks
+     *
+     * @throws InputOutputException If reading the object store fails
+     */
+    Set<String> removeUnreferencedContent()
+            throws InputOutputException;
+
+    /**
+     * Compares the index with the objects stored in the object directory.
+     * All objects are read in parallel, neither the index nor any object is modified
+     *
+     * @return The report of the orphaned, missing, misplaced and unreadable objects
+     *
+     * @throws InputOutputException If listing the object directory fails
+     */
+    IndexReport verifyIndex()
+            throws InputOutputException;
+
+    /**
+     * Rebuilds the index from the objects stored in the object directory, e.g. after the index
+     * file has been lost or corrupted. Orphaned objects are added to the index and paths without
+     * an object are removed from it, misplaced and unreadable objects are left untouched
+     *
+     * @return The report of the inconsistencies found before rebuilding
+     *
+     * @throws InputOutputException If listing the object directory or writing the index fails
+     */
+    IndexReport rebuildIndex()
+            throws InputOutputException;
+
     /**
      * Returns the current instance of the object store's index
      *
@@ -111,4 +412,18 @@ public interface IObjectManager {
      * @return The storage adapter for the object store
      */
     ITreeStorageAdapter getStorageAdapater();
+
+    /**
+     * Returns the registry to which persistence operations are reported
+     *
+     * @return The metric registry
+     */
+    IMetricRegistry getMetricRegistry();
+
+    /**
+     * Returns the id of this client under which its changes are counted in version vectors
+     *
+     * @return The client id
+     */
+    String getClientId();
 }
@@ -121,4 +121,11 @@ public interface IObjectStore {
      * @return The delete manager
      */
     IDeleteManager getDeleteManager();
+
+    /**
+     * Returns the permission resolver to check the access of users to files
+     *
+     * @return The permission resolver
+     */
+    IPermissionResolver getPermissionResolver();
 }
@@ -0,0 +1,104 @@
+package org.rmatil.sync.version.api;
+
+import java.util.Iterator;
+
+/**
+ * A set of relative paths in which each path is assigned
+ * a dense integer handle. Paths are split at their separator,
+ * so that common parent directories are only stored once.
+ * <p>
+ * Handles are stable as long as the path is contained in the table.
+ * Handles of removed paths may be reused for paths added later on.
+ */
+public interface IPathTable extends Iterable<String> {
+
+    /**
+     * Denotes a path which is not contained in the table
+     */
+    int NO_HANDLE = - 1;
+
+    /**
+     * Adds the given path
+     *
+     * @param path The path to add
+     *
+     * @return True, if the path was not contained before
+     */
+    boolean add(String path);
+
+    /**
+     * Removes the given path
+     *
+     * @param path The path to remove
+     *
+     * @return True, if the path was contained before
+     */
+    boolean remove(String path);
+
+    /**
+     * Returns whether the given path is contained
+     *
+     * @param path The path to check
+     *
+     * @return True, if the path is contained
+     */
+    boolean contains(String path);
+
+    /**
+     * Returns the handle of the given path
+     *
+     * @param path The path of which to get the handle
+     *
+     * @return The handle or {@link #NO_HANDLE} if the path is not contained
+     */
+    int getHandle(String path);
+
+    /**
+     * Returns the path of the given handle
+     *
+     * @param handle The handle of the path
+     *
+     * @return The path
+     *
+     * @throws IllegalArgumentException If no path is contained for the given handle
+     */
+    String getPath(int handle);
+
+    /**
+     * Returns the number of contained paths
+     *
+     * @return The number of paths
+     */
+    int size();
+
+    /**
+     * Removes all paths
+     */
+    void clear();
+
+    /**
+     * Returns an iterator over all paths. Children are returned
+     * directly after their parent, siblings in the order of their names.
+     *
+     * @return The iterator over all paths
+     */
+    @Override
+    Iterator<String> iterator();
+
+    /**
+     * Returns an iterator over all paths located below the given parent,
+     * i.e. over all paths starting with the parent followed by a separator
+     *
+     * @param parentPath The parent path
+     *
+     * @return The iterator over all paths below the parent
+     */
+    Iterator<String> iterator(String parentPath);
+
+    /**
+     * Returns an estimation of the bytes used to store the paths
+     *
+     * @return The number of bytes
+     */
+    long getMemoryUsage();
+}
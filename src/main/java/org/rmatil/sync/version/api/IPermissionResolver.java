@@ -0,0 +1,42 @@
+package org.rmatil.sync.version.api;
+
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+/**
+ * Resolves the access a particular user has to a path,
+ * taking the owner and the sharers of the path as well as
+ * the ones inherited from its ancestors into account.
+ */
+public interface IPermissionResolver {
+
+    /**
+     * Returns the effective access of the given user to the given path.
+     * The owner of a path has write access. Otherwise, the access type of the
+     * sharer having the username is returned, whereby a sharer stored for a path
+     * replaces the one inherited from above
+     *
+     * @param username The name of the user
+     * @param path     The path to access
+     *
+     * @return The access type, {@link AccessType#ACCESS_REMOVED} if the user has no access at all
+     *
+     * @throws InputOutputException If reading the sharing of the path fails
+     */
+    AccessType getAccessType(String username, String path)
+            throws InputOutputException;
+
+    /**
+     * Returns whether the given user has at least the given access to the given path.
+     * Since access types build a chain, a user having write access is allowed to read too
+     *
+     * @param username   The name of the user
+     * @param accessType The required access type
+     * @param path       The path to access
+     *
+     * @return True, if the effective access of the user is sufficient
+     *
+     * @throws InputOutputException If reading the sharing of the path fails
+     */
+    boolean hasAccess(String username, AccessType accessType, String path)
+            throws InputOutputException;
+}
@@ -0,0 +1,16 @@
+package org.rmatil.sync.version.api;
+
+/**
+ * Is notified about the progress of an operation affecting many paths
+ */
+@FunctionalInterface
+public interface IProgressListener {
+
+    /**
+     * Called after another path has been processed
+     *
+     * @param processed The number of paths processed so far
+     * @param total     The total number of paths to process
+     */
+    void onProgress(int processed, int total);
+}
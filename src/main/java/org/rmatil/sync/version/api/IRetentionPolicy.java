@@ -0,0 +1,22 @@
+package org.rmatil.sync.version.api;
+
+import org.rmatil.sync.version.core.model.Version;
+
+import java.util.List;
+
+/**
+ * Decides which versions of a path are kept in its history
+ */
+public interface IRetentionPolicy {
+
+    /**
+     * Returns the versions to keep of the given history.
+     * The latest version must always be kept
+     *
+     * @param versions The versions of a path, from the oldest to the latest
+     * @param now      The current time in milliseconds since the epoch
+     *
+     * @return The versions to keep in the same order. Might be the given list, if all versions are kept
+     */
+    List<Version> retain(List<Version> versions, long now);
+}
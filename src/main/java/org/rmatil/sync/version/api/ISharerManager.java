@@ -12,7 +12,8 @@ import java.util.Set;
 public interface ISharerManager {
 
     /**
-     * Returns a set of sharers of the given path
+     * Returns a set of sharers of the given path, including
+     * the ones inherited from the directories containing it
      *
      * @param pathToFile The path of which to get all sharers
      *
@@ -23,6 +24,19 @@ public interface ISharerManager {
     Set<Sharer> getSharer(String pathToFile)
             throws InputOutputException;
 
+    /**
+     * Returns whether the given path is shared, either by itself
+     * or by one of the directories containing it
+     *
+     * @param pathToFile The path to check
+     *
+     * @return True, if the path is shared
+     *
+     * @throws InputOutputException If reading sharers from the object store failed
+     */
+    boolean isShared(String pathToFile)
+            throws InputOutputException;
+
     /**
      * Adds the given sharer for the file on the given path
      *
@@ -35,6 +49,21 @@ public interface ISharerManager {
     void addSharer(String username, AccessType accessType, String pathToFile)
             throws InputOutputException;
 
+    /**
+     * Adds the given sharer for the directory on the given path and all paths below it.
+     * The paths below inherit the sharer, hence only the ones storing the sharer
+     * themselves are changed. All changed objects are written in a single batch
+     *
+     * @param username        The sharer's username to add
+     * @param accessType      The access type which is granted to the sharer
+     * @param pathToDirectory The path to the directory
+     * @param listener        The listener notified about the written objects. May be null
+     *
+     * @throws InputOutputException If adding the sharer failed
+     */
+    void addSharerRecursively(String username, AccessType accessType, String pathToDirectory, IProgressListener listener)
+            throws InputOutputException;
+
     /**
      * Removes the given sharer from the file on the specified path
      *
@@ -46,6 +75,20 @@ public interface ISharerManager {
     void removeSharer(String username, String pathToFile)
             throws InputOutputException;
 
+    /**
+     * Removes the given sharer from the directory on the given path and all paths below it.
+     * The paths below inherit the removal, hence only the ones granting access to the sharer
+     * themselves are changed. All changed objects are written in a single batch
+     *
+     * @param username        The username of the sharer to remove
+     * @param pathToDirectory The path to the directory
+     * @param listener        The listener notified about the written objects. May be null
+     *
+     * @throws InputOutputException If the sharer is not present in the subtree or removing it failed
+     */
+    void removeSharerRecursively(String username, String pathToDirectory, IProgressListener listener)
+            throws InputOutputException;
+
     /**
      * Adds the owner to the file on the specified path
      *
@@ -79,6 +122,30 @@ public interface ISharerManager {
     String getOwner(String pathToFile)
             throws InputOutputException;
 
+    /**
+     * Returns all paths which are shared with the given user
+     *
+     * @param username The username of the sharer
+     *
+     * @return The paths to which the user has access
+     *
+     * @throws InputOutputException If accessing the object store fails
+     */
+    Set<String> getPathsSharedWith(String username)
+            throws InputOutputException;
+
+    /**
+     * Returns all paths owned by the given user
+     *
+     * @param username The owner's username
+     *
+     * @return The paths owned by the user
+     *
+     * @throws InputOutputException If accessing the object store fails
+     */
+    Set<String> getPathsOwnedBy(String username)
+            throws InputOutputException;
+
     /**
      * Returns the used object manager
      *
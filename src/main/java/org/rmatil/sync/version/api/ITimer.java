@@ -0,0 +1,28 @@
+package org.rmatil.sync.version.api;
+
+/**
+ * Records the duration of operations
+ */
+public interface ITimer {
+
+    /**
+     * Records the duration of a single operation
+     *
+     * @param durationNanos The duration in nanoseconds
+     */
+    void record(long durationNanos);
+
+    /**
+     * Returns the number of recorded operations
+     *
+     * @return The number of recorded durations
+     */
+    long getCount();
+
+    /**
+     * Returns the sum of all recorded durations
+     *
+     * @return The total duration in nanoseconds
+     */
+    long getTotalNanos();
+}
@@ -22,6 +22,20 @@ public interface IVersionManager {
     List<Version> getVersions(String pathToFile)
             throws InputOutputException;
 
+    /**
+     * Returns a page of the versions of the given file, without reading any other version
+     *
+     * @param pathToFile The path to the file for which the versions should be returned
+     * @param offset     The index of the first version to return
+     * @param limit      The maximal number of versions to return
+     *
+     * @return The versions from the oldest to the latest
+     *
+     * @throws InputOutputException If reading versions failed
+     */
+    List<Version> getVersions(String pathToFile, int offset, int limit)
+            throws InputOutputException;
+
     /**
      * Adds the given version to the object store of the specified file
      *
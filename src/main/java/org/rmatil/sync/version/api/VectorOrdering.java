@@ -0,0 +1,24 @@
+package org.rmatil.sync.version.api;
+
+public enum VectorOrdering {
+
+    /**
+     * Both vectors contain the same changes
+     */
+    EQUAL,
+
+    /**
+     * The other vector contains all changes of this one and more
+     */
+    BEFORE,
+
+    /**
+     * This vector contains all changes of the other one and more
+     */
+    AFTER,
+
+    /**
+     * Both vectors contain changes the other does not
+     */
+    CONCURRENT
+}
@@ -0,0 +1,224 @@
+package org.rmatil.sync.version.config;
+
+import org.rmatil.sync.version.api.IHasher;
+import org.rmatil.sync.version.api.IMetricRegistry;
+import org.rmatil.sync.version.api.IRetentionPolicy;
+import org.rmatil.sync.version.core.chunking.ContentDefinedChunker;
+import org.rmatil.sync.version.core.hashing.DigestHasher;
+import org.rmatil.sync.version.core.metrics.NoOpMetricRegistry;
+
+import java.nio.file.Path;
+
+/**
+ * The configuration of a single object store and its object manager.
+ * Unless changed, it uses the hashing algorithm of {@link Config#DEFAULT}
+ * for object keys and versions, does not report metrics and keeps the index on the heap.
+ */
+public class ObjectStoreConfig {
+
+    /**
+     * Hashes paths to the names of their objects. Must be the same
+     * on all clients since object stores are merged by these names
+     */
+    protected IHasher objectKeyHasher;
+
+    /**
+     * The maximal number of paths of which the object key is cached
+     */
+    protected int objectKeyCacheSize;
+
+    /**
+     * Hashes the contents of files to the canonical hash of their versions.
+     * Must be the same on all clients
+     */
+    protected IHasher contentHasher;
+
+    /**
+     * Hashes the contents of files to detect locally whether they
+     * changed since the last sync. If null, the content hasher is used only
+     */
+    protected IHasher changeDetectionHasher;
+
+    /**
+     * The maximal number of paths of which the change detection hash is remembered
+     */
+    protected int changeDetectionCacheSize;
+
+    protected IMetricRegistry metricRegistry;
+
+    /**
+     * The local file in which the paths of the index are kept memory mapped.
+     * If null, the paths are kept on the heap
+     */
+    protected Path mappedIndexFile;
+
+    /**
+     * The local file in which the latest version of each object is kept between restarts,
+     * so that the first sync does not read the version log of each object. If null, no snapshot is kept
+     */
+    protected Path versionSnapshotFile;
+
+    /**
+     * The chunker to record the chunks of large files in their versions.
+     * If null, no chunks are recorded
+     */
+    protected ContentDefinedChunker chunker;
+
+    /**
+     * The policy deciding which versions are kept when compacting the history of paths.
+     * If null, all versions are kept
+     */
+    protected IRetentionPolicy retentionPolicy;
+
+    /**
+     * The id under which the changes of this client are counted in version vectors.
+     * Must be unique among all clients. If null, a random id is created once and stored in the object store
+     */
+    protected String clientId;
+
+    /**
+     * The maximal number of paths of which the explicit sharing is cached to resolve inherited sharers
+     */
+    protected int sharingCacheSize;
+
+    /**
+     * The maximal number of cached permission checks
+     */
+    protected int permissionCacheSize;
+
+    /**
+     * The number of threads reading objects in parallel when the index is rebuilt or verified
+     */
+    protected int indexRebuildThreads;
+
+    public ObjectStoreConfig() {
+        IHasher defaultHasher = new DigestHasher(Config.DEFAULT.getHashingAlgorithm());
+
+        this.objectKeyHasher = defaultHasher;
+        this.objectKeyCacheSize = 65536;
+        this.contentHasher = defaultHasher;
+        this.changeDetectionHasher = null;
+        this.changeDetectionCacheSize = 100000;
+        this.metricRegistry = NoOpMetricRegistry.INSTANCE;
+        this.mappedIndexFile = null;
+        this.versionSnapshotFile = null;
+        this.chunker = null;
+        this.retentionPolicy = null;
+        this.clientId = null;
+        this.sharingCacheSize = 4096;
+        this.permissionCacheSize = 16384;
+        this.indexRebuildThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+    public IHasher getObjectKeyHasher() {
+        return objectKeyHasher;
+    }
+
+    public void setObjectKeyHasher(IHasher objectKeyHasher) {
+        this.objectKeyHasher = objectKeyHasher;
+    }
+
+    public int getObjectKeyCacheSize() {
+        return objectKeyCacheSize;
+    }
+
+    public void setObjectKeyCacheSize(int objectKeyCacheSize) {
+        this.objectKeyCacheSize = objectKeyCacheSize;
+    }
+
+    public IHasher getContentHasher() {
+        return contentHasher;
+    }
+
+    public void setContentHasher(IHasher contentHasher) {
+        this.contentHasher = contentHasher;
+    }
+
+    public IHasher getChangeDetectionHasher() {
+        return changeDetectionHasher;
+    }
+
+    public void setChangeDetectionHasher(IHasher changeDetectionHasher) {
+        this.changeDetectionHasher = changeDetectionHasher;
+    }
+
+    public int getChangeDetectionCacheSize() {
+        return changeDetectionCacheSize;
+    }
+
+    public void setChangeDetectionCacheSize(int changeDetectionCacheSize) {
+        this.changeDetectionCacheSize = changeDetectionCacheSize;
+    }
+
+    public IMetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    public void setMetricRegistry(IMetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public Path getMappedIndexFile() {
+        return mappedIndexFile;
+    }
+
+    public void setMappedIndexFile(Path mappedIndexFile) {
+        this.mappedIndexFile = mappedIndexFile;
+    }
+
+    public Path getVersionSnapshotFile() {
+        return versionSnapshotFile;
+    }
+
+    public void setVersionSnapshotFile(Path versionSnapshotFile) {
+        this.versionSnapshotFile = versionSnapshotFile;
+    }
+
+    public ContentDefinedChunker getChunker() {
+        return chunker;
+    }
+
+    public void setChunker(ContentDefinedChunker chunker) {
+        this.chunker = chunker;
+    }
+
+    public IRetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    public void setRetentionPolicy(IRetentionPolicy retentionPolicy) {
+        this.retentionPolicy = retentionPolicy;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public int getSharingCacheSize() {
+        return sharingCacheSize;
+    }
+
+    public void setSharingCacheSize(int sharingCacheSize) {
+        this.sharingCacheSize = sharingCacheSize;
+    }
+
+    public int getPermissionCacheSize() {
+        return permissionCacheSize;
+    }
+
+    public void setPermissionCacheSize(int permissionCacheSize) {
+        this.permissionCacheSize = permissionCacheSize;
+    }
+
+    public int getIndexRebuildThreads() {
+        return indexRebuildThreads;
+    }
+
+    public void setIndexRebuildThreads(int indexRebuildThreads) {
+        this.indexRebuildThreads = indexRebuildThreads;
+    }
+}
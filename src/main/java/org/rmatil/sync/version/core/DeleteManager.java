@@ -3,9 +3,11 @@ package org.rmatil.sync.version.core;
 import org.rmatil.sync.commons.hashing.Hash;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
 import org.rmatil.sync.version.api.DeleteType;
+import org.rmatil.sync.version.api.ICounter;
 import org.rmatil.sync.version.api.IDeleteManager;
 import org.rmatil.sync.version.api.IObjectManager;
 import org.rmatil.sync.version.config.Config;
+import org.rmatil.sync.version.core.metrics.MetricNames;
 import org.rmatil.sync.version.core.model.Delete;
 import org.rmatil.sync.version.core.model.PathObject;
 
@@ -15,14 +17,17 @@ public class DeleteManager implements IDeleteManager {
 
     protected IObjectManager objectManager;
 
+    protected ICounter deleteChanges;
+
     public DeleteManager(IObjectManager objectManager) {
         this.objectManager = objectManager;
+        this.deleteChanges = objectManager.getMetricRegistry().counter(MetricNames.DELETE_CHANGES);
     }
 
     @Override
     public synchronized Delete getDelete(String pathToFile)
             throws InputOutputException {
-        PathObject pathObject = this.objectManager.getObjectForPath(pathToFile);
+        PathObject pathObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(pathToFile));
 
         return pathObject.getDeleted();
     }
@@ -41,7 +46,7 @@ public class DeleteManager implements IDeleteManager {
 
     protected synchronized void addChange(String pathToFile, DeleteType deleteType)
             throws InputOutputException {
-        PathObject pathObject = this.objectManager.getObjectForPath(pathToFile);
+        PathObject pathObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(pathToFile));
         pathObject.getDeleted().setDeleteType(deleteType);
 
         List<String> deleteHistory = pathObject.getDeleted().getDeleteHistory();
@@ -55,6 +60,8 @@ public class DeleteManager implements IDeleteManager {
         nextDeleteHistoryEntry = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), nextDeleteHistoryEntry + deleteType.name());
         deleteHistory.add(nextDeleteHistoryEntry);
 
+        pathObject.getVersionVector().increment(this.objectManager.getClientId());
         this.objectManager.writeObject(pathObject);
+        this.deleteChanges.increment();
     }
 }
@@ -1,27 +1,90 @@
 package org.rmatil.sync.version.core;
 
-import org.rmatil.sync.commons.hashing.Hash;
+import org.rmatil.sync.commons.path.Naming;
 import org.rmatil.sync.persistence.api.StorageType;
 import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
 import org.rmatil.sync.persistence.core.tree.TreePathElement;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
-import org.rmatil.sync.version.api.IObjectManager;
-import org.rmatil.sync.version.config.Config;
+import org.rmatil.sync.version.api.*;
+import org.rmatil.sync.version.config.ObjectStoreConfig;
+import org.rmatil.sync.version.core.hashing.PathHashCache;
+import org.rmatil.sync.version.core.index.BloomFilter;
+import org.rmatil.sync.version.core.index.ContentIndex;
+import org.rmatil.sync.version.core.index.IndexReport;
+import org.rmatil.sync.version.core.index.MappedPathTable;
+import org.rmatil.sync.version.core.index.PathTable;
+import org.rmatil.sync.version.core.index.SecondaryIndex;
+import org.rmatil.sync.version.core.index.SharingCache;
+import org.rmatil.sync.version.core.index.VersionSnapshot;
+import org.rmatil.sync.version.core.jfr.FlightRecorderSupport;
+import org.rmatil.sync.version.core.jfr.IndexPersistEvent;
+import org.rmatil.sync.version.core.jfr.WriteObjectEvent;
+import org.rmatil.sync.version.core.metrics.MetricNames;
+import org.rmatil.sync.version.core.metrics.NoOpMetricRegistry;
 import org.rmatil.sync.version.core.model.Index;
+import org.rmatil.sync.version.core.model.LazyVersionList;
 import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Sharer;
+import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.storage.VersionLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Stores each path object as a small header containing all but its versions,
+ * and an append-only {@link VersionLog} containing its versions. Path objects
+ * are read with a {@link LazyVersionList}, so that their versions are only read
+ * if accessed. Headers of an earlier layout still containing the versions are
+ * read as they are and converted on the next write.
+ */
 public class ObjectManager implements IObjectManager {
 
     private static final Logger logger = LoggerFactory.getLogger(ObjectManager.class);
 
+    /**
+     * The name of the file in the object store containing the client id, if none is configured
+     */
+    public static final String CLIENT_ID_FILE_NAME = "client.id";
+
+    /**
+     * The extension of the file next to the index file containing its checksum, so that
+     * a memory mapped index can be validated without reading the whole index file
+     */
+    public static final String INDEX_CHECKSUM_EXTENSION = ".crc";
+
+    /**
+     * The name of the file in the object store containing the hashes of the contents and chunks
+     * which were referenced when removing unreferenced content the last time, one per line
+     */
+    public static final String REFERENCED_CONTENT_FILE_NAME = "referenced.content";
+
+    /**
+     * The number of objects read by a single task when scanning the object directory
+     */
+    protected static final int SCAN_BATCH_SIZE = 256;
+
     protected ITreeStorageAdapter storageAdapter;
 
     protected String indexFileName;
@@ -30,36 +93,290 @@ public class ObjectManager implements IObjectManager {
 
     protected Index index;
 
+    /**
+     * The memory mapped paths of the index, null if kept on the heap
+     */
+    protected MappedPathTable mappedPathTable;
+
+    /**
+     * The paths of a memory mapped index, so that lookups of missing paths do not
+     * page in the mapped file. Built on the first lookup, null before resp. if kept on the heap
+     */
+    protected BloomFilter pathFilter;
+
+    /**
+     * The number of paths removed since the path filter has been built
+     */
+    protected int pathFilterRemovals;
+
+    /**
+     * The paths by sharer, owner, delete type and content hash.
+     * Built from the headers of all objects on the first query, null before
+     */
+    protected SecondaryIndex secondaryIndex;
+
+    /**
+     * The references of all versions to their content and chunks.
+     * Built from all versions on the first query of references, null before
+     */
+    protected ContentIndex contentIndex;
+
+    /**
+     * The paths of all indexed objects by their file name hash, so that appended
+     * versions are indexed without reading their object. Built with the secondary index, null before
+     */
+    protected Map<String, String> indexedPaths;
+
+    protected IMetricRegistry metricRegistry;
+
+    /**
+     * Hashes paths to the names of their objects, shared by all managers and the index
+     */
+    protected PathHashCache objectKeyHasher;
+
+    protected ICounter indexWrites;
+
+    protected IHistogram indexBytesWritten;
+
+    protected ICounter objectReads;
+
+    protected ICounter objectReadMisses;
+
+    protected ICounter existsFilterMisses;
+
+    protected IHistogram objectBytesRead;
+
+    protected ITimer objectReadTime;
+
+    protected ICounter objectWrites;
+
+    protected IHistogram objectBytesWritten;
+
+    protected ITimer objectWriteTime;
+
+    protected ICounter objectRemovals;
+
+    /**
+     * The id under which the changes of this client are counted in version vectors
+     */
+    protected String clientId;
+
+    /**
+     * The explicit sharing of recently resolved paths and their ancestors
+     */
+    protected SharingCache sharingCache;
+
+    /**
+     * Incremented whenever the sharers or the owner of any path might have changed
+     */
+    protected volatile long sharingVersion;
+
+    /**
+     * The local file of the snapshot of the latest versions, written on closing. Null if no snapshot is kept
+     */
+    protected Path versionSnapshotFile;
+
+    /**
+     * The snapshot written on the last closing, null if none is kept or it could not be used
+     */
+    protected VersionSnapshot versionSnapshot;
+
+    /**
+     * The latest versions of the objects read or changed since opening, which replace the ones
+     * of the snapshot. Null values denote objects without versions. Null if no snapshot is kept
+     */
+    protected Map<String, Version> latestVersions;
+
+    /**
+     * The checksum of the index file as read on opening resp. as written the last time
+     */
+    protected long indexChecksum;
+
+    /**
+     * The number of threads reading objects when the index is rebuilt or verified
+     */
+    protected int indexRebuildThreads;
+
     public ObjectManager(String indexFileName, String objectDirName, ITreeStorageAdapter storageAdapter)
             throws InputOutputException {
+        this(indexFileName, objectDirName, storageAdapter, NoOpMetricRegistry.INSTANCE);
+    }
+
+    /**
+     * @param indexFileName  The name of the index file
+     * @param objectDirName  The name of the directory in which the objects are stored
+     * @param storageAdapter The storage adapter having the object store as root
+     * @param metricRegistry The registry to which persistence operations are reported
+     *
+     * @throws InputOutputException If creating the index fails
+     */
+    public ObjectManager(String indexFileName, String objectDirName, ITreeStorageAdapter storageAdapter, IMetricRegistry metricRegistry)
+            throws InputOutputException {
+        this(indexFileName, objectDirName, storageAdapter, metricRegistry, null);
+    }
+
+    /**
+     * @param indexFileName   The name of the index file
+     * @param objectDirName   The name of the directory in which the objects are stored
+     * @param storageAdapter  The storage adapter having the object store as root
+     * @param metricRegistry  The registry to which persistence operations are reported
+     * @param mappedIndexFile The local file in which the paths of the index are kept memory mapped
+     *                        outside of the heap. If null, the paths are kept on the heap
+     *
+     * @throws InputOutputException If creating the index fails
+     */
+    public ObjectManager(String indexFileName, String objectDirName, ITreeStorageAdapter storageAdapter, IMetricRegistry metricRegistry, Path mappedIndexFile)
+            throws InputOutputException {
+        this(indexFileName, objectDirName, storageAdapter, createConfig(metricRegistry, mappedIndexFile));
+    }
+
+    /**
+     * @param indexFileName  The name of the index file
+     * @param objectDirName  The name of the directory in which the objects are stored
+     * @param storageAdapter The storage adapter having the object store as root
+     * @param config         The configuration of the hashing of object keys, the metrics and the memory mapped index
+     *
+     * @throws InputOutputException If creating the index fails
+     */
+    public ObjectManager(String indexFileName, String objectDirName, ITreeStorageAdapter storageAdapter, ObjectStoreConfig config)
+            throws InputOutputException {
         this.storageAdapter = storageAdapter;
         this.indexFileName = indexFileName;
         this.objectDirName = objectDirName;
+        IMetricRegistry metricRegistry = config.getMetricRegistry();
+        Path mappedIndexFile = config.getMappedIndexFile();
+
+        this.objectKeyHasher = new PathHashCache(
+                config.getObjectKeyHasher(),
+                config.getObjectKeyCacheSize(),
+                metricRegistry.counter(MetricNames.PATH_HASH_COMPUTATIONS),
+                metricRegistry.counter(MetricNames.PATH_HASH_CACHE_HITS)
+        );
+
+        this.metricRegistry = metricRegistry;
+        this.indexWrites = metricRegistry.counter(MetricNames.INDEX_WRITES);
+        this.indexBytesWritten = metricRegistry.histogram(MetricNames.INDEX_BYTES_WRITTEN);
+        this.objectReads = metricRegistry.counter(MetricNames.OBJECT_READS);
+        this.objectReadMisses = metricRegistry.counter(MetricNames.OBJECT_READ_MISSES);
+        this.existsFilterMisses = metricRegistry.counter(MetricNames.EXISTS_FILTER_MISSES);
+        this.objectBytesRead = metricRegistry.histogram(MetricNames.OBJECT_BYTES_READ);
+        this.objectReadTime = metricRegistry.timer(MetricNames.OBJECT_READ_TIME);
+        this.objectWrites = metricRegistry.counter(MetricNames.OBJECT_WRITES);
+        this.objectBytesWritten = metricRegistry.histogram(MetricNames.OBJECT_BYTES_WRITTEN);
+        this.objectWriteTime = metricRegistry.timer(MetricNames.OBJECT_WRITE_TIME);
+        this.objectRemovals = metricRegistry.counter(MetricNames.OBJECT_REMOVALS);
+        this.sharingCache = new SharingCache(config.getSharingCacheSize());
+        this.indexRebuildThreads = Math.max(1, config.getIndexRebuildThreads());
+
+        if (null != mappedIndexFile) {
+            try {
+                this.mappedPathTable = new MappedPathTable(mappedIndexFile);
+            } catch (IOException e) {
+                throw new InputOutputException(e);
+            }
+        }
 
         TreePathElement indexPath = new TreePathElement(this.indexFileName);
 
         try {
-            // create the index from the stored file
-            logger.trace("Trying to read from existing index file");
+            // a memory mapped index built from the current index file is used without reading the file
+            Long storedChecksum = (null == this.mappedPathTable || ! this.mappedPathTable.isRestored()) ? null : this.readIndexChecksum();
+            if (null != storedChecksum && storedChecksum == this.mappedPathTable.getSourceChecksum() && this.storageAdapter.exists(StorageType.FILE, indexPath)) {
+                logger.trace("Using memory mapped index " + this.mappedPathTable.getGeneration());
+                this.indexChecksum = storedChecksum;
+                this.index = new Index(this.mappedPathTable, this.objectKeyHasher);
+            } else {
+                // create the index from the stored file
+                logger.trace("Trying to read from existing index file");
 
-            byte[] content = this.storageAdapter.read(indexPath);
-            String json = new String(content, StandardCharsets.UTF_8);
-            this.index = Index.fromJson(json);
+                byte[] content = this.storageAdapter.read(indexPath);
+                this.indexChecksum = MappedPathTable.checksum(content);
+                this.index = this.readIndex(content);
+            }
         } catch (InputOutputException e) {
             // the file does not exist yet, so we have to create it
             logger.error(e.getMessage());
-            logger.info("Creating the index file at " + this.indexFileName);
+        } catch (RuntimeException e) {
+            logger.error("Index file " + this.indexFileName + " is corrupt: " + e.getMessage());
+        }
+
+        if (null == this.index) {
+            this.index = this.createIndex();
+
+            if (this.storageAdapter.exists(StorageType.DIRECTORY, new TreePathElement(this.objectDirName))) {
+                // objects are stored already, do not lose track of them
+                IndexReport report = this.rebuildIndex();
+                if (0 == report.getScannedObjects()) {
+                    logger.info("Creating the index file at " + this.indexFileName);
+                } else {
+                    logger.warn("Rebuilt the index file at " + this.indexFileName + " from " + report.getStoredPaths().size() + " objects, " +
+                            report.getMisplacedObjects().size() + " misplaced and " + report.getUnreadableObjects().size() + " unreadable objects were skipped");
+                }
+            } else {
+                logger.info("Creating the index file at " + this.indexFileName);
+                this.persistIndex();
+            }
+        }
+
+        if (null == this.mappedPathTable) {
+            // the index file is written without updating its checksum from now on
+            TreePathElement checksumPath = new TreePathElement(this.indexFileName + INDEX_CHECKSUM_EXTENSION);
+            if (this.storageAdapter.exists(StorageType.FILE, checksumPath)) {
+                this.storageAdapter.delete(checksumPath);
+            }
+        }
+
+        this.clientId = (null != config.getClientId()) ? config.getClientId() : this.readOrCreateClientId();
+
+        if (null != config.getVersionSnapshotFile()) {
+            this.versionSnapshotFile = config.getVersionSnapshotFile();
+            this.latestVersions = new HashMap<>();
 
-            this.index = new Index(new HashMap<>());
-            this.storageAdapter.persist(StorageType.FILE, indexPath, this.index.toJson().getBytes());
+            try {
+                this.versionSnapshot = VersionSnapshot.open(this.versionSnapshotFile, this.indexChecksum);
+            } catch (IOException e) {
+                throw new InputOutputException(e);
+            }
+
+            if (null == this.versionSnapshot) {
+                logger.info("Version snapshot " + this.versionSnapshotFile + " is missing or stale, reading the version logs instead");
+            }
+        }
+    }
+
+    /**
+     * Reads the client id stored in the object store or creates a random one, if none is stored yet
+     *
+     * @return The client id
+     *
+     * @throws InputOutputException If reading or writing the client id fails
+     */
+    protected String readOrCreateClientId()
+            throws InputOutputException {
+        TreePathElement clientIdPath = new TreePathElement(CLIENT_ID_FILE_NAME);
+
+        if (this.storageAdapter.exists(StorageType.FILE, clientIdPath)) {
+            return new String(this.storageAdapter.read(clientIdPath), StandardCharsets.UTF_8).trim();
         }
+
+        String clientId = UUID.randomUUID().toString();
+        this.storageAdapter.persist(StorageType.FILE, clientIdPath, clientId.getBytes(StandardCharsets.UTF_8));
+
+        return clientId;
+    }
+
+    protected static ObjectStoreConfig createConfig(IMetricRegistry metricRegistry, Path mappedIndexFile) {
+        ObjectStoreConfig config = new ObjectStoreConfig();
+        config.setMetricRegistry(metricRegistry);
+        config.setMappedIndexFile(mappedIndexFile);
+
+        return config;
     }
 
     @Override
     public synchronized void clear()
             throws InputOutputException {
         TreePathElement objectPath = new TreePathElement(this.objectDirName);
-        TreePathElement indexPath = new TreePathElement(this.indexFileName);
 
         // delete all objects
         if (this.storageAdapter.exists(StorageType.DIRECTORY, objectPath)) {
@@ -69,56 +386,325 @@ public class ObjectManager implements IObjectManager {
         }
 
         // recreate empty index
-        this.index = new Index(new HashMap<>());
+        this.index = this.createIndex();
+        this.discardPathFilter();
+        this.sharingCache.clear();
+        this.discardVersionSnapshot();
 
-        this.storageAdapter.persist(StorageType.FILE, indexPath, this.index.toJson().getBytes());
+        if (null != this.secondaryIndex) {
+            this.secondaryIndex.clear();
+            this.indexedPaths.clear();
+        }
+        if (null != this.contentIndex) {
+            this.contentIndex.clear();
+        }
+        this.sharingVersion++;
+
+        this.persistIndex();
     }
 
     @Override
     public synchronized void writeObject(PathObject path)
             throws InputOutputException {
+        this.writeObject(path, true);
+    }
+
+    @Override
+    public synchronized void writeObjects(Collection<PathObject> paths, IProgressListener listener)
+            throws InputOutputException {
+        int processed = 0;
+        for (PathObject path : paths) {
+            this.writeObject(path, false);
+
+            processed++;
+            if (null != listener) {
+                listener.onProgress(processed, paths.size());
+            }
+        }
+
+        if (! paths.isEmpty()) {
+            this.persistIndex();
+        }
+    }
+
+    /**
+     * Writes the given PathObject to the object store
+     *
+     * @param path         The path object to write
+     * @param persistIndex Whether to persist the index afterwards
+     *
+     * @throws InputOutputException If writing fails
+     */
+    protected synchronized void writeObject(PathObject path, boolean persistIndex)
+            throws InputOutputException {
+        long start = System.nanoTime();
+        WriteObjectEvent event = FlightRecorderSupport.isAvailable() ? new WriteObjectEvent() : null;
+        if (null != event) {
+            event.begin();
+        }
+
         logger.trace("Writing path object for file " + path.getAbsolutePath());
-        String fileNameHash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), path.getAbsolutePath());
-        this.index.addPath(path.getAbsolutePath(), fileNameHash);
+        String fileNameHash = this.hashPath(path.getAbsolutePath());
+        boolean versionsUnchanged = isUnreadVersionLog(path.getVersions(), fileNameHash);
+        // compared before the cached sharing is invalidated, the secondary index tells it once built
+        boolean sharingChanged = null == this.secondaryIndex && this.isSharingChanged(path, this.index.containsPath(path.getAbsolutePath()));
+        this.index.addPath(path.getAbsolutePath());
+        this.sharingCache.invalidate(path.getAbsolutePath());
+
+        // rewritten paths have their bits set already
+        if (null != this.pathFilter && ! this.pathFilter.mightContain(path.getAbsolutePath())) {
+            this.pathFilter.add(path.getAbsolutePath());
+
+            if (this.pathFilter.size() > this.pathFilter.getExpectedPaths()) {
+                this.discardPathFilter();
+            }
+        }
 
         logger.trace("Calculated hash for file name: " + fileNameHash);
 
         String pathToObject = this.createObjectDirIfNotExists(fileNameHash);
 
-        TreePathElement indexPath = new TreePathElement(this.indexFileName);
         TreePathElement objectPath = new TreePathElement(pathToObject + "/" + fileNameHash + ".json");
 
         logger.trace("Writing path object to " + objectPath.getPath());
-        logger.trace("Writing index to " + indexPath.getPath());
 
-        this.storageAdapter.persist(StorageType.FILE, objectPath, path.toJson().getBytes());
-        this.storageAdapter.persist(StorageType.FILE, indexPath, this.index.toJson().getBytes());
+        byte[] content = createHeader(path).toJson().getBytes();
+        this.storageAdapter.persist(StorageType.FILE, objectPath, content);
+
+        int bytesWritten = content.length;
+        if (! versionsUnchanged) {
+            bytesWritten += this.getVersionLog(fileNameHash).write(path.getVersions());
+
+            if (null != this.latestVersions) {
+                List<Version> versions = path.getVersions();
+                this.latestVersions.put(fileNameHash, versions.isEmpty() ? null : versions.get(versions.size() - 1));
+            }
+        }
+
+        this.objectWrites.increment();
+        this.objectBytesWritten.update(bytesWritten);
+
+        if (null != this.secondaryIndex) {
+            this.indexedPaths.put(fileNameHash, path.getAbsolutePath());
+            sharingChanged = this.secondaryIndex.update(path);
+        }
+        if (sharingChanged) {
+            this.sharingVersion++;
+        }
+        if (null != this.contentIndex && ! versionsUnchanged) {
+            this.contentIndex.update(path);
+        }
+
+        if (persistIndex) {
+            this.persistIndex();
+        }
+        this.objectWriteTime.record(System.nanoTime() - start);
+
+        if (null != event && event.shouldCommit()) {
+            event.path = path.getAbsolutePath();
+            event.bytes = bytesWritten;
+            event.versions = versionsUnchanged ? - 1 : path.getVersions().size();
+            event.commit();
+        }
     }
 
     @Override
     public synchronized PathObject getObject(String fileNameHash)
             throws InputOutputException {
+        PathObject pathObject = this.readHeader(fileNameHash);
+
+        // read the versions right away, so that they are not changed by rewriting them later on
+        if (pathObject.getVersions().isEmpty()) {
+            pathObject.setVersions(new ArrayList<>(this.getVersionLog(fileNameHash).read()));
+        }
+
+        return pathObject;
+    }
+
+    @Override
+    public synchronized PathObject getObjectHeader(String fileNameHash)
+            throws InputOutputException {
+        PathObject pathObject = this.readHeader(fileNameHash);
+
+        if (pathObject.getVersions().isEmpty()) {
+            // only read the versions existing now, even if read after appending another one
+            int versionCount = this.getVersionLog(fileNameHash).size();
+            if (versionCount > 0) {
+                pathObject.setVersions(new LazyVersionList(fileNameHash, () -> this.readVersions(fileNameHash, versionCount)));
+            }
+        }
+
+        return pathObject;
+    }
+
+    /**
+     * Reads the header of the path object having the given file name hash.
+     * Headers of the former layout still contain all versions
+     *
+     * @param fileNameHash The file name hash of the path object
+     *
+     * @return The path object without versions, unless of the former layout
+     *
+     * @throws InputOutputException If reading the header fails
+     */
+    protected synchronized PathObject readHeader(String fileNameHash)
+            throws InputOutputException {
         String pathToHash = this.getAbsolutePathToHash(fileNameHash);
 
         TreePathElement objectPath = new TreePathElement(pathToHash);
 
-        byte[] content = this.storageAdapter.read(objectPath);
+        long start = System.nanoTime();
+        byte[] content;
+        try {
+            content = this.storageAdapter.read(objectPath);
+        } catch (InputOutputException e) {
+            this.objectReadMisses.increment();
+            throw e;
+        }
+
         String json = new String(content, StandardCharsets.UTF_8);
+        PathObject pathObject = PathObject.fromJson(json);
+
+        this.objectReads.increment();
+        this.objectBytesRead.update(content.length);
+        this.objectReadTime.record(System.nanoTime() - start);
 
-        return PathObject.fromJson(json);
+        return pathObject;
     }
 
     @Override
     public synchronized PathObject getObjectForPath(String relativeFilePath)
             throws InputOutputException {
-        String fileNameHash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), relativeFilePath);
+        String fileNameHash = this.hashPath(relativeFilePath);
 
         return this.getObject(fileNameHash);
     }
 
     @Override
-    public synchronized String getHashForPath(String relativeFilePath) {
-        return Hash.hash(Config.DEFAULT.getHashingAlgorithm(), relativeFilePath);
+    public synchronized List<Version> getVersions(String fileNameHash, int offset, int limit)
+            throws InputOutputException {
+        VersionLog versionLog = this.getVersionLog(fileNameHash);
+        if (versionLog.exists()) {
+            return versionLog.read(offset, limit);
+        }
+
+        // the header of the former layout contains all versions
+        List<Version> versions = this.readHeader(fileNameHash).getVersions();
+        if (offset >= versions.size()) {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(versions.subList(offset, (int) Math.min(versions.size(), (long) offset + limit)));
+    }
+
+    @Override
+    public synchronized int getVersionCount(String fileNameHash)
+            throws InputOutputException {
+        VersionLog versionLog = this.getVersionLog(fileNameHash);
+        if (versionLog.exists()) {
+            return versionLog.size();
+        }
+
+        return this.readHeader(fileNameHash).getVersions().size();
+    }
+
+    @Override
+    public synchronized Version getLatestVersion(String fileNameHash)
+            throws InputOutputException {
+        if (null != this.latestVersions) {
+            if (this.latestVersions.containsKey(fileNameHash)) {
+                return this.latestVersions.get(fileNameHash);
+            }
+
+            Version snapshotVersion = (null == this.versionSnapshot) ? null : this.versionSnapshot.getLatestVersion(fileNameHash);
+            if (null != snapshotVersion) {
+                return snapshotVersion;
+            }
+        }
+
+        int versionCount = this.getVersionCount(fileNameHash);
+        Version latestVersion = (0 == versionCount) ? null : this.getVersions(fileNameHash, versionCount - 1, 1).get(0);
+
+        if (null != this.latestVersions) {
+            this.latestVersions.put(fileNameHash, latestVersion);
+        }
+
+        return latestVersion;
+    }
+
+    @Override
+    public synchronized void appendVersion(String fileNameHash, Version version)
+            throws InputOutputException {
+        VersionLog versionLog = this.getVersionLog(fileNameHash);
+        if (! versionLog.exists()) {
+            // convert an object of the former layout
+            PathObject pathObject = this.getObject(fileNameHash);
+            pathObject.getVersions().add(version);
+            this.writeObject(pathObject);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int bytesWritten = versionLog.append(version);
+        if (null != this.latestVersions) {
+            this.latestVersions.put(fileNameHash, version);
+        }
+        this.objectWrites.increment();
+        this.objectBytesWritten.update(bytesWritten);
+
+        String path = (null == this.indexedPaths) ? null : this.indexedPaths.get(fileNameHash);
+        if (null != path) {
+            // only the appended version has to be indexed
+            this.secondaryIndex.updateContentHash(path, version.getHash());
+            if (null != this.contentIndex) {
+                this.contentIndex.append(path, version);
+            }
+        }
+
+        this.objectWriteTime.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public synchronized void writeObjectHeader(PathObject path)
+            throws InputOutputException {
+        if (! this.index.containsPath(path.getAbsolutePath())) {
+            this.writeObject(path);
+            return;
+        }
+
+        long start = System.nanoTime();
+        String fileNameHash = this.hashPath(path.getAbsolutePath());
+        TreePathElement objectPath = new TreePathElement(this.getAbsolutePathToHash(fileNameHash));
+
+        byte[] content = createHeader(path).toJson().getBytes();
+        this.storageAdapter.persist(StorageType.FILE, objectPath, content);
+        boolean sharingChanged = (null == this.secondaryIndex) ? this.isSharingChanged(path, true) : this.secondaryIndex.update(path);
+        this.sharingCache.invalidate(path.getAbsolutePath());
+
+        this.objectWrites.increment();
+        this.objectBytesWritten.update(content.length);
+
+        if (sharingChanged) {
+            this.sharingVersion++;
+        }
+
+        this.objectWriteTime.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public synchronized boolean exists(String relativeFilePath) {
+        BloomFilter pathFilter = this.getPathFilter();
+        if (null != pathFilter && ! pathFilter.mightContain(relativeFilePath)) {
+            this.existsFilterMisses.increment();
+            return false;
+        }
+
+        return this.index.containsPath(relativeFilePath);
+    }
+
+    @Override
+    public String getHashForPath(String relativeFilePath) {
+        return this.hashPath(relativeFilePath);
     }
 
     @Override
@@ -126,21 +712,47 @@ public class ObjectManager implements IObjectManager {
             throws InputOutputException {
         String pathToHash = this.getAbsolutePathToHash(fileNameHash);
 
-        PathObject pathObjectToDelete = this.getObject(fileNameHash);
+        PathObject pathObjectToDelete = this.getObjectHeader(fileNameHash);
         logger.trace("Removing path object for file " + pathObjectToDelete.getAbsolutePath());
         TreePathElement objectPath = new TreePathElement(pathToHash);
-        TreePathElement indexPath = new TreePathElement(this.indexFileName);
 
-        // remove object file, i.e. the file containing versions, ...
+        // remove object file, i.e. the file containing sharers, ...
         if (this.storageAdapter.exists(StorageType.FILE, objectPath)) {
             logger.trace("Removing old path object " + objectPath.getPath());
             this.storageAdapter.delete(objectPath);
+            this.objectRemovals.increment();
+        }
+
+        // remove the versions
+        this.getVersionLog(fileNameHash).delete();
+        if (null != this.latestVersions) {
+            this.latestVersions.put(fileNameHash, null);
         }
 
         logger.trace("Removing file from index...");
         this.index.removePath(pathObjectToDelete.getAbsolutePath());
+        // the removed path has no sharing anymore
+        boolean sharingChanged = (null == this.secondaryIndex) ?
+                this.isSharingChanged(pathObjectToDelete.getAbsolutePath(), true, false, null, null) :
+                this.secondaryIndex.remove(pathObjectToDelete.getAbsolutePath());
+        this.sharingCache.invalidate(pathObjectToDelete.getAbsolutePath());
+
+        // removed paths stay in the filter, rebuild it before it degrades
+        if (null != this.pathFilter && ++ this.pathFilterRemovals > this.pathFilter.size() / 2) {
+            this.discardPathFilter();
+        }
 
-        this.storageAdapter.persist(StorageType.FILE, indexPath, this.index.toJson().getBytes());
+        if (sharingChanged) {
+            this.sharingVersion++;
+        }
+        if (null != this.indexedPaths) {
+            this.indexedPaths.remove(fileNameHash);
+        }
+        if (null != this.contentIndex) {
+            this.contentIndex.remove(pathObjectToDelete.getAbsolutePath());
+        }
+
+        this.persistIndex();
         logger.trace("Rewriting index after removing of file " + pathObjectToDelete.getAbsolutePath());
     }
 
@@ -149,17 +761,345 @@ public class ObjectManager implements IObjectManager {
             throws InputOutputException {
         List<PathObject> children = new ArrayList<>();
 
-        for (Map.Entry<String, String> entry : this.index.getPaths().entrySet()) {
-            // the parent is logically a directory, so to avoid getting the parent directory too,
-            // we can add a slash on the path to the parent dir
-            if (entry.getKey().startsWith(relativeParentFileName + "/")) {
-                children.add(this.getObject(Hash.hash(Config.DEFAULT.getHashingAlgorithm(), entry.getKey())));
-            }
+        // only visits the paths located below the parent, excluding the parent itself
+        for (String path : this.index.getPathsBelow(relativeParentFileName)) {
+            children.add(this.getObject(this.hashPath(path)));
         }
 
         return children;
     }
 
+    @Override
+    public synchronized Set<Sharer> getEffectiveSharers(String relativeFilePath)
+            throws InputOutputException {
+        // visit the ancestors from the root on, so that the sharers of deeper paths win
+        Deque<String> paths = new ArrayDeque<>();
+        for (String path = relativeFilePath; null != path && ! path.isEmpty() && ! "/".equals(path); path = Naming.getParentPath(path)) {
+            paths.push(path);
+        }
+
+        Map<String, Sharer> sharersByUsername = new HashMap<>();
+        for (String path : paths) {
+            for (Sharer sharer : this.getExplicitSharing(path).getSharers()) {
+                sharersByUsername.put(sharer.getUsername(), sharer);
+            }
+        }
+
+        Set<Sharer> sharers = new HashSet<>();
+        for (Sharer sharer : sharersByUsername.values()) {
+            sharers.add(SharingCache.copy(sharer));
+        }
+
+        return sharers;
+    }
+
+    @Override
+    public synchronized String getEffectiveOwner(String relativeFilePath)
+            throws InputOutputException {
+        for (String path = relativeFilePath; null != path && ! path.isEmpty() && ! "/".equals(path); path = Naming.getParentPath(path)) {
+            String owner = this.getExplicitSharing(path).getOwner();
+            if (null != owner) {
+                return owner;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public long getSharingVersion() {
+        return this.sharingVersion;
+    }
+
+    @Override
+    public synchronized boolean isShared(String relativeFilePath)
+            throws InputOutputException {
+        if (this.getExplicitSharing(relativeFilePath).isShared()) {
+            return true;
+        }
+
+        for (Sharer sharer : this.getEffectiveSharers(relativeFilePath)) {
+            if (AccessType.ACCESS_REMOVED != sharer.getAccessType()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public synchronized Set<String> getPathsSharedWith(String username)
+            throws InputOutputException {
+        Set<String> grantingPaths = this.getSecondaryIndex().getPathsSharedWith(username);
+        Set<String> revokingPaths = this.getSecondaryIndex().getPathsWithRemovedSharer(username);
+
+        Set<String> paths = new HashSet<>(grantingPaths);
+        for (String grantingPath : grantingPaths) {
+            for (String path : this.index.getPathsBelow(grantingPath)) {
+                // the access is inherited up to the nearest path removing or granting it again
+                String ancestor = path;
+                while (! grantingPaths.contains(ancestor) && ! revokingPaths.contains(ancestor)) {
+                    ancestor = Naming.getParentPath(ancestor);
+                }
+
+                if (grantingPaths.contains(ancestor)) {
+                    paths.add(path);
+                }
+            }
+        }
+
+        return paths;
+    }
+
+    @Override
+    public synchronized Set<String> getPathsWithExplicitSharer(String username)
+            throws InputOutputException {
+        Set<String> paths = new HashSet<>(this.getSecondaryIndex().getPathsSharedWith(username));
+        paths.addAll(this.getSecondaryIndex().getPathsWithRemovedSharer(username));
+
+        return paths;
+    }
+
+    @Override
+    public synchronized Set<String> getPathsOwnedBy(String owner)
+            throws InputOutputException {
+        return this.getSecondaryIndex().getPathsOwnedBy(owner);
+    }
+
+    @Override
+    public synchronized Set<String> getPathsWithDeleteType(DeleteType deleteType)
+            throws InputOutputException {
+        return this.getSecondaryIndex().getPathsWithDeleteType(deleteType);
+    }
+
+    @Override
+    public synchronized Set<String> getPathsWithContentHash(String contentHash)
+            throws InputOutputException {
+        return this.getSecondaryIndex().getPathsWithContentHash(contentHash);
+    }
+
+    @Override
+    public synchronized Set<String> getPathsWithContent(String contentHash)
+            throws InputOutputException {
+        return this.getContentIndex().getPathsWithContent(contentHash);
+    }
+
+    @Override
+    public synchronized int getContentReferenceCount(String contentHash)
+            throws InputOutputException {
+        return this.getContentIndex().getContentReferenceCount(contentHash);
+    }
+
+    @Override
+    public synchronized int getChunkReferenceCount(String chunkHash)
+            throws InputOutputException {
+        return this.getContentIndex().getChunkReferenceCount(chunkHash);
+    }
+
+    @Override
+    public synchronized Set<String> removeUnreferencedContent()
+            throws InputOutputException {
+        ContentIndex contentIndex = this.getContentIndex();
+        Set<String> hashes = contentIndex.removeUnreferenced();
+
+        // content released before the content index has been built, e.g. before restarting, is only known from the record
+        TreePathElement recordPath = new TreePathElement(REFERENCED_CONTENT_FILE_NAME);
+        if (this.storageAdapter.exists(StorageType.FILE, recordPath)) {
+            String record = new String(this.storageAdapter.read(recordPath), StandardCharsets.UTF_8);
+            for (String hash : record.split("\n")) {
+                if (! hash.isEmpty() && ! contentIndex.isReferenced(hash)) {
+                    hashes.add(hash);
+                }
+            }
+        }
+
+        this.storageAdapter.persist(StorageType.FILE, recordPath, String.join("\n", contentIndex.getReferencedHashes()).getBytes(StandardCharsets.UTF_8));
+
+        return hashes;
+    }
+
+    @Override
+    public synchronized IndexReport verifyIndex()
+            throws InputOutputException {
+        return this.scanObjects();
+    }
+
+    @Override
+    public synchronized IndexReport rebuildIndex()
+            throws InputOutputException {
+        IndexReport report = this.scanObjects();
+
+        for (String path : report.getMissingObjects()) {
+            this.index.removePath(path);
+            this.sharingCache.invalidate(path);
+
+            if (null != this.secondaryIndex) {
+                this.indexedPaths.remove(this.hashPath(path));
+                this.secondaryIndex.remove(path);
+            }
+            if (null != this.contentIndex) {
+                this.contentIndex.remove(path);
+            }
+        }
+
+        for (Map.Entry<String, String> orphan : report.getOrphans().entrySet()) {
+            this.index.addPath(orphan.getKey());
+            this.sharingCache.invalidate(orphan.getKey());
+
+            if (null != this.secondaryIndex) {
+                this.indexedPaths.put(orphan.getValue(), orphan.getKey());
+                this.indexHeader(orphan.getKey(), orphan.getValue(), this.secondaryIndex);
+            }
+            if (null != this.contentIndex) {
+                this.contentIndex.update(this.getObject(orphan.getValue()));
+            }
+        }
+
+        // the sharing of the paths is not compared, since their objects were missing resp. not indexed
+        if (! report.getMissingObjects().isEmpty() || ! report.getOrphans().isEmpty()) {
+            this.sharingVersion++;
+        }
+
+        this.discardPathFilter();
+        this.persistIndex();
+
+        return report;
+    }
+
+    /**
+     * Reads all objects stored in the object directory and compares them with the index.
+     * The listing of the object directory is split into batches which are read and parsed
+     * in parallel, while the listing is still being iterated
+     *
+     * @return The report of the inconsistencies
+     *
+     * @throws InputOutputException If listing the object directory fails
+     */
+    protected synchronized IndexReport scanObjects()
+            throws InputOutputException {
+        TreePathElement objectDir = new TreePathElement(this.objectDirName);
+
+        int scannedObjects = 0;
+        Map<String, String> storedObjects = new ConcurrentHashMap<>();
+        Map<String, String> misplacedObjects = new ConcurrentHashMap<>();
+        Set<String> unreadableObjects = ConcurrentHashMap.newKeySet();
+
+        if (this.storageAdapter.exists(StorageType.DIRECTORY, objectDir)) {
+            ExecutorService executor = Executors.newFixedThreadPool(this.indexRebuildThreads, runnable -> {
+                Thread thread = new Thread(runnable, "index-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            try {
+                List<Future<?>> tasks = new ArrayList<>();
+                List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+                for (TreePathElement entry : this.storageAdapter.getDirectoryContents(objectDir)) {
+                    String fileNameHash = this.getObjectFileNameHash(entry.getPath());
+                    if (null == fileNameHash) {
+                        // directories and version logs
+                        continue;
+                    }
+
+                    scannedObjects++;
+                    batch.add(fileNameHash);
+
+                    if (SCAN_BATCH_SIZE == batch.size()) {
+                        List<String> fileNameHashes = batch;
+                        tasks.add(executor.submit(() -> this.readObjects(fileNameHashes, storedObjects, misplacedObjects, unreadableObjects)));
+                        batch = new ArrayList<>(SCAN_BATCH_SIZE);
+                    }
+                }
+
+                if (! batch.isEmpty()) {
+                    List<String> fileNameHashes = batch;
+                    tasks.add(executor.submit(() -> this.readObjects(fileNameHashes, storedObjects, misplacedObjects, unreadableObjects)));
+                }
+
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InputOutputException(e);
+            } catch (ExecutionException e) {
+                throw new InputOutputException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        Map<String, String> orphans = new HashMap<>();
+        for (Map.Entry<String, String> storedObject : storedObjects.entrySet()) {
+            if (! this.index.containsPath(storedObject.getKey())) {
+                orphans.put(storedObject.getKey(), storedObject.getValue());
+            }
+        }
+
+        Set<String> missingObjects = new HashSet<>();
+        for (String path : this.index.getPathSet()) {
+            if (! storedObjects.containsKey(path)) {
+                missingObjects.add(path);
+            }
+        }
+
+        return new IndexReport(
+                scannedObjects,
+                new HashSet<>(storedObjects.keySet()),
+                orphans,
+                missingObjects,
+                new HashMap<>(misplacedObjects),
+                new HashSet<>(unreadableObjects)
+        );
+    }
+
+    /**
+     * Reads and parses the given objects. Invoked by the threads scanning the object directory,
+     * it must therefore neither lock this object manager nor report to its metrics.
+     * Paths are hence hashed by the underlying hasher, bypassing the path hash cache
+     *
+     * @param fileNameHashes    The file name hashes of the objects to read
+     * @param storedObjects     The file name hashes by the paths of correctly stored objects
+     * @param misplacedObjects  The paths by the file name hashes of objects stored under another hash
+     * @param unreadableObjects The file name hashes of objects which can not be read
+     */
+    protected void readObjects(List<String> fileNameHashes, Map<String, String> storedObjects, Map<String, String> misplacedObjects, Set<String> unreadableObjects) {
+        IHasher pathHasher = this.objectKeyHasher.getHasher();
+        for (String fileNameHash : fileNameHashes) {
+            try {
+                byte[] content = this.storageAdapter.read(new TreePathElement(this.getAbsolutePathToHash(fileNameHash)));
+                String path = PathObject.fromJson(new String(content, StandardCharsets.UTF_8)).getAbsolutePath();
+
+                if (fileNameHash.equals(pathHasher.hash(path))) {
+                    storedObjects.put(path, fileNameHash);
+                } else {
+                    misplacedObjects.put(fileNameHash, path);
+                }
+            } catch (InputOutputException | RuntimeException e) {
+                logger.warn("Could not read object " + fileNameHash + ": " + e.getMessage());
+                unreadableObjects.add(fileNameHash);
+            }
+        }
+    }
+
+    /**
+     * Returns the file name hash of the object stored in the given file
+     *
+     * @param file A file or directory in the object directory
+     *
+     * @return The file name hash or null, if the file is not the header of an object
+     */
+    protected String getObjectFileNameHash(String file) {
+        String name = file.substring(file.lastIndexOf('/') + 1);
+        if (! name.endsWith(".json") || name.length() < ".json".length() + 3) {
+            return null;
+        }
+
+        String fileNameHash = name.substring(0, name.length() - ".json".length());
+
+        return file.endsWith(this.getAbsolutePathToHash(fileNameHash)) ? fileNameHash : null;
+    }
+
     @Override
     public Index getIndex() {
         return this.index;
@@ -180,6 +1120,464 @@ public class ObjectManager implements IObjectManager {
         return this.storageAdapter;
     }
 
+    @Override
+    public IMetricRegistry getMetricRegistry() {
+        return this.metricRegistry;
+    }
+
+    @Override
+    public String getClientId() {
+        return this.clientId;
+    }
+
+    /**
+     * Returns the explicit sharing of the given path, i.e. the sharing stored in its object
+     *
+     * @param relativeFilePath The path
+     *
+     * @return The explicit sharing, not shared if no object is stored for the path
+     *
+     * @throws InputOutputException If reading the object fails
+     */
+    protected synchronized SharingCache.Entry getExplicitSharing(String relativeFilePath)
+            throws InputOutputException {
+        SharingCache.Entry entry = this.sharingCache.get(relativeFilePath);
+        if (null != entry) {
+            return entry;
+        }
+
+        if (! this.exists(relativeFilePath)) {
+            return this.sharingCache.put(relativeFilePath, false, null, null);
+        }
+
+        PathObject header = this.readHeader(this.hashPath(relativeFilePath));
+        return this.sharingCache.put(relativeFilePath, header.isShared(), header.getOwner(), header.getSharers());
+    }
+
+    /**
+     * Persists the current state of the index to the index file
+     *
+     * @throws InputOutputException If writing the index fails
+     */
+    protected synchronized void persistIndex()
+            throws InputOutputException {
+        IndexPersistEvent event = FlightRecorderSupport.isAvailable() ? new IndexPersistEvent() : null;
+        if (null != event) {
+            event.begin();
+        }
+
+        TreePathElement indexPath = new TreePathElement(this.indexFileName);
+        byte[] content = this.index.toJson().getBytes();
+
+        if (null != this.mappedPathTable || null != this.latestVersions) {
+            this.indexChecksum = MappedPathTable.checksum(content);
+        }
+
+        if (null != this.mappedPathTable) {
+            // written first: If writing the index file fails, the checksum does not match the mapped index
+            this.storageAdapter.persist(StorageType.FILE, new TreePathElement(this.indexFileName + INDEX_CHECKSUM_EXTENSION), Long.toString(this.indexChecksum).getBytes(StandardCharsets.UTF_8));
+        }
+
+        logger.trace("Writing index to " + indexPath.getPath());
+        this.storageAdapter.persist(StorageType.FILE, indexPath, content);
+
+        if (null != this.mappedPathTable) {
+            // only marks the table as dirty once, it is flushed on closing. If the
+            // process crashes before, the table is rebuilt from the index file
+            this.mappedPathTable.setSourceChecksum(this.indexChecksum);
+        }
+
+        this.indexWrites.increment();
+        this.indexBytesWritten.update(content.length);
+
+        if (null != event && event.shouldCommit()) {
+            event.paths = this.index.getPaths().size();
+            event.bytes = content.length;
+            event.commit();
+        }
+    }
+
+    /**
+     * Reads the checksum stored next to the index file
+     *
+     * @return The checksum or null, if none is stored or it can not be parsed
+     */
+    protected synchronized Long readIndexChecksum() {
+        TreePathElement checksumPath = new TreePathElement(this.indexFileName + INDEX_CHECKSUM_EXTENSION);
+
+        try {
+            if (! this.storageAdapter.exists(StorageType.FILE, checksumPath)) {
+                return null;
+            }
+
+            return Long.parseLong(new String(this.storageAdapter.read(checksumPath), StandardCharsets.UTF_8).trim());
+        } catch (InputOutputException | NumberFormatException e) {
+            logger.warn("Could not read the checksum of the index file " + this.indexFileName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the secondary index, building it from the headers of all
+     * objects of the index if it is queried for the first time
+     *
+     * @return The secondary index
+     *
+     * @throws InputOutputException If reading an object fails
+     */
+    protected synchronized SecondaryIndex getSecondaryIndex()
+            throws InputOutputException {
+        this.buildSecondaryIndex();
+        return this.secondaryIndex;
+    }
+
+    /**
+     * Returns the content index, building it from all
+     * objects of the index if it is queried for the first time
+     *
+     * @return The content index
+     *
+     * @throws InputOutputException If reading an object fails
+     */
+    protected synchronized ContentIndex getContentIndex()
+            throws InputOutputException {
+        // appended versions are counted for the paths of the secondary index
+        this.buildSecondaryIndex();
+
+        if (null == this.contentIndex) {
+            ContentIndex contentIndex = new ContentIndex();
+            for (String path : this.index.getPathSet()) {
+                contentIndex.update(this.getObject(this.hashPath(path)));
+            }
+
+            this.contentIndex = contentIndex;
+        }
+
+        return this.contentIndex;
+    }
+
+    /**
+     * Builds the secondary index from the headers of all objects
+     * and the latest version of each, if not done yet
+     *
+     * @throws InputOutputException If reading an object fails
+     */
+    protected synchronized void buildSecondaryIndex()
+            throws InputOutputException {
+        if (null != this.secondaryIndex) {
+            return;
+        }
+
+        SecondaryIndex secondaryIndex = new SecondaryIndex();
+        Map<String, String> indexedPaths = new HashMap<>();
+        for (String path : this.index.getPathSet()) {
+            String fileNameHash = this.hashPath(path);
+            this.indexHeader(path, fileNameHash, secondaryIndex);
+            indexedPaths.put(fileNameHash, path);
+        }
+
+        this.secondaryIndex = secondaryIndex;
+        this.indexedPaths = indexedPaths;
+    }
+
+    /**
+     * Indexes the header of the path object having the given file name hash
+     * along with the content hash of its latest version
+     *
+     * @param path           The path of the path object
+     * @param fileNameHash   The file name hash of the path object
+     * @param secondaryIndex The index to update
+     *
+     * @throws InputOutputException If reading the header or the latest version fails
+     */
+    protected synchronized void indexHeader(String path, String fileNameHash, SecondaryIndex secondaryIndex)
+            throws InputOutputException {
+        PathObject header = this.readHeader(fileNameHash);
+        secondaryIndex.update(header);
+
+        // headers of the former layout still contain all versions
+        if (header.getVersions().isEmpty()) {
+            Version latestVersion = this.getLatestVersion(fileNameHash);
+            secondaryIndex.updateContentHash(path, (null == latestVersion) ? null : latestVersion.getHash());
+        }
+    }
+
+    /**
+     * Returns whether writing the given path object changes the explicit sharing of its path
+     *
+     * @param pathObject The path object to write
+     * @param existed    Whether an object is stored for its path already
+     *
+     * @return True, if its sharing changed or might have changed
+     */
+    protected boolean isSharingChanged(PathObject pathObject, boolean existed) {
+        return this.isSharingChanged(pathObject.getAbsolutePath(), existed, pathObject.isShared(), pathObject.getOwner(), pathObject.getSharers());
+    }
+
+    /**
+     * Returns whether the given sharing differs from the one cached for the given path.
+     * If the path is not cached, its stored sharing is unknown without reading its object:
+     * The sharing is then considered changed, unless no object was stored for the path
+     * and it is not shared now either
+     *
+     * @param path     The path
+     * @param existed  Whether an object is stored for the path already
+     * @param isShared Whether the path is flagged as shared now
+     * @param owner    The owner of the path now, may be null
+     * @param sharers  The sharers of the path now, may be null
+     *
+     * @return True, if the sharing changed or might have changed
+     */
+    protected boolean isSharingChanged(String path, boolean existed, boolean isShared, String owner, Set<Sharer> sharers) {
+        SharingCache.Entry entry = this.sharingCache.get(path);
+        if (null == entry) {
+            return existed || isShared || null != owner || (null != sharers && ! sharers.isEmpty());
+        }
+
+        return entry.isShared() != isShared ||
+                ! Objects.equals(entry.getOwner(), owner) ||
+                ! getAccessTypes(entry.getSharers()).equals(getAccessTypes(sharers));
+    }
+
+    protected static Map<String, AccessType> getAccessTypes(Set<Sharer> sharers) {
+        Map<String, AccessType> accessTypes = new HashMap<>();
+        if (null != sharers) {
+            for (Sharer sharer : sharers) {
+                accessTypes.put(sharer.getUsername(), sharer.getAccessType());
+            }
+        }
+
+        return accessTypes;
+    }
+
+    /**
+     * Reads the first versions of the path object having the given file name hash
+     *
+     * @param fileNameHash The file name hash of the path object
+     * @param count        The number of versions to read
+     *
+     * @return The versions from the oldest to the latest
+     *
+     * @throws InputOutputException If reading the version log fails
+     */
+    protected synchronized List<Version> readVersions(String fileNameHash, int count)
+            throws InputOutputException {
+        return this.getVersionLog(fileNameHash).read(0, count);
+    }
+
+    /**
+     * Returns the version log of the path object having the given file name hash
+     *
+     * @param fileNameHash The file name hash of the path object
+     *
+     * @return The version log, which might not exist yet
+     */
+    protected VersionLog getVersionLog(String fileNameHash) {
+        return new VersionLog(this.storageAdapter, this.getPathToHash(fileNameHash) + "/" + fileNameHash);
+    }
+
+    /**
+     * Returns whether the given versions are the ones of the given file name hash,
+     * read lazily and not accessed yet. They are therefore unchanged and must not be written again
+     *
+     * @param versions     The versions of a path object to write
+     * @param fileNameHash The file name hash of the path object
+     *
+     * @return True, if the versions are unchanged
+     */
+    protected static boolean isUnreadVersionLog(List<Version> versions, String fileNameHash) {
+        return versions instanceof LazyVersionList &&
+                ! ((LazyVersionList) versions).isLoaded() &&
+                fileNameHash.equals(((LazyVersionList) versions).getFileNameHash());
+    }
+
+    /**
+     * Creates the header of the given path object, i.e. a copy without versions
+     *
+     * @param pathObject The path object
+     *
+     * @return The header
+     */
+    protected static PathObject createHeader(PathObject pathObject) {
+        PathObject header = new PathObject(
+                pathObject.getName(),
+                pathObject.getPath(),
+                pathObject.getPathType(),
+                pathObject.getAccessType(),
+                pathObject.isShared(),
+                pathObject.getDeleted(),
+                pathObject.getOwner(),
+                pathObject.getSharers(),
+                new ArrayList<>()
+        );
+        header.setVersionVector(pathObject.getVersionVector());
+
+        return header;
+    }
+
+    /**
+     * Returns the path filter of a memory mapped index, building it from all its paths
+     * if not done yet. Room is left for as many paths again as are contained
+     *
+     * @return The path filter or null, if the index is kept on the heap
+     */
+    protected synchronized BloomFilter getPathFilter() {
+        if (null == this.pathFilter && null != this.mappedPathTable) {
+            Set<String> paths = this.index.getPathSet();
+            BloomFilter pathFilter = new BloomFilter(Math.max(1024, paths.size() * 2), 0.01d);
+            for (String path : paths) {
+                pathFilter.add(path);
+            }
+
+            this.pathFilter = pathFilter;
+            this.pathFilterRemovals = 0;
+        }
+
+        return this.pathFilter;
+    }
+
+    /**
+     * Discards the path filter, so that it is rebuilt from the paths of the index on the next lookup
+     */
+    protected synchronized void discardPathFilter() {
+        this.pathFilter = null;
+        this.pathFilterRemovals = 0;
+    }
+
+    /**
+     * Creates the index from the content of the index file.
+     * If the index is memory mapped and the mapped paths were built
+     * from the same content, the content is not parsed at all.
+     *
+     * @param content The content of the index file
+     *
+     * @return The index
+     */
+    protected Index readIndex(byte[] content) {
+        if (null == this.mappedPathTable) {
+            Index parsedIndex = Index.fromJson(new String(content, StandardCharsets.UTF_8));
+            return new Index(parsedIndex.getPathTable(), this.objectKeyHasher);
+        }
+
+        long checksum = MappedPathTable.checksum(content);
+        if (this.mappedPathTable.isRestored() && this.mappedPathTable.getSourceChecksum() == checksum) {
+            logger.trace("Using memory mapped index " + this.mappedPathTable.getGeneration());
+            return new Index(this.mappedPathTable, this.objectKeyHasher);
+        }
+
+        logger.info("Rebuilding memory mapped index from " + this.indexFileName);
+        Index parsedIndex = Index.fromJson(new String(content, StandardCharsets.UTF_8));
+
+        Index index = this.createIndex();
+        for (String path : parsedIndex.getPathSet()) {
+            index.addPath(path);
+        }
+
+        this.mappedPathTable.setSourceChecksum(checksum);
+        this.mappedPathTable.flush();
+
+        return index;
+    }
+
+    /**
+     * Creates an empty index
+     *
+     * @return The empty index
+     */
+    protected Index createIndex() {
+        if (null == this.mappedPathTable) {
+            return new Index(new PathTable(), this.objectKeyHasher);
+        }
+
+        this.mappedPathTable.clear();
+
+        return new Index(this.mappedPathTable, this.objectKeyHasher);
+    }
+
+    /**
+     * Flushes and releases the memory mapped index, if any, and writes
+     * the snapshot of the latest versions, if one is kept.
+     * The object manager must not be used afterwards.
+     *
+     * @throws InputOutputException If closing the memory mapped index or writing the snapshot fails
+     */
+    public synchronized void close()
+            throws InputOutputException {
+        try {
+            if (null != this.mappedPathTable) {
+                this.mappedPathTable.close();
+            }
+
+            if (null != this.latestVersions) {
+                this.writeVersionSnapshot();
+            }
+        } catch (IOException e) {
+            throw new InputOutputException(e);
+        }
+    }
+
+    /**
+     * Writes the snapshot of the latest versions, consisting of the ones of
+     * the previous snapshot replaced by the ones read or changed since opening
+     *
+     * @throws IOException If writing the snapshot fails
+     */
+    protected synchronized void writeVersionSnapshot()
+            throws IOException {
+        SortedMap<String, byte[]> entries = (null == this.versionSnapshot) ? new TreeMap<>() : this.versionSnapshot.getEntries();
+        long generation = (null == this.versionSnapshot) ? 1L : this.versionSnapshot.getGeneration() + 1;
+
+        for (Map.Entry<String, Version> entry : this.latestVersions.entrySet()) {
+            if (null == entry.getValue()) {
+                entries.remove(entry.getKey());
+            } else {
+                entries.put(entry.getKey(), entry.getValue().toJson().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        if (null != this.versionSnapshot) {
+            this.versionSnapshot.close();
+            this.versionSnapshot = null;
+        }
+
+        VersionSnapshot.write(this.versionSnapshotFile, generation, this.indexChecksum, entries);
+        logger.trace("Wrote version snapshot " + generation + " of " + entries.size() + " objects");
+    }
+
+    /**
+     * Stops using the snapshot of the latest versions, e.g. since all objects have been removed
+     *
+     * @throws InputOutputException If closing the snapshot fails
+     */
+    protected synchronized void discardVersionSnapshot()
+            throws InputOutputException {
+        if (null == this.latestVersions) {
+            return;
+        }
+
+        this.latestVersions.clear();
+        if (null != this.versionSnapshot) {
+            try {
+                this.versionSnapshot.close();
+            } catch (IOException e) {
+                throw new InputOutputException(e);
+            }
+            this.versionSnapshot = null;
+        }
+    }
+
+    /**
+     * Computes the hash of the given path which is used
+     * as name of the corresponding object
+     *
+     * @param relativeFilePath The path to hash
+     *
+     * @return The hash of the path
+     */
+    protected String hashPath(String relativeFilePath) {
+        return this.objectKeyHasher.hash(relativeFilePath);
+    }
+
     protected synchronized String createObjectDirIfNotExists(String hash)
             throws InputOutputException {
         String prefix = hash.substring(0, 2);
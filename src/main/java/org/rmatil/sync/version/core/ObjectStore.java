@@ -1,17 +1,26 @@
 package org.rmatil.sync.version.core;
 
-import org.rmatil.sync.commons.hashing.Hash;
 import org.rmatil.sync.commons.path.Naming;
 import org.rmatil.sync.persistence.api.StorageType;
 import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
 import org.rmatil.sync.persistence.core.tree.TreePathElement;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
 import org.rmatil.sync.version.api.*;
-import org.rmatil.sync.version.config.Config;
+import org.rmatil.sync.version.config.ObjectStoreConfig;
+import org.rmatil.sync.version.core.chunking.ContentDefinedChunker;
+import org.rmatil.sync.version.core.index.VersionGraph;
+import org.rmatil.sync.version.core.jfr.FlightRecorderSupport;
+import org.rmatil.sync.version.core.jfr.HashEvent;
+import org.rmatil.sync.version.core.jfr.MergeEvent;
+import org.rmatil.sync.version.core.jfr.SyncChildEvent;
+import org.rmatil.sync.version.core.jfr.SyncEvent;
+import org.rmatil.sync.version.core.metrics.MetricNames;
+import org.rmatil.sync.version.core.metrics.NoOpMetricRegistry;
 import org.rmatil.sync.version.core.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -21,6 +30,11 @@ public class ObjectStore implements IObjectStore {
 
     private final static Logger logger = LoggerFactory.getLogger(ObjectStore.class);
 
+    /**
+     * The number of versions read at once when looking for the versions following ours
+     */
+    protected static final int VERSION_PAGE_SIZE = 32;
+
     /**
      * The path type of merged file sharedPaths
      */
@@ -53,14 +67,146 @@ public class ObjectStore implements IObjectStore {
 
     protected IDeleteManager deleteManager;
 
+    protected IPermissionResolver permissionResolver;
+
+    /**
+     * Compacts the history of all paths, null if no retention policy is configured
+     */
+    protected VersionCompactor versionCompactor;
+
+    /**
+     * Splits large files into content-defined chunks. If null, files are only hashed as a whole
+     */
+    protected ContentDefinedChunker chunker;
+
+    /**
+     * Hashes the contents of files to the canonical hash of their versions
+     */
+    protected IHasher contentHasher;
+
+    /**
+     * Hashes the contents of files to detect changes quickly. If null, changes are detected by the content hasher
+     */
+    protected IHasher changeDetectionHasher;
+
+    /**
+     * The last versions of files by their path, along with their change detection hash
+     */
+    protected Map<String, KnownContent> knownContents;
+
+    protected ICounter contentHashSkips;
+
+    protected ICounter contentHashComputations;
+
+    protected ITimer contentHashTime;
+
+    protected ITimer syncTime;
+
+    protected ITimer mergeTime;
+
     public ObjectStore(ITreeStorageAdapter folderStorageAdapter, String indexFileName, String objectDirName, ITreeStorageAdapter objectStoreStorageAdapter)
             throws InputOutputException {
+        this(folderStorageAdapter, indexFileName, objectDirName, objectStoreStorageAdapter, NoOpMetricRegistry.INSTANCE);
+    }
+
+    /**
+     * @param folderStorageAdapter      The storage adapter of the synchronized folder
+     * @param indexFileName             The name of the index file
+     * @param objectDirName             The name of the directory in which the objects are stored
+     * @param objectStoreStorageAdapter The storage adapter having the object store as root
+     * @param metricRegistry            The registry to which all operations of the object store and its managers are reported
+     *
+     * @throws InputOutputException If creating the index fails
+     */
+    public ObjectStore(ITreeStorageAdapter folderStorageAdapter, String indexFileName, String objectDirName, ITreeStorageAdapter objectStoreStorageAdapter, IMetricRegistry metricRegistry)
+            throws InputOutputException {
+        this(folderStorageAdapter, indexFileName, objectDirName, objectStoreStorageAdapter, metricRegistry, null);
+    }
+
+    /**
+     * @param folderStorageAdapter      The storage adapter of the synchronized folder
+     * @param indexFileName             The name of the index file
+     * @param objectDirName             The name of the directory in which the objects are stored
+     * @param objectStoreStorageAdapter The storage adapter having the object store as root
+     * @param metricRegistry            The registry to which all operations of the object store and its managers are reported
+     * @param mappedIndexFile           The local file in which the paths of the index are kept memory mapped. If null, they are kept on the heap
+     *
+     * @throws InputOutputException If creating the index fails
+     */
+    public ObjectStore(ITreeStorageAdapter folderStorageAdapter, String indexFileName, String objectDirName, ITreeStorageAdapter objectStoreStorageAdapter, IMetricRegistry metricRegistry, Path mappedIndexFile)
+            throws InputOutputException {
+        this(folderStorageAdapter, indexFileName, objectDirName, objectStoreStorageAdapter, metricRegistry, mappedIndexFile, null);
+    }
+
+    /**
+     * @param folderStorageAdapter      The storage adapter of the synchronized folder
+     * @param indexFileName             The name of the index file
+     * @param objectDirName             The name of the directory in which the objects are stored
+     * @param objectStoreStorageAdapter The storage adapter having the object store as root
+     * @param metricRegistry            The registry to which all operations of the object store and its managers are reported
+     * @param mappedIndexFile           The local file in which the paths of the index are kept memory mapped. If null, they are kept on the heap
+     * @param chunker                   The chunker to record the chunks of large files in their versions. If null, no chunks are recorded
+     *
+     * @throws InputOutputException If creating the index fails
+     */
+    public ObjectStore(ITreeStorageAdapter folderStorageAdapter, String indexFileName, String objectDirName, ITreeStorageAdapter objectStoreStorageAdapter, IMetricRegistry metricRegistry, Path mappedIndexFile, ContentDefinedChunker chunker)
+            throws InputOutputException {
+        this(folderStorageAdapter, indexFileName, objectDirName, objectStoreStorageAdapter, createConfig(metricRegistry, mappedIndexFile, chunker));
+    }
+
+    /**
+     * @param folderStorageAdapter      The storage adapter of the synchronized folder
+     * @param indexFileName             The name of the index file
+     * @param objectDirName             The name of the directory in which the objects are stored
+     * @param objectStoreStorageAdapter The storage adapter having the object store as root
+     * @param config                    The configuration of hashing, chunking, metrics and the memory mapped index
+     *
+     * @throws InputOutputException If creating the index fails
+     */
+    public ObjectStore(ITreeStorageAdapter folderStorageAdapter, String indexFileName, String objectDirName, ITreeStorageAdapter objectStoreStorageAdapter, ObjectStoreConfig config)
+            throws InputOutputException {
+        IMetricRegistry metricRegistry = config.getMetricRegistry();
+
+        this.chunker = config.getChunker();
+        this.contentHasher = config.getContentHasher();
+        this.changeDetectionHasher = config.getChangeDetectionHasher();
+        this.knownContents = createKnownContents(config.getChangeDetectionCacheSize());
         this.folderStorageAdapter = folderStorageAdapter;
         this.objectStoreStorageAdapter = objectStoreStorageAdapter;
-        this.objectManager = new ObjectManager(indexFileName, objectDirName, objectStoreStorageAdapter);
+        this.objectManager = new ObjectManager(indexFileName, objectDirName, objectStoreStorageAdapter, config);
         this.versionManager = new VersionManager(this.objectManager);
         this.sharerManager = new SharerManager(this.objectManager);
         this.deleteManager = new DeleteManager(this.objectManager);
+        this.permissionResolver = new PermissionResolver(this.objectManager, config.getPermissionCacheSize());
+
+        if (null != config.getRetentionPolicy()) {
+            this.versionCompactor = new VersionCompactor(this.objectManager, config.getRetentionPolicy());
+        }
+
+        this.contentHashComputations = metricRegistry.counter(MetricNames.CONTENT_HASH_COMPUTATIONS);
+        this.contentHashSkips = metricRegistry.counter(MetricNames.CONTENT_HASH_SKIPS);
+        this.contentHashTime = metricRegistry.timer(MetricNames.CONTENT_HASH_TIME);
+        this.syncTime = metricRegistry.timer(MetricNames.SYNC_TIME);
+        this.mergeTime = metricRegistry.timer(MetricNames.MERGE_TIME);
+    }
+
+    protected static ObjectStoreConfig createConfig(IMetricRegistry metricRegistry, Path mappedIndexFile, ContentDefinedChunker chunker) {
+        ObjectStoreConfig config = new ObjectStoreConfig();
+        config.setMetricRegistry(metricRegistry);
+        config.setMappedIndexFile(mappedIndexFile);
+        config.setChunker(chunker);
+
+        return config;
+    }
+
+    protected static Map<String, KnownContent> createKnownContents(int maxSize) {
+        // least recently synced paths are evicted first
+        return Collections.synchronizedMap(new LinkedHashMap<String, KnownContent>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, KnownContent> eldest) {
+                return this.size() > maxSize;
+            }
+        });
     }
 
     @Override
@@ -72,13 +218,38 @@ public class ObjectStore implements IObjectStore {
     @Override
     public void sync(List<String> ignoredFiles)
             throws InputOutputException {
+        long start = System.nanoTime();
+        SyncEvent event = FlightRecorderSupport.isAvailable() ? new SyncEvent() : null;
+        if (null != event) {
+            event.begin();
+        }
+
+        int indexedPaths = this.objectManager.getIndex().getPaths().size();
+        int removedPaths = 0;
+        int syncedPaths = 0;
+
+        // the existing files and directories which are not present anymore on the storage,
+        // by their path type and the content hash of their latest version. They are paired with
+        // created paths of the same type having the same content to detect paths moved in the meantime
+        Map<PathType, Map<String, Deque<String>>> vanishedPaths = new EnumMap<>(PathType.class);
+
         // first remove all object which are not present anymore on the storage
-        for (Map.Entry<String, String> entry : this.objectManager.getIndex().getPaths().entrySet()) {
-            // flag the file as deleted
-            TreePathElement treePathElement = new TreePathElement(entry.getKey());
+        for (String path : this.objectManager.getIndex().getPathSet()) {
+            TreePathElement treePathElement = new TreePathElement(path);
             if (! this.folderStorageAdapter.exists(StorageType.FILE, treePathElement) &&
                     ! this.folderStorageAdapter.exists(StorageType.DIRECTORY, treePathElement)) {
-                this.onRemoveFile(entry.getKey());
+                if (! this.addMoveCandidate(path, vanishedPaths)) {
+                    // flag the file as deleted
+                    this.onRemoveFile(path);
+                    removedPaths++;
+                }
+            }
+        }
+
+        int vanishedPathCount = 0;
+        for (Map<String, Deque<String>> pathsByHash : vanishedPaths.values()) {
+            for (Deque<String> paths : pathsByHash.values()) {
+                vanishedPathCount += paths.size();
             }
         }
 
@@ -101,7 +272,30 @@ public class ObjectStore implements IObjectStore {
                 continue;
             }
 
-            this.syncChild(entry);
+            this.syncChild(entry, vanishedPaths);
+            syncedPaths++;
+        }
+
+        // flag all vanished paths as deleted which have not been moved
+        int movedPaths = vanishedPathCount;
+        for (Map<String, Deque<String>> pathsByHash : vanishedPaths.values()) {
+            for (Deque<String> paths : pathsByHash.values()) {
+                for (String path : paths) {
+                    this.onRemoveFile(path);
+                    removedPaths++;
+                    movedPaths--;
+                }
+            }
+        }
+
+        this.syncTime.record(System.nanoTime() - start);
+
+        if (null != event && event.shouldCommit()) {
+            event.indexedPaths = indexedPaths;
+            event.removedPaths = removedPaths;
+            event.movedPaths = movedPaths;
+            event.syncedPaths = syncedPaths;
+            event.commit();
         }
     }
 
@@ -110,10 +304,7 @@ public class ObjectStore implements IObjectStore {
             throws InputOutputException {
         // first remove object to force recreation
         this.getObjectManager().removeObject(
-                Hash.hash(
-                        Config.DEFAULT.getHashingAlgorithm(),
-                        file.getPath()
-                )
+                this.objectManager.getHashForPath(file.getPath())
         );
 
         this.syncChild(file);
@@ -121,37 +312,226 @@ public class ObjectStore implements IObjectStore {
 
     protected void syncChild(TreePathElement file)
             throws InputOutputException {
+        this.syncChild(file, Collections.emptyMap());
+    }
+
+    /**
+     * Creates or updates the object of the given path. If no object exists yet
+     * and the path is a non-empty file or directory having the same content as one
+     * of the given vanished paths of the same type, the object of the vanished path
+     * is moved to the path instead. This keeps the history, owner and sharers, e.g.
+     * of a shared directory which is only stored on the directory itself.
+     *
+     * @param file          The path to synchronise
+     * @param vanishedPaths The paths which do not exist anymore, by their path type and content hash.
+     *                      A path is removed if it is moved
+     *
+     * @throws InputOutputException If accessing the object store fails
+     */
+    protected void syncChild(TreePathElement file, Map<PathType, Map<String, Deque<String>>> vanishedPaths)
+            throws InputOutputException {
+        SyncChildEvent event = FlightRecorderSupport.isAvailable() ? new SyncChildEvent() : null;
+        if (null != event) {
+            event.begin();
+        }
 
         // recalculate the hash of the file
         String hash = null;
+        Version version = null;
         try {
             if (this.folderStorageAdapter.isFile(file) || this.folderStorageAdapter.isDir(file)) {
                 Path absoluteFile = Paths.get(this.folderStorageAdapter.getRootDir().getPath()).resolve(file.getPath());
-                hash = Hash.hash(
-                        Config.DEFAULT.getHashingAlgorithm(),
-                        absoluteFile.toFile()
-                );
+                long start = System.nanoTime();
+                HashEvent hashEvent = FlightRecorderSupport.isAvailable() ? new HashEvent() : null;
+                if (null != hashEvent) {
+                    hashEvent.begin();
+                }
+
+                version = this.computeVersion(file.getPath(), absoluteFile.toFile());
+                hash = version.getHash();
+                this.contentHashTime.record(System.nanoTime() - start);
+
+                if (null != hashEvent && hashEvent.shouldCommit()) {
+                    hashEvent.path = file.getPath();
+                    hashEvent.algorithm = this.contentHasher.getName();
+                    hashEvent.bytes = absoluteFile.toFile().length();
+                    hashEvent.commit();
+                }
             }
         } catch (IOException e1) {
             logger.error("Could not create path object for file " + file.getPath() + ". Message: " + e1.getMessage());
         }
 
-        try {
-            // throws an exception if path does not exist
-            PathObject oldObject = this.objectManager.getObjectForPath(file.getPath());
+        if (null == version) {
+            version = new Version(hash);
+        }
 
+        boolean created = false;
+        String movedFrom = null;
+        if (this.objectManager.exists(file.getPath())) {
             // just update the content hash
-            this.onModifyFile(file.getPath(), hash);
-        } catch (InputOutputException e) {
-            // file does not exist yet, so we create it
-            logger.debug("No object stored for file " + file.getPath() + ". Creating...");
-            this.onCreateFile(file.getPath(), hash);
+            this.onModifyFile(file.getPath(), version);
+        } else {
+            movedFrom = this.pollVanishedPath(file, hash, vanishedPaths);
+
+            if (null != movedFrom) {
+                // keep the history, owner and sharers of the path
+                logger.debug("File " + movedFrom + " has been moved to " + file.getPath() + ". Moving...");
+                this.onMoveFile(movedFrom, file.getPath());
+            } else {
+                // file does not exist yet, so we create it
+                logger.debug("No object stored for file " + file.getPath() + ". Creating...");
+                this.onCreateFile(file.getPath(), version);
+                created = true;
+            }
+        }
+
+        if (null != event && event.shouldCommit()) {
+            event.path = file.getPath();
+            event.created = created;
+            event.movedFrom = movedFrom;
+            event.commit();
+        }
+    }
+
+    /**
+     * Computes the version of the given file or directory. If a change detection
+     * hasher is configured and the file did not change since its last version
+     * was computed, the last version is returned instead
+     *
+     * @param relativePath The path of the file relative to the synchronised folder
+     * @param file         The file or directory
+     *
+     * @return The version having the content hash and, if the file is large, its chunks
+     *
+     * @throws IOException If reading the file fails
+     */
+    protected Version computeVersion(String relativePath, File file)
+            throws IOException {
+        String changeDetectionHash = null;
+        if (null != this.changeDetectionHasher && file.isFile()) {
+            changeDetectionHash = this.changeDetectionHasher.hash(file);
+
+            KnownContent knownContent = this.knownContents.get(relativePath);
+            if (null != knownContent && changeDetectionHash.equals(knownContent.changeDetectionHash)) {
+                this.contentHashSkips.increment();
+                return knownContent.version;
+            }
+        }
+
+        Version version;
+        if (null != this.chunker && this.chunker.shouldChunk(file)) {
+            version = this.chunker.chunk(file);
+        } else {
+            version = new Version(this.contentHasher.hash(file));
+        }
+        this.contentHashComputations.increment();
+
+        if (null != changeDetectionHash) {
+            this.knownContents.put(relativePath, new KnownContent(changeDetectionHash, version));
+        }
+
+        return version;
+    }
+
+    /**
+     * Adds the given path to the vanished paths by its path type and the content hash
+     * of its latest version, if it is an existing file or directory which may have been moved
+     *
+     * @param relativePath  The path which does not exist anymore on the storage
+     * @param vanishedPaths The paths which do not exist anymore, by their path type and content hash
+     *
+     * @return True, if the path has been added. False, if it is not a candidate for a move
+     *
+     * @throws InputOutputException If reading the object fails
+     */
+    protected boolean addMoveCandidate(String relativePath, Map<PathType, Map<String, Deque<String>>> vanishedPaths)
+            throws InputOutputException {
+        String fileNameHash = this.objectManager.getHashForPath(relativePath);
+        PathObject object = this.objectManager.getObjectHeader(fileNameHash);
+
+        if (null == object.getPathType() ||
+                null == object.getDeleted() ||
+                DeleteType.EXISTENT != object.getDeleted().getDeleteType()) {
+            return false;
+        }
+
+        // only read the latest version
+        int versionCount = this.objectManager.getVersionCount(fileNameHash);
+        if (0 == versionCount) {
+            return false;
+        }
+
+        String contentHash = this.objectManager.getVersions(fileNameHash, versionCount - 1, 1).get(0).getHash();
+        if (null == contentHash) {
+            return false;
+        }
+
+        vanishedPaths.computeIfAbsent(object.getPathType(), k -> new HashMap<>())
+                .computeIfAbsent(contentHash, k -> new ArrayDeque<>())
+                .add(relativePath);
+
+        return true;
+    }
+
+    /**
+     * Removes and returns a vanished path of the same type having the same content as the given path.
+     * Empty files and directories are never paired, since their content does not identify them.
+     *
+     * @param file          The path for which no object exists yet
+     * @param contentHash   The content hash of the path
+     * @param vanishedPaths The paths which do not exist anymore, by their path type and content hash
+     *
+     * @return The vanished path or null, if there is none
+     */
+    protected String pollVanishedPath(TreePathElement file, String contentHash, Map<PathType, Map<String, Deque<String>>> vanishedPaths) {
+        if (null == contentHash || vanishedPaths.isEmpty()) {
+            return null;
+        }
+
+        File absoluteFile = Paths.get(this.folderStorageAdapter.getRootDir().getPath()).resolve(file.getPath()).toFile();
+        PathType pathType;
+        if (absoluteFile.isFile()) {
+            pathType = PathType.FILE;
+            if (0L == absoluteFile.length()) {
+                return null;
+            }
+        } else if (absoluteFile.isDirectory()) {
+            pathType = PathType.DIRECTORY;
+            String[] children = absoluteFile.list();
+            if (null == children || 0 == children.length) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+
+        Map<String, Deque<String>> pathsByHash = vanishedPaths.get(pathType);
+        if (null == pathsByHash) {
+            return null;
+        }
+
+        Deque<String> paths = pathsByHash.get(contentHash);
+        if (null == paths) {
+            return null;
+        }
+
+        String path = paths.poll();
+        if (paths.isEmpty()) {
+            pathsByHash.remove(contentHash);
         }
+
+        return path;
     }
 
     @Override
     public void onCreateFile(String relativePath, String contentHash)
             throws InputOutputException {
+        this.onCreateFile(relativePath, new Version(contentHash));
+    }
+
+    protected void onCreateFile(String relativePath, Version version)
+            throws InputOutputException {
         logger.debug("Creating object for " + relativePath);
 
         TreePathElement element = new TreePathElement(relativePath);
@@ -163,11 +543,25 @@ public class ObjectStore implements IObjectStore {
             pathType = PathType.FILE;
         }
 
-        this.onCreateFile(relativePath, pathType, contentHash);
+        this.onCreateFile(relativePath, pathType, version);
     }
 
     protected void onCreateFile(String relativePath, PathType pathType, String contentHash)
             throws InputOutputException {
+        this.onCreateFile(relativePath, pathType, new Version(contentHash));
+    }
+
+    /**
+     * Creates the object of the given path having the given version as its only one
+     *
+     * @param relativePath The path relative to the synchronised folder
+     * @param pathType     The type of the path
+     * @param version      The first version, may contain the chunks of the file
+     *
+     * @throws InputOutputException If writing the object fails
+     */
+    protected void onCreateFile(String relativePath, PathType pathType, Version version)
+            throws InputOutputException {
 
         Path relativePathToWatchedDir = Paths.get(relativePath);
 
@@ -180,40 +574,17 @@ public class ObjectStore implements IObjectStore {
             pathToFileWithoutFilename = pathToFileWithoutFilename.substring(0, pathToFileWithoutFilename.length() - 1);
         }
 
-        Version v1 = new Version(contentHash);
         List<Version> versions = new ArrayList<>();
-        versions.add(v1);
-
-        // to ensure, that elements which are located within a shared
-        // directory are also shared, we have to check the sharing
-        // properties of its direct parent
-        boolean isShared = false;
-        Set<Sharer> sharers = new HashSet<>();
-
-        String parent = Naming.getParentPath(relativePath);
+        // the first version of a path is not based on any other
+        versions.add(version.withTimestampIfUnknown(System.currentTimeMillis()).withParentsIfUnknown(new ArrayList<>()));
 
-        if (null != parent && ! "/".equals(parent)) {
-            try {
-                PathObject parentObject = this.objectManager.getObjectForPath(parent);
-
-                if (parentObject.isShared()) {
-                    isShared = true;
-                    sharers = parentObject.getSharers();
-                }
-
-            } catch (InputOutputException e) {
-                logger.error("Could not fetch parent object for path " + parent + " to check for sharers: " + e.getMessage());
-            }
-        }
-
-        PathObject oldObject;
         List<String> deleteHistory = new ArrayList<>();
-        try {
-            oldObject = this.objectManager.getObjectForPath(relativePathToWatchedDir.toString());
-            // replace delete history
+        VersionVector versionVector = new VersionVector();
+        if (this.objectManager.exists(relativePathToWatchedDir.toString())) {
+            // replace delete history and keep counting the changes
+            PathObject oldObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(relativePathToWatchedDir.toString()));
             deleteHistory = oldObject.getDeleted().getDeleteHistory();
-        } catch (InputOutputException e) {
-            // no object is stored on this path yet
+            versionVector = oldObject.getVersionVector();
         }
 
         PathObject pathObject = new PathObject(
@@ -221,12 +592,14 @@ public class ObjectStore implements IObjectStore {
                 pathToFileWithoutFilename,
                 pathType,
                 null,
-                isShared,
+                false,
                 new Delete(DeleteType.EXISTENT, deleteHistory),
                 null,
-                sharers,
+                // sharers of the containing directories are inherited when resolving the sharers
+                new HashSet<>(),
                 versions
         );
+        pathObject.setVersionVector(versionVector);
 
         this.objectManager.writeObject(pathObject);
         this.deleteManager.setIsExistent(relativePathToWatchedDir.toString());
@@ -235,8 +608,13 @@ public class ObjectStore implements IObjectStore {
     @Override
     public void onModifyFile(String relativePath, String contentHash)
             throws InputOutputException {
+        this.onModifyFile(relativePath, new Version(contentHash));
+    }
+
+    protected void onModifyFile(String relativePath, Version version)
+            throws InputOutputException {
         logger.debug("Modifying object for " + relativePath);
-        this.versionManager.addVersion(new Version(contentHash), relativePath);
+        this.versionManager.addVersion(version, relativePath);
     }
 
     @Override
@@ -246,7 +624,7 @@ public class ObjectStore implements IObjectStore {
 
         // just setting the deleted flag
 
-        PathObject object = this.objectManager.getObject(Hash.hash(Config.DEFAULT.getHashingAlgorithm(), relativePath));
+        PathObject object = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(relativePath));
         PathObject deletedObject = new PathObject(
                 object.getName(),
                 Naming.getPathWithoutFileName(object.getName(), relativePath),
@@ -258,6 +636,7 @@ public class ObjectStore implements IObjectStore {
                 new HashSet<>(), // reset
                 object.getVersions()
         );
+        deletedObject.setVersionVector(object.getVersionVector());
 
         this.objectManager.writeObject(deletedObject);
         this.deleteManager.setIsDeleted(relativePath);
@@ -268,10 +647,11 @@ public class ObjectStore implements IObjectStore {
             throws InputOutputException {
         logger.debug("Moving object for " + oldRelativePath);
 
-        PathObject oldObject = this.objectManager.getObject(Hash.hash(Config.DEFAULT.getHashingAlgorithm(), oldRelativePath));
+        PathObject oldObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(oldRelativePath));
+        String newName = Paths.get(newRelativePath).getFileName().toString();
         PathObject newObject = new PathObject(
-                oldObject.getName(),
-                Naming.getPathWithoutFileName(oldObject.getName(), newRelativePath),
+                newName,
+                Naming.getPathWithoutFileName(newName, newRelativePath),
                 oldObject.getPathType(),
                 oldObject.getAccessType(),
                 oldObject.isShared(),
@@ -280,9 +660,10 @@ public class ObjectStore implements IObjectStore {
                 oldObject.getSharers(),
                 oldObject.getVersions()
         );
+        newObject.setVersionVector(oldObject.getVersionVector());
 
         this.objectManager.writeObject(newObject);
-        this.objectManager.removeObject(Hash.hash(Config.DEFAULT.getHashingAlgorithm(), oldRelativePath));
+        this.objectManager.removeObject(this.objectManager.getHashForPath(oldRelativePath));
 
     }
 
@@ -301,9 +682,51 @@ public class ObjectStore implements IObjectStore {
         return this.deleteManager;
     }
 
+    @Override
+    public IPermissionResolver getPermissionResolver() {
+        return this.permissionResolver;
+    }
+
+    /**
+     * Returns the compactor applying the configured retention policy
+     *
+     * @return The version compactor or null, if no retention policy is configured
+     */
+    public VersionCompactor getVersionCompactor() {
+        return this.versionCompactor;
+    }
+
+    /**
+     * Stops compacting versions in the background and releases the resources
+     * held by the object manager, e.g. a memory mapped index.
+     * The object store must not be used afterwards.
+     *
+     * @throws InputOutputException If releasing fails
+     */
+    public void close()
+            throws InputOutputException {
+        if (null != this.versionCompactor) {
+            try {
+                this.versionCompactor.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (this.objectManager instanceof ObjectManager) {
+            ((ObjectManager) this.objectManager).close();
+        }
+    }
+
     @Override
     public HashMap<MergedObjectType, Set<String>> mergeObjectStore(IObjectStore otherObjectStore)
             throws InputOutputException {
+        long start = System.nanoTime();
+        MergeEvent event = FlightRecorderSupport.isAvailable() ? new MergeEvent() : null;
+        if (null != event) {
+            event.begin();
+        }
+
         HashMap<MergedObjectType, Set<String>> missingOrOutdatedPaths = new HashMap<>();
         missingOrOutdatedPaths.put(MergedObjectType.CHANGED, new HashSet<>());
         missingOrOutdatedPaths.put(MergedObjectType.DELETED, new HashSet<>());
@@ -311,14 +734,28 @@ public class ObjectStore implements IObjectStore {
 
         Index ourIndex = this.getObjectManager().getIndex();
         Index otherIndex = otherObjectStore.getObjectManager().getIndex();
+        int ownPaths = ourIndex.getPaths().size();
 
         // check if we have the file
         for (Map.Entry<String, String> entry : otherIndex.getPaths().entrySet()) {
             if (null != ourIndex.getPaths().get(entry.getKey())) {
                 // ok, we got the file too, now check the version and if the file should be deleted
                 String hashToFile = otherIndex.getPaths().get(entry.getKey());
-                PathObject otherPathObject = otherObjectStore.getObjectManager().getObject(hashToFile);
-                PathObject ourPathObject = this.getObjectManager().getObject(hashToFile);
+                // versions are only read if the histories have to be compared
+                PathObject otherPathObject = otherObjectStore.getObjectManager().getObjectHeader(hashToFile);
+                PathObject ourPathObject = this.getObjectManager().getObjectHeader(hashToFile);
+
+                // if both clients counted their changes, nothing has to be merged
+                // if we have seen all changes of the other client already
+                VersionVector ourVersionVector = ourPathObject.getVersionVector();
+                VersionVector otherVersionVector = otherPathObject.getVersionVector();
+                VectorOrdering ordering = VectorOrdering.CONCURRENT;
+                if (! ourVersionVector.isEmpty() && ! otherVersionVector.isEmpty()) {
+                    ordering = ourVersionVector.compare(otherVersionVector);
+                    if (VectorOrdering.EQUAL == ordering || VectorOrdering.AFTER == ordering) {
+                        continue;
+                    }
+                }
 
                 // check if we should have deleted that file
                 if (! ourPathObject.getDeleted().getDeleteType().equals(otherPathObject.getDeleted().getDeleteType())) {
@@ -336,6 +773,7 @@ public class ObjectStore implements IObjectStore {
                         // it is -> we have to get the state of the other
                         // but use the history of the other
                         ourPathObject.setDeleted(otherPathObject.getDeleted());
+                        ourVersionVector.merge(otherVersionVector);
 
                         this.objectManager.writeObject(ourPathObject);
                         continue;
@@ -348,72 +786,38 @@ public class ObjectStore implements IObjectStore {
                     }
                 }
 
-                List<Version> versions = this.getObjectManager().getObject(hashToFile).getVersions();
-                Version lastVersion = versions.get(Math.max(0, versions.size() - 1));
-
-                // check whether the other version list has our version, if not
-                // then we have a more recent version
-                if (otherPathObject.getVersions().contains(lastVersion)) {
-                    // check whether our version is earlier in the list than the other
-                    if (versions.indexOf(lastVersion) < otherPathObject.getVersions().indexOf(lastVersion)) {
-                        // we have to copy the last other version
-                        versions.add(otherPathObject.getVersions().get(Math.max(0, otherPathObject.getVersions().size() - 1)));
-                        // add the path to the file to the outdated files
-                        missingOrOutdatedPaths.get(MergedObjectType.CHANGED).add(entry.getKey());
-                    }
+                List<Version> fastForwardedVersions = new ArrayList<>();
+                if (VectorOrdering.BEFORE == ordering) {
+                    // the other client has seen all our changes, so its history is based on our latest version
+                    // and we fast-forward by the versions following it, without comparing both histories
+                    Version lastVersion = this.objectManager.getLatestVersion(hashToFile);
+                    fastForwardedVersions = this.getVersionsAfter(
+                            otherObjectStore.getObjectManager(),
+                            hashToFile,
+                            (null == lastVersion) ? null : VersionGraph.getKey(lastVersion)
+                    );
+                    ourVersionVector.merge(otherVersionVector);
 
-                    // add all missing other versions between our last one and the last one of the other object store
-                    if (versions.size() < otherPathObject.getVersions().size()) {
-                        versions.addAll(otherPathObject.getVersions().subList(
-                                otherPathObject.getVersions().indexOf(lastVersion),
-                                otherPathObject.getVersions().size() - 1
-                        ));
+                    if (! fastForwardedVersions.isEmpty()) {
                         missingOrOutdatedPaths.get(MergedObjectType.CHANGED).add(entry.getKey());
                     }
-                } else if (otherPathObject.getVersions().size() > 0) {
-                    // there is a conflict on the file
-                    // -> do only create a conflict for non directory paths
-                    if (PathType.DIRECTORY != otherPathObject.getPathType()) {
-                        missingOrOutdatedPaths.get(MergedObjectType.CONFLICT).add(entry.getKey());
-                    }
-                }
-
-                // merge sharers
-                Set<Sharer> sharers = ourPathObject.getSharers();
-                Set<Sharer> otherSharers = otherPathObject.getSharers();
-
-                for (Sharer ownSharer : sharers) {
-                    for (Sharer otherSharer : otherSharers) {
-                        if (ownSharer.getUsername().equals(otherSharer.getUsername())) {
-                            // compare history
-                            if (ownSharer.getSharingHistory().size() < otherSharer.getSharingHistory().size()) {
-                                // we replace the other sharing history with our one
-                                ownSharer.setSharingHistory(otherSharer.getSharingHistory());
-                            }
-
-                            break;
-                        }
-                    }
+                } else {
+                    this.mergeHistories(entry.getKey(), ourPathObject, otherPathObject, missingOrOutdatedPaths);
                 }
 
-                // now add all sharers we do not have
-                for (Sharer otherSharer : otherSharers) {
-                    boolean hasOtherSharer = false;
-                    for (Sharer ourSharer : sharers) {
-                        if (otherSharer.getUsername().equals(ourSharer.getUsername())) {
-                            hasOtherSharer = true;
-                            break;
-                        }
-                    }
+                // merge sharers, looking up ours by username
+                for (Sharer otherSharer : otherPathObject.getSharers()) {
+                    Sharer ownSharer = ourPathObject.getSharer(otherSharer.getUsername());
 
-                    // add other sharer if he does not exist yet
-                    if (! hasOtherSharer) {
-                        sharers.add(otherSharer);
+                    if (null == ownSharer) {
+                        // add other sharer if he does not exist yet
+                        ourPathObject.getSharers().add(otherSharer);
+                    } else if (! ownSharer.hasSameHistory(otherSharer) && ownSharer.getSharingHistory().size() < otherSharer.getSharingHistory().size()) {
+                        // we replace our sharing history with the longer one of the other client
+                        ownSharer.setSharingHistory(otherSharer.getSharingHistory());
                     }
                 }
 
-                ourPathObject.setSharers(sharers);
-
                 // merge owner
                 if (null == ourPathObject.getOwner() && null != otherPathObject.getOwner()) {
                     // check if the other client has an owner
@@ -423,6 +827,11 @@ public class ObjectStore implements IObjectStore {
                 // update changes
                 this.getObjectManager().writeObject(ourPathObject);
 
+                // appended once the header is written, so that its versions do not replace them
+                for (Version version : fastForwardedVersions) {
+                    this.getObjectManager().appendVersion(hashToFile, version);
+                }
+
             } else {
                 // we do not have the file yet, so check whether it should be deleted (flag)
                 // or if we just do not have it and have to request it later on
@@ -435,14 +844,21 @@ public class ObjectStore implements IObjectStore {
                     int versionCtr = 0;
                     for (Version version : otherPathObject.getVersions()) {
                         if (0 == versionCtr) {
-                            this.onCreateFile(entry.getKey(), otherPathObject.getPathType(), version.getHash());
+                            this.onCreateFile(entry.getKey(), otherPathObject.getPathType(), version);
                         } else {
-                            this.onModifyFile(entry.getKey(), version.getHash());
+                            this.onModifyFile(entry.getKey(), version);
                         }
 
                         versionCtr++;
                     }
 
+                    // the replayed changes are the ones of the other client, not ours
+                    if (this.objectManager.exists(entry.getKey())) {
+                        PathObject createdPathObject = this.objectManager.getObjectHeader(hashToFile);
+                        createdPathObject.setVersionVector(new VersionVector(otherPathObject.getVersionVector().getCounters()));
+                        this.objectManager.writeObjectHeader(createdPathObject);
+                    }
+
                     // add the path to the file to the missing files
                     missingOrOutdatedPaths.get(MergedObjectType.CHANGED).add(entry.getKey());
                 } else {
@@ -458,6 +874,7 @@ public class ObjectStore implements IObjectStore {
                             otherPathObject.getSharers(),
                             otherPathObject.getVersions()
                     );
+                    deletedPathObject.setVersionVector(new VersionVector(otherPathObject.getVersionVector().getCounters()));
 
                     // add the state too for the deleted file
                     this.objectManager.writeObject(deletedPathObject);
@@ -465,7 +882,117 @@ public class ObjectStore implements IObjectStore {
             }
         }
 
+        this.mergeTime.record(System.nanoTime() - start);
+
+        if (null != event && event.shouldCommit()) {
+            event.ownPaths = ownPaths;
+            event.otherPaths = otherIndex.getPaths().size();
+            event.changedPaths = missingOrOutdatedPaths.get(MergedObjectType.CHANGED).size();
+            event.deletedPaths = missingOrOutdatedPaths.get(MergedObjectType.DELETED).size();
+            event.conflictPaths = missingOrOutdatedPaths.get(MergedObjectType.CONFLICT).size();
+            event.commit();
+        }
 
         return missingOrOutdatedPaths;
     }
+
+    /**
+     * Compares the histories of both path objects, if their vectors do not tell whether one is based on the other.
+     * Our path object is fast-forwarded if its latest version is an ancestor of the other's
+     *
+     * @param relativePath           The path of both path objects
+     * @param ourPathObject          Our path object, changed in place
+     * @param otherPathObject        The path object of the other client
+     * @param missingOrOutdatedPaths The merged paths by their type, to which the path is added if changed or in conflict
+     */
+    protected void mergeHistories(String relativePath, PathObject ourPathObject, PathObject otherPathObject, HashMap<MergedObjectType, Set<String>> missingOrOutdatedPaths) {
+        List<Version> versions = new ArrayList<>(ourPathObject.getVersions());
+        List<Version> otherVersions = otherPathObject.getVersions();
+
+        // relate both latest versions in the graph of both histories:
+        // if ours is an ancestor of the other, we can fast-forward,
+        // if the other is an ancestor of ours, we have a more recent version.
+        // The graph is built for these queries only, which are answered in linear time
+        VersionGraph versionGraph = new VersionGraph();
+        versionGraph.addAll(versions);
+        versionGraph.addAll(otherVersions);
+
+        String lastKey = versions.isEmpty() ? null : VersionGraph.getKey(versions.get(versions.size() - 1));
+        String otherLastKey = otherVersions.isEmpty() ? null : VersionGraph.getKey(otherVersions.get(otherVersions.size() - 1));
+
+        if (null == otherLastKey || otherLastKey.equals(lastKey) || (null != lastKey && versionGraph.isAncestor(otherLastKey, lastKey))) {
+            // we are up to date or have a more recent version
+            // and therefore have seen all changes of the other client
+            ourPathObject.getVersionVector().merge(otherPathObject.getVersionVector());
+        } else if (null == lastKey || versionGraph.isAncestor(lastKey, otherLastKey)) {
+            // add the other versions based on our latest one and keep them with their ids, like
+            // the versions of missing files. Once the file is fetched, its hash equals the last version.
+            // Older versions we do not know, e.g. since we compacted them, are not added again
+            versions.addAll((null == lastKey) ? otherVersions : VersionGraph.getDescendants(lastKey, otherVersions));
+            ourPathObject.setVersions(versions);
+            // adopt the changes of the other client, they are counted once the object is written
+            ourPathObject.getVersionVector().merge(otherPathObject.getVersionVector());
+            // add the path to the file to the outdated files
+            missingOrOutdatedPaths.get(MergedObjectType.CHANGED).add(relativePath);
+        } else if (otherVersions.size() > 0) {
+            // there is a conflict on the file, the vector is left as is,
+            // so that it is reported again until the conflict is resolved
+            // -> do only create a conflict for non directory paths
+            if (PathType.DIRECTORY != otherPathObject.getPathType()) {
+                missingOrOutdatedPaths.get(MergedObjectType.CONFLICT).add(relativePath);
+            }
+        }
+    }
+
+    /**
+     * Returns the versions of the other client following the version with the given key.
+     * Its version log is read from the latest version backwards until that version is found
+     *
+     * @param otherObjectManager The object manager of the other client
+     * @param fileNameHash       The file name hash of the path object
+     * @param lastKey            The key of our latest version or null, if we have none
+     *
+     * @return The versions based on our latest one, all versions if we have none or only the latest one, if our latest version is unknown to the other client, e.g. since it compacted its history
+     *
+     * @throws InputOutputException If reading the versions fails
+     */
+    protected List<Version> getVersionsAfter(IObjectManager otherObjectManager, String fileNameHash, String lastKey)
+            throws InputOutputException {
+        int offset = otherObjectManager.getVersionCount(fileNameHash);
+        if (null == lastKey) {
+            return otherObjectManager.getVersions(fileNameHash, 0, offset);
+        }
+
+        List<Version> tail = new ArrayList<>();
+        while (offset > 0) {
+            int limit = Math.min(VERSION_PAGE_SIZE, offset);
+            offset -= limit;
+
+            List<Version> page = otherObjectManager.getVersions(fileNameHash, offset, limit);
+            tail.addAll(0, page);
+
+            for (Version version : page) {
+                if (lastKey.equals(VersionGraph.getKey(version))) {
+                    return VersionGraph.getDescendants(lastKey, tail);
+                }
+            }
+        }
+
+        return tail.isEmpty() ? tail : new ArrayList<>(tail.subList(tail.size() - 1, tail.size()));
+    }
+
+    /**
+     * The version of a file along with the hash to detect changes of it
+     */
+    protected static class KnownContent {
+
+        protected final String changeDetectionHash;
+
+        protected final Version version;
+
+        protected KnownContent(String changeDetectionHash, Version version) {
+            this.changeDetectionHash = changeDetectionHash;
+            this.version = version;
+        }
+    }
 }
@@ -0,0 +1,146 @@
+package org.rmatil.sync.version.core;
+
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.ICounter;
+import org.rmatil.sync.version.api.IObjectManager;
+import org.rmatil.sync.version.api.IPermissionResolver;
+import org.rmatil.sync.version.core.metrics.MetricNames;
+import org.rmatil.sync.version.core.model.Sharer;
+
+/**
+ * Resolves effective access types from the owners and sharers of the object manager
+ * and remembers them for recently checked users and paths.
+ * <p>
+ * The cache is direct mapped like the {@link org.rmatil.sync.version.core.hashing.PathHashCache}:
+ * each user and path is stored in the slot given by their hash codes, so that a cached
+ * check neither locks nor allocates. Each entry is tagged with the sharing version of the
+ * object manager it was resolved at. Any change of sharers or owners increments that version,
+ * which invalidates all entries at once without visiting them.
+ */
+public class PermissionResolver implements IPermissionResolver {
+
+    protected IObjectManager objectManager;
+
+    protected Entry[] entries;
+
+    protected int mask;
+
+    protected ICounter resolutions;
+
+    protected ICounter hits;
+
+    /**
+     * @param objectManager The object manager to read the sharing from
+     * @param capacity      The maximal number of cached checks, rounded up to the next power of two
+     */
+    public PermissionResolver(IObjectManager objectManager, int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.objectManager = objectManager;
+        this.entries = new Entry[size];
+        this.mask = this.entries.length - 1;
+        this.resolutions = objectManager.getMetricRegistry().counter(MetricNames.PERMISSION_RESOLUTIONS);
+        this.hits = objectManager.getMetricRegistry().counter(MetricNames.PERMISSION_CACHE_HITS);
+    }
+
+    @Override
+    public AccessType getAccessType(String username, String path)
+            throws InputOutputException {
+        long sharingVersion = this.objectManager.getSharingVersion();
+
+        int hashCode = 31 * username.hashCode() + path.hashCode();
+        int slot = (hashCode ^ (hashCode >>> 16)) & this.mask;
+
+        Entry entry = this.entries[slot];
+        if (null != entry && entry.sharingVersion == sharingVersion && entry.username.equals(username) && entry.path.equals(path)) {
+            this.hits.increment();
+            return entry.accessType;
+        }
+
+        AccessType accessType = this.resolve(username, path);
+        this.resolutions.increment();
+        // tagged with the version read before resolving, a concurrent change hence invalidates it
+        this.entries[slot] = new Entry(username, path, sharingVersion, accessType);
+
+        return accessType;
+    }
+
+    @Override
+    public boolean hasAccess(String username, AccessType accessType, String path)
+            throws InputOutputException {
+        return this.getAccessType(username, path).ordinal() >= accessType.ordinal();
+    }
+
+    /**
+     * Returns the maximal number of cached checks
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return this.entries.length;
+    }
+
+    /**
+     * Removes all cached checks
+     */
+    public void clear() {
+        for (int i = 0; i < this.entries.length; i++) {
+            this.entries[i] = null;
+        }
+    }
+
+    /**
+     * Resolves the effective access of the given user without using the cache
+     *
+     * @param username The name of the user
+     * @param path     The path to access
+     *
+     * @return The access type
+     *
+     * @throws InputOutputException If reading the sharing of the path fails
+     */
+    protected AccessType resolve(String username, String path)
+            throws InputOutputException {
+        if (username.equals(this.objectManager.getEffectiveOwner(path))) {
+            return AccessType.WRITE;
+        }
+
+        for (Sharer sharer : this.objectManager.getEffectiveSharers(path)) {
+            if (username.equals(sharer.getUsername()) && null != sharer.getAccessType()) {
+                return sharer.getAccessType();
+            }
+        }
+
+        return AccessType.ACCESS_REMOVED;
+    }
+
+    /**
+     * A resolved access type along with the user, the path
+     * and the sharing version it has been resolved at
+     */
+    protected static final class Entry {
+
+        protected final String username;
+
+        protected final String path;
+
+        protected final long sharingVersion;
+
+        protected final AccessType accessType;
+
+        protected Entry(String username, String path, long sharingVersion, AccessType accessType) {
+            this.username = username;
+            this.path = path;
+            this.sharingVersion = sharingVersion;
+            this.accessType = accessType;
+        }
+    }
+}
@@ -3,14 +3,16 @@ package org.rmatil.sync.version.core;
 import org.rmatil.sync.commons.hashing.Hash;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
 import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.ICounter;
 import org.rmatil.sync.version.api.IObjectManager;
+import org.rmatil.sync.version.api.IProgressListener;
 import org.rmatil.sync.version.api.ISharerManager;
 import org.rmatil.sync.version.config.Config;
+import org.rmatil.sync.version.core.metrics.MetricNames;
 import org.rmatil.sync.version.core.model.PathObject;
 import org.rmatil.sync.version.core.model.Sharer;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -18,63 +20,158 @@ public class SharerManager implements ISharerManager {
 
     protected IObjectManager objectManager;
 
+    protected ICounter sharerChanges;
+
     public SharerManager(IObjectManager objectManager) {
         this.objectManager = objectManager;
+        this.sharerChanges = objectManager.getMetricRegistry().counter(MetricNames.SHARER_CHANGES);
     }
 
     @Override
     public synchronized Set<Sharer> getSharer(String pathToFile)
             throws InputOutputException {
-        String fileNameHash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), pathToFile);
+        return this.objectManager.getEffectiveSharers(pathToFile);
+    }
 
-        PathObject pathObject = this.objectManager.getObject(fileNameHash);
-        return pathObject.getSharers();
+    @Override
+    public synchronized boolean isShared(String pathToFile)
+            throws InputOutputException {
+        return this.objectManager.isShared(pathToFile);
     }
 
     @Override
     public synchronized void addSharer(String username, AccessType accessType, String pathToFile)
             throws InputOutputException {
-        String fileNameHash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), pathToFile);
+        PathObject pathObject = this.share(username, accessType, pathToFile);
+
+        this.objectManager.writeObject(pathObject);
+        this.sharerChanges.increment();
+    }
+
+    @Override
+    public synchronized void addSharerRecursively(String username, AccessType accessType, String pathToDirectory, IProgressListener listener)
+            throws InputOutputException {
+        List<PathObject> pathObjects = new ArrayList<>();
+        pathObjects.add(this.share(username, accessType, pathToDirectory));
+
+        // the contents inherit the sharer, only the ones storing the sharer themselves have to be changed
+        for (String path : this.getPathsBelowWithSharer(username, pathToDirectory)) {
+            pathObjects.add(this.share(username, accessType, path));
+        }
+
+        this.objectManager.writeObjects(pathObjects, listener);
+        this.sharerChanges.increment(pathObjects.size());
+    }
+
+    @Override
+    public synchronized void removeSharer(String username, String pathToFile)
+            throws InputOutputException {
+        PathObject pathObject = this.unshare(username, pathToFile);
+
+        if (null == pathObject) {
+            throw new InputOutputException("Can not remove sharer " + username + " since he is not present in the list");
+        }
+
+        this.objectManager.writeObject(pathObject);
+        this.sharerChanges.increment();
+    }
+
+    @Override
+    public synchronized void removeSharerRecursively(String username, String pathToDirectory, IProgressListener listener)
+            throws InputOutputException {
+        List<PathObject> pathObjects = new ArrayList<>();
 
-        String firstSharingHistoryEntry = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), accessType.name());
+        PathObject directoryObject = this.unshare(username, pathToDirectory);
+        if (null != directoryObject) {
+            pathObjects.add(directoryObject);
+        }
 
+        // the contents inherit the removal, only the ones granting access themselves have to be changed
+        for (String path : this.getPathsBelowWithSharer(username, pathToDirectory)) {
+            Sharer sharer = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(path)).getSharer(username);
+            if (null != sharer && AccessType.ACCESS_REMOVED != sharer.getAccessType()) {
+                pathObjects.add(this.unshare(username, path));
+            }
+        }
+
+        if (pathObjects.isEmpty()) {
+            throw new InputOutputException("Can not remove sharer " + username + " since he is not present in the list");
+        }
+
+        this.objectManager.writeObjects(pathObjects, listener);
+        this.sharerChanges.increment(pathObjects.size());
+    }
+
+    /**
+     * Adds the given sharer to the object of the given path without writing it.
+     * If the sharer is stored for the path already, it is replaced and its history continued
+     *
+     * @param username   The sharer's username to add
+     * @param accessType The access type which is granted to the sharer
+     * @param pathToFile The path to the file
+     *
+     * @return The changed path object
+     *
+     * @throws InputOutputException If reading the path object fails
+     */
+    protected PathObject share(String username, AccessType accessType, String pathToFile)
+            throws InputOutputException {
         List<String> sharingHistory = new ArrayList<>();
-        sharingHistory.add(firstSharingHistoryEntry);
+        sharingHistory.add(Hash.hash(Config.DEFAULT.getHashingAlgorithm(), accessType.name()));
         Sharer sharer = new Sharer(
                 username,
                 accessType,
                 sharingHistory
         );
 
-        PathObject pathObject = this.objectManager.getObject(fileNameHash);
+        PathObject pathObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(pathToFile));
+
+        // sharing a path again, e.g. after its access was removed, continues the history of the sharer
+        Sharer entry = pathObject.getSharer(username);
+        if (null != entry) {
+            sharer.setSharingHistory(new ArrayList<>(entry.getSharingHistory()));
+            addHistoryEntry(sharer, accessType);
+        }
+
         pathObject.setIsShared(true);
+        // replaces the previous entry of the sharer
         pathObject.getSharers().add(sharer);
-        this.objectManager.writeObject(pathObject);
+        pathObject.getVersionVector().increment(this.objectManager.getClientId());
+
+        return pathObject;
     }
 
-    @Override
-    public synchronized void removeSharer(String username, String pathToFile)
+    /**
+     * Removes the access of the given sharer from the object of the given path without writing it.
+     * If the sharer is inherited from an ancestor, its removal is stored for this path only
+     *
+     * @param username   The username of the sharer to remove
+     * @param pathToFile The file path from which to remove the sharer
+     *
+     * @return The changed path object or null, if the sharer is neither stored nor inherited
+     *
+     * @throws InputOutputException If reading the path object fails
+     */
+    protected PathObject unshare(String username, String pathToFile)
             throws InputOutputException {
-        String fileNameHash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), pathToFile);
+        PathObject pathObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(pathToFile));
 
-        PathObject pathObject = this.objectManager.getObject(fileNameHash);
+        Sharer sharer = pathObject.getSharer(username);
+        if (null != sharer) {
+            pathObject.getSharers().remove(sharer);
+        }
 
         boolean isLastSharerForPath = true;
-        Sharer sharer = null;
-
-        Iterator<Sharer> itr = pathObject.getSharers().iterator();
-        while (itr.hasNext()) {
-            Sharer entry = itr.next();
-            if (entry.getUsername().equals(username)) {
-                sharer = entry;
-                itr.remove();
-            } else {
+        for (Sharer entry : this.objectManager.getEffectiveSharers(pathToFile)) {
+            if (! entry.getUsername().equals(username)) {
                 isLastSharerForPath = false;
+            } else if (null == sharer) {
+                sharer = entry;
             }
         }
 
         if (null == sharer) {
-            throw new InputOutputException("Can not remove sharer " + username + " since he is not present in the list");
+            return null;
         }
 
         // if the sharer is the last sharer for the file, we can remove the shared flag
@@ -83,6 +180,50 @@ public class SharerManager implements ISharerManager {
             pathObject.setOwner(null);
         }
 
+        addHistoryEntry(sharer, AccessType.ACCESS_REMOVED);
+        sharer.setAccessType(AccessType.ACCESS_REMOVED);
+
+        pathObject.getSharers().add(sharer);
+        pathObject.getVersionVector().increment(this.objectManager.getClientId());
+
+        return pathObject;
+    }
+
+    /**
+     * Returns the paths below the given directory which store the given user as sharer themselves
+     *
+     * @param username        The username of the sharer
+     * @param pathToDirectory The path to the directory
+     *
+     * @return The paths, excluding the directory itself
+     *
+     * @throws InputOutputException If accessing the object store fails
+     */
+    protected List<String> getPathsBelowWithSharer(String username, String pathToDirectory)
+            throws InputOutputException {
+        Set<String> pathsWithSharer = this.objectManager.getPathsWithExplicitSharer(username);
+
+        List<String> paths = new ArrayList<>();
+        if (pathsWithSharer.isEmpty()) {
+            return paths;
+        }
+
+        for (String path : this.objectManager.getIndex().getPathsBelow(pathToDirectory)) {
+            if (pathsWithSharer.contains(path)) {
+                paths.add(path);
+            }
+        }
+
+        return paths;
+    }
+
+    /**
+     * Adds the entry for the given access type to the sharing history of the given sharer
+     *
+     * @param sharer     The sharer
+     * @param accessType The new access type
+     */
+    protected static void addHistoryEntry(Sharer sharer, AccessType accessType) {
         String nextSharingHistoryEntry = "";
         // make a hash of all previously history entries
         for (String shareHistory : sharer.getSharingHistory()) {
@@ -90,38 +231,50 @@ public class SharerManager implements ISharerManager {
         }
 
         // now add the new state to the history
-        nextSharingHistoryEntry = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), nextSharingHistoryEntry + AccessType.ACCESS_REMOVED.name());
+        nextSharingHistoryEntry = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), nextSharingHistoryEntry + accessType.name());
         sharer.getSharingHistory().add(nextSharingHistoryEntry);
-        sharer.setAccessType(AccessType.ACCESS_REMOVED);
-
-        pathObject.getSharers().add(sharer);
-        this.objectManager.writeObject(pathObject);
     }
 
     @Override
     public void addOwner(String username, String pathToFile)
             throws InputOutputException {
-        PathObject pathObject = this.objectManager.getObjectForPath(pathToFile);
+        PathObject pathObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(pathToFile));
         pathObject.setOwner(username);
+        pathObject.getVersionVector().increment(this.objectManager.getClientId());
         this.objectManager.writeObject(pathObject);
+        this.sharerChanges.increment();
     }
 
     @Override
     public void removeOwner(String pathToFile)
             throws InputOutputException {
-        PathObject pathObject = this.objectManager.getObjectForPath(pathToFile);
+        PathObject pathObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(pathToFile));
 
         pathObject.setOwner(null);
+        pathObject.getVersionVector().increment(this.objectManager.getClientId());
         this.objectManager.writeObject(pathObject);
+        this.sharerChanges.increment();
     }
 
     @Override
     public String getOwner(String pathToFile)
             throws InputOutputException {
-        PathObject pathObject = this.objectManager.getObjectForPath(pathToFile);
+        PathObject pathObject = this.objectManager.getObjectHeader(this.objectManager.getHashForPath(pathToFile));
         return pathObject.getOwner();
     }
 
+    @Override
+    public Set<String> getPathsSharedWith(String username)
+            throws InputOutputException {
+        return this.objectManager.getPathsSharedWith(username);
+    }
+
+    @Override
+    public Set<String> getPathsOwnedBy(String username)
+            throws InputOutputException {
+        return this.objectManager.getPathsOwnedBy(username);
+    }
+
     @Override
     public IObjectManager getObjectManager() {
         return this.objectManager;
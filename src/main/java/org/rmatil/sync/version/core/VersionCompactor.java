@@ -0,0 +1,185 @@
+package org.rmatil.sync.version.core;
+
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.ICounter;
+import org.rmatil.sync.version.api.IObjectManager;
+import org.rmatil.sync.version.api.IRetentionPolicy;
+import org.rmatil.sync.version.core.metrics.MetricNames;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the versions of all paths which are not retained by a retention policy.
+ * <p>
+ * Paths are compacted in batches: While a batch is compacted, the object manager
+ * is locked, so that no version added concurrently is lost. Between batches,
+ * other operations on the object store may proceed.
+ * <p>
+ * Only the local history is compacted. Merging with a client holding a longer
+ * history still works: A client whose vector is behind adopts the versions following
+ * its latest one, and concurrent histories are related by the versions both still hold.
+ * Versions removed here are not added again by merging.
+ */
+public class VersionCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VersionCompactor.class);
+
+    protected IObjectManager objectManager;
+
+    protected IRetentionPolicy retentionPolicy;
+
+    protected int batchSize;
+
+    protected ICounter versionsCompacted;
+
+    /**
+     * The executor running the compaction periodically, null if not started
+     */
+    protected ScheduledExecutorService executor;
+
+    /**
+     * @param objectManager   The object manager of which to compact the objects
+     * @param retentionPolicy The policy deciding which versions to keep
+     */
+    public VersionCompactor(IObjectManager objectManager, IRetentionPolicy retentionPolicy) {
+        this(objectManager, retentionPolicy, 100);
+    }
+
+    /**
+     * @param objectManager   The object manager of which to compact the objects
+     * @param retentionPolicy The policy deciding which versions to keep
+     * @param batchSize       The number of paths compacted while holding the lock on the object manager
+     */
+    public VersionCompactor(IObjectManager objectManager, IRetentionPolicy retentionPolicy, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be at least one");
+        }
+
+        this.objectManager = objectManager;
+        this.retentionPolicy = retentionPolicy;
+        this.batchSize = batchSize;
+        this.versionsCompacted = objectManager.getMetricRegistry().counter(MetricNames.VERSIONS_COMPACTED);
+    }
+
+    /**
+     * Applies the retention policy to all paths of the object store
+     *
+     * @return The number of removed versions
+     *
+     * @throws InputOutputException If reading or writing an object fails
+     */
+    public int compact()
+            throws InputOutputException {
+        List<String> paths;
+        synchronized (this.objectManager) {
+            paths = new ArrayList<>(this.objectManager.getIndex().getPathSet());
+        }
+
+        int removedVersions = 0;
+        for (int start = 0; start < paths.size(); start += this.batchSize) {
+            List<String> batch = paths.subList(start, Math.min(paths.size(), start + this.batchSize));
+            removedVersions += this.compactBatch(batch, System.currentTimeMillis());
+        }
+
+        logger.debug("Removed " + removedVersions + " versions of " + paths.size() + " paths");
+
+        return removedVersions;
+    }
+
+    /**
+     * Applies the retention policy to the given paths
+     *
+     * @param paths The paths to compact
+     * @param now   The current time in milliseconds since the epoch
+     *
+     * @return The number of removed versions
+     *
+     * @throws InputOutputException If reading or writing an object fails
+     */
+    protected int compactBatch(List<String> paths, long now)
+            throws InputOutputException {
+        int removedVersions = 0;
+
+        synchronized (this.objectManager) {
+            for (String path : paths) {
+                // the path may have been moved or removed in the meantime
+                if (! this.objectManager.exists(path)) {
+                    continue;
+                }
+
+                PathObject pathObject = this.objectManager.getObjectForPath(path);
+                List<Version> versions = pathObject.getVersions();
+                if (versions.size() < 2) {
+                    continue;
+                }
+
+                List<Version> retained = this.retentionPolicy.retain(versions, now);
+                if (retained.size() == versions.size()) {
+                    continue;
+                }
+
+                int removed = versions.size() - retained.size();
+                List<Version> retainedCopy = new ArrayList<>(retained);
+                versions.clear();
+                versions.addAll(retainedCopy);
+                this.objectManager.writeObject(pathObject);
+
+                this.versionsCompacted.increment(removed);
+                removedVersions += removed;
+            }
+        }
+
+        return removedVersions;
+    }
+
+    /**
+     * Compacts the object store periodically in the background,
+     * until {@link VersionCompactor#stop()} is invoked
+     *
+     * @param period The time between two compactions
+     * @param unit   The unit of the period
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (null != this.executor) {
+            throw new IllegalStateException("The compactor is already started");
+        }
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "version-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.executor.scheduleWithFixedDelay(() -> {
+            try {
+                this.compact();
+            } catch (InputOutputException | RuntimeException e) {
+                logger.error("Failed to compact versions: " + e.getMessage());
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops compacting in the background, waiting for a running compaction to finish
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public synchronized void stop()
+            throws InterruptedException {
+        if (null == this.executor) {
+            return;
+        }
+
+        this.executor.shutdown();
+        this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        this.executor = null;
+    }
+}
@@ -1,15 +1,17 @@
 package org.rmatil.sync.version.core;
 
-import org.rmatil.sync.commons.hashing.Hash;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.ICounter;
 import org.rmatil.sync.version.api.IObjectManager;
 import org.rmatil.sync.version.api.IVersionManager;
-import org.rmatil.sync.version.config.Config;
+import org.rmatil.sync.version.core.index.VersionGraph;
+import org.rmatil.sync.version.core.metrics.MetricNames;
 import org.rmatil.sync.version.core.model.PathObject;
 import org.rmatil.sync.version.core.model.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class VersionManager implements IVersionManager {
@@ -18,43 +20,64 @@ public class VersionManager implements IVersionManager {
 
     protected IObjectManager objectManager;
 
+    protected ICounter versionsAdded;
+
     /**
      * @param objectManager The object manager to get access to the object store
      */
     public VersionManager(IObjectManager objectManager) {
         this.objectManager = objectManager;
+        this.versionsAdded = objectManager.getMetricRegistry().counter(MetricNames.VERSIONS_ADDED);
     }
 
     public synchronized List<Version> getVersions(String pathToFile)
             throws InputOutputException {
-        String fileNameHash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), pathToFile);
+        String fileNameHash = this.objectManager.getHashForPath(pathToFile);
 
         PathObject pathObject = this.objectManager.getObject(fileNameHash);
         return pathObject.getVersions();
     }
 
+    public synchronized List<Version> getVersions(String pathToFile, int offset, int limit)
+            throws InputOutputException {
+        String fileNameHash = this.objectManager.getHashForPath(pathToFile);
+
+        return this.objectManager.getVersions(fileNameHash, offset, limit);
+    }
+
     public synchronized void addVersion(Version version, String pathToFile)
             throws InputOutputException {
-        String fileNameHash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), pathToFile);
+        String fileNameHash = this.objectManager.getHashForPath(pathToFile);
 
-        PathObject pathObject = this.objectManager.getObject(fileNameHash);
+        if (! this.objectManager.exists(pathToFile)) {
+            throw new InputOutputException("No object stored for " + pathToFile);
+        }
 
-        if (! pathObject.getVersions().isEmpty()) {
-            // only add a version if the last is not the same
-            Version lastVersion = pathObject.getVersions().get(Math.max(0, pathObject.getVersions().size() - 1));
-            if (! lastVersion.getHash().equals(version.getHash())) {
-                pathObject.getVersions().add(version);
+        // only add a version if the last is not the same
+        List<String> parents = new ArrayList<>();
+        Version lastVersion = this.objectManager.getLatestVersion(fileNameHash);
+        if (null != lastVersion) {
+            if (lastVersion.getHash().equals(version.getHash())) {
+                return;
             }
-        } else {
-            pathObject.getVersions().add(version);
+
+            parents.add(VersionGraph.getKey(lastVersion));
         }
 
-        this.objectManager.writeObject(pathObject);
+        // remember when the version was created to apply retention policies later on
+        // and on which version it is based to relate histories on merging
+        this.objectManager.appendVersion(fileNameHash, version.withTimestampIfUnknown(System.currentTimeMillis()).withParentsIfUnknown(parents));
+
+        // count the change of this client, only the header has to be rewritten
+        PathObject header = this.objectManager.getObjectHeader(fileNameHash);
+        header.getVersionVector().increment(this.objectManager.getClientId());
+        this.objectManager.writeObjectHeader(header);
+        this.versionsAdded.increment();
     }
 
     public synchronized void removeVersion(Version version, String pathToFile)
             throws InputOutputException {
-        String fileNameHash = Hash.hash(Config.DEFAULT.getHashingAlgorithm(), pathToFile);
+        String fileNameHash = this.objectManager.getHashForPath(pathToFile);
 
         PathObject pathObject = this.objectManager.getObject(fileNameHash);
         // requires to overwrite equals
@@ -0,0 +1,234 @@
+package org.rmatil.sync.version.core.chunking;
+
+import org.rmatil.sync.commons.hashing.HashingAlgorithm;
+import org.rmatil.sync.version.core.model.Chunk;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits files into chunks at content-defined boundaries using a gear rolling hash,
+ * i.e. the fingerprint is shifted by one bit and a random value of the current byte is added.
+ * A boundary is placed after a byte if the upper bits of the fingerprint, which depend on
+ * the preceding 64 bytes only, are zero. Inserting or removing bytes therefore only changes
+ * the chunks around the modification, all other chunks keep their hash.
+ * <p>
+ * The hash of the whole file is computed in the same pass and is equal
+ * to the one of {@link org.rmatil.sync.commons.hashing.Hash#hash(HashingAlgorithm, File)},
+ * so that chunked and unchunked versions of the same content are equal.
+ * <p>
+ * The gear table is derived from a fixed seed, all clients hence place the same boundaries.
+ */
+public class ContentDefinedChunker {
+
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 256 * 1024;
+
+    public static final int DEFAULT_AVERAGE_CHUNK_SIZE = 1024 * 1024;
+
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    public static final long DEFAULT_MIN_FILE_SIZE = 8L * 1024L * 1024L;
+
+    protected static final long GEAR_SEED = 0x5EED5EED5EED5EEDL;
+
+    protected static final long[] GEAR = createGearTable(GEAR_SEED);
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
+    protected static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    protected HashingAlgorithm hashingAlgorithm;
+
+    protected int minChunkSize;
+
+    protected int averageChunkSize;
+
+    protected int maxChunkSize;
+
+    protected long minFileSize;
+
+    /**
+     * The bits of the fingerprint which have to be zero at a boundary
+     */
+    protected long boundaryMask;
+
+    public ContentDefinedChunker(HashingAlgorithm hashingAlgorithm) {
+        this(hashingAlgorithm, DEFAULT_MIN_CHUNK_SIZE, DEFAULT_AVERAGE_CHUNK_SIZE, DEFAULT_MAX_CHUNK_SIZE, DEFAULT_MIN_FILE_SIZE);
+    }
+
+    /**
+     * @param hashingAlgorithm The algorithm to hash the file and its chunks
+     * @param minChunkSize     The minimal number of bytes of a chunk, except the last one
+     * @param averageChunkSize The expected number of bytes of a chunk, must be a power of two
+     * @param maxChunkSize     The maximal number of bytes of a chunk
+     * @param minFileSize      The minimal size of files to chunk, smaller files are only hashed as a whole
+     */
+    public ContentDefinedChunker(HashingAlgorithm hashingAlgorithm, int minChunkSize, int averageChunkSize, int maxChunkSize, long minFileSize) {
+        if (minChunkSize <= 0 || averageChunkSize < minChunkSize || maxChunkSize < averageChunkSize) {
+            throw new IllegalArgumentException("Chunk sizes must be positive and satisfy min <= average <= max");
+        }
+
+        if (Integer.bitCount(averageChunkSize) != 1) {
+            throw new IllegalArgumentException("The average chunk size must be a power of two");
+        }
+
+        this.hashingAlgorithm = hashingAlgorithm;
+        this.minChunkSize = minChunkSize;
+        this.averageChunkSize = averageChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.minFileSize = minFileSize;
+
+        // once the minimal size is reached, a boundary follows after a byte
+        // with a probability of about 1 / (average - min)
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, averageChunkSize - minChunkSize) - 1);
+        this.boundaryMask = (0 == bits) ? 0L : - 1L << (64 - bits);
+    }
+
+    /**
+     * Returns whether the given file is large enough to be chunked
+     *
+     * @param file The file to check
+     *
+     * @return True, if the file should be chunked
+     */
+    public boolean shouldChunk(File file) {
+        return file.isFile() && file.length() >= this.minFileSize;
+    }
+
+    /**
+     * Hashes the given file and splits it into chunks
+     *
+     * @param file The file to chunk
+     *
+     * @return The version having the hash of the whole file and its chunks
+     *
+     * @throws IOException If reading the file fails
+     */
+    public Version chunk(File file)
+            throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return this.chunk(inputStream);
+        }
+    }
+
+    /**
+     * Hashes the given content and splits it into chunks.
+     * The stream is not closed.
+     *
+     * @param inputStream The content to chunk
+     *
+     * @return The version having the hash of the whole content and its chunks
+     *
+     * @throws IOException If reading the content fails
+     */
+    public Version chunk(InputStream inputStream)
+            throws IOException {
+        MessageDigest fileDigest = this.createDigest();
+        MessageDigest chunkDigest = this.createDigest();
+
+        List<Chunk> chunks = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        long chunkOffset = 0L;
+        int chunkLength = 0;
+        long fingerprint = 0L;
+
+        int read;
+        while (- 1 != (read = inputStream.read(buffer))) {
+            fileDigest.update(buffer, 0, read);
+
+            int segmentStart = 0;
+            for (int i = 0; i < read; i++) {
+                fingerprint = (fingerprint << 1) + GEAR[buffer[i] & 0xff];
+                chunkLength++;
+
+                if (chunkLength >= this.maxChunkSize ||
+                        (chunkLength >= this.minChunkSize && 0L == (fingerprint & this.boundaryMask))) {
+                    chunkDigest.update(buffer, segmentStart, i + 1 - segmentStart);
+                    chunks.add(new Chunk(chunkOffset, chunkLength, toHex(chunkDigest.digest())));
+
+                    segmentStart = i + 1;
+                    chunkOffset += chunkLength;
+                    chunkLength = 0;
+                    fingerprint = 0L;
+                }
+            }
+
+            chunkDigest.update(buffer, segmentStart, read - segmentStart);
+        }
+
+        if (chunkLength > 0) {
+            chunks.add(new Chunk(chunkOffset, chunkLength, toHex(chunkDigest.digest())));
+        }
+
+        return new Version(toHex(fileDigest.digest()), chunks);
+    }
+
+    public HashingAlgorithm getHashingAlgorithm() {
+        return hashingAlgorithm;
+    }
+
+    public int getMinChunkSize() {
+        return minChunkSize;
+    }
+
+    public int getAverageChunkSize() {
+        return averageChunkSize;
+    }
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    public long getMinFileSize() {
+        return minFileSize;
+    }
+
+    protected MessageDigest createDigest() {
+        try {
+            // e.g. SHA_256 -> SHA-256
+            return MessageDigest.getInstance(this.hashingAlgorithm.name().replace('_', '-'));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Hashing algorithm " + this.hashingAlgorithm + " is not supported", e);
+        }
+    }
+
+    protected static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Creates the random values of all bytes using SplitMix64,
+     * so that the table does not depend on the random generator of the JVM
+     *
+     * @param seed The seed
+     *
+     * @return The value of each byte
+     */
+    protected static long[] createGearTable(long seed) {
+        long[] table = new long[256];
+        long state = seed;
+        for (int i = 0; i < table.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            table[i] = z ^ (z >>> 31);
+        }
+
+        return table;
+    }
+}
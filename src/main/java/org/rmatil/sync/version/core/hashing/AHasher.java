@@ -0,0 +1,64 @@
+package org.rmatil.sync.version.core.hashing;
+
+import org.rmatil.sync.version.api.IHasher;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base class of hashers, providing a direct buffer per thread
+ * to stream files through and the encoding of hashes as hex strings.
+ */
+public abstract class AHasher implements IHasher {
+
+    /**
+     * The size of the buffer used to read files
+     */
+    public static final int FILE_BUFFER_SIZE = 1024 * 1024;
+
+    protected static final ThreadLocal<ByteBuffer> FILE_BUFFERS = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocateDirect(FILE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+    );
+
+    protected static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    @Override
+    public String hash(String value) {
+        return this.hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encodes the given bytes as lower case hex string
+     *
+     * @param bytes The bytes to encode
+     *
+     * @return The hex string
+     */
+    protected static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Encodes the given value as lower case hex string of 16 characters
+     *
+     * @param value The value to encode
+     *
+     * @return The hex string
+     */
+    protected static String toHex(long value) {
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+
+        return new String(chars);
+    }
+}
@@ -0,0 +1,82 @@
+package org.rmatil.sync.version.core.hashing;
+
+import org.rmatil.sync.commons.hashing.Hash;
+import org.rmatil.sync.commons.hashing.HashingAlgorithm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes using a cryptographic {@link MessageDigest}. The results are
+ * equal to the ones of {@link Hash}, but the digest of each thread is reused and files
+ * are streamed through a {@link FileChannel} into a direct buffer of each thread.
+ */
+public class DigestHasher extends AHasher {
+
+    protected HashingAlgorithm hashingAlgorithm;
+
+    protected ThreadLocal<MessageDigest> digests;
+
+    public DigestHasher(HashingAlgorithm hashingAlgorithm) {
+        this.hashingAlgorithm = hashingAlgorithm;
+
+        // e.g. SHA_256 -> SHA-256
+        String algorithmName = hashingAlgorithm.name().replace('_', '-');
+        this.digests = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance(algorithmName);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Hashing algorithm " + algorithmName + " is not supported", e);
+            }
+        });
+
+        // fail early
+        this.digests.get();
+    }
+
+    public HashingAlgorithm getHashingAlgorithm() {
+        return hashingAlgorithm;
+    }
+
+    @Override
+    public String getName() {
+        return this.hashingAlgorithm.name();
+    }
+
+    @Override
+    public String hash(byte[] bytes) {
+        MessageDigest digest = this.digests.get();
+        digest.reset();
+
+        return toHex(digest.digest(bytes));
+    }
+
+    @Override
+    public String hash(File file)
+            throws IOException {
+        if (file.isDirectory()) {
+            // the hash of a directory is defined by its contents
+            return Hash.hash(this.hashingAlgorithm, file);
+        }
+
+        MessageDigest digest = this.digests.get();
+        digest.reset();
+
+        ByteBuffer buffer = FILE_BUFFERS.get();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer.clear();
+            while (- 1 != channel.read(buffer)) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+}
@@ -0,0 +1,139 @@
+package org.rmatil.sync.version.core.hashing;
+
+import org.rmatil.sync.version.api.ICounter;
+import org.rmatil.sync.version.api.IHasher;
+import org.rmatil.sync.version.core.metrics.NoOpMetricRegistry;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Remembers the hashes of recently hashed paths, so that the same path
+ * is not hashed again by each manager involved in a single operation.
+ * Bytes and files are hashed by the underlying hasher without caching.
+ * <p>
+ * The cache is direct mapped: each path is stored in the slot given by its
+ * {@link String#hashCode()}, replacing the path stored there before. Lookups hence
+ * never lock and the memory is bounded by the capacity. Entries are immutable,
+ * so concurrent readers either see a complete entry or the one it replaced.
+ */
+public class PathHashCache implements IHasher {
+
+    protected IHasher hasher;
+
+    protected Entry[] entries;
+
+    protected int mask;
+
+    protected ICounter computations;
+
+    protected ICounter hits;
+
+    /**
+     * @param hasher   The hasher to compute the hashes of paths not cached
+     * @param capacity The maximal number of cached paths, rounded up to the next power of two
+     */
+    public PathHashCache(IHasher hasher, int capacity) {
+        this(hasher, capacity, NoOpMetricRegistry.INSTANCE.counter(null), NoOpMetricRegistry.INSTANCE.counter(null));
+    }
+
+    /**
+     * @param hasher       The hasher to compute the hashes of paths not cached
+     * @param capacity     The maximal number of cached paths, rounded up to the next power of two
+     * @param computations The counter of computed path hashes
+     * @param hits         The counter of path hashes found in the cache
+     */
+    public PathHashCache(IHasher hasher, int capacity, ICounter computations, ICounter hits) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.hasher = hasher;
+        this.entries = new Entry[size];
+        this.mask = this.entries.length - 1;
+        this.computations = computations;
+        this.hits = hits;
+    }
+
+    @Override
+    public String getName() {
+        return this.hasher.getName();
+    }
+
+    @Override
+    public String hash(String path) {
+        int hashCode = path.hashCode();
+        int slot = (hashCode ^ (hashCode >>> 16)) & this.mask;
+
+        Entry entry = this.entries[slot];
+        if (null != entry && entry.path.equals(path)) {
+            this.hits.increment();
+            return entry.hash;
+        }
+
+        String hash = this.hasher.hash(path);
+        this.computations.increment();
+        this.entries[slot] = new Entry(path, hash);
+
+        return hash;
+    }
+
+    @Override
+    public String hash(byte[] bytes) {
+        return this.hasher.hash(bytes);
+    }
+
+    @Override
+    public String hash(File file)
+            throws IOException {
+        return this.hasher.hash(file);
+    }
+
+    /**
+     * Returns the maximal number of cached paths
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return this.entries.length;
+    }
+
+    /**
+     * Returns the hasher computing the hashes of paths not cached.
+     * Hashing with it directly neither uses the cache nor counts computations
+     *
+     * @return The underlying hasher
+     */
+    public IHasher getHasher() {
+        return this.hasher;
+    }
+
+    /**
+     * Removes all cached paths
+     */
+    public void clear() {
+        for (int i = 0; i < this.entries.length; i++) {
+            this.entries[i] = null;
+        }
+    }
+
+    /**
+     * A path along with its hash
+     */
+    protected static final class Entry {
+
+        protected final String path;
+
+        protected final String hash;
+
+        protected Entry(String path, String hash) {
+            this.path = path;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.rmatil.sync.version.core.hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Hashes using the non-cryptographic XXH64 algorithm, which is an order
+ * of magnitude faster than SHA-256. Its hashes must therefore only be used
+ * to detect changes locally, never as canonical hash of a version.
+ *
+ * @see <a href="https://github.com/Cyan4973/xxHash/blob/dev/doc/xxhash_spec.md">xxHash specification</a>
+ */
+public class XxHash64Hasher extends AHasher {
+
+    protected static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    protected static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    protected static final long PRIME_3 = 0x165667B19E3779F9L;
+    protected static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    protected static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    protected static final int STRIPE_LENGTH = 32;
+
+    protected long seed;
+
+    public XxHash64Hasher() {
+        this(0L);
+    }
+
+    public XxHash64Hasher(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public String getName() {
+        return "XXH64";
+    }
+
+    @Override
+    public String hash(byte[] bytes) {
+        State state = new State(this.seed);
+        state.update(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+
+        return toHex(state.digest());
+    }
+
+    @Override
+    public String hash(File file)
+            throws IOException {
+        State state = new State(this.seed);
+
+        ByteBuffer buffer = FILE_BUFFERS.get();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer.clear();
+            while (- 1 != channel.read(buffer)) {
+                buffer.flip();
+                state.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return toHex(state.digest());
+    }
+
+    protected static long round(long accumulator, long input) {
+        accumulator += input * PRIME_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME_1;
+    }
+
+    protected static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0L, value);
+        return accumulator * PRIME_1 + PRIME_4;
+    }
+
+    /**
+     * The state of hashing a stream of bytes. Complete stripes are consumed
+     * from the buffers passed in, remaining bytes are kept in the buffer
+     */
+    protected static class State {
+
+        protected long seed;
+
+        protected long totalLength;
+
+        protected long v1;
+        protected long v2;
+        protected long v3;
+        protected long v4;
+
+        /**
+         * The bytes which do not form a complete stripe yet
+         */
+        protected ByteBuffer remaining = ByteBuffer.allocate(STRIPE_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+
+        protected State(long seed) {
+            this.seed = seed;
+            this.v1 = seed + PRIME_1 + PRIME_2;
+            this.v2 = seed + PRIME_2;
+            this.v3 = seed;
+            this.v4 = seed - PRIME_1;
+        }
+
+        /**
+         * Consumes all bytes of the given little endian buffer
+         *
+         * @param buffer The buffer to consume
+         */
+        protected void update(ByteBuffer buffer) {
+            this.totalLength += buffer.remaining();
+
+            // complete a started stripe first
+            if (this.remaining.position() > 0) {
+                while (this.remaining.hasRemaining() && buffer.hasRemaining()) {
+                    this.remaining.put(buffer.get());
+                }
+
+                if (this.remaining.hasRemaining()) {
+                    return;
+                }
+
+                this.remaining.flip();
+                this.consumeStripe(this.remaining);
+                this.remaining.clear();
+            }
+
+            while (buffer.remaining() >= STRIPE_LENGTH) {
+                this.consumeStripe(buffer);
+            }
+
+            this.remaining.put(buffer);
+        }
+
+        protected void consumeStripe(ByteBuffer buffer) {
+            this.v1 = round(this.v1, buffer.getLong());
+            this.v2 = round(this.v2, buffer.getLong());
+            this.v3 = round(this.v3, buffer.getLong());
+            this.v4 = round(this.v4, buffer.getLong());
+        }
+
+        protected long digest() {
+            long hash;
+            if (this.totalLength >= STRIPE_LENGTH) {
+                hash = Long.rotateLeft(this.v1, 1) + Long.rotateLeft(this.v2, 7) + Long.rotateLeft(this.v3, 12) + Long.rotateLeft(this.v4, 18);
+                hash = mergeRound(hash, this.v1);
+                hash = mergeRound(hash, this.v2);
+                hash = mergeRound(hash, this.v3);
+                hash = mergeRound(hash, this.v4);
+            } else {
+                hash = this.seed + PRIME_5;
+            }
+
+            hash += this.totalLength;
+
+            this.remaining.flip();
+            while (this.remaining.remaining() >= 8) {
+                hash ^= round(0L, this.remaining.getLong());
+                hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+            }
+
+            if (this.remaining.remaining() >= 4) {
+                hash ^= (this.remaining.getInt() & 0xFFFFFFFFL) * PRIME_1;
+                hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            }
+
+            while (this.remaining.hasRemaining()) {
+                hash ^= (this.remaining.get() & 0xFFL) * PRIME_5;
+                hash = Long.rotateLeft(hash, 11) * PRIME_1;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= PRIME_2;
+            hash ^= hash >>> 29;
+            hash *= PRIME_3;
+            hash ^= hash >>> 32;
+
+            return hash;
+        }
+    }
+}
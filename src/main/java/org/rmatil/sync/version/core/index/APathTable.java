@@ -0,0 +1,806 @@
+package org.rmatil.sync.version.core.index;
+
+import org.rmatil.sync.version.api.IPathTable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The algorithms of a path table, independent of where its data is stored.
+ * <p>
+ * Each segment of a path is a node, identified by its handle. A node stores
+ * its parent, its first child and its siblings as handles and its name
+ * as offset and length into an arena of UTF-8 encoded names. All of these are
+ * stored in integer columns, i.e. no object is allocated per path.
+ * Nodes are found by their parent and name using an open addressing hash table.
+ * <p>
+ * Nodes which are only the parent of other paths are not contained in the table
+ * themselves. Nodes are removed as soon as they are neither contained nor have children.
+ * Their handles are then reused for new nodes.
+ * <p>
+ * Implementations provide the storage of the columns, the hash table and the name arena.
+ */
+public abstract class APathTable implements IPathTable {
+
+    protected static final char SEPARATOR = '/';
+
+    /**
+     * The parent of top level nodes
+     */
+    protected static final int ROOT = - 1;
+
+    protected static final int NONE = - 1;
+
+    /**
+     * A removed entry in the hash table
+     */
+    protected static final int TOMBSTONE = - 2;
+
+    protected static final int PARENT = 0;
+    protected static final int FIRST_CHILD = 1;
+    protected static final int NEXT_SIBLING = 2;
+    protected static final int PREV_SIBLING = 3;
+    protected static final int NAME_OFFSET = 4;
+    protected static final int NAME_LENGTH = 5;
+    protected static final int NAME_HASH = 6;
+    protected static final int FLAGS = 7;
+
+    protected static final int COLUMN_COUNT = 8;
+
+    /**
+     * The node is in use, i.e. not on the free list
+     */
+    protected static final int FLAG_LIVE = 1;
+
+    /**
+     * The path of the node is contained in the table
+     */
+    protected static final int FLAG_CONTAINED = 2;
+
+    protected static final int MIN_TABLE_SIZE = 16;
+
+    /**
+     * The number of nodes ever allocated, i.e. the next handle if no free one exists
+     */
+    protected int nodeCount;
+
+    /**
+     * The number of nodes in use
+     */
+    protected int liveNodeCount;
+
+    /**
+     * The number of contained paths
+     */
+    protected int size;
+
+    /**
+     * The head of the list of free handles, linked by their next sibling
+     */
+    protected int freeHead = NONE;
+
+    /**
+     * The first top level node
+     */
+    protected int rootFirstChild = NONE;
+
+    protected int tableSize;
+
+    /**
+     * The number of used and removed entries in the hash table
+     */
+    protected int tableOccupied;
+
+    protected int arenaLength;
+
+    /**
+     * The bytes in the arena belonging to removed nodes
+     */
+    protected int arenaGarbage;
+
+    protected int modCount;
+
+    /**
+     * Holds the encoded name of the segment currently looked up. Kept per thread,
+     * so that concurrent lookups of readers holding no lock do not interfere
+     */
+    protected static final ThreadLocal<byte[]> NAME_BUFFER = ThreadLocal.withInitial(() -> new byte[256]);
+
+    protected abstract int get(int column, int handle);
+
+    protected abstract void set(int column, int handle, int value);
+
+    /**
+     * Ensures that the columns can hold the given number of nodes
+     *
+     * @param nodes The number of nodes
+     */
+    protected abstract void ensureNodeCapacity(int nodes);
+
+    protected abstract int getSlot(int slot);
+
+    protected abstract void setSlot(int slot, int handle);
+
+    /**
+     * Replaces the hash table with an empty one of the given size
+     *
+     * @param tableSize The number of slots, a power of two
+     */
+    protected abstract void allocateSlots(int tableSize);
+
+    /**
+     * Ensures that the arena can hold the given number of bytes
+     *
+     * @param bytes The number of bytes
+     */
+    protected abstract void ensureArenaCapacity(int bytes);
+
+    protected abstract byte getNameByte(int offset);
+
+    protected abstract void putNameBytes(int offset, byte[] bytes, int length);
+
+    /**
+     * Returns the number of bytes allocated for the columns, the table and the arena
+     *
+     * @return The allocated bytes
+     */
+    protected abstract long getAllocatedBytes();
+
+    /**
+     * Initializes an empty table. Must be invoked by implementations once their storage is ready
+     */
+    protected void init() {
+        this.beforeModification();
+        this.nodeCount = 0;
+        this.liveNodeCount = 0;
+        this.size = 0;
+        this.freeHead = NONE;
+        this.rootFirstChild = NONE;
+        this.arenaLength = 0;
+        this.arenaGarbage = 0;
+        this.tableSize = MIN_TABLE_SIZE;
+        this.tableOccupied = 0;
+        this.allocateSlots(this.tableSize);
+        this.modCount++;
+    }
+
+    @Override
+    public boolean add(String path) {
+        byte[] nameBuffer = getNameBuffer(path.length());
+        int parent = ROOT;
+        int start = 0;
+        int end;
+        do {
+            end = path.indexOf(SEPARATOR, start);
+            int nameLength = encode(nameBuffer, path, start, (- 1 == end) ? path.length() : end);
+            int nameHash = hashName(nameBuffer, nameLength);
+
+            int handle = this.find(parent, nameBuffer, nameLength, nameHash);
+            if (NONE == handle) {
+                this.beforeModification();
+                handle = this.createNode(parent, nameBuffer, nameLength, nameHash);
+            }
+
+            parent = handle;
+            start = end + 1;
+        } while (- 1 != end);
+
+        int flags = this.get(FLAGS, parent);
+        if (0 != (flags & FLAG_CONTAINED)) {
+            return false;
+        }
+
+        this.beforeModification();
+        this.set(FLAGS, parent, flags | FLAG_CONTAINED);
+        this.size++;
+        this.modCount++;
+
+        return true;
+    }
+
+    @Override
+    public boolean remove(String path) {
+        int handle = this.getHandle(path);
+        if (NO_HANDLE == handle) {
+            return false;
+        }
+
+        this.beforeModification();
+        this.set(FLAGS, handle, this.get(FLAGS, handle) & ~ FLAG_CONTAINED);
+        this.size--;
+        this.modCount++;
+
+        // remove all nodes which are no longer needed
+        while (ROOT != handle && 0 == (this.get(FLAGS, handle) & FLAG_CONTAINED) && NONE == this.get(FIRST_CHILD, handle)) {
+            int parent = this.get(PARENT, handle);
+            this.removeNode(handle);
+            handle = parent;
+        }
+
+        this.compactArenaIfNeeded();
+
+        return true;
+    }
+
+    @Override
+    public boolean contains(String path) {
+        return NO_HANDLE != this.getHandle(path);
+    }
+
+    @Override
+    public int getHandle(String path) {
+        int handle = this.findNode(path);
+        if (NONE == handle || 0 == (this.get(FLAGS, handle) & FLAG_CONTAINED)) {
+            return NO_HANDLE;
+        }
+
+        return handle;
+    }
+
+    @Override
+    public String getPath(int handle) {
+        if (handle < 0 || handle >= this.nodeCount || 0 == (this.get(FLAGS, handle) & FLAG_CONTAINED)) {
+            throw new IllegalArgumentException("No path is stored for handle " + handle);
+        }
+
+        return this.buildPath(handle);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void clear() {
+        this.init();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new PathIterator(ROOT, new StringBuilder());
+    }
+
+    @Override
+    public Iterator<String> iterator(String parentPath) {
+        int parent = this.findNode(parentPath);
+        if (NONE == parent) {
+            return Collections.emptyIterator();
+        }
+
+        return new PathIterator(parent, new StringBuilder(parentPath));
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return this.getAllocatedBytes();
+    }
+
+    /**
+     * Returns the number of nodes, i.e. contained paths and their parents
+     *
+     * @return The number of nodes in use
+     */
+    public int getNodeCount() {
+        return this.liveNodeCount;
+    }
+
+    /**
+     * Finds the node of the given path, regardless whether the path is contained
+     *
+     * @param path The path to find
+     *
+     * @return The handle of the node or {@link #NONE}
+     */
+    protected int findNode(String path) {
+        byte[] nameBuffer = getNameBuffer(path.length());
+        int handle = ROOT;
+        int start = 0;
+        int end;
+        do {
+            end = path.indexOf(SEPARATOR, start);
+            int nameLength = encode(nameBuffer, path, start, (- 1 == end) ? path.length() : end);
+
+            handle = this.find(handle, nameBuffer, nameLength, hashName(nameBuffer, nameLength));
+            if (NONE == handle) {
+                return NONE;
+            }
+
+            start = end + 1;
+        } while (- 1 != end);
+
+        return handle;
+    }
+
+    protected int find(int parent, byte[] name, int nameLength, int nameHash) {
+        int mask = this.tableSize - 1;
+        int slot = slotFor(parent, nameHash) & mask;
+
+        while (true) {
+            int handle = this.getSlot(slot);
+            if (NONE == handle) {
+                return NONE;
+            }
+
+            if (TOMBSTONE != handle &&
+                    this.get(NAME_HASH, handle) == nameHash &&
+                    this.get(PARENT, handle) == parent &&
+                    this.nameEquals(handle, name, nameLength)) {
+                return handle;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    protected int createNode(int parent, byte[] name, int nameLength, int nameHash) {
+        // keep the load factor including tombstones below 0.75
+        if ((this.tableOccupied + 1) * 4L > this.tableSize * 3L) {
+            this.rehash();
+        }
+
+        int handle;
+        if (NONE != this.freeHead) {
+            handle = this.freeHead;
+            this.freeHead = this.get(NEXT_SIBLING, handle);
+        } else {
+            handle = this.nodeCount;
+            this.ensureNodeCapacity(handle + 1);
+            this.nodeCount++;
+        }
+
+        this.ensureArenaCapacity(this.arenaLength + nameLength);
+        this.putNameBytes(this.arenaLength, name, nameLength);
+
+        this.set(PARENT, handle, parent);
+        this.set(FIRST_CHILD, handle, NONE);
+        this.set(NAME_OFFSET, handle, this.arenaLength);
+        this.set(NAME_LENGTH, handle, nameLength);
+        this.set(NAME_HASH, handle, nameHash);
+        this.set(FLAGS, handle, FLAG_LIVE);
+        this.arenaLength += nameLength;
+
+        // link as first child of the parent
+        int firstSibling = (ROOT == parent) ? this.rootFirstChild : this.get(FIRST_CHILD, parent);
+        this.set(PREV_SIBLING, handle, NONE);
+        this.set(NEXT_SIBLING, handle, firstSibling);
+        if (NONE != firstSibling) {
+            this.set(PREV_SIBLING, firstSibling, handle);
+        }
+        this.setFirstChild(parent, handle);
+
+        this.liveNodeCount++;
+        this.insertSlot(handle, parent, nameHash);
+
+        return handle;
+    }
+
+    protected void removeNode(int handle) {
+        int parent = this.get(PARENT, handle);
+        int prev = this.get(PREV_SIBLING, handle);
+        int next = this.get(NEXT_SIBLING, handle);
+
+        if (NONE == prev) {
+            this.setFirstChild(parent, next);
+        } else {
+            this.set(NEXT_SIBLING, prev, next);
+        }
+
+        if (NONE != next) {
+            this.set(PREV_SIBLING, next, prev);
+        }
+
+        // replace the entry in the hash table by a tombstone
+        int mask = this.tableSize - 1;
+        int slot = slotFor(parent, this.get(NAME_HASH, handle)) & mask;
+        while (this.getSlot(slot) != handle) {
+            slot = (slot + 1) & mask;
+        }
+        this.setSlot(slot, TOMBSTONE);
+
+        this.arenaGarbage += this.get(NAME_LENGTH, handle);
+
+        this.set(FLAGS, handle, 0);
+        this.set(NEXT_SIBLING, handle, this.freeHead);
+        this.freeHead = handle;
+        this.liveNodeCount--;
+    }
+
+    protected void insertSlot(int handle, int parent, int nameHash) {
+        int mask = this.tableSize - 1;
+        int slot = slotFor(parent, nameHash) & mask;
+        while (NONE != this.getSlot(slot) && TOMBSTONE != this.getSlot(slot)) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (NONE == this.getSlot(slot)) {
+            this.tableOccupied++;
+        }
+
+        this.setSlot(slot, handle);
+    }
+
+    /**
+     * Rebuilds the hash table from the live nodes, dropping all tombstones
+     */
+    protected void rehash() {
+        int newSize = MIN_TABLE_SIZE;
+        while (newSize * 3L < (this.liveNodeCount + 1) * 8L) {
+            newSize <<= 1;
+        }
+
+        this.tableSize = newSize;
+        this.tableOccupied = 0;
+        this.allocateSlots(newSize);
+
+        int mask = newSize - 1;
+        for (int handle = 0; handle < this.nodeCount; handle++) {
+            if (0 == (this.get(FLAGS, handle) & FLAG_LIVE)) {
+                continue;
+            }
+
+            int slot = slotFor(this.get(PARENT, handle), this.get(NAME_HASH, handle)) & mask;
+            while (NONE != this.getSlot(slot)) {
+                slot = (slot + 1) & mask;
+            }
+
+            this.setSlot(slot, handle);
+            this.tableOccupied++;
+        }
+    }
+
+    /**
+     * Rewrites the arena without the names of removed nodes,
+     * once they make up more than half of it
+     */
+    protected void compactArenaIfNeeded() {
+        if (this.arenaGarbage * 2L <= this.arenaLength) {
+            return;
+        }
+
+        byte[] names = new byte[this.arenaLength - this.arenaGarbage];
+        int length = 0;
+        for (int handle = 0; handle < this.nodeCount; handle++) {
+            if (0 == (this.get(FLAGS, handle) & FLAG_LIVE)) {
+                continue;
+            }
+
+            int offset = this.get(NAME_OFFSET, handle);
+            int nameLength = this.get(NAME_LENGTH, handle);
+            for (int i = 0; i < nameLength; i++) {
+                names[length + i] = this.getNameByte(offset + i);
+            }
+
+            this.set(NAME_OFFSET, handle, length);
+            length += nameLength;
+        }
+
+        this.putNameBytes(0, names, length);
+        this.arenaLength = length;
+        this.arenaGarbage = 0;
+    }
+
+    protected void setFirstChild(int parent, int child) {
+        if (ROOT == parent) {
+            this.rootFirstChild = child;
+        } else {
+            this.set(FIRST_CHILD, parent, child);
+        }
+    }
+
+    protected boolean nameEquals(int handle, byte[] name, int nameLength) {
+        if (this.get(NAME_LENGTH, handle) != nameLength) {
+            return false;
+        }
+
+        int offset = this.get(NAME_OFFSET, handle);
+        for (int i = 0; i < nameLength; i++) {
+            if (this.getNameByte(offset + i) != name[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Compares the names of both nodes by their unsigned UTF-8 bytes,
+     * which equals the order of their code points
+     */
+    protected int compareNames(int handle, int otherHandle) {
+        int offset = this.get(NAME_OFFSET, handle);
+        int length = this.get(NAME_LENGTH, handle);
+        int otherOffset = this.get(NAME_OFFSET, otherHandle);
+        int otherLength = this.get(NAME_LENGTH, otherHandle);
+
+        int minLength = Math.min(length, otherLength);
+        for (int i = 0; i < minLength; i++) {
+            int cmp = (this.getNameByte(offset + i) & 0xFF) - (this.getNameByte(otherOffset + i) & 0xFF);
+            if (0 != cmp) {
+                return cmp;
+            }
+        }
+
+        return length - otherLength;
+    }
+
+    protected String getName(int handle) {
+        int offset = this.get(NAME_OFFSET, handle);
+        int length = this.get(NAME_LENGTH, handle);
+
+        byte[] name = new byte[length];
+        for (int i = 0; i < length; i++) {
+            name[i] = this.getNameByte(offset + i);
+        }
+
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    protected String buildPath(int handle) {
+        String path = this.getName(handle);
+        int parent = this.get(PARENT, handle);
+        while (ROOT != parent) {
+            path = this.getName(parent) + SEPARATOR + path;
+            parent = this.get(PARENT, parent);
+        }
+
+        return path;
+    }
+
+    /**
+     * Returns the children of the given node sorted by their names
+     */
+    protected int[] getSortedChildren(int parent) {
+        int count = 0;
+        int child = (ROOT == parent) ? this.rootFirstChild : this.get(FIRST_CHILD, parent);
+        for (int c = child; NONE != c; c = this.get(NEXT_SIBLING, c)) {
+            count++;
+        }
+
+        int[] children = new int[count];
+        int i = 0;
+        for (int c = child; NONE != c; c = this.get(NEXT_SIBLING, c)) {
+            children[i++] = c;
+        }
+
+        this.sort(children, 0, count - 1);
+
+        return children;
+    }
+
+    protected void sort(int[] handles, int low, int high) {
+        // insertion sort for small ranges, quick sort otherwise
+        if (high - low < 16) {
+            for (int i = low + 1; i <= high; i++) {
+                int handle = handles[i];
+                int j = i - 1;
+                while (j >= low && this.compareNames(handles[j], handle) > 0) {
+                    handles[j + 1] = handles[j];
+                    j--;
+                }
+                handles[j + 1] = handle;
+            }
+            return;
+        }
+
+        int pivot = handles[(low + high) >>> 1];
+        int i = low;
+        int j = high;
+        while (i <= j) {
+            while (this.compareNames(handles[i], pivot) < 0) {
+                i++;
+            }
+            while (this.compareNames(handles[j], pivot) > 0) {
+                j--;
+            }
+            if (i <= j) {
+                int tmp = handles[i];
+                handles[i] = handles[j];
+                handles[j] = tmp;
+                i++;
+                j--;
+            }
+        }
+
+        if (low < j) {
+            this.sort(handles, low, j);
+        }
+        if (i < high) {
+            this.sort(handles, i, high);
+        }
+    }
+
+    /**
+     * Invoked before the table is modified for the first time after
+     * its data has been persisted. Does nothing by default
+     */
+    protected void beforeModification() {
+    }
+
+    /**
+     * Returns the name buffer of the current thread, large enough
+     * to hold any encoded segment of a path of the given length
+     *
+     * @param pathLength The number of characters of the path
+     *
+     * @return The name buffer
+     */
+    protected static byte[] getNameBuffer(int pathLength) {
+        byte[] buffer = NAME_BUFFER.get();
+        if (pathLength * 3 > buffer.length) {
+            buffer = new byte[pathLength * 3];
+            NAME_BUFFER.set(buffer);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Encodes the given part of the path to UTF-8 into the given buffer,
+     * replacing unpaired surrogates as {@link String#getBytes(java.nio.charset.Charset)} does
+     *
+     * @param buffer The buffer, at least three times as large as the part of the path
+     * @param path   The path
+     * @param start  The index of the first character
+     * @param end    The index after the last character
+     *
+     * @return The number of bytes in the buffer
+     */
+    protected static int encode(byte[] buffer, String path, int start, int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(path.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, path.charAt(++ i));
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[length++] = (byte) '?';
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        return length;
+    }
+
+    protected static int hashName(byte[] name, int length) {
+        // FNV-1a
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash ^= name[i] & 0xFF;
+            hash *= 0x01000193;
+        }
+
+        return hash;
+    }
+
+    protected static int slotFor(int parent, int nameHash) {
+        int hash = nameHash ^ (parent * 0x9E3779B9);
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Iterates depth first over all contained paths below a node
+     */
+    protected class PathIterator implements Iterator<String> {
+
+        protected Deque<Frame> stack = new ArrayDeque<>();
+
+        protected StringBuilder path;
+
+        protected String next;
+
+        protected String lastReturned;
+
+        protected int expectedModCount = modCount;
+
+        /**
+         * @param parent The node below which to iterate, {@link #ROOT} for all paths
+         * @param path   The path of the parent
+         */
+        protected PathIterator(int parent, StringBuilder path) {
+            this.path = path;
+            this.stack.push(new Frame(parent, getSortedChildren(parent), path.length()));
+            this.advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != this.next;
+        }
+
+        @Override
+        public String next() {
+            if (modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            if (null == this.next) {
+                throw new NoSuchElementException();
+            }
+
+            this.lastReturned = this.next;
+            this.advance();
+
+            return this.lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (null == this.lastReturned) {
+                throw new IllegalStateException();
+            }
+
+            if (modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            APathTable.this.remove(this.lastReturned);
+            this.lastReturned = null;
+            this.expectedModCount = modCount;
+        }
+
+        protected void advance() {
+            this.next = null;
+
+            while (! this.stack.isEmpty()) {
+                Frame frame = this.stack.peek();
+                if (frame.position >= frame.children.length) {
+                    this.stack.pop();
+                    continue;
+                }
+
+                int handle = frame.children[frame.position++];
+
+                this.path.setLength(frame.pathLength);
+                if (ROOT != frame.parent) {
+                    this.path.append(SEPARATOR);
+                }
+                this.path.append(getName(handle));
+
+                int flags = get(FLAGS, handle);
+                if (NONE != get(FIRST_CHILD, handle)) {
+                    this.stack.push(new Frame(handle, getSortedChildren(handle), this.path.length()));
+                }
+
+                if (0 != (flags & FLAG_CONTAINED)) {
+                    this.next = this.path.toString();
+                    return;
+                }
+            }
+        }
+    }
+
+    protected static class Frame {
+
+        protected int parent;
+
+        protected int[] children;
+
+        protected int position;
+
+        protected int pathLength;
+
+        protected Frame(int parent, int[] children, int pathLength) {
+            this.parent = parent;
+            this.children = children;
+            this.pathLength = pathLength;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.rmatil.sync.version.core.index;
+
+/**
+ * A Bloom filter of paths, answering whether a path is definitely
+ * not contained without touching the index itself. Paths can not be
+ * removed, the filter therefore has to be rebuilt once too many paths were removed.
+ * <p>
+ * The bit positions of a path are derived by double hashing
+ * from two independent 32 bit hashes of its characters.
+ * <p>
+ * The filter is not thread-safe.
+ */
+public class BloomFilter {
+
+    protected long[] bits;
+
+    protected long bitCount;
+
+    protected int hashCount;
+
+    protected int expectedPaths;
+
+    protected int size;
+
+    /**
+     * @param expectedPaths           The number of paths expected to be added
+     * @param falsePositiveProbability The desired probability of reporting a path which was not added
+     */
+    public BloomFilter(int expectedPaths, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0d || falsePositiveProbability >= 1d) {
+            throw new IllegalArgumentException("The false positive probability must be between 0 and 1");
+        }
+
+        int paths = Math.max(1, expectedPaths);
+        this.expectedPaths = paths;
+        long optimalBits = (long) Math.ceil(- paths * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+
+        this.bits = new long[(int) Math.max(1L, (optimalBits + 63L) / 64L)];
+        this.bitCount = this.bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / paths * Math.log(2)));
+    }
+
+    /**
+     * Adds the given path
+     *
+     * @param path The path to add
+     */
+    public void add(String path) {
+        int hash1 = path.hashCode();
+        int hash2 = secondHash(path);
+
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = position(hash1, hash2, i);
+            this.bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+
+        this.size++;
+    }
+
+    /**
+     * Returns whether the given path may have been added
+     *
+     * @param path The path to check
+     *
+     * @return False, if the path was definitely not added
+     */
+    public boolean mightContain(String path) {
+        int hash1 = path.hashCode();
+        int hash2 = secondHash(path);
+
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = position(hash1, hash2, i);
+            if (0L == (this.bits[(int) (bit >>> 6)] & (1L << bit))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes all paths
+     */
+    public void clear() {
+        for (int i = 0; i < this.bits.length; i++) {
+            this.bits[i] = 0L;
+        }
+
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of added paths
+     *
+     * @return The number of paths
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of paths for which the filter has been sized.
+     * Adding more paths increases the false positive probability
+     *
+     * @return The number of expected paths
+     */
+    public int getExpectedPaths() {
+        return this.expectedPaths;
+    }
+
+    /**
+     * Returns the number of bits of the filter
+     *
+     * @return The number of bits
+     */
+    public long getBitCount() {
+        return this.bitCount;
+    }
+
+    protected long position(int hash1, int hash2, int i) {
+        long combined = (hash1 & 0xFFFFFFFFL) + (long) i * ((hash2 & 0xFFFFFFFFL) | 1L);
+        return Long.remainderUnsigned(combined * 0x9E3779B97F4A7C15L, this.bitCount);
+    }
+
+    /**
+     * Computes the FNV-1a hash of the characters of the given path,
+     * which is independent of {@link String#hashCode()}
+     *
+     * @param path The path to hash
+     *
+     * @return The hash
+     */
+    protected static int secondHash(String path) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x01000193;
+            hash = (hash ^ (c >>> 8)) * 0x01000193;
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,280 @@
+package org.rmatil.sync.version.core.index;
+
+import org.rmatil.sync.version.core.model.Chunk;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the references of all versions of all path objects to their content
+ * and to the chunks of their content, across paths as well as across time.
+ * Content referenced more than once only has to be stored and transferred once,
+ * content whose references dropped to zero can be collected.
+ * <p>
+ * To release the references of a path on an update, the referenced
+ * hashes are kept per path as well.
+ * <p>
+ * The index is not thread-safe, it is guarded by the object manager owning it.
+ */
+public class ContentIndex {
+
+    protected Map<String, Reference> contents = new HashMap<>();
+
+    protected Map<String, Reference> chunks = new HashMap<>();
+
+    protected Map<String, List<String>> contentsByPath = new HashMap<>();
+
+    protected Map<String, List<String>> chunksByPath = new HashMap<>();
+
+    /**
+     * The content and chunk hashes which are not referenced anymore
+     */
+    protected Set<String> unreferenced = new HashSet<>();
+
+    /**
+     * Counts the references of all versions of the given path object,
+     * replacing the ones previously counted for its path
+     *
+     * @param pathObject The path object to count
+     */
+    public void update(PathObject pathObject) {
+        String path = pathObject.getAbsolutePath();
+
+        List<String> contentHashes = new ArrayList<>();
+        List<String> chunkHashes = new ArrayList<>();
+
+        if (null != pathObject.getVersions()) {
+            for (Version version : pathObject.getVersions()) {
+                if (null == version || null == version.getHash()) {
+                    continue;
+                }
+
+                contentHashes.add(version.getHash());
+
+                if (version.isChunked()) {
+                    for (Chunk chunk : version.getChunks()) {
+                        chunkHashes.add(chunk.getHash());
+                    }
+                }
+            }
+        }
+
+        // add first, so that content kept by the path is not released in between
+        this.reference(this.contents, contentHashes, path);
+        this.reference(this.chunks, chunkHashes, null);
+
+        this.remove(path);
+
+        if (! contentHashes.isEmpty()) {
+            this.contentsByPath.put(path, contentHashes);
+        }
+
+        if (! chunkHashes.isEmpty()) {
+            this.chunksByPath.put(path, chunkHashes);
+        }
+    }
+
+    /**
+     * Counts the references of a version appended to the
+     * versions previously counted for the given path
+     *
+     * @param path    The path to which the version has been appended
+     * @param version The appended version
+     */
+    public void append(String path, Version version) {
+        if (null == version || null == version.getHash()) {
+            return;
+        }
+
+        this.reference(this.contents, Collections.singletonList(version.getHash()), path);
+        this.contentsByPath.computeIfAbsent(path, k -> new ArrayList<>()).add(version.getHash());
+
+        if (version.isChunked()) {
+            List<String> chunkHashes = new ArrayList<>();
+            for (Chunk chunk : version.getChunks()) {
+                chunkHashes.add(chunk.getHash());
+            }
+
+            this.reference(this.chunks, chunkHashes, null);
+            this.chunksByPath.computeIfAbsent(path, k -> new ArrayList<>()).addAll(chunkHashes);
+        }
+    }
+
+    /**
+     * Releases all references of the given path
+     *
+     * @param path The path to remove
+     */
+    public void remove(String path) {
+        List<String> contentHashes = this.contentsByPath.remove(path);
+        if (null != contentHashes) {
+            this.release(this.contents, contentHashes, path);
+        }
+
+        List<String> chunkHashes = this.chunksByPath.remove(path);
+        if (null != chunkHashes) {
+            this.release(this.chunks, chunkHashes, null);
+        }
+    }
+
+    /**
+     * Removes all references without reporting the content as unreferenced
+     */
+    public void clear() {
+        this.contents.clear();
+        this.chunks.clear();
+        this.contentsByPath.clear();
+        this.chunksByPath.clear();
+        this.unreferenced.clear();
+    }
+
+    /**
+     * Returns the number of versions having the given content
+     *
+     * @param contentHash The hash of the content
+     *
+     * @return The number of versions
+     */
+    public int getContentReferenceCount(String contentHash) {
+        Reference reference = this.contents.get(contentHash);
+        return (null == reference) ? 0 : reference.count;
+    }
+
+    /**
+     * Returns the number of chunks of versions having the given content
+     *
+     * @param chunkHash The hash of the chunk
+     *
+     * @return The number of chunks
+     */
+    public int getChunkReferenceCount(String chunkHash) {
+        Reference reference = this.chunks.get(chunkHash);
+        return (null == reference) ? 0 : reference.count;
+    }
+
+    /**
+     * Returns whether any version references the given content or chunk
+     *
+     * @param hash The hash of the content or chunk
+     *
+     * @return True, if referenced at least once
+     */
+    public boolean isReferenced(String hash) {
+        return this.contents.containsKey(hash) || this.chunks.containsKey(hash);
+    }
+
+    /**
+     * Returns the hashes of all referenced contents and chunks
+     *
+     * @return The hashes
+     */
+    public Set<String> getReferencedHashes() {
+        Set<String> hashes = new HashSet<>(this.contents.keySet());
+        hashes.addAll(this.chunks.keySet());
+
+        return hashes;
+    }
+
+    /**
+     * Returns the paths having a version with the given content
+     *
+     * @param contentHash The hash of the content
+     *
+     * @return The paths
+     */
+    public Set<String> getPathsWithContent(String contentHash) {
+        Reference reference = this.contents.get(contentHash);
+        if (null == reference || null == reference.paths) {
+            return Collections.emptySet();
+        }
+
+        return new HashSet<>(reference.paths.keySet());
+    }
+
+    /**
+     * Returns the number of distinct contents
+     *
+     * @return The number of content hashes
+     */
+    public int getContentCount() {
+        return this.contents.size();
+    }
+
+    /**
+     * Returns the number of distinct chunks
+     *
+     * @return The number of chunk hashes
+     */
+    public int getChunkCount() {
+        return this.chunks.size();
+    }
+
+    /**
+     * Returns and forgets all content and chunk hashes whose references
+     * dropped to zero since the last invocation resp. since the index has been built
+     *
+     * @return The hashes of the unreferenced content and chunks
+     */
+    public Set<String> removeUnreferenced() {
+        Set<String> hashes = this.unreferenced;
+        this.unreferenced = new HashSet<>();
+
+        return hashes;
+    }
+
+    protected void reference(Map<String, Reference> references, List<String> hashes, String path) {
+        for (String hash : hashes) {
+            Reference reference = references.computeIfAbsent(hash, k -> new Reference());
+            reference.count++;
+
+            if (null != path) {
+                if (null == reference.paths) {
+                    reference.paths = new HashMap<>();
+                }
+                reference.paths.merge(path, 1, Integer::sum);
+            }
+
+            this.unreferenced.remove(hash);
+        }
+    }
+
+    protected void release(Map<String, Reference> references, List<String> hashes, String path) {
+        for (String hash : hashes) {
+            Reference reference = references.get(hash);
+            if (null == reference) {
+                continue;
+            }
+
+            reference.count--;
+
+            if (null != path && null != reference.paths) {
+                reference.paths.computeIfPresent(path, (k, count) -> (count <= 1) ? null : count - 1);
+            }
+
+            if (reference.count <= 0) {
+                references.remove(hash);
+                this.unreferenced.add(hash);
+            }
+        }
+    }
+
+    /**
+     * The references to a single content or chunk
+     */
+    protected static class Reference {
+
+        protected int count;
+
+        /**
+         * The number of references by path, null for chunks
+         */
+        protected Map<String, Integer> paths;
+    }
+}
@@ -0,0 +1,81 @@
+package org.rmatil.sync.version.core.index;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of comparing the index with the objects stored in the object directory.
+ * <p>
+ * Orphans are objects stored for paths which are not contained in the index, missing objects
+ * are paths of the index for which no object is stored. Misplaced objects are stored under a file name
+ * hash which is not the one of the path they contain, unreadable objects can not be parsed at all.
+ * Neither misplaced nor unreadable objects are considered to be stored for any path.
+ */
+public class IndexReport {
+
+    protected final int scannedObjects;
+
+    protected final Set<String> storedPaths;
+
+    protected final Map<String, String> orphans;
+
+    protected final Set<String> missingObjects;
+
+    protected final Map<String, String> misplacedObjects;
+
+    protected final Set<String> unreadableObjects;
+
+    /**
+     * @param scannedObjects    The number of object files found in the object directory
+     * @param storedPaths       The paths of all readable objects stored under the hash of their path
+     * @param orphans           The file name hashes of stored objects by their paths which are not contained in the index
+     * @param missingObjects    The paths of the index for which no object is stored
+     * @param misplacedObjects  The paths by the file name hashes of objects stored under another hash than the one of their path
+     * @param unreadableObjects The file name hashes of objects which could not be read or parsed
+     */
+    public IndexReport(int scannedObjects, Set<String> storedPaths, Map<String, String> orphans, Set<String> missingObjects, Map<String, String> misplacedObjects, Set<String> unreadableObjects) {
+        this.scannedObjects = scannedObjects;
+        this.storedPaths = Collections.unmodifiableSet(storedPaths);
+        this.orphans = Collections.unmodifiableMap(orphans);
+        this.missingObjects = Collections.unmodifiableSet(missingObjects);
+        this.misplacedObjects = Collections.unmodifiableMap(misplacedObjects);
+        this.unreadableObjects = Collections.unmodifiableSet(unreadableObjects);
+    }
+
+    /**
+     * Returns whether the index and the stored objects match exactly
+     *
+     * @return True, if no inconsistency has been found
+     */
+    public boolean isConsistent() {
+        return this.orphans.isEmpty() &&
+                this.missingObjects.isEmpty() &&
+                this.misplacedObjects.isEmpty() &&
+                this.unreadableObjects.isEmpty();
+    }
+
+    public int getScannedObjects() {
+        return scannedObjects;
+    }
+
+    public Set<String> getStoredPaths() {
+        return storedPaths;
+    }
+
+    public Map<String, String> getOrphans() {
+        return orphans;
+    }
+
+    public Set<String> getMissingObjects() {
+        return missingObjects;
+    }
+
+    public Map<String, String> getMisplacedObjects() {
+        return misplacedObjects;
+    }
+
+    public Set<String> getUnreadableObjects() {
+        return unreadableObjects;
+    }
+}
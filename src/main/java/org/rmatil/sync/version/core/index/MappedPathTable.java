@@ -0,0 +1,382 @@
+package org.rmatil.sync.version.core.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A path table keeping its data in memory mapped files outside of the heap.
+ * Opening an existing table only maps its files, no data is read or parsed.
+ * <p>
+ * The data is split into three files: The given file holds a header followed
+ * by the node columns, <i>file.slots</i> holds the hash table and <i>file.names</i>
+ * holds the name arena. Each file is mapped as a whole and remapped with a larger
+ * size once it is full, which limits each of them to 2 GB, i.e. about 67 million nodes.
+ * <p>
+ * Before the first modification after a {@link #flush()}, the header is marked as dirty
+ * and its generation is incremented. Only a flush, which forces all data to the disk first,
+ * marks it as clean again. The header is protected by a checksum. If a table is opened whose
+ * header is dirty or corrupt, e.g. because the process crashed while modifying it,
+ * the table is reset to an empty one and {@link #isRestored()} returns false.
+ * <p>
+ * Additionally, the table stores a checksum of the source it was built from, which allows
+ * a caller to detect that the source has been changed without updating the table.
+ */
+public class MappedPathTable extends APathTable implements Closeable {
+
+    protected static final int MAGIC = 0x5054424C;
+
+    protected static final int FORMAT_VERSION = 1;
+
+    protected static final int HEADER_SIZE = 4096;
+
+    protected static final int MAGIC_OFFSET = 0;
+    protected static final int FORMAT_VERSION_OFFSET = 4;
+    protected static final int GENERATION_OFFSET = 8;
+    protected static final int CLEAN_OFFSET = 16;
+    protected static final int NODE_COUNT_OFFSET = 20;
+    protected static final int LIVE_NODE_COUNT_OFFSET = 24;
+    protected static final int SIZE_OFFSET = 28;
+    protected static final int FREE_HEAD_OFFSET = 32;
+    protected static final int ROOT_FIRST_CHILD_OFFSET = 36;
+    protected static final int TABLE_SIZE_OFFSET = 40;
+    protected static final int TABLE_OCCUPIED_OFFSET = 44;
+    protected static final int ARENA_LENGTH_OFFSET = 48;
+    protected static final int ARENA_GARBAGE_OFFSET = 52;
+    protected static final int SOURCE_CHECKSUM_OFFSET = 56;
+    protected static final int HEADER_CHECKSUM_OFFSET = 64;
+
+    protected static final int NODE_SIZE = COLUMN_COUNT * 4;
+
+    protected static final int INITIAL_NODES = 1024;
+
+    protected Path file;
+
+    protected FileChannel nodeChannel;
+
+    protected FileChannel slotChannel;
+
+    protected FileChannel arenaChannel;
+
+    protected MappedByteBuffer nodeBuffer;
+
+    protected MappedByteBuffer slotBuffer;
+
+    protected MappedByteBuffer arenaBuffer;
+
+    protected long generation;
+
+    protected long sourceChecksum;
+
+    protected boolean clean;
+
+    protected boolean restored;
+
+    /**
+     * Opens the table stored in the given file or creates
+     * a new, empty table if it does not exist yet
+     *
+     * @param file The file holding the header and the nodes of the table
+     *
+     * @throws IOException If the files can not be opened or mapped
+     */
+    public MappedPathTable(Path file)
+            throws IOException {
+        this.file = file;
+
+        this.nodeChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.slotChannel = FileChannel.open(sibling(file, ".slots"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.arenaChannel = FileChannel.open(sibling(file, ".names"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        this.nodeBuffer = this.nodeChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(this.nodeChannel.size(), HEADER_SIZE + (long) INITIAL_NODES * NODE_SIZE));
+        this.arenaBuffer = this.arenaChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(this.arenaChannel.size(), INITIAL_NODES * 8L));
+
+        this.restored = this.restore();
+
+        if (! this.restored) {
+            this.clean = false;
+            this.init();
+            this.flush();
+        }
+    }
+
+    /**
+     * Returns whether the data of the table was restored from
+     * the files on opening, i.e. whether they were clean and valid
+     *
+     * @return True, if the data was restored, false if an empty table was created
+     */
+    public boolean isRestored() {
+        return this.restored;
+    }
+
+    /**
+     * Returns the generation of the table, which is incremented
+     * each time it is modified after having been flushed
+     *
+     * @return The generation
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Returns the checksum of the source from which the table was built
+     *
+     * @return The checksum of the source
+     */
+    public long getSourceChecksum() {
+        return this.sourceChecksum;
+    }
+
+    /**
+     * Sets the checksum of the source from which the table was built.
+     * Is persisted on the next {@link #flush()}
+     *
+     * @param sourceChecksum The checksum of the source
+     */
+    public void setSourceChecksum(long sourceChecksum) {
+        this.beforeModification();
+        this.sourceChecksum = sourceChecksum;
+    }
+
+    /**
+     * Computes the checksum of the given bytes as used for the source checksum
+     *
+     * @param bytes The bytes of the source
+     *
+     * @return The checksum
+     */
+    public static long checksum(byte[] bytes) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, 0, bytes.length);
+
+        return crc32.getValue();
+    }
+
+    /**
+     * Forces all data to the disk and marks the table as clean
+     */
+    public void flush() {
+        if (this.clean) {
+            return;
+        }
+
+        this.slotBuffer.force();
+        this.arenaBuffer.force();
+        this.nodeBuffer.force();
+
+        this.clean = true;
+        this.writeHeader();
+        this.nodeBuffer.force();
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        this.flush();
+
+        this.nodeChannel.close();
+        this.slotChannel.close();
+        this.arenaChannel.close();
+    }
+
+    @Override
+    protected void beforeModification() {
+        if (! this.clean || null == this.slotBuffer) {
+            return;
+        }
+
+        // persist the dirty state before the data is touched,
+        // so that a crash during the modification is detected
+        this.clean = false;
+        this.generation++;
+        this.writeHeader();
+        this.nodeBuffer.force();
+    }
+
+    @Override
+    protected int get(int column, int handle) {
+        return this.nodeBuffer.getInt(HEADER_SIZE + handle * NODE_SIZE + column * 4);
+    }
+
+    @Override
+    protected void set(int column, int handle, int value) {
+        this.nodeBuffer.putInt(HEADER_SIZE + handle * NODE_SIZE + column * 4, value);
+    }
+
+    @Override
+    protected void ensureNodeCapacity(int nodes) {
+        long required = HEADER_SIZE + (long) nodes * NODE_SIZE;
+        if (required > this.nodeBuffer.capacity()) {
+            this.nodeBuffer = this.remap(this.nodeChannel, grow(this.nodeBuffer.capacity(), required));
+        }
+    }
+
+    @Override
+    protected int getSlot(int slot) {
+        return this.slotBuffer.getInt(slot * 4);
+    }
+
+    @Override
+    protected void setSlot(int slot, int handle) {
+        this.slotBuffer.putInt(slot * 4, handle);
+    }
+
+    @Override
+    protected void allocateSlots(int tableSize) {
+        long required = tableSize * 4L;
+        if (null == this.slotBuffer || required > this.slotBuffer.capacity()) {
+            this.slotBuffer = this.remap(this.slotChannel, Math.max(required, this.slotChannel.isOpen() ? this.size(this.slotChannel) : 0L));
+        }
+
+        for (int slot = 0; slot < tableSize; slot++) {
+            this.slotBuffer.putInt(slot * 4, NONE);
+        }
+    }
+
+    @Override
+    protected void ensureArenaCapacity(int bytes) {
+        if (bytes > this.arenaBuffer.capacity()) {
+            this.arenaBuffer = this.remap(this.arenaChannel, grow(this.arenaBuffer.capacity(), bytes));
+        }
+    }
+
+    @Override
+    protected byte getNameByte(int offset) {
+        return this.arenaBuffer.get(offset);
+    }
+
+    @Override
+    protected void putNameBytes(int offset, byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            this.arenaBuffer.put(offset + i, bytes[i]);
+        }
+    }
+
+    @Override
+    protected long getAllocatedBytes() {
+        return (long) this.nodeBuffer.capacity() + this.slotBuffer.capacity() + this.arenaBuffer.capacity();
+    }
+
+    /**
+     * Reads the header and maps the hash table if the
+     * header is valid and was written by a flush
+     *
+     * @return True, if the table was restored
+     *
+     * @throws IOException If mapping the hash table fails
+     */
+    protected boolean restore()
+            throws IOException {
+        if (this.nodeChannel.size() < HEADER_SIZE ||
+                MAGIC != this.nodeBuffer.getInt(MAGIC_OFFSET) ||
+                FORMAT_VERSION != this.nodeBuffer.getInt(FORMAT_VERSION_OFFSET) ||
+                1 != this.nodeBuffer.getInt(CLEAN_OFFSET) ||
+                this.computeHeaderChecksum() != this.nodeBuffer.getLong(HEADER_CHECKSUM_OFFSET)) {
+            return false;
+        }
+
+        this.generation = this.nodeBuffer.getLong(GENERATION_OFFSET);
+        this.nodeCount = this.nodeBuffer.getInt(NODE_COUNT_OFFSET);
+        this.liveNodeCount = this.nodeBuffer.getInt(LIVE_NODE_COUNT_OFFSET);
+        this.size = this.nodeBuffer.getInt(SIZE_OFFSET);
+        this.freeHead = this.nodeBuffer.getInt(FREE_HEAD_OFFSET);
+        this.rootFirstChild = this.nodeBuffer.getInt(ROOT_FIRST_CHILD_OFFSET);
+        this.tableSize = this.nodeBuffer.getInt(TABLE_SIZE_OFFSET);
+        this.tableOccupied = this.nodeBuffer.getInt(TABLE_OCCUPIED_OFFSET);
+        this.arenaLength = this.nodeBuffer.getInt(ARENA_LENGTH_OFFSET);
+        this.arenaGarbage = this.nodeBuffer.getInt(ARENA_GARBAGE_OFFSET);
+        this.sourceChecksum = this.nodeBuffer.getLong(SOURCE_CHECKSUM_OFFSET);
+
+        if (HEADER_SIZE + (long) this.nodeCount * NODE_SIZE > this.nodeChannel.size() ||
+                this.tableSize * 4L > this.slotChannel.size() ||
+                this.arenaLength > this.arenaChannel.size()) {
+            return false;
+        }
+
+        this.slotBuffer = this.slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, this.slotChannel.size());
+        this.clean = true;
+
+        return true;
+    }
+
+    protected void writeHeader() {
+        this.nodeBuffer.putInt(MAGIC_OFFSET, MAGIC);
+        this.nodeBuffer.putInt(FORMAT_VERSION_OFFSET, FORMAT_VERSION);
+        this.nodeBuffer.putLong(GENERATION_OFFSET, this.generation);
+        this.nodeBuffer.putInt(CLEAN_OFFSET, this.clean ? 1 : 0);
+        this.nodeBuffer.putInt(NODE_COUNT_OFFSET, this.nodeCount);
+        this.nodeBuffer.putInt(LIVE_NODE_COUNT_OFFSET, this.liveNodeCount);
+        this.nodeBuffer.putInt(SIZE_OFFSET, this.size);
+        this.nodeBuffer.putInt(FREE_HEAD_OFFSET, this.freeHead);
+        this.nodeBuffer.putInt(ROOT_FIRST_CHILD_OFFSET, this.rootFirstChild);
+        this.nodeBuffer.putInt(TABLE_SIZE_OFFSET, this.tableSize);
+        this.nodeBuffer.putInt(TABLE_OCCUPIED_OFFSET, this.tableOccupied);
+        this.nodeBuffer.putInt(ARENA_LENGTH_OFFSET, this.arenaLength);
+        this.nodeBuffer.putInt(ARENA_GARBAGE_OFFSET, this.arenaGarbage);
+        this.nodeBuffer.putLong(SOURCE_CHECKSUM_OFFSET, this.sourceChecksum);
+        this.nodeBuffer.putLong(HEADER_CHECKSUM_OFFSET, this.computeHeaderChecksum());
+    }
+
+    protected long computeHeaderChecksum() {
+        CRC32 crc32 = new CRC32();
+        for (int i = 0; i < HEADER_CHECKSUM_OFFSET; i++) {
+            crc32.update(this.nodeBuffer.get(i));
+        }
+
+        return crc32.getValue();
+    }
+
+    protected MappedByteBuffer remap(FileChannel channel, long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The path table " + this.file + " exceeds its maximum size");
+        }
+
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map " + this.file, e);
+        }
+    }
+
+    protected long size(FileChannel channel) {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not get the size of " + this.file, e);
+        }
+    }
+
+    protected static long grow(long capacity, long required) {
+        return Math.min(Integer.MAX_VALUE, Math.max(required, capacity * 3L / 2L));
+    }
+
+    protected static Path sibling(Path file, String suffix) {
+        Path fileName = file.getFileName();
+        Path parent = file.getParent();
+
+        return (null == parent) ? Paths.get(fileName + suffix) : parent.resolve(fileName + suffix);
+    }
+
+    /**
+     * Removes all files of the table stored in the given file
+     *
+     * @param file The file holding the header and the nodes of the table
+     *
+     * @throws IOException If deleting fails
+     */
+    public static void delete(Path file)
+            throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(sibling(file, ".slots"));
+        Files.deleteIfExists(sibling(file, ".names"));
+    }
+}
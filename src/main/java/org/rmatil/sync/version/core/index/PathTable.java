@@ -0,0 +1,88 @@
+package org.rmatil.sync.version.core.index;
+
+import java.util.Arrays;
+
+/**
+ * A path table keeping its columns, hash table and
+ * name arena in primitive arrays on the heap.
+ * <p>
+ * The columns of a node are stored next to each other in one array,
+ * so that a path needs about 32 bytes for its node, up to 12 bytes for the hash table
+ * and the bytes of its UTF-8 encoded name, which is not shared with its parent.
+ */
+public class PathTable extends APathTable {
+
+    protected int[] nodes;
+
+    protected int[] slots;
+
+    protected byte[] names;
+
+    public PathTable() {
+        this(MIN_TABLE_SIZE);
+    }
+
+    /**
+     * @param expectedNodes The number of nodes for which to allocate memory upfront
+     */
+    public PathTable(int expectedNodes) {
+        this.nodes = new int[Math.max(expectedNodes, MIN_TABLE_SIZE) * COLUMN_COUNT];
+        this.names = new byte[Math.max(expectedNodes, MIN_TABLE_SIZE) * 8];
+        this.init();
+    }
+
+    @Override
+    protected int get(int column, int handle) {
+        return this.nodes[handle * COLUMN_COUNT + column];
+    }
+
+    @Override
+    protected void set(int column, int handle, int value) {
+        this.nodes[handle * COLUMN_COUNT + column] = value;
+    }
+
+    @Override
+    protected void ensureNodeCapacity(int nodes) {
+        if ((long) nodes * COLUMN_COUNT > this.nodes.length) {
+            this.nodes = Arrays.copyOf(this.nodes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) nodes * COLUMN_COUNT, this.nodes.length * 3L / 2L)));
+        }
+    }
+
+    @Override
+    protected int getSlot(int slot) {
+        return this.slots[slot];
+    }
+
+    @Override
+    protected void setSlot(int slot, int handle) {
+        this.slots[slot] = handle;
+    }
+
+    @Override
+    protected void allocateSlots(int tableSize) {
+        this.slots = new int[tableSize];
+        Arrays.fill(this.slots, NONE);
+    }
+
+    @Override
+    protected void ensureArenaCapacity(int bytes) {
+        if (bytes > this.names.length) {
+            this.names = Arrays.copyOf(this.names, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(bytes, this.names.length * 3L / 2L)));
+        }
+    }
+
+    @Override
+    protected byte getNameByte(int offset) {
+        return this.names[offset];
+    }
+
+    @Override
+    protected void putNameBytes(int offset, byte[] bytes, int length) {
+        System.arraycopy(bytes, 0, this.names, offset, length);
+    }
+
+    @Override
+    protected long getAllocatedBytes() {
+        return 4L * this.nodes.length + 4L * this.slots.length + this.names.length;
+    }
+}
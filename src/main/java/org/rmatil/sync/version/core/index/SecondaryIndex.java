@@ -0,0 +1,245 @@
+package org.rmatil.sync.version.core.index;
+
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.DeleteType;
+import org.rmatil.sync.version.core.model.LazyVersionList;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Sharer;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maps attributes of path objects to the paths having them, i.e.
+ * <ul>
+ * <li>the sharers having access (i.e. not {@link AccessType#ACCESS_REMOVED}),</li>
+ * <li>the sharers of which the access has been removed,</li>
+ * <li>the owner,</li>
+ * <li>the delete type and</li>
+ * <li>the content hash of the latest version.</li>
+ * </ul>
+ * To remove the previous attributes of a path on an update, the indexed
+ * attributes are kept per path as well. This allows to report whether the
+ * sharing of a path, i.e. its sharers, their access types or its owner, changed.
+ * <p>
+ * The index is not thread-safe, it is guarded by the object manager owning it.
+ */
+public class SecondaryIndex {
+
+    protected Map<String, Attributes> attributes = new HashMap<>();
+
+    protected Map<String, Set<String>> bySharer = new HashMap<>();
+
+    protected Map<String, Set<String>> byRemovedSharer = new HashMap<>();
+
+    protected Map<String, Set<String>> byOwner = new HashMap<>();
+
+    protected Map<DeleteType, Set<String>> byDeleteType = new EnumMap<>(DeleteType.class);
+
+    protected Map<String, Set<String>> byContentHash = new HashMap<>();
+
+    /**
+     * Indexes the attributes of the given path object,
+     * replacing the ones previously indexed for its path
+     *
+     * @param pathObject The path object to index
+     *
+     * @return True, if the sharing of the path changed
+     */
+    public boolean update(PathObject pathObject) {
+        String path = pathObject.getAbsolutePath();
+        Attributes previous = this.attributes.get(path);
+        this.remove(path);
+
+        Attributes entry = new Attributes();
+
+        if (null != pathObject.getSharers() && ! pathObject.getSharers().isEmpty()) {
+            entry.sharers = new HashSet<>();
+            entry.removedSharers = new HashSet<>();
+            entry.accessTypes = new HashMap<>();
+            for (Sharer sharer : pathObject.getSharers()) {
+                if (null == sharer.getUsername()) {
+                    continue;
+                }
+
+                entry.accessTypes.put(sharer.getUsername(), sharer.getAccessType());
+                if (AccessType.ACCESS_REMOVED != sharer.getAccessType()) {
+                    entry.sharers.add(sharer.getUsername());
+                    add(this.bySharer, sharer.getUsername(), path);
+                } else {
+                    entry.removedSharers.add(sharer.getUsername());
+                    add(this.byRemovedSharer, sharer.getUsername(), path);
+                }
+            }
+        }
+
+        entry.owner = pathObject.getOwner();
+        if (null != entry.owner) {
+            add(this.byOwner, entry.owner, path);
+        }
+
+        if (null != pathObject.getDeleted()) {
+            entry.deleteType = pathObject.getDeleted().getDeleteType();
+            if (null != entry.deleteType) {
+                add(this.byDeleteType, entry.deleteType, path);
+            }
+        }
+
+        List<Version> versions = pathObject.getVersions();
+        if (versions instanceof LazyVersionList && ! ((LazyVersionList) versions).isLoaded()) {
+            // the versions have not been read, hence they did not change
+            entry.contentHash = (null == previous) ? null : previous.contentHash;
+        } else if (null != versions && ! versions.isEmpty()) {
+            Version latestVersion = versions.get(versions.size() - 1);
+            entry.contentHash = (null == latestVersion) ? null : latestVersion.getHash();
+        }
+
+        if (null != entry.contentHash) {
+            add(this.byContentHash, entry.contentHash, path);
+        }
+
+        this.attributes.put(path, entry);
+
+        return (null == previous) ? entry.hasSharing() : ! entry.hasSameSharing(previous);
+    }
+
+    /**
+     * Indexes the given content hash as the one of the latest version of the given path,
+     * e.g. after a version has been appended to it. Paths not indexed yet are ignored
+     *
+     * @param path        The path
+     * @param contentHash The content hash of its latest version
+     */
+    public void updateContentHash(String path, String contentHash) {
+        Attributes entry = this.attributes.get(path);
+        if (null == entry) {
+            return;
+        }
+
+        remove(this.byContentHash, entry.contentHash, path);
+        entry.contentHash = contentHash;
+
+        if (null != entry.contentHash) {
+            add(this.byContentHash, entry.contentHash, path);
+        }
+    }
+
+    /**
+     * Removes the given path from all indexes
+     *
+     * @param path The path to remove
+     *
+     * @return True, if the removed path had any sharing
+     */
+    public boolean remove(String path) {
+        Attributes entry = this.attributes.remove(path);
+        if (null == entry) {
+            return false;
+        }
+
+        for (String sharer : entry.sharers) {
+            remove(this.bySharer, sharer, path);
+        }
+
+        for (String sharer : entry.removedSharers) {
+            remove(this.byRemovedSharer, sharer, path);
+        }
+
+        remove(this.byOwner, entry.owner, path);
+        remove(this.byDeleteType, entry.deleteType, path);
+        remove(this.byContentHash, entry.contentHash, path);
+
+        return entry.hasSharing();
+    }
+
+    /**
+     * Removes all paths
+     */
+    public void clear() {
+        this.attributes.clear();
+        this.bySharer.clear();
+        this.byRemovedSharer.clear();
+        this.byOwner.clear();
+        this.byDeleteType.clear();
+        this.byContentHash.clear();
+    }
+
+    public Set<String> getPathsSharedWith(String username) {
+        return copy(this.bySharer.get(username));
+    }
+
+    public Set<String> getPathsWithRemovedSharer(String username) {
+        return copy(this.byRemovedSharer.get(username));
+    }
+
+    public Set<String> getPathsOwnedBy(String owner) {
+        return copy(this.byOwner.get(owner));
+    }
+
+    public Set<String> getPathsWithDeleteType(DeleteType deleteType) {
+        return copy(this.byDeleteType.get(deleteType));
+    }
+
+    public Set<String> getPathsWithContentHash(String contentHash) {
+        return copy(this.byContentHash.get(contentHash));
+    }
+
+    protected static <K> void add(Map<K, Set<String>> index, K key, String path) {
+        index.computeIfAbsent(key, k -> new HashSet<>()).add(path);
+    }
+
+    protected static <K> void remove(Map<K, Set<String>> index, K key, String path) {
+        if (null == key) {
+            return;
+        }
+
+        Set<String> paths = index.get(key);
+        if (null != paths) {
+            paths.remove(path);
+            if (paths.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    protected static Set<String> copy(Set<String> paths) {
+        if (null == paths) {
+            return Collections.emptySet();
+        }
+
+        return new HashSet<>(paths);
+    }
+
+    /**
+     * The indexed attributes of a single path
+     */
+    protected static class Attributes {
+
+        protected Set<String> sharers = Collections.emptySet();
+
+        protected Set<String> removedSharers = Collections.emptySet();
+
+        protected Map<String, AccessType> accessTypes = Collections.emptyMap();
+
+        protected String owner;
+
+        protected DeleteType deleteType;
+
+        protected String contentHash;
+
+        protected boolean hasSharing() {
+            return ! this.accessTypes.isEmpty() || null != this.owner;
+        }
+
+        protected boolean hasSameSharing(Attributes other) {
+            return this.accessTypes.equals(other.accessTypes) && Objects.equals(this.owner, other.owner);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.rmatil.sync.version.core.index;
+
+import org.rmatil.sync.version.core.model.Sharer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the explicit sharing of recently resolved paths, i.e. whether the path
+ * itself is flagged as shared, its owner and the sharers stored in its object, so that resolving the
+ * sharing inherited by the paths below a shared directory does not read its ancestors again.
+ * <p>
+ * The least recently used paths are evicted once the capacity is exceeded.
+ * Entries have to be invalidated whenever the object of their path is written or removed.
+ * <p>
+ * The cache is not thread-safe, it is guarded by the object manager owning it.
+ */
+public class SharingCache {
+
+    protected Map<String, Entry> entries;
+
+    /**
+     * @param capacity The maximal number of cached paths
+     */
+    public SharingCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the explicit sharing of the given path
+     *
+     * @param path The path
+     *
+     * @return The cached sharing or null, if the path is not cached
+     */
+    public Entry get(String path) {
+        return this.entries.get(path);
+    }
+
+    /**
+     * Remembers the explicit sharing of the given path
+     *
+     * @param path     The path
+     * @param isShared Whether the path itself is flagged as shared
+     * @param owner    The owner stored for the path, may be null
+     * @param sharers  The sharers stored for the path, copied on caching
+     *
+     * @return The cached entry
+     */
+    public Entry put(String path, boolean isShared, String owner, Set<Sharer> sharers) {
+        Entry entry = new Entry(isShared, owner, sharers);
+        this.entries.put(path, entry);
+
+        return entry;
+    }
+
+    /**
+     * Forgets the sharing of the given path
+     *
+     * @param path The path of which the object changed
+     */
+    public void invalidate(String path) {
+        this.entries.remove(path);
+    }
+
+    /**
+     * Forgets the sharing of all paths
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Returns the number of cached paths
+     *
+     * @return The number of paths
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * The explicit sharing of a single path
+     */
+    public static class Entry {
+
+        protected final boolean isShared;
+
+        protected final String owner;
+
+        protected final Set<Sharer> sharers;
+
+        protected Entry(boolean isShared, String owner, Set<Sharer> sharers) {
+            this.isShared = isShared;
+            this.owner = owner;
+
+            Set<Sharer> copies = new HashSet<>();
+            if (null != sharers) {
+                for (Sharer sharer : sharers) {
+                    copies.add(copy(sharer));
+                }
+            }
+            this.sharers = Collections.unmodifiableSet(copies);
+        }
+
+        public boolean isShared() {
+            return isShared;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        /**
+         * Returns the sharers stored for the path. They must not be modified,
+         * use {@link SharingCache#copy(Sharer)} to obtain a modifiable one
+         *
+         * @return The sharers
+         */
+        public Set<Sharer> getSharers() {
+            return sharers;
+        }
+    }
+
+    /**
+     * Creates a copy of the given sharer, including its sharing history
+     *
+     * @param sharer The sharer to copy
+     *
+     * @return The copy
+     */
+    public static Sharer copy(Sharer sharer) {
+        return new Sharer(
+                sharer.getUsername(),
+                sharer.getAccessType(),
+                (null == sharer.getSharingHistory()) ? new ArrayList<>() : new ArrayList<>(sharer.getSharingHistory())
+        );
+    }
+}
@@ -0,0 +1,280 @@
+package org.rmatil.sync.version.core.index;
+
+import org.rmatil.sync.version.core.model.Version;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The directed acyclic graph formed by versions and their parents,
+ * answering ancestry and lowest common ancestor queries.
+ * <p>
+ * Versions are identified by their id. Versions created before parents were tracked
+ * are identified by their hash and are considered to be based on the version preceding
+ * them in the history they were added with.
+ * <p>
+ * The graph is built for the histories being merged and queried a few times only, each query
+ * therefore traverses the parents in time linear to the number of versions instead of maintaining
+ * an index which would only pay off for many queries on the same graph.
+ * <p>
+ * The graph is not thread-safe.
+ */
+public class VersionGraph {
+
+    protected Map<String, Integer> indices = new HashMap<>();
+
+    protected List<String> keys = new ArrayList<>();
+
+    protected List<List<String>> parentKeys = new ArrayList<>();
+
+    protected boolean parentsResolved = true;
+
+    protected int[][] parents;
+
+    /**
+     * Returns the key by which the given version is identified in the graph
+     *
+     * @param version The version
+     *
+     * @return The id of the version or its hash if its parents are not tracked
+     */
+    public static String getKey(Version version) {
+        return (null != version.getId()) ? version.getId() : version.getHash();
+    }
+
+    /**
+     * Returns the versions of the given history which are based on the version with the given key,
+     * directly or through other versions of the history. Versions without tracked parents are
+     * considered to be based on their predecessor, as when added to a graph
+     *
+     * @param key     The key of the version
+     * @param history The versions from the oldest to the latest
+     *
+     * @return The descendants in the order of the history, not including the version itself
+     */
+    public static List<Version> getDescendants(String key, List<Version> history) {
+        Set<String> descendantKeys = new HashSet<>();
+        descendantKeys.add(key);
+
+        List<Version> descendants = new ArrayList<>();
+        String previousKey = null;
+        for (Version version : history) {
+            String versionKey = getKey(version);
+
+            if (! descendantKeys.contains(versionKey)) {
+                for (String parentKey : getParentKeys(version, previousKey)) {
+                    if (descendantKeys.contains(parentKey)) {
+                        descendantKeys.add(versionKey);
+                        descendants.add(version);
+                        break;
+                    }
+                }
+            }
+
+            previousKey = versionKey;
+        }
+
+        return descendants;
+    }
+
+    /**
+     * Adds the given history. Versions already contained keep their parents
+     *
+     * @param versions The versions from the oldest to the latest
+     */
+    public void addAll(List<Version> versions) {
+        String previousKey = null;
+        for (Version version : versions) {
+            String key = getKey(version);
+
+            if (! this.indices.containsKey(key)) {
+                this.indices.put(key, this.keys.size());
+                this.keys.add(key);
+                this.parentKeys.add(getParentKeys(version, previousKey));
+                this.parentsResolved = false;
+            }
+
+            previousKey = key;
+        }
+    }
+
+    /**
+     * Returns whether the version with the given key has been added
+     *
+     * @param key The key of the version
+     *
+     * @return True, if contained
+     */
+    public boolean contains(String key) {
+        return this.indices.containsKey(key);
+    }
+
+    /**
+     * Returns the number of versions in the graph
+     *
+     * @return The number of versions
+     */
+    public int size() {
+        return this.keys.size();
+    }
+
+    /**
+     * Returns whether the first version is an ancestor of the second one.
+     * Each version is considered an ancestor of itself
+     *
+     * @param ancestorKey   The key of the potential ancestor
+     * @param descendantKey The key of the potential descendant
+     *
+     * @return True, if the first version is reachable from the second one by following parents. False if any of them is unknown
+     */
+    public boolean isAncestor(String ancestorKey, String descendantKey) {
+        Integer ancestor = this.indices.get(ancestorKey);
+        Integer descendant = this.indices.get(descendantKey);
+
+        if (null == ancestor || null == descendant) {
+            return false;
+        }
+
+        this.resolveParents();
+
+        return this.getAncestors(descendant)[ancestor];
+    }
+
+    /**
+     * Returns the lowest common ancestor of both versions, i.e. a common
+     * ancestor which is not an ancestor of another common ancestor.
+     * If there are several, the one closest to the second version is returned
+     *
+     * @param key      The key of the first version
+     * @param otherKey The key of the second version
+     *
+     * @return The key of the lowest common ancestor or null, if any of the versions is unknown or they have no common ancestor
+     */
+    public String getLowestCommonAncestor(String key, String otherKey) {
+        Integer first = this.indices.get(key);
+        Integer second = this.indices.get(otherKey);
+
+        if (null == first || null == second) {
+            return null;
+        }
+
+        this.resolveParents();
+
+        boolean[] ancestorsOfFirst = this.getAncestors(first);
+
+        // mark all common ancestors which are ancestors of another common ancestor
+        boolean[] common = this.getAncestors(second);
+        boolean[] dominated = new boolean[this.keys.size()];
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int version = 0; version < common.length; version++) {
+            common[version] &= ancestorsOfFirst[version];
+            if (common[version]) {
+                for (int parent : this.parents[version]) {
+                    if (! dominated[parent]) {
+                        dominated[parent] = true;
+                        stack.push(parent);
+                    }
+                }
+            }
+        }
+
+        while (! stack.isEmpty()) {
+            for (int parent : this.parents[stack.pop()]) {
+                if (! dominated[parent]) {
+                    dominated[parent] = true;
+                    stack.push(parent);
+                }
+            }
+        }
+
+        // visit the ancestors of the second version breadth first to find the closest remaining one
+        boolean[] visited = new boolean[this.keys.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(second);
+        visited[second] = true;
+        while (! queue.isEmpty()) {
+            int current = queue.poll();
+            if (common[current] && ! dominated[current]) {
+                return this.keys.get(current);
+            }
+
+            for (int parent : this.parents[current]) {
+                if (! visited[parent]) {
+                    visited[parent] = true;
+                    queue.add(parent);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns all versions reachable from the given one by following parents, including itself
+     *
+     * @param version The index of the version
+     *
+     * @return Whether each version is an ancestor, by index
+     */
+    protected boolean[] getAncestors(int version) {
+        boolean[] ancestors = new boolean[this.keys.size()];
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(version);
+        ancestors[version] = true;
+
+        while (! stack.isEmpty()) {
+            for (int parent : this.parents[stack.pop()]) {
+                if (! ancestors[parent]) {
+                    ancestors[parent] = true;
+                    stack.push(parent);
+                }
+            }
+        }
+
+        return ancestors;
+    }
+
+    /**
+     * Resolves the parent keys of all versions to their indices, if versions were added since the last time
+     */
+    protected void resolveParents() {
+        if (this.parentsResolved) {
+            return;
+        }
+
+        int size = this.keys.size();
+        this.parents = new int[size][];
+
+        for (int i = 0; i < size; i++) {
+            List<String> versionParents = this.parentKeys.get(i);
+            int[] resolved = new int[versionParents.size()];
+            int count = 0;
+            for (String parentKey : versionParents) {
+                // parents which are unknown, e.g. due to compaction, are ignored
+                Integer parent = this.indices.get(parentKey);
+                if (null != parent) {
+                    resolved[count++] = parent;
+                }
+            }
+
+            this.parents[i] = Arrays.copyOf(resolved, count);
+        }
+
+        this.parentsResolved = true;
+    }
+
+    protected static List<String> getParentKeys(Version version, String previousKey) {
+        if (null != version.getParents()) {
+            return version.getParents();
+        }
+
+        return (null != previousKey) ? Arrays.asList(previousKey) : new ArrayList<>();
+    }
+}
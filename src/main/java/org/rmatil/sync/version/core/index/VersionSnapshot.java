@@ -0,0 +1,322 @@
+package org.rmatil.sync.version.core.index;
+
+import org.rmatil.sync.version.core.model.Version;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only, memory mapped snapshot of the latest version of each object, keyed by the
+ * file name hash of the object. It is written when the object manager is closed, so that
+ * the first synchronisation after a restart does not have to read the version log of each object.
+ * <p>
+ * The file consists of a header, a table of the offsets of all entries sorted by their key,
+ * and the entries, each being the key followed by the latest version as JSON. Opening the snapshot
+ * only maps the file and verifies its checksums, an entry is decoded when it is looked up.
+ * <p>
+ * Like the {@link MappedPathTable}, the header holds a generation, a clean flag, the checksum of the
+ * index file the snapshot was written for, a checksum of the entries and a checksum of itself.
+ * Opening a snapshot marks it as dirty immediately, so that a process crashing before writing the
+ * next snapshot leaves a snapshot which is not used anymore, even though it is valid otherwise.
+ */
+public class VersionSnapshot implements Closeable {
+
+    protected static final int MAGIC = 0x56534E50;
+
+    protected static final int FORMAT_VERSION = 1;
+
+    protected static final int HEADER_SIZE = 64;
+
+    protected static final int MAGIC_OFFSET = 0;
+    protected static final int FORMAT_VERSION_OFFSET = 4;
+    protected static final int GENERATION_OFFSET = 8;
+    protected static final int CLEAN_OFFSET = 16;
+    protected static final int COUNT_OFFSET = 20;
+    protected static final int SOURCE_CHECKSUM_OFFSET = 24;
+    protected static final int BODY_CHECKSUM_OFFSET = 32;
+    protected static final int HEADER_CHECKSUM_OFFSET = 40;
+
+    protected static final int OFFSET_BYTES = 8;
+
+    protected FileChannel channel;
+
+    protected MappedByteBuffer buffer;
+
+    protected long generation;
+
+    protected int count;
+
+    protected VersionSnapshot(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.generation = buffer.getLong(GENERATION_OFFSET);
+        this.count = buffer.getInt(COUNT_OFFSET);
+    }
+
+    /**
+     * Opens the snapshot stored in the given file and marks it as dirty
+     *
+     * @param file           The file of the snapshot
+     * @param sourceChecksum The checksum of the current index file
+     *
+     * @return The snapshot or null, if the file does not exist, is corrupt, dirty or has been written for another index file
+     *
+     * @throws IOException If the file can not be opened or mapped
+     */
+    public static VersionSnapshot open(Path file, long sourceChecksum)
+            throws IOException {
+        if (! Files.exists(file)) {
+            return null;
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            return null;
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (MAGIC != buffer.getInt(MAGIC_OFFSET) ||
+                FORMAT_VERSION != buffer.getInt(FORMAT_VERSION_OFFSET) ||
+                1 != buffer.getInt(CLEAN_OFFSET) ||
+                computeHeaderChecksum(buffer) != buffer.getLong(HEADER_CHECKSUM_OFFSET) ||
+                sourceChecksum != buffer.getLong(SOURCE_CHECKSUM_OFFSET) ||
+                computeBodyChecksum(buffer) != buffer.getLong(BODY_CHECKSUM_OFFSET)) {
+            channel.close();
+            return null;
+        }
+
+        VersionSnapshot snapshot = new VersionSnapshot(channel, buffer);
+        snapshot.markDirty();
+
+        return snapshot;
+    }
+
+    /**
+     * Writes a snapshot of the given entries to the given file, replacing the snapshot stored there
+     *
+     * @param file           The file of the snapshot
+     * @param generation     The generation of the snapshot
+     * @param sourceChecksum The checksum of the index file the snapshot is written for
+     * @param entries        The latest version as JSON by the file name hash of its object
+     *
+     * @throws IOException If writing fails
+     */
+    public static void write(Path file, long generation, long sourceChecksum, SortedMap<String, byte[]> entries)
+            throws IOException {
+        long size = HEADER_SIZE + (long) entries.size() * OFFSET_BYTES;
+        for (SortedMap.Entry<String, byte[]> entry : entries.entrySet()) {
+            size += 2 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + 4 + entry.getValue().length;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + entries.size() + " entries exceeds 2 GB");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        int offset = HEADER_SIZE + entries.size() * OFFSET_BYTES;
+        int index = 0;
+        for (SortedMap.Entry<String, byte[]> entry : entries.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+
+            buffer.putLong(HEADER_SIZE + index * OFFSET_BYTES, offset);
+            buffer.position(offset);
+            buffer.putShort((short) key.length);
+            buffer.put(key);
+            buffer.putInt(entry.getValue().length);
+            buffer.put(entry.getValue());
+
+            offset = buffer.position();
+            index++;
+        }
+
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(FORMAT_VERSION_OFFSET, FORMAT_VERSION);
+        buffer.putLong(GENERATION_OFFSET, generation);
+        buffer.putInt(CLEAN_OFFSET, 1);
+        buffer.putInt(COUNT_OFFSET, entries.size());
+        buffer.putLong(SOURCE_CHECKSUM_OFFSET, sourceChecksum);
+        buffer.putLong(BODY_CHECKSUM_OFFSET, computeBodyChecksum(buffer));
+        buffer.putLong(HEADER_CHECKSUM_OFFSET, computeHeaderChecksum(buffer));
+
+        // replace the previous snapshot only once the new one is complete
+        Path tempFile = Paths.get(file.toString() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the generation of the snapshot, which is
+     * incremented each time a snapshot is written
+     *
+     * @return The generation
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Returns the number of objects in the snapshot
+     *
+     * @return The number of objects
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Returns whether the snapshot contains the latest version of the given object
+     *
+     * @param fileNameHash The file name hash of the object
+     *
+     * @return True, if contained
+     */
+    public boolean contains(String fileNameHash) {
+        return - 1 != this.find(fileNameHash);
+    }
+
+    /**
+     * Returns the latest version of the given object
+     *
+     * @param fileNameHash The file name hash of the object
+     *
+     * @return The latest version or null, if the snapshot does not contain the object
+     */
+    public Version getLatestVersion(String fileNameHash) {
+        int index = this.find(fileNameHash);
+        if (- 1 == index) {
+            return null;
+        }
+
+        return Version.fromJson(new String(this.getValue(index), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns all entries of the snapshot without decoding their versions
+     *
+     * @return The latest version as JSON by the file name hash of its object
+     */
+    public SortedMap<String, byte[]> getEntries() {
+        SortedMap<String, byte[]> entries = new TreeMap<>();
+        for (int i = 0; i < this.count; i++) {
+            entries.put(this.getKey(i), this.getValue(i));
+        }
+
+        return entries;
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        this.channel.close();
+    }
+
+    protected int find(String fileNameHash) {
+        int low = 0;
+        int high = this.count - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = this.getKey(middle).compareTo(fileNameHash);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return - 1;
+    }
+
+    protected String getKey(int index) {
+        int offset = (int) this.buffer.getLong(HEADER_SIZE + index * OFFSET_BYTES);
+        byte[] key = new byte[this.buffer.getShort(offset)];
+
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(offset + 2);
+        view.get(key);
+
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    protected byte[] getValue(int index) {
+        int offset = (int) this.buffer.getLong(HEADER_SIZE + index * OFFSET_BYTES);
+        int valueOffset = offset + 2 + this.buffer.getShort(offset);
+        byte[] value = new byte[this.buffer.getInt(valueOffset)];
+
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(valueOffset + 4);
+        view.get(value);
+
+        return value;
+    }
+
+    /**
+     * Persists the dirty state, so that the snapshot is not used
+     * again unless a new one is written on closing
+     *
+     * @throws IOException If writing the header fails
+     */
+    protected void markDirty()
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(0);
+        view.limit(HEADER_SIZE);
+        header.put(view);
+
+        header.putInt(CLEAN_OFFSET, 0);
+        header.putLong(HEADER_CHECKSUM_OFFSET, computeHeaderChecksum(header));
+
+        header.rewind();
+        this.channel.write(header, 0);
+        this.channel.force(true);
+    }
+
+    protected static long computeHeaderChecksum(ByteBuffer buffer) {
+        CRC32 crc32 = new CRC32();
+        for (int i = 0; i < HEADER_CHECKSUM_OFFSET; i++) {
+            crc32.update(buffer.get(i));
+        }
+
+        return crc32.getValue();
+    }
+
+    protected static long computeBodyChecksum(ByteBuffer buffer) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        body.limit(buffer.capacity());
+
+        CRC32 crc32 = new CRC32();
+        byte[] chunk = new byte[8192];
+        while (body.hasRemaining()) {
+            int length = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, length);
+            crc32.update(chunk, 0, length);
+        }
+
+        return crc32.getValue();
+    }
+}
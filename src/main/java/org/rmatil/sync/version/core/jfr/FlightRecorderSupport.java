@@ -0,0 +1,34 @@
+package org.rmatil.sync.version.core.jfr;
+
+/**
+ * Tells whether the events of this package can be created at runtime.
+ * <p>
+ * The events extend <code>jdk.jfr.Event</code>, which is missing on JDK 8 runtimes before 8u262.
+ * Creating an event there fails with a {@link NoClassDefFoundError}, hence events must only be
+ * created if {@link #isAvailable()} returns true. Otherwise, no events are emitted at all.
+ */
+public final class FlightRecorderSupport {
+
+    private static final boolean AVAILABLE = isEventClassPresent();
+
+    /**
+     * Returns whether the flight recorder API is present in the running JVM
+     *
+     * @return True, if events may be created
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    private static boolean isEventClassPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private FlightRecorderSupport() {
+    }
+}
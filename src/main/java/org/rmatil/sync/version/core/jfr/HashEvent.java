@@ -0,0 +1,28 @@
+package org.rmatil.sync.version.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for computing the hash of a file's content
+ */
+@Name("org.rmatil.sync.version.Hash")
+@Label("Content Hash")
+@Category({"P2P Sync", "Object Store"})
+@Description("Computation of the hash of a file's content")
+public class HashEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,26 @@
+package org.rmatil.sync.version.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for every rewrite of the index file
+ */
+@Name("org.rmatil.sync.version.IndexPersist")
+@Label("Persist Index")
+@Category({"P2P Sync", "Persistence"})
+@Description("Rewrite of the index file")
+public class IndexPersistEvent extends Event {
+
+    @Label("Paths")
+    @Description("The number of paths in the index")
+    public int paths;
+
+    @Label("Index Size")
+    @DataAmount
+    public long bytes;
+}
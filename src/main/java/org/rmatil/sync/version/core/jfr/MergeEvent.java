@@ -0,0 +1,36 @@
+package org.rmatil.sync.version.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for merging the object store of another client
+ *
+ * @see org.rmatil.sync.version.core.ObjectStore#mergeObjectStore(org.rmatil.sync.version.api.IObjectStore)
+ */
+@Name("org.rmatil.sync.version.Merge")
+@Label("Object Store Merge")
+@Category({"P2P Sync", "Object Store"})
+@Description("Merge of another object store into this one")
+public class MergeEvent extends Event {
+
+    @Label("Own Paths")
+    @Description("The number of paths in the own index before merging")
+    public int ownPaths;
+
+    @Label("Other Paths")
+    @Description("The number of paths in the other index")
+    public int otherPaths;
+
+    @Label("Changed Paths")
+    public int changedPaths;
+
+    @Label("Deleted Paths")
+    public int deletedPaths;
+
+    @Label("Conflict Paths")
+    public int conflictPaths;
+}
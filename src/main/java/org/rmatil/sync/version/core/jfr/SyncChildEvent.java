@@ -0,0 +1,29 @@
+package org.rmatil.sync.version.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for the synchronisation of a single path,
+ * including the computation of its content hash.
+ */
+@Name("org.rmatil.sync.version.SyncChild")
+@Label("Object Store Sync Path")
+@Category({"P2P Sync", "Object Store"})
+@Description("Synchronisation of a single path with the object store")
+public class SyncChildEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Created")
+    @Description("Whether a new object has been created for the path")
+    public boolean created;
+
+    @Label("Moved From")
+    @Description("The removed path of which the object has been moved to this path, if any")
+    public String movedFrom;
+}
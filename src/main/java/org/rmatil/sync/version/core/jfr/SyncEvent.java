@@ -0,0 +1,36 @@
+package org.rmatil.sync.version.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for a complete synchronisation of the
+ * object store with the files on the storage adapter.
+ *
+ * @see org.rmatil.sync.version.core.ObjectStore#sync(java.util.List)
+ */
+@Name("org.rmatil.sync.version.Sync")
+@Label("Object Store Sync")
+@Category({"P2P Sync", "Object Store"})
+@Description("Synchronisation of the index with the files on disk")
+public class SyncEvent extends Event {
+
+    @Label("Indexed Paths")
+    @Description("The number of paths in the index before synchronising")
+    public int indexedPaths;
+
+    @Label("Removed Paths")
+    @Description("The number of indexed paths which do not exist on disk anymore")
+    public int removedPaths;
+
+    @Label("Moved Paths")
+    @Description("The number of removed paths which have been detected as moved to a new path having the same content")
+    public int movedPaths;
+
+    @Label("Synced Paths")
+    @Description("The number of paths on disk which have been synchronised")
+    public int syncedPaths;
+}
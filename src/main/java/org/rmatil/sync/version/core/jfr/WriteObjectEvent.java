@@ -0,0 +1,31 @@
+package org.rmatil.sync.version.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for writing a path object, including the rewrite of the index
+ *
+ * @see org.rmatil.sync.version.core.ObjectManager#writeObject(org.rmatil.sync.version.core.model.PathObject)
+ */
+@Name("org.rmatil.sync.version.WriteObject")
+@Label("Write Path Object")
+@Category({"P2P Sync", "Persistence"})
+@Description("Persisting of a path object")
+public class WriteObjectEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Object Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Versions")
+    @Description("The number of versions of the path object, -1 if the versions were not rewritten")
+    public int versions;
+}
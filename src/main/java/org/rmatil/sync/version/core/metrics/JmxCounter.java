@@ -0,0 +1,25 @@
+package org.rmatil.sync.version.core.metrics;
+
+import org.rmatil.sync.version.api.ICounter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class JmxCounter implements ICounter, JmxCounterMBean {
+
+    protected final LongAdder count = new LongAdder();
+
+    @Override
+    public void increment() {
+        this.count.increment();
+    }
+
+    @Override
+    public void increment(long amount) {
+        this.count.add(amount);
+    }
+
+    @Override
+    public long getCount() {
+        return this.count.sum();
+    }
+}
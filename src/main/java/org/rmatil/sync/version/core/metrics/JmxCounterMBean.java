@@ -0,0 +1,6 @@
+package org.rmatil.sync.version.core.metrics;
+
+public interface JmxCounterMBean {
+
+    long getCount();
+}
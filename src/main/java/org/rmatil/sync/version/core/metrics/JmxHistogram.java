@@ -0,0 +1,55 @@
+package org.rmatil.sync.version.core.metrics;
+
+import org.rmatil.sync.version.api.IHistogram;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class JmxHistogram implements IHistogram, JmxHistogramMBean {
+
+    protected final LongAdder count = new LongAdder();
+
+    protected final LongAdder sum = new LongAdder();
+
+    protected final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    protected final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    @Override
+    public void update(long value) {
+        this.count.increment();
+        this.sum.add(value);
+        this.min.accumulate(value);
+        this.max.accumulate(value);
+    }
+
+    @Override
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    @Override
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    @Override
+    public long getMin() {
+        return 0 == this.getCount() ? 0 : this.min.get();
+    }
+
+    @Override
+    public long getMax() {
+        return 0 == this.getCount() ? 0 : this.max.get();
+    }
+
+    @Override
+    public double getMean() {
+        long count = this.getCount();
+        if (0 == count) {
+            return 0d;
+        }
+
+        return this.getSum() / (double) count;
+    }
+}
@@ -0,0 +1,14 @@
+package org.rmatil.sync.version.core.metrics;
+
+public interface JmxHistogramMBean {
+
+    long getCount();
+
+    long getSum();
+
+    long getMin();
+
+    long getMax();
+
+    double getMean();
+}
@@ -0,0 +1,129 @@
+package org.rmatil.sync.version.core.metrics;
+
+import org.rmatil.sync.version.api.ICounter;
+import org.rmatil.sync.version.api.IHistogram;
+import org.rmatil.sync.version.api.IMetricRegistry;
+import org.rmatil.sync.version.api.ITimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A metric registry exposing each metric as a standard MBean.
+ * <p>
+ * Metrics are registered using the object name
+ * <i>domain:type=(Counter|Timer|Histogram),scope=scope,name=name</i>.
+ * The scope allows to distinguish the metrics of multiple object stores
+ * running in the same virtual machine.
+ */
+public class JmxMetricRegistry implements IMetricRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(JmxMetricRegistry.class);
+
+    public static final String DEFAULT_DOMAIN = "org.rmatil.sync.version";
+
+    protected MBeanServer mBeanServer;
+
+    protected String domain;
+
+    protected String scope;
+
+    protected Map<ObjectName, Object> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a registry using the platform MBean server and the default domain
+     *
+     * @param scope The scope of the metrics, e.g. the name of the object store
+     */
+    public JmxMetricRegistry(String scope) {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN, scope);
+    }
+
+    /**
+     * @param mBeanServer The MBean server to register the metrics at
+     * @param domain      The domain of the object names
+     * @param scope       The scope of the metrics, e.g. the name of the object store
+     */
+    public JmxMetricRegistry(MBeanServer mBeanServer, String domain, String scope) {
+        this.mBeanServer = mBeanServer;
+        this.domain = domain;
+        this.scope = scope;
+    }
+
+    @Override
+    public ICounter counter(String name) {
+        return this.getOrRegister("Counter", name, JmxCounter::new);
+    }
+
+    @Override
+    public ITimer timer(String name) {
+        return this.getOrRegister("Timer", name, JmxTimer::new);
+    }
+
+    @Override
+    public IHistogram histogram(String name) {
+        return this.getOrRegister("Histogram", name, JmxHistogram::new);
+    }
+
+    /**
+     * Returns the object name used to register the metric of the given type and name
+     *
+     * @param type The type of the metric
+     * @param name The name of the metric
+     *
+     * @return The object name
+     *
+     * @throws IllegalArgumentException If the resulting object name is invalid
+     */
+    public ObjectName getObjectName(String type, String name) {
+        try {
+            return new ObjectName(
+                    this.domain + ":type=" + type + ",scope=" + ObjectName.quote(this.scope) + ",name=" + ObjectName.quote(name)
+            );
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid metric name " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Unregisters all metrics of this registry from the MBean server
+     */
+    public void unregister() {
+        for (ObjectName objectName : this.metrics.keySet()) {
+            try {
+                if (this.mBeanServer.isRegistered(objectName)) {
+                    this.mBeanServer.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                logger.warn("Could not unregister metric " + objectName + ": " + e.getMessage());
+            }
+        }
+
+        this.metrics.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T> T getOrRegister(String type, String name, Supplier<T> supplier) {
+        ObjectName objectName = this.getObjectName(type, name);
+
+        return (T) this.metrics.computeIfAbsent(objectName, key -> {
+            T metric = supplier.get();
+
+            try {
+                this.mBeanServer.registerMBean(metric, key);
+            } catch (JMException e) {
+                // the metric is still recorded, it is just not visible
+                logger.warn("Could not register metric " + key + ": " + e.getMessage());
+            }
+
+            return metric;
+        });
+    }
+}
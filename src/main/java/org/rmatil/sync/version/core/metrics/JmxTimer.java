@@ -0,0 +1,49 @@
+package org.rmatil.sync.version.core.metrics;
+
+import org.rmatil.sync.version.api.ITimer;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class JmxTimer implements ITimer, JmxTimerMBean {
+
+    protected static final double NANOS_PER_MILLI = 1000000d;
+
+    protected final LongAdder count = new LongAdder();
+
+    protected final LongAdder totalNanos = new LongAdder();
+
+    protected final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    @Override
+    public void record(long durationNanos) {
+        this.count.increment();
+        this.totalNanos.add(durationNanos);
+        this.maxNanos.accumulate(durationNanos);
+    }
+
+    @Override
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = this.getCount();
+        if (0 == count) {
+            return 0d;
+        }
+
+        return this.getTotalNanos() / (double) count / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return this.maxNanos.get() / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,12 @@
+package org.rmatil.sync.version.core.metrics;
+
+public interface JmxTimerMBean {
+
+    long getCount();
+
+    long getTotalNanos();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+}
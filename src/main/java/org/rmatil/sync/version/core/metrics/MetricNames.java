@@ -0,0 +1,132 @@
+package org.rmatil.sync.version.core.metrics;
+
+/**
+ * The names of the metrics reported by the object store and its managers
+ */
+public final class MetricNames {
+
+    /**
+     * Counter: How many times the index has been persisted
+     */
+    public static final String INDEX_WRITES = "index.writes";
+
+    /**
+     * Histogram: The size in bytes of each persisted index
+     */
+    public static final String INDEX_BYTES_WRITTEN = "index.bytes.written";
+
+    /**
+     * Counter: How many path objects have been read
+     */
+    public static final String OBJECT_READS = "object.reads";
+
+    /**
+     * Counter: How many path objects have been requested but did not exist
+     */
+    public static final String OBJECT_READ_MISSES = "object.read.misses";
+
+    /**
+     * Counter: How many lookups of missing path objects have been answered by the Bloom filter
+     * of a memory mapped index, without accessing the mapped paths
+     */
+    public static final String EXISTS_FILTER_MISSES = "exists.filter.misses";
+
+    /**
+     * Histogram: The size in bytes of each read path object
+     */
+    public static final String OBJECT_BYTES_READ = "object.bytes.read";
+
+    /**
+     * Counter: How many path objects have been written
+     */
+    public static final String OBJECT_WRITES = "object.writes";
+
+    /**
+     * Histogram: The size in bytes of each written path object
+     */
+    public static final String OBJECT_BYTES_WRITTEN = "object.bytes.written";
+
+    /**
+     * Counter: How many path objects have been removed
+     */
+    public static final String OBJECT_REMOVALS = "object.removals";
+
+    /**
+     * Timer: The time needed to read a path object
+     */
+    public static final String OBJECT_READ_TIME = "object.read.time";
+
+    /**
+     * Timer: The time needed to write a path object including the index
+     */
+    public static final String OBJECT_WRITE_TIME = "object.write.time";
+
+    /**
+     * Counter: How many hashes of paths have been computed
+     */
+    public static final String PATH_HASH_COMPUTATIONS = "hash.path.computations";
+
+    /**
+     * Counter: How many hashes of paths have been found in the cache
+     */
+    public static final String PATH_HASH_CACHE_HITS = "hash.path.cache.hits";
+
+    /**
+     * Counter: How many hashes of file contents have been computed
+     */
+    public static final String CONTENT_HASH_COMPUTATIONS = "hash.content.computations";
+
+    /**
+     * Counter: How many hashes of file contents have been skipped
+     * since the change detection hash did not change
+     */
+    public static final String CONTENT_HASH_SKIPS = "hash.content.skips";
+
+    /**
+     * Timer: The time needed to hash the content of a file
+     */
+    public static final String CONTENT_HASH_TIME = "hash.content.time";
+
+    /**
+     * Counter: How many versions have been added
+     */
+    public static final String VERSIONS_ADDED = "versions.added";
+
+    /**
+     * Counter: How many versions have been removed by applying a retention policy
+     */
+    public static final String VERSIONS_COMPACTED = "versions.compacted";
+
+    /**
+     * Counter: How many changes to sharers and owners have been made
+     */
+    public static final String SHARER_CHANGES = "sharers.changes";
+
+    /**
+     * Counter: How many access types have been resolved from the sharing of paths
+     */
+    public static final String PERMISSION_RESOLUTIONS = "permissions.resolutions";
+
+    /**
+     * Counter: How many access types have been found in the cache
+     */
+    public static final String PERMISSION_CACHE_HITS = "permissions.cache.hits";
+
+    /**
+     * Counter: How many delete history entries have been added
+     */
+    public static final String DELETE_CHANGES = "deletes.changes";
+
+    /**
+     * Timer: The time needed to sync the object store with the folder
+     */
+    public static final String SYNC_TIME = "sync.time";
+
+    /**
+     * Timer: The time needed to merge another object store
+     */
+    public static final String MERGE_TIME = "merge.time";
+
+    private MetricNames() {
+    }
+}
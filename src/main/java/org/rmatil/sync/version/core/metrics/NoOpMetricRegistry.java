@@ -0,0 +1,77 @@
+package org.rmatil.sync.version.core.metrics;
+
+import org.rmatil.sync.version.api.ICounter;
+import org.rmatil.sync.version.api.IHistogram;
+import org.rmatil.sync.version.api.IMetricRegistry;
+import org.rmatil.sync.version.api.ITimer;
+
+/**
+ * A metric registry which discards all reported values.
+ * Used if no other registry is specified.
+ */
+public class NoOpMetricRegistry implements IMetricRegistry {
+
+    public static final NoOpMetricRegistry INSTANCE = new NoOpMetricRegistry();
+
+    protected static final ICounter COUNTER = new ICounter() {
+        @Override
+        public void increment() {
+        }
+
+        @Override
+        public void increment(long amount) {
+        }
+
+        @Override
+        public long getCount() {
+            return 0;
+        }
+    };
+
+    protected static final ITimer TIMER = new ITimer() {
+        @Override
+        public void record(long durationNanos) {
+        }
+
+        @Override
+        public long getCount() {
+            return 0;
+        }
+
+        @Override
+        public long getTotalNanos() {
+            return 0;
+        }
+    };
+
+    protected static final IHistogram HISTOGRAM = new IHistogram() {
+        @Override
+        public void update(long value) {
+        }
+
+        @Override
+        public long getCount() {
+            return 0;
+        }
+
+        @Override
+        public long getSum() {
+            return 0;
+        }
+    };
+
+    @Override
+    public ICounter counter(String name) {
+        return COUNTER;
+    }
+
+    @Override
+    public ITimer timer(String name) {
+        return TIMER;
+    }
+
+    @Override
+    public IHistogram histogram(String name) {
+        return HISTOGRAM;
+    }
+}
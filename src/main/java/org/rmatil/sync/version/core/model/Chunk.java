@@ -0,0 +1,64 @@
+package org.rmatil.sync.version.core.model;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * A content-defined part of the file of a {@link Version}.
+ * Like versions, chunks are immutable.
+ *
+ * @see org.rmatil.sync.version.core.chunking.ContentDefinedChunker
+ */
+public final class Chunk {
+
+    /**
+     * The offset of the first byte of the chunk within the file
+     */
+    private final long offset;
+
+    /**
+     * The number of bytes of the chunk
+     */
+    private final int length;
+
+    /**
+     * The hash of the bytes of the chunk
+     */
+    private final String hash;
+
+    public Chunk(long offset, int length, String hash) {
+        this.offset = offset;
+        this.length = length;
+        this.hash = hash;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(17, 31).append(offset).append(length).append(hash).toHashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (! (obj instanceof Chunk)) {
+            return false;
+        }
+        if (obj == this) {
+            return true;
+        }
+
+        Chunk rhs = (Chunk) obj;
+        return new EqualsBuilder().append(offset, rhs.getOffset()).append(length, rhs.getLength()).append(hash, rhs.getHash()).isEquals();
+    }
+}
@@ -2,36 +2,382 @@ package org.rmatil.sync.version.core.model;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.rmatil.sync.version.api.IHasher;
+import org.rmatil.sync.version.api.IPathTable;
+import org.rmatil.sync.version.config.Config;
+import org.rmatil.sync.version.core.hashing.DigestHasher;
+import org.rmatil.sync.version.core.index.PathTable;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * The index of all paths for which an object is stored.
+ * <p>
+ * Since the hash of an object is derived from its path, only the
+ * paths are kept in an {@link IPathTable}. They are persisted in the order
+ * of the path table, i.e. each directory followed by its contents, and front-coded, i.e. each
+ * path is written as the length of the prefix it shares with its predecessor,
+ * followed by a colon and the remaining suffix:
+ * <pre>
+ * {
+ *   "paths": [
+ *     "0:myDir",
+ *     "5:/myFile.txt",
+ *     "6:otherFile.txt"
+ *   ]
+ * }
+ * </pre>
+ * Indices written in the former format, mapping each path to its hash,
+ * are still read and are converted on the next write.
+ */
 public class Index {
 
     protected static Gson gson = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
-    
-    protected Map<String, String> paths;
 
+    protected static final String PATHS_KEY = "paths";
+
+    protected static final char PREFIX_SEPARATOR = ':';
+
+    protected static final IHasher DEFAULT_PATH_HASHER = new DigestHasher(Config.DEFAULT.getHashingAlgorithm());
+
+    protected IPathTable paths;
+
+    /**
+     * Hashes the paths to the names of their objects
+     */
+    protected IHasher pathHasher;
+
+    public Index() {
+        this(new PathTable());
+    }
+
+    public Index(Collection<String> paths) {
+        this(new PathTable(paths.size()));
+
+        for (String path : paths) {
+            this.paths.add(path);
+        }
+    }
+
+    /**
+     * @param paths The paths of this index mapped to their hashes. The hashes are ignored
+     *
+     * @deprecated The hash of a path is derived from the path, use {@link #Index(Collection)} instead
+     */
+    @Deprecated
     public Index(Map<String, String> paths) {
+        this(paths.keySet());
+    }
+
+    /**
+     * @param paths The path table holding the paths of this index
+     */
+    public Index(IPathTable paths) {
+        this(paths, DEFAULT_PATH_HASHER);
+    }
+
+    /**
+     * @param paths      The path table holding the paths of this index
+     * @param pathHasher The hasher computing the names of the objects of the paths
+     */
+    public Index(IPathTable paths, IHasher pathHasher) {
         this.paths = paths;
+        this.pathHasher = pathHasher;
     }
 
+    public void addPath(String pathToFile) {
+        this.paths.add(pathToFile);
+    }
+
+    /**
+     * Adds the given path, ignoring the given hash
+     *
+     * @param pathToFile     The path to add
+     * @param hashOfFilePath The hash of the path
+     *
+     * @deprecated The hash of a path is derived from the path, use {@link #addPath(String)} instead
+     */
+    @Deprecated
     public void addPath(String pathToFile, String hashOfFilePath) {
-        this.paths.put(pathToFile, hashOfFilePath);
+        this.addPath(pathToFile);
     }
 
     public void removePath(String pathToFile) {
         this.paths.remove(pathToFile);
     }
 
+    public boolean containsPath(String pathToFile) {
+        return this.paths.contains(pathToFile);
+    }
+
+    /**
+     * Returns all paths in this index mapped to the hash of the path.
+     * The hashes are computed on access.
+     *
+     * @return A view on the paths, removing entries removes them from the index
+     */
     public Map<String, String> getPaths() {
+        return new PathHashView();
+    }
+
+    /**
+     * Returns all paths in this index
+     *
+     * @return A view on the paths, removing paths removes them from the index
+     */
+    public Set<String> getPathSet() {
+        return new PathSetView();
+    }
+
+    /**
+     * Returns all paths which are located below the given parent,
+     * i.e. start with the parent followed by a slash
+     *
+     * @param parentPath The path of the parent
+     *
+     * @return The paths below the parent
+     */
+    public Iterable<String> getPathsBelow(String parentPath) {
+        return () -> this.paths.iterator(parentPath);
+    }
+
+    /**
+     * Returns the path table holding the paths of this index
+     *
+     * @return The path table
+     */
+    public IPathTable getPathTable() {
         return this.paths;
     }
 
     public String toJson() {
-        return gson.toJson(this, Index.class);
+        JsonArray encodedPaths = new JsonArray();
+
+        String previous = "";
+        for (String path : this.paths) {
+            int prefixLength = 0;
+            int maxPrefixLength = Math.min(previous.length(), path.length());
+            while (prefixLength < maxPrefixLength && previous.charAt(prefixLength) == path.charAt(prefixLength)) {
+                prefixLength++;
+            }
+
+            // do not split surrogate pairs
+            if (prefixLength > 0 && Character.isHighSurrogate(path.charAt(prefixLength - 1))) {
+                prefixLength--;
+            }
+
+            encodedPaths.add(new JsonPrimitive(prefixLength + String.valueOf(PREFIX_SEPARATOR) + path.substring(prefixLength)));
+            previous = path;
+        }
+
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.add(PATHS_KEY, encodedPaths);
+
+        return gson.toJson(jsonObject);
     }
 
     public static Index fromJson(String json) {
-        return gson.fromJson(json, Index.class);
+        JsonObject jsonObject = new JsonParser().parse(json).getAsJsonObject();
+        JsonElement encodedPaths = jsonObject.get(PATHS_KEY);
+
+        if (null == encodedPaths || encodedPaths.isJsonNull()) {
+            return new Index();
+        }
+
+        Index index = new Index(new PathTable(encodedPaths.isJsonArray() ? encodedPaths.getAsJsonArray().size() : 0));
+
+        if (encodedPaths.isJsonObject()) {
+            // former format mapping each path to its hash
+            for (Map.Entry<String, JsonElement> entry : encodedPaths.getAsJsonObject().entrySet()) {
+                index.paths.add(entry.getKey());
+            }
+
+            return index;
+        }
+
+        String previous = "";
+        for (JsonElement element : encodedPaths.getAsJsonArray()) {
+            String encodedPath = element.getAsString();
+            int separatorIdx = encodedPath.indexOf(PREFIX_SEPARATOR);
+
+            if (separatorIdx <= 0) {
+                throw new IllegalArgumentException("Invalid index entry " + encodedPath);
+            }
+
+            int prefixLength = Integer.parseInt(encodedPath.substring(0, separatorIdx));
+            String path = previous.substring(0, prefixLength) + encodedPath.substring(separatorIdx + 1);
+
+            index.paths.add(path);
+            previous = path;
+        }
+
+        return index;
+    }
+
+    protected String hash(String path) {
+        return this.pathHasher.hash(path);
+    }
+
+    /**
+     * A map view on the paths of the index, computing
+     * the hash of a path only if it is requested
+     */
+    protected class PathHashView extends AbstractMap<String, String> {
+
+        @Override
+        public int size() {
+            return paths.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return (key instanceof String) && paths.contains((String) key);
+        }
+
+        @Override
+        public String get(Object key) {
+            if (! this.containsKey(key)) {
+                return null;
+            }
+
+            return hash((String) key);
+        }
+
+        @Override
+        public String remove(Object key) {
+            String hash = this.get(key);
+            if (null != hash) {
+                paths.remove((String) key);
+            }
+
+            return hash;
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return new PathSetView();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    Iterator<String> pathIterator = paths.iterator();
+
+                    return new Iterator<Entry<String, String>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return pathIterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            return new PathHashEntry(pathIterator.next());
+                        }
+
+                        @Override
+                        public void remove() {
+                            pathIterator.remove();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return paths.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * A set view on the paths of the index
+     */
+    protected class PathSetView extends AbstractSet<String> {
+
+        @Override
+        public Iterator<String> iterator() {
+            return paths.iterator();
+        }
+
+        @Override
+        public int size() {
+            return paths.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return (o instanceof String) && paths.contains((String) o);
+        }
+
+        @Override
+        public boolean add(String path) {
+            return paths.add(path);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return (o instanceof String) && paths.remove((String) o);
+        }
+    }
+
+    /**
+     * An entry of a path and its lazily computed hash
+     */
+    protected class PathHashEntry implements Map.Entry<String, String> {
+
+        protected String path;
+
+        protected String hash;
+
+        protected PathHashEntry(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public String getKey() {
+            return this.path;
+        }
+
+        @Override
+        public String getValue() {
+            if (null == this.hash) {
+                this.hash = hash(this.path);
+            }
+
+            return this.hash;
+        }
+
+        @Override
+        public String setValue(String value) {
+            throw new UnsupportedOperationException("The hash of a path is derived from the path");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (! (o instanceof Map.Entry)) {
+                return false;
+            }
+
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+
+            return this.path.equals(other.getKey()) && this.getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return this.path.hashCode() ^ this.getValue().hashCode();
+        }
     }
 }
@@ -0,0 +1,103 @@
+package org.rmatil.sync.version.core.model;
+
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The versions of a path object which are read from its version log on the first access.
+ * Operations on the object which do not touch its versions therefore never read them.
+ * <p>
+ * The list is not thread-safe, just as the list of versions of a path object is not.
+ */
+public class LazyVersionList extends AbstractList<Version> implements RandomAccess {
+
+    /**
+     * Reads the versions of a path object
+     */
+    public interface Loader {
+
+        /**
+         * @return The versions from the oldest to the latest
+         *
+         * @throws InputOutputException If reading the versions fails
+         */
+        List<Version> load()
+                throws InputOutputException;
+    }
+
+    protected String fileNameHash;
+
+    protected Loader loader;
+
+    protected List<Version> versions;
+
+    /**
+     * @param fileNameHash The hash of the path of which the versions are read
+     * @param loader       The loader reading the versions
+     */
+    public LazyVersionList(String fileNameHash, Loader loader) {
+        this.fileNameHash = fileNameHash;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the hash of the path of which the versions are read
+     *
+     * @return The file name hash
+     */
+    public String getFileNameHash() {
+        return this.fileNameHash;
+    }
+
+    /**
+     * Returns whether the versions have been read already
+     *
+     * @return True, if read
+     */
+    public boolean isLoaded() {
+        return null != this.versions;
+    }
+
+    protected List<Version> getVersions() {
+        if (null == this.versions) {
+            try {
+                this.versions = new ArrayList<>(this.loader.load());
+            } catch (InputOutputException e) {
+                throw new IllegalStateException("Could not read the versions of " + this.fileNameHash, e);
+            }
+        }
+
+        return this.versions;
+    }
+
+    @Override
+    public Version get(int index) {
+        return this.getVersions().get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.getVersions().size();
+    }
+
+    @Override
+    public Version set(int index, Version version) {
+        return this.getVersions().set(index, version);
+    }
+
+    @Override
+    public void add(int index, Version version) {
+        this.modCount++;
+        this.getVersions().add(index, version);
+    }
+
+    @Override
+    public Version remove(int index) {
+        this.modCount++;
+        return this.getVersions().remove(index);
+    }
+}
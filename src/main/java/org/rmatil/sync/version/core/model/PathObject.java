@@ -2,17 +2,27 @@ package org.rmatil.sync.version.core.model;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
 import org.rmatil.sync.version.api.AccessType;
 import org.rmatil.sync.version.api.PathType;
 
+import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 public class PathObject {
 
-    protected static Gson gson = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
+    protected static Gson gson = new GsonBuilder()
+            .setPrettyPrinting()
+            .serializeNulls()
+            .registerTypeAdapter(Version.class, new VersionSerializer())
+            .create();
 
     /**
      * The name of the directory or file (without a path)
@@ -52,7 +62,8 @@ public class PathObject {
     protected String owner;
 
     /**
-     * A list of sharers of this file
+     * The sharers of this file, keyed by their username.
+     * Read from JSON as a plain set, which is converted on the first access
      */
     protected Set<Sharer> sharers;
 
@@ -61,6 +72,12 @@ public class PathObject {
      */
     protected List<Version> versions;
 
+    /**
+     * The number of changes each client made to this path.
+     * May be null for objects written before version vectors were kept
+     */
+    protected VersionVector versionVector;
+
     /**
      * @param name       The name of the file or directory (without the path to it)
      * @param path       The path to the file or directory (without the name of it)
@@ -80,15 +97,14 @@ public class PathObject {
         this.isShared = isShared;
         this.deleted = deleted;
         this.owner = owner;
-        this.sharers = sharers;
-        if (null == this.sharers) {
-            this.sharers = new HashSet<>();
-        }
+        this.setSharers(sharers);
 
         this.versions = versions;
         if (null == this.versions) {
             this.versions = new ArrayList<>();
         }
+
+        this.versionVector = new VersionVector();
     }
 
     /**
@@ -222,16 +238,36 @@ public class PathObject {
      * @return The list of sharers
      */
     public Set<Sharer> getSharers() {
+        if (! (this.sharers instanceof SharerSet)) {
+            this.setSharers(this.sharers);
+        }
+
         return sharers;
     }
 
     /**
-     * Sets sharers of this path object
+     * Returns the sharer having the given username
+     *
+     * @param username The username of the sharer
+     *
+     * @return The sharer or null, if there is none stored for the user
+     */
+    public Sharer getSharer(String username) {
+        return ((SharerSet) this.getSharers()).get(username);
+    }
+
+    /**
+     * Sets sharers of this path object. Of multiple sharers having
+     * the same username, only the last one is kept
      *
      * @param sharers The sharers of this object
      */
     public void setSharers(Set<Sharer> sharers) {
-        this.sharers = sharers;
+        if (sharers instanceof SharerSet) {
+            this.sharers = sharers;
+        } else {
+            this.sharers = (null == sharers) ? new SharerSet() : new SharerSet(sharers);
+        }
     }
 
     /**
@@ -243,6 +279,37 @@ public class PathObject {
         return versions;
     }
 
+    /**
+     * Sets the versions of this file
+     *
+     * @param versions The versions from the oldest to the latest
+     */
+    public void setVersions(List<Version> versions) {
+        this.versions = versions;
+    }
+
+    /**
+     * Returns the number of changes each client made to this path
+     *
+     * @return The version vector, empty if no change was counted yet
+     */
+    public VersionVector getVersionVector() {
+        if (null == this.versionVector) {
+            this.versionVector = new VersionVector();
+        }
+
+        return versionVector;
+    }
+
+    /**
+     * Sets the number of changes each client made to this path
+     *
+     * @param versionVector The version vector
+     */
+    public void setVersionVector(VersionVector versionVector) {
+        this.versionVector = versionVector;
+    }
+
     /**
      * Converts this object to a JSON representation
      *
@@ -262,4 +329,32 @@ public class PathObject {
     public static PathObject fromJson(String json) {
         return gson.fromJson(json, PathObject.class);
     }
+
+    /**
+     * Writes the chunks, the creation time and the parents of a version only if present,
+     * so that versions without them keep their former representation
+     */
+    protected static class VersionSerializer implements JsonSerializer<Version> {
+
+        @Override
+        public JsonElement serialize(Version version, Type type, JsonSerializationContext context) {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.add("hash", (null == version.getHash()) ? JsonNull.INSTANCE : new JsonPrimitive(version.getHash()));
+
+            if (version.isChunked()) {
+                jsonObject.add("chunks", context.serialize(version.getChunks()));
+            }
+
+            if (0L != version.getTimestamp()) {
+                jsonObject.addProperty("timestamp", version.getTimestamp());
+            }
+
+            if (null != version.getParents()) {
+                jsonObject.add("parents", context.serialize(version.getParents()));
+                jsonObject.addProperty("id", version.getId());
+            }
+
+            return jsonObject;
+        }
+    }
 }
@@ -1,11 +1,11 @@
 package org.rmatil.sync.version.core.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.rmatil.sync.version.api.AccessType;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Objects;
 
 public class Sharer implements Serializable {
 
@@ -45,6 +45,35 @@ public class Sharer implements Serializable {
         this.sharingHistory = sharingHistory;
     }
 
+    /**
+     * Returns the latest entry of the sharing history. Since each entry is the hash
+     * of all previous ones and the new access type, it identifies the whole history
+     *
+     * @return The latest history entry or null, if the history is empty
+     */
+    public String getHistoryHead() {
+        if (null == this.sharingHistory || this.sharingHistory.isEmpty()) {
+            return null;
+        }
+
+        return this.sharingHistory.get(this.sharingHistory.size() - 1);
+    }
+
+    /**
+     * Returns whether the given sharer has the same sharing history,
+     * comparing only the length and the latest entry of both histories
+     *
+     * @param other The sharer to compare with
+     *
+     * @return True, if both histories are equal
+     */
+    public boolean hasSameHistory(Sharer other) {
+        int size = (null == this.sharingHistory) ? 0 : this.sharingHistory.size();
+        int otherSize = (null == other.getSharingHistory()) ? 0 : other.getSharingHistory().size();
+
+        return size == otherSize && Objects.equals(this.getHistoryHead(), other.getHistoryHead());
+    }
+
     @Override
     public int hashCode() {
         // http://stackoverflow.com/questions/27581/what-issues-should-be-considered-when-overriding-equals-and-hashcode-in-java
@@ -68,18 +97,22 @@ public class Sharer implements Serializable {
         }
 
         Sharer rhs = (Sharer) obj;
-        EqualsBuilder builder = new EqualsBuilder()
-                .append(username, rhs.getUsername())
-                .append(accessType, rhs.getAccessType());
+        if (! Objects.equals(this.username, rhs.getUsername()) || this.accessType != rhs.getAccessType()) {
+            return false;
+        }
+
+        List<String> rhsHistory = rhs.getSharingHistory();
+        if (this.sharingHistory.size() != rhsHistory.size()) {
+            return false;
+        }
 
-        if (this.sharingHistory.size() == rhs.getSharingHistory().size()) {
-            for (int i = 0; i < this.sharingHistory.size(); i++) {
-                builder.append(this.sharingHistory.get(i), rhs.getSharingHistory().get(i));
+        // histories diverge at their end, if at all
+        for (int i = this.sharingHistory.size() - 1; i >= 0; i--) {
+            if (! Objects.equals(this.sharingHistory.get(i), rhsHistory.get(i))) {
+                return false;
             }
-        } else {
-            builder.append(this.sharingHistory.size(), rhs.getSharingHistory().size());
         }
 
-        return builder.isEquals();
+        return true;
     }
 }
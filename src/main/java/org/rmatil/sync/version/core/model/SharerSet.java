@@ -0,0 +1,85 @@
+package org.rmatil.sync.version.core.model;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The sharers of a path object, keyed by their username.
+ * <p>
+ * A path object stores at most one sharer per user, hence looking up the sharer
+ * of a particular user does not have to visit all sharers. Adding a sharer replaces
+ * the one having the same username, if not equal. Otherwise, the set behaves like
+ * any other set of sharers and is represented as such in JSON.
+ * Sharers are iterated in the order they were added first.
+ */
+public class SharerSet extends AbstractSet<Sharer> implements Serializable {
+
+    protected Map<String, Sharer> sharers = new LinkedHashMap<>();
+
+    public SharerSet() {
+    }
+
+    /**
+     * @param sharers The sharers to add, a later one replaces an earlier one having the same username
+     */
+    public SharerSet(Collection<Sharer> sharers) {
+        this.addAll(sharers);
+    }
+
+    /**
+     * Returns the sharer having the given username
+     *
+     * @param username The username
+     *
+     * @return The sharer or null, if there is none for the user
+     */
+    public Sharer get(String username) {
+        return this.sharers.get(username);
+    }
+
+    @Override
+    public boolean add(Sharer sharer) {
+        Sharer previous = this.sharers.put(sharer.getUsername(), sharer);
+
+        return ! sharer.equals(previous);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (! (o instanceof Sharer)) {
+            return false;
+        }
+
+        Sharer sharer = this.sharers.get(((Sharer) o).getUsername());
+        return null != sharer && sharer.equals(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (! this.contains(o)) {
+            return false;
+        }
+
+        this.sharers.remove(((Sharer) o).getUsername());
+        return true;
+    }
+
+    @Override
+    public Iterator<Sharer> iterator() {
+        return this.sharers.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return this.sharers.size();
+    }
+
+    @Override
+    public void clear() {
+        this.sharers.clear();
+    }
+}
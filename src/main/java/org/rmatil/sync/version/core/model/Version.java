@@ -1,28 +1,243 @@
 package org.rmatil.sync.version.core.model;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.rmatil.sync.commons.hashing.Hash;
+import org.rmatil.sync.version.config.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * The version of a certain PathObject.
  * This class is immutable to guarantee equality
  * while comparing two versions where one
  * was read from a third party source (e.g. external storage adapter).
+ * <p>
+ * Versions of large files may additionally list the content-defined chunks
+ * of the file. Since the chunks are derived from the content, they are not
+ * considered for equality. Neither is the time at which the version was created,
+ * which is only used to decide which versions are retained locally.
+ * <p>
+ * Versions created since parents are tracked reference the ids of the versions
+ * they are based on, forming a directed acyclic graph of the history. The id of a version
+ * is derived from its hash and its parents, so that the same change on two clients results
+ * in the same id, while reverting to an earlier content does not.
  *
  * @see org.rmatil.sync.version.core.VersionManager#removeVersion(Version, String) Used in VersionManager to remove the version from the list of stored ones
  */
 public final class Version {
 
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Version.class, new PathObject.VersionSerializer())
+            .create();
+
     private final String hash;
 
+    /**
+     * The chunks of the file, null if the version is not chunked
+     */
+    private final List<Chunk> chunks;
+
+    /**
+     * The milliseconds since the epoch at which the version was created, 0 if unknown
+     */
+    private final long timestamp;
+
+    /**
+     * The ids of the versions this version is based on, null if not tracked
+     */
+    private final List<String> parents;
+
+    /**
+     * The id derived from the hash and the parents, null if the parents are not tracked
+     */
+    private final String id;
+
     public Version(String hash) {
+        this(hash, null);
+    }
+
+    /**
+     * @param hash   The hash of the whole file
+     * @param chunks The chunks of the file in the order of their offset. May be null
+     */
+    public Version(String hash, List<Chunk> chunks) {
+        this(hash, chunks, 0L);
+    }
+
+    /**
+     * @param hash      The hash of the whole file
+     * @param chunks    The chunks of the file in the order of their offset. May be null
+     * @param timestamp The milliseconds since the epoch at which the version was created, 0 if unknown
+     */
+    public Version(String hash, List<Chunk> chunks, long timestamp) {
+        this(hash, chunks, timestamp, null);
+    }
+
+    /**
+     * @param hash      The hash of the whole file
+     * @param chunks    The chunks of the file in the order of their offset. May be null
+     * @param timestamp The milliseconds since the epoch at which the version was created, 0 if unknown
+     * @param parents   The ids of the versions this version is based on, empty for the first version. Null if not tracked
+     */
+    public Version(String hash, List<Chunk> chunks, long timestamp, List<String> parents) {
         this.hash = hash;
+        this.chunks = (null == chunks) ? null : Collections.unmodifiableList(new ArrayList<>(chunks));
+        this.timestamp = timestamp;
+        this.parents = (null == parents) ? null : Collections.unmodifiableList(new ArrayList<>(parents));
+        this.id = (null == parents) ? null : computeId(hash, parents);
     }
 
     public String getHash() {
         return hash;
     }
 
+    /**
+     * Returns the chunks of the file
+     *
+     * @return The chunks in the order of their offset or null, if the version is not chunked
+     */
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    public boolean isChunked() {
+        return null != chunks;
+    }
+
+    /**
+     * Returns the time at which the version was created
+     *
+     * @return The milliseconds since the epoch or 0, if unknown
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the ids of the versions this version is based on
+     *
+     * @return The ids of the parents, empty for the first version of a path. Null if not tracked
+     */
+    public List<String> getParents() {
+        return parents;
+    }
+
+    /**
+     * Returns the id of this version, derived from its hash and its parents
+     *
+     * @return The id or null, if the parents are not tracked
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns this version based on the given versions, if its parents are not known yet
+     *
+     * @param parents The ids of the versions this version is based on, empty for the first version
+     *
+     * @return This version, if its parents are known. A copy having the given parents otherwise
+     */
+    public Version withParentsIfUnknown(List<String> parents) {
+        if (null != this.parents) {
+            return this;
+        }
+
+        return new Version(hash, chunks, timestamp, parents);
+    }
+
+    /**
+     * Computes the id of a version having the given hash and parents
+     *
+     * @param hash    The hash of the whole file
+     * @param parents The ids of the parents
+     *
+     * @return The id
+     */
+    public static String computeId(String hash, List<String> parents) {
+        StringBuilder content = new StringBuilder(String.valueOf(hash));
+        for (String parent : parents) {
+            content.append('\n').append(parent);
+        }
+
+        return Hash.hash(Config.DEFAULT.getHashingAlgorithm(), content.toString());
+    }
+
+    /**
+     * Returns this version created at the given time, if its creation time is not known yet
+     *
+     * @param timestamp The milliseconds since the epoch at which the version was created
+     *
+     * @return This version, if its creation time is known. A copy having the given timestamp otherwise
+     */
+    public Version withTimestampIfUnknown(long timestamp) {
+        if (0L != this.timestamp) {
+            return this;
+        }
+
+        return new Version(hash, chunks, timestamp, parents);
+    }
+
+    /**
+     * Returns the chunks of this version whose content is not
+     * contained in the given version, i.e. the chunks to transfer
+     * to a client having the given version
+     *
+     * @param other The version to compare with. May be null
+     *
+     * @return The chunks having a hash not contained in the other version. All chunks, if the other version is not chunked
+     */
+    public List<Chunk> getChunksNotIn(Version other) {
+        if (null == chunks) {
+            return Collections.emptyList();
+        }
+
+        if (null == other || ! other.isChunked()) {
+            return chunks;
+        }
+
+        Set<String> otherHashes = new HashSet<>();
+        for (Chunk chunk : other.getChunks()) {
+            otherHashes.add(chunk.getHash());
+        }
+
+        List<Chunk> missingChunks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (! otherHashes.contains(chunk.getHash())) {
+                missingChunks.add(chunk);
+            }
+        }
+
+        return missingChunks;
+    }
+
+    /**
+     * Converts this version to a compact JSON representation on a single line
+     *
+     * @return A JSON string
+     */
+    public String toJson() {
+        return gson.toJson(this, Version.class);
+    }
+
+    /**
+     * Creates a version from its JSON representation
+     *
+     * @param json The json string
+     *
+     * @return The version created of it
+     */
+    public static Version fromJson(String json) {
+        return gson.fromJson(json, Version.class);
+    }
+
     @Override
     public int hashCode() {
         // http://stackoverflow.com/questions/27581/what-issues-should-be-considered-when-overriding-equals-and-hashcode-in-java
@@ -0,0 +1,141 @@
+package org.rmatil.sync.version.core.model;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.rmatil.sync.version.api.VectorOrdering;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The version vector of a path object, counting the changes
+ * each client made to the path, i.e. to its versions, its delete state or its sharers.
+ * <p>
+ * Comparing two vectors tells whether one client has seen all changes of the other
+ * or whether both changed the path concurrently, in time linear to the number of clients
+ * which ever changed the path, regardless of the length of its histories.
+ */
+public class VersionVector {
+
+    /**
+     * The number of changes per client id
+     */
+    protected SortedMap<String, Long> counters;
+
+    public VersionVector() {
+        this.counters = new TreeMap<>();
+    }
+
+    /**
+     * @param counters The number of changes per client id
+     */
+    public VersionVector(Map<String, Long> counters) {
+        this.counters = new TreeMap<>(counters);
+    }
+
+    /**
+     * Returns the number of changes the given client made
+     *
+     * @param clientId The id of the client
+     *
+     * @return The number of changes, 0 if none
+     */
+    public long get(String clientId) {
+        Long counter = this.counters.get(clientId);
+
+        return (null == counter) ? 0L : counter;
+    }
+
+    /**
+     * Counts another change of the given client
+     *
+     * @param clientId The id of the client
+     */
+    public void increment(String clientId) {
+        this.counters.put(clientId, this.get(clientId) + 1L);
+    }
+
+    /**
+     * Adds all changes of the other vector, i.e. takes the maximum of both counters per client
+     *
+     * @param other The other vector
+     */
+    public void merge(VersionVector other) {
+        for (Map.Entry<String, Long> entry : other.counters.entrySet()) {
+            if (entry.getValue() > this.get(entry.getKey())) {
+                this.counters.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Compares this vector to the other one
+     *
+     * @param other The other vector
+     *
+     * @return The ordering of this vector relative to the other one
+     */
+    public VectorOrdering compare(VersionVector other) {
+        boolean hasNewer = false;
+        boolean hasOlder = false;
+
+        for (Map.Entry<String, Long> entry : this.counters.entrySet()) {
+            long otherCounter = other.get(entry.getKey());
+            hasNewer |= entry.getValue() > otherCounter;
+            hasOlder |= entry.getValue() < otherCounter;
+        }
+
+        for (Map.Entry<String, Long> entry : other.counters.entrySet()) {
+            hasOlder |= ! this.counters.containsKey(entry.getKey()) && entry.getValue() > 0L;
+        }
+
+        if (hasNewer && hasOlder) {
+            return VectorOrdering.CONCURRENT;
+        } else if (hasNewer) {
+            return VectorOrdering.AFTER;
+        } else if (hasOlder) {
+            return VectorOrdering.BEFORE;
+        }
+
+        return VectorOrdering.EQUAL;
+    }
+
+    /**
+     * Returns whether no change was counted yet, e.g. since the path
+     * has not been changed since version vectors are kept
+     *
+     * @return True, if empty
+     */
+    public boolean isEmpty() {
+        return this.counters.isEmpty();
+    }
+
+    /**
+     * Returns the number of changes per client id
+     *
+     * @return The counters
+     */
+    public Map<String, Long> getCounters() {
+        return Collections.unmodifiableMap(this.counters);
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(17, 31).append(counters).toHashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (! (obj instanceof VersionVector)) {
+            return false;
+        }
+        if (obj == this) {
+            return true;
+        }
+
+        VersionVector rhs = (VersionVector) obj;
+        return new EqualsBuilder().append(counters, rhs.counters).isEquals();
+    }
+}
@@ -0,0 +1,35 @@
+package org.rmatil.sync.version.core.retention;
+
+import org.rmatil.sync.version.api.IRetentionPolicy;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the latest versions of each path up to a fixed number
+ */
+public class KeepLastRetentionPolicy implements IRetentionPolicy {
+
+    protected int maxVersions;
+
+    /**
+     * @param maxVersions The number of latest versions to keep, at least one
+     */
+    public KeepLastRetentionPolicy(int maxVersions) {
+        if (maxVersions < 1) {
+            throw new IllegalArgumentException("At least one version must be kept");
+        }
+
+        this.maxVersions = maxVersions;
+    }
+
+    @Override
+    public List<Version> retain(List<Version> versions, long now) {
+        if (versions.size() <= this.maxVersions) {
+            return versions;
+        }
+
+        return new ArrayList<>(versions.subList(versions.size() - this.maxVersions, versions.size()));
+    }
+}
@@ -0,0 +1,40 @@
+package org.rmatil.sync.version.core.retention;
+
+import org.rmatil.sync.version.api.IRetentionPolicy;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the versions created within a time window and the latest version.
+ * Versions of which the creation time is unknown are kept, since they
+ * were recorded before creation times were tracked.
+ */
+public class MaxAgeRetentionPolicy implements IRetentionPolicy {
+
+    protected long maxAgeMillis;
+
+    /**
+     * @param maxAge The maximal age of versions to keep
+     * @param unit   The unit of the maximal age
+     */
+    public MaxAgeRetentionPolicy(long maxAge, TimeUnit unit) {
+        this.maxAgeMillis = unit.toMillis(maxAge);
+    }
+
+    @Override
+    public List<Version> retain(List<Version> versions, long now) {
+        List<Version> retained = new ArrayList<>(versions.size());
+
+        for (int i = 0; i < versions.size(); i++) {
+            Version version = versions.get(i);
+            if (i == versions.size() - 1 || 0L == version.getTimestamp() || now - version.getTimestamp() <= this.maxAgeMillis) {
+                retained.add(version);
+            }
+        }
+
+        return (retained.size() == versions.size()) ? versions : retained;
+    }
+}
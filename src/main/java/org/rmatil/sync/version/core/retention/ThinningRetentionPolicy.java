@@ -0,0 +1,134 @@
+package org.rmatil.sync.version.core.retention;
+
+import org.rmatil.sync.version.api.IRetentionPolicy;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thins out the history the older its versions get: Of all versions
+ * within the same interval, only the latest one is kept. The length of the
+ * interval depends on the age of the versions, e.g. one version per hour
+ * for the last day, one per day for the last month and one per week before.
+ * <p>
+ * The latest version and versions of which the creation time is unknown are always kept.
+ */
+public class ThinningRetentionPolicy implements IRetentionPolicy {
+
+    /**
+     * The tiers ordered by their maximal age
+     */
+    protected List<Tier> tiers;
+
+    /**
+     * @param tiers The tiers of which the one with the smallest sufficient maximal age
+     *              applies to a version. Versions older than all tiers use the last tier
+     */
+    public ThinningRetentionPolicy(List<Tier> tiers) {
+        if (tiers.isEmpty()) {
+            throw new IllegalArgumentException("At least one tier is required");
+        }
+
+        this.tiers = new ArrayList<>(tiers);
+        this.tiers.sort(Comparator.comparingLong(Tier::getMaxAgeMillis));
+    }
+
+    /**
+     * Creates a policy keeping all versions of the last hour, one version per hour
+     * of the last day, one per day of the last month and one per week before
+     *
+     * @return The policy
+     */
+    public static ThinningRetentionPolicy hourlyDailyWeekly() {
+        return new ThinningRetentionPolicy(Arrays.asList(
+                new Tier(1L, TimeUnit.HOURS, 0L, TimeUnit.MILLISECONDS),
+                new Tier(1L, TimeUnit.DAYS, 1L, TimeUnit.HOURS),
+                new Tier(30L, TimeUnit.DAYS, 1L, TimeUnit.DAYS),
+                new Tier(Long.MAX_VALUE, TimeUnit.MILLISECONDS, 7L, TimeUnit.DAYS)
+        ));
+    }
+
+    @Override
+    public List<Version> retain(List<Version> versions, long now) {
+        // the interval of each tier in which a version has been kept already
+        Map<Tier, Long> keptIntervals = new HashMap<>();
+        boolean[] keep = new boolean[versions.size()];
+        int kept = 0;
+
+        // visit the latest versions first, so that the latest of each interval is kept
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            Version version = versions.get(i);
+
+            if (i == versions.size() - 1 || 0L == version.getTimestamp()) {
+                keep[i] = true;
+            } else {
+                Tier tier = this.getTier(now - version.getTimestamp());
+                if (0L == tier.getIntervalMillis()) {
+                    keep[i] = true;
+                } else {
+                    long interval = Math.floorDiv(version.getTimestamp(), tier.getIntervalMillis());
+                    Long keptInterval = keptIntervals.get(tier);
+                    keep[i] = null == keptInterval || keptInterval != interval;
+                    keptIntervals.put(tier, interval);
+                }
+            }
+
+            if (keep[i]) {
+                kept++;
+            }
+        }
+
+        if (kept == versions.size()) {
+            return versions;
+        }
+
+        List<Version> retained = new ArrayList<>(kept);
+        for (int i = 0; i < versions.size(); i++) {
+            if (keep[i]) {
+                retained.add(versions.get(i));
+            }
+        }
+
+        return retained;
+    }
+
+    protected Tier getTier(long ageMillis) {
+        for (Tier tier : this.tiers) {
+            if (ageMillis <= tier.getMaxAgeMillis()) {
+                return tier;
+            }
+        }
+
+        return this.tiers.get(this.tiers.size() - 1);
+    }
+
+    /**
+     * Versions up to a maximal age of which one is kept per interval
+     */
+    public static class Tier {
+
+        protected final long maxAgeMillis;
+
+        protected final long intervalMillis;
+
+        /**
+         * @param maxAge       The maximal age of the versions to which the tier applies
+         * @param maxAgeUnit   The unit of the maximal age
+         * @param interval     The length of the intervals of which one version is kept. 0 to keep all versions
+         * @param intervalUnit The unit of the interval
+         */
+        public Tier(long maxAge, TimeUnit maxAgeUnit, long interval, TimeUnit intervalUnit) {
+            this.maxAgeMillis = maxAgeUnit.toMillis(maxAge);
+            this.intervalMillis = intervalUnit.toMillis(interval);
+        }
+
+        public long getMaxAgeMillis() {
+            return maxAgeMillis;
+        }
+
+        public long getIntervalMillis() {
+            return intervalMillis;
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package org.rmatil.sync.version.core.storage;
+
+import org.rmatil.sync.persistence.api.IFileMetaInfo;
+import org.rmatil.sync.persistence.api.StorageType;
+import org.rmatil.sync.persistence.core.FileMetaInfo;
+import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
+import org.rmatil.sync.persistence.core.tree.TreePathElement;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A tree storage adapter keeping all files and directories in memory.
+ * <p>
+ * Contents are either held on the heap or in direct (off-heap) buffers.
+ * The adapter behaves like a storage adapter on the local disk, i.e.
+ * files and directories can only be created if their parent directory exists
+ * and deleting a directory removes all its contents.
+ * <p>
+ * All persist, read, exists and delete operations as well as the
+ * transferred bytes are counted, which allows to assert the I/O caused by
+ * an operation of the object store. Optionally, a {@link LatencyProfile}
+ * delays each operation to simulate slower storage.
+ * <p>
+ * Note, that {@link org.rmatil.sync.version.core.ObjectStore#sync()} hashes
+ * the contents of the synchronized folder directly on the disk. This adapter
+ * is therefore meant to hold the object store, the synchronized folder
+ * may only be held in memory if the object store is not synced.
+ */
+public class InMemoryStorageAdapter implements ITreeStorageAdapter {
+
+    protected static final String ROOT = "";
+
+    protected final String rootDir;
+
+    protected final boolean offHeap;
+
+    protected final LatencyProfile latencyProfile;
+
+    /**
+     * All directories and files, mapped to their contents.
+     * Directories map to null. Sorted to find the contents
+     * of a directory by their common prefix
+     */
+    protected final NavigableMap<String, ByteBuffer> entries = new TreeMap<>();
+
+    protected final AtomicLong persistOps = new AtomicLong();
+
+    protected final AtomicLong readOps = new AtomicLong();
+
+    protected final AtomicLong existsOps = new AtomicLong();
+
+    protected final AtomicLong deleteOps = new AtomicLong();
+
+    protected final AtomicLong bytesWritten = new AtomicLong();
+
+    protected final AtomicLong bytesRead = new AtomicLong();
+
+    /**
+     * Creates an adapter holding its contents on the heap
+     * without simulating any latency
+     */
+    public InMemoryStorageAdapter() {
+        this("/", false, LatencyProfile.NONE);
+    }
+
+    /**
+     * @param rootDir        The path returned as root directory of this adapter
+     * @param offHeap        Whether file contents are stored in direct buffers outside of the heap
+     * @param latencyProfile The latency to simulate for each operation
+     */
+    public InMemoryStorageAdapter(String rootDir, boolean offHeap, LatencyProfile latencyProfile) {
+        this.rootDir = rootDir;
+        this.offHeap = offHeap;
+        this.latencyProfile = latencyProfile;
+    }
+
+    @Override
+    public void persist(StorageType type, TreePathElement path, byte[] bytes)
+            throws InputOutputException {
+        int length = (null == bytes) ? 0 : bytes.length;
+
+        this.persistOps.incrementAndGet();
+        this.bytesWritten.addAndGet(length);
+        this.simulate(this.latencyProfile.getWriteDelay(length));
+
+        String key = this.normalize(path);
+
+        synchronized (this.entries) {
+            this.checkParentExists(key);
+
+            if (StorageType.DIRECTORY == type) {
+                if (this.entries.containsKey(key) && ! this.isDirectory(key)) {
+                    throw new InputOutputException("Can not create directory " + path.getPath() + ": A file with the same name exists");
+                }
+
+                if (! ROOT.equals(key)) {
+                    this.entries.put(key, null);
+                }
+                return;
+            }
+
+            if (this.isDirectory(key)) {
+                throw new InputOutputException("Can not write file " + path.getPath() + ": Is a directory");
+            }
+
+            ByteBuffer content = this.allocate(length);
+            if (null != bytes) {
+                content.put(bytes);
+                content.flip();
+            }
+
+            this.entries.put(key, content);
+        }
+    }
+
+    @Override
+    public void persist(StorageType type, TreePathElement path, long offset, byte[] bytes)
+            throws InputOutputException {
+        if (StorageType.DIRECTORY == type) {
+            this.persist(type, path, bytes);
+            return;
+        }
+
+        if (offset < 0 || offset > Integer.MAX_VALUE) {
+            throw new InputOutputException("Invalid offset " + offset + " for " + path.getPath());
+        }
+
+        int length = (null == bytes) ? 0 : bytes.length;
+
+        this.persistOps.incrementAndGet();
+        this.bytesWritten.addAndGet(length);
+        this.simulate(this.latencyProfile.getWriteDelay(length));
+
+        String key = this.normalize(path);
+
+        synchronized (this.entries) {
+            this.checkParentExists(key);
+
+            if (this.isDirectory(key)) {
+                throw new InputOutputException("Can not write file " + path.getPath() + ": Is a directory");
+            }
+
+            ByteBuffer existing = this.entries.get(key);
+            int existingLength = (null == existing) ? 0 : existing.limit();
+            int newLength = Math.max(existingLength, (int) offset + length);
+
+            ByteBuffer content = existing;
+            if (null == existing || newLength > existing.capacity()) {
+                content = this.allocate(newLength);
+                if (null != existing) {
+                    content.put(existing.duplicate());
+                }
+            }
+
+            content.limit(newLength);
+            if (null != bytes) {
+                content.position((int) offset);
+                content.put(bytes);
+            }
+            content.position(0);
+
+            this.entries.put(key, content);
+        }
+    }
+
+    @Override
+    public void delete(TreePathElement path)
+            throws InputOutputException {
+        this.deleteOps.incrementAndGet();
+        this.simulate(this.latencyProfile.getMetadataDelay());
+
+        String key = this.normalize(path);
+
+        synchronized (this.entries) {
+            if (ROOT.equals(key)) {
+                this.entries.clear();
+                return;
+            }
+
+            if (! this.entries.containsKey(key)) {
+                throw new InputOutputException("Can not delete " + path.getPath() + ": No such file or directory");
+            }
+
+            if (this.isDirectory(key)) {
+                this.getChildEntries(key).clear();
+            }
+
+            this.entries.remove(key);
+        }
+    }
+
+    @Override
+    public byte[] read(TreePathElement path)
+            throws InputOutputException {
+        return this.read(path, 0L, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public byte[] read(TreePathElement path, long offset, int length)
+            throws InputOutputException {
+        this.readOps.incrementAndGet();
+
+        String key = this.normalize(path);
+
+        byte[] bytes;
+        synchronized (this.entries) {
+            ByteBuffer content = this.getFile(key, path);
+
+            int start = (int) Math.min(Math.max(offset, 0L), content.limit());
+            int size = Math.min(length, content.limit() - start);
+
+            ByteBuffer slice = content.duplicate();
+            slice.position(start);
+            bytes = new byte[size];
+            slice.get(bytes);
+        }
+
+        this.bytesRead.addAndGet(bytes.length);
+        this.simulate(this.latencyProfile.getReadDelay(bytes.length));
+
+        return bytes;
+    }
+
+    @Override
+    public void move(StorageType type, TreePathElement oldPath, TreePathElement newPath)
+            throws InputOutputException {
+        this.simulate(this.latencyProfile.getMetadataDelay());
+
+        String oldKey = this.normalize(oldPath);
+        String newKey = this.normalize(newPath);
+
+        synchronized (this.entries) {
+            if (! this.entries.containsKey(oldKey)) {
+                throw new InputOutputException("Can not move " + oldPath.getPath() + ": No such file or directory");
+            }
+
+            if (this.entries.containsKey(newKey)) {
+                throw new InputOutputException("Can not move " + oldPath.getPath() + " to " + newPath.getPath() + ": Target exists");
+            }
+
+            this.checkParentExists(newKey);
+
+            if (this.isDirectory(oldKey)) {
+                NavigableMap<String, ByteBuffer> children = this.getChildEntries(oldKey);
+                NavigableMap<String, ByteBuffer> moved = new TreeMap<>();
+                for (Map.Entry<String, ByteBuffer> child : children.entrySet()) {
+                    moved.put(newKey + child.getKey().substring(oldKey.length()), child.getValue());
+                }
+
+                children.clear();
+                this.entries.putAll(moved);
+            }
+
+            this.entries.put(newKey, this.entries.remove(oldKey));
+        }
+    }
+
+    @Override
+    public IFileMetaInfo getMetaInformation(TreePathElement path)
+            throws InputOutputException {
+        this.simulate(this.latencyProfile.getMetadataDelay());
+
+        String key = this.normalize(path);
+
+        synchronized (this.entries) {
+            if (! this.entries.containsKey(key)) {
+                throw new InputOutputException("Can not get meta information of " + path.getPath() + ": No such file or directory");
+            }
+
+            if (this.isDirectory(key)) {
+                return new FileMetaInfo(0L, false, true, "");
+            }
+
+            String name = key.substring(key.lastIndexOf('/') + 1);
+            int extensionIdx = name.lastIndexOf('.');
+            String extension = (extensionIdx > 0) ? name.substring(extensionIdx + 1) : "";
+
+            return new FileMetaInfo(this.entries.get(key).limit(), true, false, extension);
+        }
+    }
+
+    @Override
+    public boolean exists(StorageType type, TreePathElement path)
+            throws InputOutputException {
+        this.existsOps.incrementAndGet();
+        this.simulate(this.latencyProfile.getMetadataDelay());
+
+        return (StorageType.DIRECTORY == type) ? this.isDir(path) : this.isFile(path);
+    }
+
+    @Override
+    public String getChecksum(TreePathElement path)
+            throws InputOutputException {
+        byte[] content = this.read(path);
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new InputOutputException(e);
+        }
+    }
+
+    @Override
+    public TreePathElement getRootDir() {
+        return new TreePathElement(this.rootDir);
+    }
+
+    @Override
+    public boolean isFile(TreePathElement path)
+            throws InputOutputException {
+        String key = this.normalize(path);
+
+        synchronized (this.entries) {
+            return this.entries.containsKey(key) && ! this.isDirectory(key);
+        }
+    }
+
+    @Override
+    public boolean isDir(TreePathElement path)
+            throws InputOutputException {
+        String key = this.normalize(path);
+
+        synchronized (this.entries) {
+            return this.isDirectory(key);
+        }
+    }
+
+    /**
+     * Returns all files and directories contained in the given directory,
+     * including the contents of its subdirectories
+     *
+     * @param directory The directory of which to get the contents
+     *
+     * @return The contents, relative to the root of this adapter
+     *
+     * @throws InputOutputException If the given path is not a directory
+     */
+    @Override
+    public List<TreePathElement> getDirectoryContents(TreePathElement directory)
+            throws InputOutputException {
+        this.simulate(this.latencyProfile.getMetadataDelay());
+
+        String key = this.normalize(directory);
+
+        synchronized (this.entries) {
+            if (! this.isDirectory(key)) {
+                throw new InputOutputException("Can not list " + directory.getPath() + ": Not a directory");
+            }
+
+            List<TreePathElement> contents = new ArrayList<>();
+            for (String child : this.getChildEntries(key).keySet()) {
+                contents.add(new TreePathElement(child));
+            }
+
+            return contents;
+        }
+    }
+
+    /**
+     * Removes all files and directories
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * Returns the number of bytes stored in all files
+     *
+     * @return The total size of all files
+     */
+    public long getSize() {
+        long size = 0L;
+        synchronized (this.entries) {
+            for (ByteBuffer content : this.entries.values()) {
+                if (null != content) {
+                    size += content.limit();
+                }
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Resets all operation and byte counters to zero
+     */
+    public void resetStatistics() {
+        this.persistOps.set(0L);
+        this.readOps.set(0L);
+        this.existsOps.set(0L);
+        this.deleteOps.set(0L);
+        this.bytesWritten.set(0L);
+        this.bytesRead.set(0L);
+    }
+
+    public long getPersistOps() {
+        return this.persistOps.get();
+    }
+
+    public long getReadOps() {
+        return this.readOps.get();
+    }
+
+    public long getExistsOps() {
+        return this.existsOps.get();
+    }
+
+    public long getDeleteOps() {
+        return this.deleteOps.get();
+    }
+
+    public long getBytesWritten() {
+        return this.bytesWritten.get();
+    }
+
+    public long getBytesRead() {
+        return this.bytesRead.get();
+    }
+
+    /**
+     * Removes leading and trailing slashes, so that
+     * <i>/myDir/</i> and <i>myDir</i> denote the same directory
+     * and the empty string denotes the root
+     *
+     * @param path The path to normalize
+     *
+     * @return The normalized path
+     */
+    protected String normalize(TreePathElement path) {
+        String key = path.getPath();
+
+        int start = 0;
+        int end = key.length();
+        while (start < end && '/' == key.charAt(start)) {
+            start++;
+        }
+
+        while (end > start && '/' == key.charAt(end - 1)) {
+            end--;
+        }
+
+        key = key.substring(start, end);
+
+        return ".".equals(key) ? ROOT : key;
+    }
+
+    protected boolean isDirectory(String key) {
+        return ROOT.equals(key) || (this.entries.containsKey(key) && null == this.entries.get(key));
+    }
+
+    protected ByteBuffer getFile(String key, TreePathElement path)
+            throws InputOutputException {
+        if (! this.entries.containsKey(key)) {
+            throw new InputOutputException("Can not read " + path.getPath() + ": No such file or directory");
+        }
+
+        ByteBuffer content = this.entries.get(key);
+        if (null == content) {
+            throw new InputOutputException("Can not read " + path.getPath() + ": Is a directory");
+        }
+
+        return content;
+    }
+
+    protected void checkParentExists(String key)
+            throws InputOutputException {
+        if (ROOT.equals(key)) {
+            return;
+        }
+
+        int idx = key.lastIndexOf('/');
+        String parent = (- 1 == idx) ? ROOT : key.substring(0, idx);
+
+        if (! this.isDirectory(parent)) {
+            throw new InputOutputException("Can not create " + key + ": Parent directory " + parent + " does not exist");
+        }
+    }
+
+    /**
+     * Returns a view of all entries below the given directory
+     *
+     * @param key The normalized path of the directory
+     *
+     * @return The entries in the directory and all its subdirectories
+     */
+    protected NavigableMap<String, ByteBuffer> getChildEntries(String key) {
+        if (ROOT.equals(key)) {
+            return this.entries;
+        }
+
+        // '0' is the character following '/'
+        return this.entries.subMap(key + "/", true, key + "0", false);
+    }
+
+    protected ByteBuffer allocate(int capacity) {
+        return this.offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    protected void simulate(long delayNanos) {
+        if (delayNanos <= 0L) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + delayNanos;
+        long remaining = delayNanos;
+        while (remaining > 0L) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
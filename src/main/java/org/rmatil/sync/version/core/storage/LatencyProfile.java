@@ -0,0 +1,84 @@
+package org.rmatil.sync.version.core.storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes the latency an {@link InMemoryStorageAdapter} should simulate
+ * for its operations, e.g. to approximate a spinning disk or a network share.
+ * <p>
+ * Each operation is delayed by a fixed latency depending on its kind.
+ * Reads and writes are additionally delayed by the time needed to
+ * transfer their bytes with the configured bandwidth.
+ */
+public class LatencyProfile {
+
+    /**
+     * A profile which does not delay any operation
+     */
+    public static final LatencyProfile NONE = new LatencyProfile(0L, 0L, 0L, 0L, TimeUnit.NANOSECONDS);
+
+    protected long readLatencyNanos;
+
+    protected long writeLatencyNanos;
+
+    protected long metadataLatencyNanos;
+
+    protected long bytesPerSecond;
+
+    /**
+     * @param readLatency     The fixed latency of a read
+     * @param writeLatency    The fixed latency of a write
+     * @param metadataLatency The fixed latency of an operation not transferring any content, e.g. exists or delete
+     * @param bytesPerSecond  The bandwidth with which content is transferred. Zero for an unlimited bandwidth
+     * @param unit            The unit of the given latencies
+     */
+    public LatencyProfile(long readLatency, long writeLatency, long metadataLatency, long bytesPerSecond, TimeUnit unit) {
+        if (readLatency < 0 || writeLatency < 0 || metadataLatency < 0 || bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Latencies and bandwidth must not be negative");
+        }
+
+        this.readLatencyNanos = unit.toNanos(readLatency);
+        this.writeLatencyNanos = unit.toNanos(writeLatency);
+        this.metadataLatencyNanos = unit.toNanos(metadataLatency);
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Returns the delay of reading the given amount of bytes
+     *
+     * @param bytes The number of bytes read
+     *
+     * @return The delay in nanoseconds
+     */
+    public long getReadDelay(long bytes) {
+        return this.readLatencyNanos + this.getTransferDelay(bytes);
+    }
+
+    /**
+     * Returns the delay of writing the given amount of bytes
+     *
+     * @param bytes The number of bytes written
+     *
+     * @return The delay in nanoseconds
+     */
+    public long getWriteDelay(long bytes) {
+        return this.writeLatencyNanos + this.getTransferDelay(bytes);
+    }
+
+    /**
+     * Returns the delay of an operation which does not transfer any content
+     *
+     * @return The delay in nanoseconds
+     */
+    public long getMetadataDelay() {
+        return this.metadataLatencyNanos;
+    }
+
+    protected long getTransferDelay(long bytes) {
+        if (0L == this.bytesPerSecond) {
+            return 0L;
+        }
+
+        return bytes * TimeUnit.SECONDS.toNanos(1L) / this.bytesPerSecond;
+    }
+}
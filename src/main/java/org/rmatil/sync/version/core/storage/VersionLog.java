@@ -0,0 +1,219 @@
+package org.rmatil.sync.version.core.storage;
+
+import org.rmatil.sync.persistence.api.StorageType;
+import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
+import org.rmatil.sync.persistence.core.tree.TreePathElement;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The append-only log of the versions of a single path object, stored next to its header.
+ * <p>
+ * The log consists of two files: The records file contains each version as a line of JSON,
+ * the offsets file the end offset of each record in the records file as 8 byte big-endian value.
+ * The number of versions is hence given by the size of the offsets file, and any page of versions
+ * is read by two ranged reads. Appending a version writes its record after the end of the last one
+ * and only then its offset, so that a partially appended record is ignored and overwritten later on.
+ */
+public class VersionLog {
+
+    /**
+     * The file extension of the records file
+     */
+    public static final String RECORDS_EXTENSION = ".versions";
+
+    /**
+     * The file extension of the offsets file
+     */
+    public static final String OFFSETS_EXTENSION = ".offsets";
+
+    protected static final int OFFSET_BYTES = 8;
+
+    protected ITreeStorageAdapter storageAdapter;
+
+    protected TreePathElement recordsPath;
+
+    protected TreePathElement offsetsPath;
+
+    /**
+     * @param storageAdapter The storage adapter having the object store as root
+     * @param basePath       The path of the log files without their extension
+     */
+    public VersionLog(ITreeStorageAdapter storageAdapter, String basePath) {
+        this.storageAdapter = storageAdapter;
+        this.recordsPath = new TreePathElement(basePath + RECORDS_EXTENSION);
+        this.offsetsPath = new TreePathElement(basePath + OFFSETS_EXTENSION);
+    }
+
+    /**
+     * Returns whether the log has been written
+     *
+     * @return True, if the log exists
+     *
+     * @throws InputOutputException If accessing the storage fails
+     */
+    public boolean exists()
+            throws InputOutputException {
+        return this.storageAdapter.exists(StorageType.FILE, this.offsetsPath);
+    }
+
+    /**
+     * Returns the number of versions in the log
+     *
+     * @return The number of versions, 0 if the log does not exist
+     *
+     * @throws InputOutputException If accessing the storage fails
+     */
+    public int size()
+            throws InputOutputException {
+        if (! this.exists()) {
+            return 0;
+        }
+
+        return (int) (this.storageAdapter.getMetaInformation(this.offsetsPath).getTotalFileSize() / OFFSET_BYTES);
+    }
+
+    /**
+     * Replaces all versions of the log
+     *
+     * @param versions The versions from the oldest to the latest
+     *
+     * @return The number of written bytes
+     *
+     * @throws InputOutputException If writing fails
+     */
+    public int write(List<Version> versions)
+            throws InputOutputException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        ByteBuffer offsets = ByteBuffer.allocate(versions.size() * OFFSET_BYTES);
+
+        for (Version version : versions) {
+            byte[] record = toRecord(version);
+            records.write(record, 0, record.length);
+            offsets.putLong(records.size());
+        }
+
+        byte[] recordBytes = records.toByteArray();
+        this.storageAdapter.persist(StorageType.FILE, this.recordsPath, recordBytes);
+        this.storageAdapter.persist(StorageType.FILE, this.offsetsPath, offsets.array());
+
+        return recordBytes.length + offsets.capacity();
+    }
+
+    /**
+     * Appends the given version to the log
+     *
+     * @param version The version to append
+     *
+     * @return The number of written bytes
+     *
+     * @throws InputOutputException If writing fails
+     */
+    public int append(Version version)
+            throws InputOutputException {
+        int size = this.size();
+        long end = (0 == size) ? 0L : this.readOffsets(size - 1, 1)[0];
+
+        byte[] record = toRecord(version);
+        byte[] offset = ByteBuffer.allocate(OFFSET_BYTES).putLong(end + record.length).array();
+
+        this.storageAdapter.persist(StorageType.FILE, this.recordsPath, end, record);
+        this.storageAdapter.persist(StorageType.FILE, this.offsetsPath, (long) size * OFFSET_BYTES, offset);
+
+        return record.length + offset.length;
+    }
+
+    /**
+     * Reads all versions of the log
+     *
+     * @return The versions from the oldest to the latest, empty if the log does not exist
+     *
+     * @throws InputOutputException If reading fails
+     */
+    public List<Version> read()
+            throws InputOutputException {
+        return this.read(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads a page of versions of the log
+     *
+     * @param offset The index of the first version to read
+     * @param limit  The maximal number of versions to read
+     *
+     * @return The versions from the oldest to the latest, empty if the offset is beyond the last version
+     *
+     * @throws InputOutputException If reading fails
+     */
+    public List<Version> read(int offset, int limit)
+            throws InputOutputException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+
+        int size = this.size();
+        if (offset >= size || 0 == limit) {
+            return Collections.emptyList();
+        }
+
+        int count = (int) Math.min(limit, (long) size - offset);
+
+        // the end of the record before the first one is its start
+        long[] offsets = (0 == offset) ? this.readOffsets(0, count) : this.readOffsets(offset - 1, count + 1);
+        long start = (0 == offset) ? 0L : offsets[0];
+        long end = offsets[offsets.length - 1];
+
+        byte[] records = this.storageAdapter.read(this.recordsPath, start, (int) (end - start));
+
+        List<Version> versions = new ArrayList<>(count);
+        int recordStart = 0;
+        for (int i = offsets.length - count; i < offsets.length; i++) {
+            int recordEnd = (int) (offsets[i] - start);
+            // omit the line break terminating the record
+            versions.add(Version.fromJson(new String(records, recordStart, recordEnd - recordStart - 1, StandardCharsets.UTF_8)));
+            recordStart = recordEnd;
+        }
+
+        return versions;
+    }
+
+    /**
+     * Deletes the files of the log, if they exist
+     *
+     * @throws InputOutputException If deleting fails
+     */
+    public void delete()
+            throws InputOutputException {
+        if (this.storageAdapter.exists(StorageType.FILE, this.recordsPath)) {
+            this.storageAdapter.delete(this.recordsPath);
+        }
+
+        if (this.storageAdapter.exists(StorageType.FILE, this.offsetsPath)) {
+            this.storageAdapter.delete(this.offsetsPath);
+        }
+    }
+
+    protected long[] readOffsets(int index, int count)
+            throws InputOutputException {
+        byte[] bytes = this.storageAdapter.read(this.offsetsPath, (long) index * OFFSET_BYTES, count * OFFSET_BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = buffer.getLong();
+        }
+
+        return offsets;
+    }
+
+    protected static byte[] toRecord(Version version) {
+        return (version.toJson() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
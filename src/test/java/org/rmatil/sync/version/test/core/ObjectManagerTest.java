@@ -13,7 +13,10 @@ import org.rmatil.sync.version.api.DeleteType;
 import org.rmatil.sync.version.api.PathType;
 import org.rmatil.sync.version.core.ObjectManager;
 import org.rmatil.sync.version.core.SharerManager;
+import org.rmatil.sync.version.core.index.IndexReport;
 import org.rmatil.sync.version.core.model.*;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
+import org.rmatil.sync.version.core.storage.VersionLog;
 import org.rmatil.sync.version.test.config.Config;
 import org.rmatil.sync.version.test.util.FileUtil;
 
@@ -22,6 +25,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -91,7 +95,7 @@ public class ObjectManagerTest {
             throws IOException, InputOutputException {
         // test constructor
         String expectedJson = "{\n" +
-                "  \"paths\": {}\n" +
+                "  \"paths\": []\n" +
                 "}";
 
         byte[] content = Files.readAllBytes(ROOT_TEST_DIR.resolve(objectManager.getIndexFileName()));
@@ -119,6 +123,54 @@ public class ObjectManagerTest {
         objectManager = new ObjectManager("someDir/otherDir/someIndex.json", "objects", new LocalStorageAdapter(ROOT_TEST_DIR));
     }
 
+    @Test
+    public void testRebuildIndex()
+            throws IOException, InputOutputException {
+        PathObject otherObject = new PathObject("otherFile.txt", "somePath/to/dir", PathType.FILE, AccessType.WRITE, false, new Delete(DeleteType.EXISTENT, new ArrayList<>()), null, new HashSet<>(), new ArrayList<>());
+
+        objectManager.writeObject(pathObject);
+        objectManager.writeObject(otherObject);
+
+        IndexReport report = objectManager.verifyIndex();
+        assertTrue("Index should be consistent", report.isConsistent());
+        assertEquals("Both objects should be scanned", 2, report.getScannedObjects());
+
+        // lose a path, track a path without object, store an unparsable and a misplaced object
+        objectManager.getIndex().removePath(otherObject.getAbsolutePath());
+        objectManager.getIndex().addPath("ghost.txt");
+        Files.createDirectories(ROOT_TEST_DIR.resolve("objects/ab/cdef"));
+        Files.write(ROOT_TEST_DIR.resolve("objects/ab/cdef/abcdef.json"), "no json".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(ROOT_TEST_DIR.resolve("objects/12/3456"));
+        Files.write(ROOT_TEST_DIR.resolve("objects/12/3456/123456.json"), pathObject.toJson().getBytes(StandardCharsets.UTF_8));
+
+        report = objectManager.verifyIndex();
+        assertFalse("Index should be inconsistent", report.isConsistent());
+        assertEquals("All objects should be scanned", 4, report.getScannedObjects());
+        assertEquals("Lost path should be an orphan", objectManager.getHashForPath(otherObject.getAbsolutePath()), report.getOrphans().get(otherObject.getAbsolutePath()));
+        assertEquals("Path without object should be missing", 1, report.getMissingObjects().size());
+        assertTrue("Path without object should be missing", report.getMissingObjects().contains("ghost.txt"));
+        assertEquals("Copied object should be misplaced", pathObject.getAbsolutePath(), report.getMisplacedObjects().get("123456"));
+        assertEquals("Invalid object should be unreadable", 1, report.getUnreadableObjects().size());
+        assertTrue("Invalid object should be unreadable", report.getUnreadableObjects().contains("abcdef"));
+        assertFalse("Verifying should not change the index", objectManager.exists(otherObject.getAbsolutePath()));
+
+        objectManager.rebuildIndex();
+        assertTrue("Orphan should be indexed", objectManager.exists(otherObject.getAbsolutePath()));
+        assertFalse("Path without object should be removed", objectManager.exists("ghost.txt"));
+        assertEquals("Misplaced objects should not be indexed", 2, objectManager.getIndex().getPaths().size());
+
+        // a lost or corrupt index file is rebuilt on opening
+        Files.delete(ROOT_TEST_DIR.resolve("index.json"));
+        ObjectManager reopened = new ObjectManager("index.json", "objects", new LocalStorageAdapter(ROOT_TEST_DIR));
+        assertEquals("Lost index should be rebuilt", 2, reopened.getIndex().getPaths().size());
+        assertTrue("Lost index should be rebuilt", Files.exists(ROOT_TEST_DIR.resolve("index.json")));
+
+        Files.write(ROOT_TEST_DIR.resolve("index.json"), "{ \"paths\": [".getBytes(StandardCharsets.UTF_8));
+        reopened = new ObjectManager("index.json", "objects", new LocalStorageAdapter(ROOT_TEST_DIR));
+        assertEquals("Corrupt index should be rebuilt", 2, reopened.getIndex().getPaths().size());
+        assertTrue("Rebuilt object should be readable", reopened.getObjectForPath(otherObject.getAbsolutePath()).getVersions().isEmpty());
+    }
+
     @Test
     public void testWriteObject()
             throws InputOutputException {
@@ -141,7 +193,44 @@ public class ObjectManagerTest {
         byte[] content = storageAdapter.read(pathToObject);
         String json = new String(content, StandardCharsets.UTF_8);
 
-        assertEquals("Json is not equal", pathObject.toJson(), json);
+        // the versions are kept in a separate log
+        PathObject header = PathObject.fromJson(pathObject.toJson());
+        header.getVersions().clear();
+        assertEquals("Json of header is not equal", header.toJson(), json);
+        assertTrue("Version log was not created", storageAdapter.exists(StorageType.FILE, new TreePathElement("objects/" + prefix + "/" + postifx + "/" + fileNameHash + VersionLog.RECORDS_EXTENSION)));
+        assertEquals("Json is not equal", pathObject.toJson(), objectManager.getObject(fileNameHash).toJson());
+    }
+
+    @Test
+    public void testVersionLog()
+            throws InputOutputException {
+        objectManager.writeObject(pathObject);
+        String fileNameHash = objectManager.getHashForPath(pathObject.getAbsolutePath());
+
+        objectManager.appendVersion(fileNameHash, new Version("thirdHash"));
+        assertEquals("Version should be appended", 3, objectManager.getVersionCount(fileNameHash));
+
+        List<Version> page = objectManager.getVersions(fileNameHash, 1, 5);
+        assertEquals("Page should contain the last two versions", 2, page.size());
+        assertEquals("Page should start at the offset", "hashOfContentAfterModifying", page.get(0).getHash());
+        assertEquals("Appended version should be last", "thirdHash", page.get(1).getHash());
+        assertTrue("Page beyond the last version should be empty", objectManager.getVersions(fileNameHash, 3, 5).isEmpty());
+
+        // the header reads its versions only when accessed
+        PathObject header = objectManager.getObjectHeader(fileNameHash);
+        assertTrue("Versions should be read lazily", header.getVersions() instanceof LazyVersionList);
+        assertFalse("Versions should not be read yet", ((LazyVersionList) header.getVersions()).isLoaded());
+
+        header.setOwner("someOwner");
+        objectManager.writeObject(header);
+        objectManager.appendVersion(fileNameHash, new Version("fourthHash"));
+
+        assertEquals("Header should only read the versions existing when reading it", 3, header.getVersions().size());
+
+        PathObject fullObject = objectManager.getObject(fileNameHash);
+        assertEquals("Owner should be written", "someOwner", fullObject.getOwner());
+        assertEquals("Versions should not be lost by writing the header", 4, fullObject.getVersions().size());
+        assertEquals("Latest version should be last", "fourthHash", fullObject.getVersions().get(3).getHash());
     }
 
     @Test
@@ -187,6 +276,32 @@ public class ObjectManagerTest {
         objectManager.getObject(fileNameHash);
     }
 
+    @Test
+    public void testUnreferencedContent()
+            throws InputOutputException {
+        InMemoryStorageAdapter inMemoryStorageAdapter = new InMemoryStorageAdapter();
+        ObjectManager inMemoryObjectManager = new ObjectManager("index.json", "objects", inMemoryStorageAdapter);
+
+        inMemoryObjectManager.writeObject(new PathObject("myFile.txt", "", PathType.FILE, AccessType.WRITE, false, new Delete(DeleteType.EXISTENT, new ArrayList<>()), null, new HashSet<>(), new ArrayList<>(Arrays.asList(new Version("hash1"), new Version("hash2")))));
+        inMemoryObjectManager.writeObject(new PathObject("myCopy.txt", "", PathType.FILE, AccessType.WRITE, false, new Delete(DeleteType.EXISTENT, new ArrayList<>()), null, new HashSet<>(), new ArrayList<>(Arrays.asList(new Version("hash2")))));
+
+        assertEquals("Content should be referenced once", 1, inMemoryObjectManager.getContentReferenceCount("hash1"));
+        assertEquals("Content should be referenced by both paths", 2, inMemoryObjectManager.getContentReferenceCount("hash2"));
+        assertTrue("Nothing should be unreferenced", inMemoryObjectManager.removeUnreferencedContent().isEmpty());
+
+        // the object is removed before the references are counted again
+        ObjectManager restartedObjectManager = new ObjectManager("index.json", "objects", inMemoryStorageAdapter);
+        restartedObjectManager.removeObject(restartedObjectManager.getHashForPath("myFile.txt"));
+
+        assertEquals("Removed content should not be referenced", 0, restartedObjectManager.getContentReferenceCount("hash1"));
+        assertEquals("Content should be referenced by the copy", 1, restartedObjectManager.getContentReferenceCount("hash2"));
+        assertEquals("Content released before restarting should be unreferenced", new HashSet<>(Arrays.asList("hash1")), restartedObjectManager.removeUnreferencedContent());
+        assertTrue("Unreferenced content should only be returned once", restartedObjectManager.removeUnreferencedContent().isEmpty());
+
+        restartedObjectManager.removeObject(restartedObjectManager.getHashForPath("myCopy.txt"));
+        assertEquals("Content of the copy should be unreferenced", new HashSet<>(Arrays.asList("hash2")), restartedObjectManager.removeUnreferencedContent());
+    }
+
     @Test
     public void testGetChildren()
             throws InputOutputException {
@@ -205,6 +320,19 @@ public class ObjectManagerTest {
         objectManager.removeObject(Hash.hash(Config.DEFAULT.getHashingAlgorithm(), pathObject.getAbsolutePath()));
     }
 
+    @Test
+    public void testExists()
+            throws InputOutputException {
+        assertFalse("Path should not exist before writing", objectManager.exists(pathObject.getAbsolutePath()));
+
+        objectManager.writeObject(pathObject);
+        assertTrue("Path should exist", objectManager.exists(pathObject.getAbsolutePath()));
+        assertFalse("Parent should not exist", objectManager.exists(pathObject.getPath()));
+
+        objectManager.removeObject(objectManager.getHashForPath(pathObject.getAbsolutePath()));
+        assertFalse("Path should not exist after removing", objectManager.exists(pathObject.getAbsolutePath()));
+    }
+
     @Test
     public void testClear()
             throws InputOutputException {
@@ -17,6 +17,7 @@ import org.rmatil.sync.version.core.model.Index;
 import org.rmatil.sync.version.core.model.PathObject;
 import org.rmatil.sync.version.core.model.Sharer;
 import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
 import org.rmatil.sync.version.test.config.Config;
 import org.rmatil.sync.version.test.util.APathTest;
 
@@ -162,8 +163,10 @@ public class ObjectStoreTest {
         assertEquals("Versions are not present", 1, pathObject.getVersions().size());
         assertEquals("Hash is not equal", "myHash", pathObject.getVersions().get(0).getHash());
         assertEquals("PathType is not a file ", PathType.FILE, pathObject.getPathType());
-        assertTrue("PathObject should be shared", pathObject.isShared());
-        assertThat("Sharer should be contained", pathObject.getSharers(), hasItem(sharer));
+        assertFalse("Sharing should not be copied into the child", pathObject.isShared());
+        assertThat("Sharers should not be copied into the child", pathObject.getSharers(), is(IsEmptyCollection.empty()));
+        assertTrue("PathObject should be shared by its parent", objectStore1.getSharerManager().isShared(ROOT_TEST_DIR.relativize(innerFile).toString()));
+        assertThat("Sharer should be inherited", objectStore1.getSharerManager().getSharer(ROOT_TEST_DIR.relativize(innerFile).toString()), hasItem(sharer));
         assertTrue("Index does not contain file", objectStore1.getObjectManager().getIndex().getPaths().containsKey(ROOT_TEST_DIR.relativize(innerFile).toString()));
     }
 
@@ -377,6 +380,92 @@ public class ObjectStoreTest {
         objectStore1.getObjectManager().clear();
     }
 
+    @Test
+    public void testSyncDetectsMove()
+            throws IOException, InputOutputException {
+        Path movedFile = ROOT_TEST_DIR.resolve("myMovedFile.txt");
+        Path emptyFile = ROOT_TEST_DIR.resolve("myEmptyFile.txt");
+        Path targetDir = ROOT_TEST_DIR.resolve("myMoveTarget");
+
+        Files.write(movedFile, "some content to move".getBytes());
+        Files.createFile(emptyFile);
+        Files.createDirectory(targetDir);
+
+        objectStore1.sync();
+        objectStore1.getSharerManager().addOwner("someOwner", "myMovedFile.txt");
+        objectStore1.getSharerManager().addSharer("someSharer", AccessType.WRITE, "myMovedFile.txt");
+        String contentHash = objectStore1.getObjectManager().getObjectForPath("myMovedFile.txt").getVersions().get(0).getHash();
+
+        // move and rename the file, move the empty file too
+        Files.move(movedFile, targetDir.resolve("myRenamedFile.txt"));
+        Files.move(emptyFile, targetDir.resolve("myEmptyFile.txt"));
+
+        objectStore1.sync();
+
+        Index index = objectStore1.getObjectManager().getIndex();
+        String newPath = Paths.get("myMoveTarget").resolve("myRenamedFile.txt").toString();
+        assertFalse("Old path should be removed", index.getPaths().containsKey("myMovedFile.txt"));
+        assertTrue("New path should be contained", index.getPaths().containsKey(newPath));
+
+        PathObject movedObject = objectStore1.getObjectManager().getObjectForPath(newPath);
+        assertEquals("Name should be changed", "myRenamedFile.txt", movedObject.getName());
+        assertEquals("Path should be changed", "myMoveTarget", movedObject.getPath());
+        assertEquals("Owner should be kept", "someOwner", movedObject.getOwner());
+        assertEquals("Sharer should be kept", 1, movedObject.getSharers().size());
+        assertEquals("Content hash should be kept", contentHash, movedObject.getVersions().get(0).getHash());
+        assertEquals("File should exist", DeleteType.EXISTENT, movedObject.getDeleted().getDeleteType());
+
+        // empty files are not paired
+        assertEquals("Empty file should be flagged as deleted", DeleteType.DELETED, objectStore1.getObjectManager().getObjectForPath("myEmptyFile.txt").getDeleted().getDeleteType());
+        assertEquals("Moved empty file should be created", DeleteType.EXISTENT, objectStore1.getObjectManager().getObjectForPath(Paths.get("myMoveTarget").resolve("myEmptyFile.txt").toString()).getDeleted().getDeleteType());
+
+        Files.delete(targetDir.resolve("myRenamedFile.txt"));
+        Files.delete(targetDir.resolve("myEmptyFile.txt"));
+        Files.delete(targetDir);
+    }
+
+    @Test
+    public void testSyncDetectsMovedSharedDirectory()
+            throws IOException, InputOutputException {
+        Path sharedDir = ROOT_TEST_DIR.resolve("mySharedDir");
+        Path targetDir = ROOT_TEST_DIR.resolve("myDirMoveTarget");
+
+        Files.createDirectory(sharedDir);
+        Files.write(sharedDir.resolve("myInnerFile.txt"), "some content below the shared directory".getBytes());
+        Files.createDirectory(targetDir);
+
+        objectStore1.sync();
+        objectStore1.getSharerManager().addOwner("someOwner", "mySharedDir");
+        objectStore1.getSharerManager().addSharer("someSharer", AccessType.WRITE, "mySharedDir");
+
+        // move the whole shared directory
+        Files.move(sharedDir, targetDir.resolve("myRenamedDir"));
+
+        objectStore1.sync();
+
+        Index index = objectStore1.getObjectManager().getIndex();
+        String newDirPath = Paths.get("myDirMoveTarget").resolve("myRenamedDir").toString();
+        String newFilePath = Paths.get(newDirPath).resolve("myInnerFile.txt").toString();
+        assertFalse("Old directory should be removed", index.getPaths().containsKey("mySharedDir"));
+        assertTrue("New directory should be contained", index.getPaths().containsKey(newDirPath));
+
+        PathObject movedDir = objectStore1.getObjectManager().getObjectForPath(newDirPath);
+        assertEquals("Path type should be kept", PathType.DIRECTORY, movedDir.getPathType());
+        assertEquals("Owner should be kept", "someOwner", movedDir.getOwner());
+        assertEquals("Sharer should be kept", 1, movedDir.getSharers().size());
+        assertTrue("Directory should still be shared", movedDir.isShared());
+        assertEquals("Directory should exist", DeleteType.EXISTENT, movedDir.getDeleted().getDeleteType());
+
+        // the moved file inherits the sharing of its new parent
+        Set<Sharer> effectiveSharers = objectStore1.getObjectManager().getEffectiveSharers(newFilePath);
+        assertEquals("Inner file should inherit the sharer", 1, effectiveSharers.size());
+        assertEquals("Inner file should inherit the sharer", "someSharer", effectiveSharers.iterator().next().getUsername());
+
+        Files.delete(Paths.get(ROOT_TEST_DIR.toString(), newFilePath));
+        Files.delete(Paths.get(ROOT_TEST_DIR.toString(), newDirPath));
+        Files.delete(targetDir);
+    }
+
     @Test
     public void testMergeObjectStore()
             throws InputOutputException, IOException {
@@ -547,6 +636,93 @@ public class ObjectStoreTest {
         assertThat("There is the conflict path", conflictPaths, hasItem("myFile.txt"));
     }
 
+    @Test
+    public void testMergeRevertedVersion()
+            throws InputOutputException {
+        ObjectStore revertingStore = new ObjectStore(new InMemoryStorageAdapter(), "index.json", "object", new InMemoryStorageAdapter());
+        ObjectStore otherStore = new ObjectStore(new InMemoryStorageAdapter(), "index.json", "object", new InMemoryStorageAdapter());
+
+        for (ObjectStore objectStore : new ObjectStore[]{revertingStore, otherStore}) {
+            objectStore.onCreateFile("myFile.txt", "hash1");
+            objectStore.onModifyFile("myFile.txt", "hash2");
+        }
+
+        // the content is reverted, which results in a new version
+        revertingStore.onModifyFile("myFile.txt", "hash1");
+
+        Map<ObjectStore.MergedObjectType, Set<String>> merged = revertingStore.mergeObjectStore(otherStore);
+        assertThat("Reverted file should not be changed", merged.get(ObjectStore.MergedObjectType.CHANGED), is(IsEmptyCollection.empty()));
+        assertThat("There should be no conflict", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+        assertEquals("No version should be added", 3, revertingStore.getObjectManager().getObjectForPath("myFile.txt").getVersions().size());
+
+        merged = otherStore.mergeObjectStore(revertingStore);
+        assertThat("Reverted file should be changed on the other client", merged.get(ObjectStore.MergedObjectType.CHANGED), hasItem("myFile.txt"));
+        assertThat("There should be no conflict on the other client", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+
+        // fetching the changed file does not add another version
+        otherStore.onModifyFile("myFile.txt", "hash1");
+        assertEquals("Versions of the other client should be adopted", 3, otherStore.getObjectManager().getObjectForPath("myFile.txt").getVersions().size());
+
+        merged = revertingStore.mergeObjectStore(otherStore);
+        assertThat("Fetched file should not be changed", merged.get(ObjectStore.MergedObjectType.CHANGED), is(IsEmptyCollection.empty()));
+        assertThat("Fetched file should not be in conflict", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+
+        // both clients modify the file independently
+        revertingStore.onModifyFile("myFile.txt", "hash3");
+        otherStore.onModifyFile("myFile.txt", "hash4");
+
+        merged = revertingStore.mergeObjectStore(otherStore);
+        assertThat("Diverged file should be in conflict", merged.get(ObjectStore.MergedObjectType.CONFLICT), hasItem("myFile.txt"));
+    }
+
+    @Test
+    public void testMergeWithVersionVectors()
+            throws InputOutputException {
+        InMemoryStorageAdapter storageAdapter = new InMemoryStorageAdapter();
+        ObjectStore changingStore = new ObjectStore(new InMemoryStorageAdapter(), "index.json", "object", storageAdapter);
+        ObjectStore otherStore = new ObjectStore(new InMemoryStorageAdapter(), "index.json", "object", new InMemoryStorageAdapter());
+
+        assertNotEquals("Clients should have different ids", changingStore.getObjectManager().getClientId(), otherStore.getObjectManager().getClientId());
+        assertEquals("Client id should be kept", changingStore.getObjectManager().getClientId(), new ObjectStore(new InMemoryStorageAdapter(), "index.json", "object", storageAdapter).getObjectManager().getClientId());
+
+        changingStore.onCreateFile("myFile.txt", "hash1");
+        changingStore.onModifyFile("myFile.txt", "hash2");
+        changingStore.getSharerManager().addSharer("Piff Jenkins", AccessType.WRITE, "myFile.txt");
+
+        PathObject changedObject = changingStore.getObjectManager().getObjectForPath("myFile.txt");
+        assertEquals("All changes should be counted", 3L, changedObject.getVersionVector().get(changingStore.getObjectManager().getClientId()));
+
+        otherStore.mergeObjectStore(changingStore);
+        assertEquals("Missing file should have the vector of the other client", changedObject.getVersionVector(), otherStore.getObjectManager().getObjectForPath("myFile.txt").getVersionVector());
+
+        // equal vectors are merged without reading the versions
+        storageAdapter.resetStatistics();
+        Map<ObjectStore.MergedObjectType, Set<String>> merged = changingStore.mergeObjectStore(otherStore);
+        assertThat("Nothing should be changed", merged.get(ObjectStore.MergedObjectType.CHANGED), is(IsEmptyCollection.empty()));
+        assertEquals("Only the header should be read", 1L, storageAdapter.getReadOps());
+        assertEquals("Nothing should be written", 0L, storageAdapter.getPersistOps());
+
+        otherStore.onModifyFile("myFile.txt", "hash3");
+        merged = changingStore.mergeObjectStore(otherStore);
+        assertThat("Modified file should be changed", merged.get(ObjectStore.MergedObjectType.CHANGED), hasItem("myFile.txt"));
+        assertEquals("Vectors should be equal after merging", otherStore.getObjectManager().getObjectForPath("myFile.txt").getVersionVector(), changingStore.getObjectManager().getObjectForPath("myFile.txt").getVersionVector());
+
+        // concurrent changes are compared by their histories
+        changingStore.onModifyFile("myFile.txt", "hash4");
+        otherStore.onModifyFile("myFile.txt", "hash5");
+        merged = changingStore.mergeObjectStore(otherStore);
+        assertThat("Concurrently modified file should be in conflict", merged.get(ObjectStore.MergedObjectType.CONFLICT), hasItem("myFile.txt"));
+
+        // a conflict does not adopt the changes of the other client, it must be reported on each merge
+        merged = otherStore.mergeObjectStore(changingStore);
+        assertThat("Conflict should be reported in the other direction", merged.get(ObjectStore.MergedObjectType.CONFLICT), hasItem("myFile.txt"));
+        merged = changingStore.mergeObjectStore(otherStore);
+        assertThat("Conflict should be reported again", merged.get(ObjectStore.MergedObjectType.CONFLICT), hasItem("myFile.txt"));
+        merged = otherStore.mergeObjectStore(changingStore);
+        assertThat("Conflict should be reported again in the other direction", merged.get(ObjectStore.MergedObjectType.CONFLICT), hasItem("myFile.txt"));
+        assertNotEquals("Vectors should not be merged on conflict", otherStore.getObjectManager().getObjectForPath("myFile.txt").getVersionVector(), changingStore.getObjectManager().getObjectForPath("myFile.txt").getVersionVector());
+    }
+
     @Test
     public void testDeleteOnMerge()
             throws IOException, InputOutputException {
@@ -0,0 +1,122 @@
+package org.rmatil.sync.version.test.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.core.ObjectManager;
+import org.rmatil.sync.version.core.PermissionResolver;
+import org.rmatil.sync.version.core.SharerManager;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PermissionResolverTest {
+
+    protected InMemoryStorageAdapter storageAdapter;
+
+    protected ObjectManager objectManager;
+
+    protected SharerManager sharerManager;
+
+    protected PermissionResolver permissionResolver;
+
+    @Before
+    public void before()
+            throws InputOutputException {
+        this.storageAdapter = new InMemoryStorageAdapter();
+        this.objectManager = new ObjectManager("index.json", "objects", this.storageAdapter);
+        this.sharerManager = new SharerManager(this.objectManager);
+        this.permissionResolver = new PermissionResolver(this.objectManager, 1024);
+
+        for (String path : new String[]{"sharedDir", "sharedDir/inner", "sharedDir/inner/file.txt"}) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            String parent = path.contains("/") ? path.substring(0, path.lastIndexOf('/')) : "";
+            this.objectManager.writeObject(new PathObject(name, parent, PathType.FILE, null, false, new Delete(null, new ArrayList<>()), null, null, new ArrayList<>(Collections.singletonList(new Version("hash")))));
+        }
+    }
+
+    @Test
+    public void testInheritedAccess()
+            throws InputOutputException {
+        assertEquals("User should have no access", AccessType.ACCESS_REMOVED, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+
+        this.sharerManager.addSharer("Eleanor Fant", AccessType.READ, "sharedDir");
+
+        assertEquals("Access should be inherited", AccessType.READ, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+        assertTrue("User should be allowed to read", this.permissionResolver.hasAccess("Eleanor Fant", AccessType.READ, "sharedDir/inner/file.txt"));
+        assertFalse("User should not be allowed to write", this.permissionResolver.hasAccess("Eleanor Fant", AccessType.WRITE, "sharedDir/inner/file.txt"));
+        assertFalse("Other user should not be allowed to read", this.permissionResolver.hasAccess("Justin Case", AccessType.READ, "sharedDir/inner/file.txt"));
+
+        this.sharerManager.addSharer("Eleanor Fant", AccessType.WRITE, "sharedDir/inner");
+        assertEquals("Sharer of the nearest path should win", AccessType.WRITE, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+        assertEquals("Sharer of the directory should be kept", AccessType.READ, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir"));
+
+        this.sharerManager.removeSharer("Eleanor Fant", "sharedDir/inner");
+        assertEquals("Removal should be inherited", AccessType.ACCESS_REMOVED, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+
+        this.sharerManager.addOwner("Justin Case", "sharedDir");
+        assertEquals("Owner should have write access", AccessType.WRITE, this.permissionResolver.getAccessType("Justin Case", "sharedDir/inner/file.txt"));
+
+        this.sharerManager.removeOwner("sharedDir");
+        assertEquals("Former owner should have no access", AccessType.ACCESS_REMOVED, this.permissionResolver.getAccessType("Justin Case", "sharedDir/inner/file.txt"));
+    }
+
+    @Test
+    public void testCache()
+            throws InputOutputException {
+        this.sharerManager.addSharer("Eleanor Fant", AccessType.WRITE, "sharedDir");
+        assertEquals("Access should be inherited", AccessType.WRITE, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+
+        long sharingVersion = this.objectManager.getSharingVersion();
+        this.storageAdapter.resetStatistics();
+
+        assertEquals("Cached access should be returned", AccessType.WRITE, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+        assertEquals("Cached access should not read any object", 0, this.storageAdapter.getReadOps());
+
+        // writes not changing any sharing do not invalidate the cache
+        PathObject file = this.objectManager.getObjectForPath("sharedDir/inner/file.txt");
+        file.getVersions().add(new Version("otherHash"));
+        this.objectManager.writeObject(file);
+        assertEquals("Sharing version should not change", sharingVersion, this.objectManager.getSharingVersion());
+
+        this.sharerManager.addSharer("Eleanor Fant", AccessType.READ, "sharedDir");
+        assertNotEquals("Sharing version should change", sharingVersion, this.objectManager.getSharingVersion());
+        assertEquals("Changed access should be resolved", AccessType.READ, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+
+        this.objectManager.removeObject(this.objectManager.getHashForPath("sharedDir"));
+        assertEquals("Access should be removed with the shared directory", AccessType.ACCESS_REMOVED, this.permissionResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+    }
+
+    @Test
+    public void testCheckAfterRestart()
+            throws InputOutputException {
+        this.sharerManager.addSharer("Eleanor Fant", AccessType.WRITE, "sharedDir");
+        for (int i = 0; i < 10; i++) {
+            this.objectManager.writeObject(new PathObject("file" + i + ".txt", "", PathType.FILE, null, false, new Delete(null, new ArrayList<>()), null, null, new ArrayList<>(Collections.singletonList(new Version("hash" + i)))));
+        }
+
+        ObjectManager restartedObjectManager = new ObjectManager("index.json", "objects", this.storageAdapter);
+        PermissionResolver restartedResolver = new PermissionResolver(restartedObjectManager, 1024);
+        this.storageAdapter.resetStatistics();
+
+        // only the file and its ancestors are read, no index of all objects is built
+        assertEquals("Access should be inherited", AccessType.WRITE, restartedResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+        assertEquals("Only the headers of the path and its ancestors should be read", 3, this.storageAdapter.getReadOps());
+
+        long sharingVersion = restartedObjectManager.getSharingVersion();
+        restartedObjectManager.writeObject(new PathObject("newFile.txt", "", PathType.FILE, null, false, new Delete(null, new ArrayList<>()), null, null, new ArrayList<>()));
+        assertEquals("Writing an unshared path should not change the sharing version", sharingVersion, restartedObjectManager.getSharingVersion());
+
+        new SharerManager(restartedObjectManager).addSharer("Eleanor Fant", AccessType.READ, "sharedDir");
+        assertNotEquals("Sharing version should change", sharingVersion, restartedObjectManager.getSharingVersion());
+        assertEquals("Changed access should be resolved", AccessType.READ, restartedResolver.getAccessType("Eleanor Fant", "sharedDir/inner/file.txt"));
+    }
+}
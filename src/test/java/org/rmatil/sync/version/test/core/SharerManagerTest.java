@@ -18,6 +18,7 @@ import org.rmatil.sync.version.core.model.Delete;
 import org.rmatil.sync.version.core.model.PathObject;
 import org.rmatil.sync.version.core.model.Sharer;
 import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
 import org.rmatil.sync.version.test.config.Config;
 import org.rmatil.sync.version.test.util.FileUtil;
 
@@ -104,7 +105,11 @@ public class SharerManagerTest {
         Iterator<Sharer> itr = sharers1.iterator();
         Sharer actualSharer = null;
         while (itr.hasNext()) {
-            actualSharer = itr.next();
+            Sharer next = itr.next();
+            // the order of the set depends on hash codes of the access types, which differ between runs
+            if (expectedSharer.getUsername().equals(next.getUsername())) {
+                actualSharer = next;
+            }
         }
 
         assertTrue("last sharer should be equal", expectedSharer.equals(actualSharer));
@@ -119,7 +124,10 @@ public class SharerManagerTest {
         Iterator<Sharer> itr2 = sharerManager.getSharer(pathObject.getAbsolutePath()).iterator();
         Sharer actualSharer2 = null;
         while (itr2.hasNext()) {
-            actualSharer2 = itr2.next();
+            Sharer next = itr2.next();
+            if (expectedSharer.getUsername().equals(next.getUsername())) {
+                actualSharer2 = next;
+            }
         }
 
         assertEquals("Sharing history should contain only one value", 1, actualSharer2.getSharingHistory().size());
@@ -158,6 +166,110 @@ public class SharerManagerTest {
         assertTrue("File should not be shared anymore", sharerManager.getObjectManager().getObjectForPath(pathObject.getAbsolutePath()).isShared());
     }
 
+    @Test
+    public void testInheritedSharing()
+            throws InputOutputException {
+        ObjectManager inMemoryObjectManager = new ObjectManager("index.json", "objects", new InMemoryStorageAdapter());
+        SharerManager inheritingSharerManager = new SharerManager(inMemoryObjectManager);
+
+        for (String path : new String[]{"sharedDir", "sharedDir/inner", "sharedDir/inner/file.txt", "sharedDir/other.txt"}) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            String parent = path.contains("/") ? path.substring(0, path.lastIndexOf('/')) : "";
+            inMemoryObjectManager.writeObject(new PathObject(name, parent, PathType.FILE, null, false, new Delete(null, new ArrayList<>()), null, null, null));
+        }
+
+        assertFalse("File should not be shared yet", inheritingSharerManager.isShared("sharedDir/inner/file.txt"));
+
+        inheritingSharerManager.addSharer("Eleanor Fant", AccessType.WRITE, "sharedDir");
+
+        assertTrue("Nested file should be shared by its ancestor", inheritingSharerManager.isShared("sharedDir/inner/file.txt"));
+        assertEquals("Sharer should be inherited", "Eleanor Fant", inheritingSharerManager.getSharer("sharedDir/inner/file.txt").iterator().next().getUsername());
+        assertTrue("Sharers should not be stored in the nested file", inMemoryObjectManager.getObjectForPath("sharedDir/inner/file.txt").getSharers().isEmpty());
+        assertEquals("All paths should be shared with the user", new HashSet<>(Arrays.asList("sharedDir", "sharedDir/inner", "sharedDir/inner/file.txt", "sharedDir/other.txt")), inheritingSharerManager.getPathsSharedWith("Eleanor Fant"));
+
+        // removing an inherited sharer is stored for the subtree only
+        inheritingSharerManager.removeSharer("Eleanor Fant", "sharedDir/inner");
+
+        assertFalse("Directory should not be shared anymore", inheritingSharerManager.isShared("sharedDir/inner"));
+        assertFalse("Nested file should not be shared anymore", inheritingSharerManager.isShared("sharedDir/inner/file.txt"));
+        assertEquals("Removal should be inherited", AccessType.ACCESS_REMOVED, inheritingSharerManager.getSharer("sharedDir/inner/file.txt").iterator().next().getAccessType());
+        assertTrue("Sibling should still be shared", inheritingSharerManager.isShared("sharedDir/other.txt"));
+        assertEquals("Only the paths outside the removed subtree should be shared", new HashSet<>(Arrays.asList("sharedDir", "sharedDir/other.txt")), inheritingSharerManager.getPathsSharedWith("Eleanor Fant"));
+
+        // sharing the subtree again overrides the removal
+        inheritingSharerManager.addSharer("Eleanor Fant", AccessType.READ, "sharedDir/inner");
+        assertEquals("Sharer of the nearest ancestor should win", AccessType.READ, inheritingSharerManager.getSharer("sharedDir/inner/file.txt").iterator().next().getAccessType());
+        assertEquals("Sharer of the directory should be kept", AccessType.WRITE, inheritingSharerManager.getSharer("sharedDir/other.txt").iterator().next().getAccessType());
+    }
+
+    @Test
+    public void testRecursiveSharing()
+            throws InputOutputException {
+        InMemoryStorageAdapter storageAdapter = new InMemoryStorageAdapter();
+        ObjectManager inMemoryObjectManager = new ObjectManager("index.json", "objects", storageAdapter);
+        SharerManager recursiveSharerManager = new SharerManager(inMemoryObjectManager);
+
+        for (String path : new String[]{"sharedDir", "sharedDir/inner", "sharedDir/inner/file.txt", "sharedDir/other.txt", "otherDir"}) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            String parent = path.contains("/") ? path.substring(0, path.lastIndexOf('/')) : "";
+            inMemoryObjectManager.writeObject(new PathObject(name, parent, PathType.FILE, null, false, new Delete(null, new ArrayList<>()), null, null, new ArrayList<>(Collections.singletonList(new Version("hash")))));
+        }
+
+        recursiveSharerManager.addSharer("Eleanor Fant", AccessType.READ, "sharedDir/inner");
+        recursiveSharerManager.addSharer("Eleanor Fant", AccessType.READ, "otherDir");
+
+        List<Integer> progress = new ArrayList<>();
+        storageAdapter.resetStatistics();
+        recursiveSharerManager.addSharerRecursively("Eleanor Fant", AccessType.WRITE, "sharedDir", (processed, total) -> {
+            assertEquals("Total should be the number of changed paths", 2, total);
+            progress.add(processed);
+        });
+
+        assertEquals("Progress should be reported for each changed path", Arrays.asList(1, 2), progress);
+        assertEquals("Only the changed headers and the index once should be written", 3, storageAdapter.getPersistOps());
+        assertEquals("Overriding sharer should be updated", AccessType.WRITE, recursiveSharerManager.getSharer("sharedDir/inner/file.txt").iterator().next().getAccessType());
+        assertEquals("History of the overriding sharer should be continued", 2, inMemoryObjectManager.getObjectForPath("sharedDir/inner").getSharers().iterator().next().getSharingHistory().size());
+        assertTrue("Sibling should inherit the sharer", recursiveSharerManager.isShared("sharedDir/other.txt"));
+        assertTrue("Sharers should not be stored in the nested file", inMemoryObjectManager.getObjectForPath("sharedDir/inner/file.txt").getSharers().isEmpty());
+        assertEquals("Paths outside the directory should not be changed", AccessType.READ, recursiveSharerManager.getSharer("otherDir").iterator().next().getAccessType());
+
+        recursiveSharerManager.removeSharerRecursively("Eleanor Fant", "sharedDir", null);
+
+        for (String path : new String[]{"sharedDir", "sharedDir/inner", "sharedDir/inner/file.txt", "sharedDir/other.txt"}) {
+            assertFalse("Path should not be shared anymore", recursiveSharerManager.isShared(path));
+        }
+        assertEquals("Only the paths outside the directory should be shared", new HashSet<>(Collections.singletonList("otherDir")), recursiveSharerManager.getPathsSharedWith("Eleanor Fant"));
+
+        thrown.expect(InputOutputException.class);
+        recursiveSharerManager.removeSharerRecursively("Justin Case", "sharedDir", null);
+    }
+
+    @Test
+    public void testRecursiveSharingAfterUnshare()
+            throws InputOutputException {
+        ObjectManager inMemoryObjectManager = new ObjectManager("index.json", "objects", new InMemoryStorageAdapter());
+        SharerManager recursiveSharerManager = new SharerManager(inMemoryObjectManager);
+
+        for (String path : new String[]{"sharedDir", "sharedDir/file.txt"}) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            String parent = path.contains("/") ? path.substring(0, path.lastIndexOf('/')) : "";
+            inMemoryObjectManager.writeObject(new PathObject(name, parent, PathType.FILE, null, false, new Delete(null, new ArrayList<>()), null, null, new ArrayList<>(Collections.singletonList(new Version("hash")))));
+        }
+
+        // the user only has a revoked entry left afterwards
+        recursiveSharerManager.addSharer("Eleanor Fant", AccessType.READ, "sharedDir");
+        recursiveSharerManager.removeSharer("Eleanor Fant", "sharedDir");
+        assertFalse("Path should not be shared anymore", recursiveSharerManager.isShared("sharedDir/file.txt"));
+
+        recursiveSharerManager.addSharerRecursively("Eleanor Fant", AccessType.WRITE, "sharedDir", null);
+
+        assertEquals("Revoked sharer should be granted access again", AccessType.WRITE, recursiveSharerManager.getSharer("sharedDir/file.txt").iterator().next().getAccessType());
+        assertEquals("History of the revoked sharer should be continued", 3, inMemoryObjectManager.getObjectForPath("sharedDir").getSharers().iterator().next().getSharingHistory().size());
+
+        recursiveSharerManager.removeSharerRecursively("Eleanor Fant", "sharedDir", null);
+        assertFalse("Path should not be shared anymore", recursiveSharerManager.isShared("sharedDir/file.txt"));
+    }
+
     @Test
     public void testAccessor() {
         assertEquals("ObjectManager is not the same", objectManager, sharerManager.getObjectManager());
@@ -0,0 +1,146 @@
+package org.rmatil.sync.version.test.core;
+
+import org.hamcrest.collection.IsEmptyCollection;
+import org.junit.Before;
+import org.junit.Test;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.config.ObjectStoreConfig;
+import org.rmatil.sync.version.core.ObjectStore;
+import org.rmatil.sync.version.core.VersionCompactor;
+import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.retention.KeepLastRetentionPolicy;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class VersionCompactorTest {
+
+    protected ObjectStore compactedStore;
+
+    protected ObjectStore fullStore;
+
+    @Before
+    public void before()
+            throws InputOutputException {
+        ObjectStoreConfig config = new ObjectStoreConfig();
+        config.setRetentionPolicy(new KeepLastRetentionPolicy(2));
+
+        this.compactedStore = new ObjectStore(new InMemoryStorageAdapter(), "index.json", "object", new InMemoryStorageAdapter(), config);
+        this.fullStore = new ObjectStore(new InMemoryStorageAdapter(), "index.json", "object", new InMemoryStorageAdapter());
+
+        for (ObjectStore objectStore : new ObjectStore[]{this.compactedStore, this.fullStore}) {
+            objectStore.onCreateFile("myFile.txt", "hash0");
+            for (int i = 1; i < 5; i++) {
+                objectStore.onModifyFile("myFile.txt", "hash" + i);
+            }
+            objectStore.onCreateFile("myOtherFile.txt", "otherHash");
+        }
+    }
+
+    @Test
+    public void testCompact()
+            throws InputOutputException {
+        VersionCompactor compactor = this.compactedStore.getVersionCompactor();
+        assertNotNull("Compactor should be created for the retention policy", compactor);
+        assertNull("No compactor should be created without retention policy", this.fullStore.getVersionCompactor());
+
+        assertEquals("Three versions should be removed", 3, compactor.compact());
+
+        List<Version> versions = this.compactedStore.getObjectManager().getObjectForPath("myFile.txt").getVersions();
+        assertEquals("Two versions should be kept", 2, versions.size());
+        assertEquals("Latest version should be kept", "hash4", versions.get(1).getHash());
+        assertTrue("Version should have a creation time", versions.get(1).getTimestamp() > 0L);
+        assertEquals("Single version should be kept", 1, this.compactedStore.getObjectManager().getObjectForPath("myOtherFile.txt").getVersions().size());
+
+        assertEquals("Compacting again should not remove anything", 0, compactor.compact());
+    }
+
+    @Test
+    public void testCompactInBackground()
+            throws InputOutputException, InterruptedException {
+        VersionCompactor compactor = new VersionCompactor(this.compactedStore.getObjectManager(), new KeepLastRetentionPolicy(1), 1);
+        compactor.start(10L, TimeUnit.MILLISECONDS);
+
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (System.currentTimeMillis() < deadline &&
+                1 < this.compactedStore.getObjectManager().getObjectForPath("myFile.txt").getVersions().size()) {
+            Thread.sleep(10L);
+        }
+
+        compactor.stop();
+        assertEquals("Only the latest version should be kept", 1, this.compactedStore.getObjectManager().getObjectForPath("myFile.txt").getVersions().size());
+    }
+
+    @Test
+    public void testMergeWithLongerHistory()
+            throws InputOutputException {
+        this.compactedStore.getVersionCompactor().compact();
+
+        Map<ObjectStore.MergedObjectType, Set<String>> merged = this.compactedStore.mergeObjectStore(this.fullStore);
+        assertThat("Nothing should be changed", merged.get(ObjectStore.MergedObjectType.CHANGED), is(IsEmptyCollection.empty()));
+        assertThat("There should be no conflict", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+
+        merged = this.fullStore.mergeObjectStore(this.compactedStore);
+        assertThat("Nothing should be changed on the other client", merged.get(ObjectStore.MergedObjectType.CHANGED), is(IsEmptyCollection.empty()));
+        assertThat("There should be no conflict on the other client", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+
+        this.fullStore.onModifyFile("myFile.txt", "hash5");
+
+        merged = this.compactedStore.mergeObjectStore(this.fullStore);
+        assertThat("Modified file should be changed", merged.get(ObjectStore.MergedObjectType.CHANGED), hasItem("myFile.txt"));
+        assertThat("There should be no conflict", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+        assertEquals("Only the new version should be added after the compacted history", Arrays.asList("hash3", "hash4", "hash5"), this.getHashes(this.compactedStore));
+
+        // both clients compact their histories to a different length
+        this.compactedStore.getVersionCompactor().compact();
+        new VersionCompactor(this.fullStore.getObjectManager(), new KeepLastRetentionPolicy(3), 1).compact();
+        assertEquals("Compacted history should be kept", Arrays.asList("hash4", "hash5"), this.getHashes(this.compactedStore));
+        assertEquals("Compacted history of the other client should be kept", Arrays.asList("hash3", "hash4", "hash5"), this.getHashes(this.fullStore));
+
+        merged = this.compactedStore.mergeObjectStore(this.fullStore);
+        assertThat("Nothing should be changed after compacting", merged.get(ObjectStore.MergedObjectType.CHANGED), is(IsEmptyCollection.empty()));
+        assertThat("There should be no conflict after compacting", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+        assertEquals("Compacted versions should not be added again", Arrays.asList("hash4", "hash5"), this.getHashes(this.compactedStore));
+
+        merged = this.fullStore.mergeObjectStore(this.compactedStore);
+        assertThat("Nothing should be changed on the other client after compacting", merged.get(ObjectStore.MergedObjectType.CHANGED), is(IsEmptyCollection.empty()));
+        assertThat("There should be no conflict on the other client after compacting", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+        assertEquals("Longer history should be kept on the other client", Arrays.asList("hash3", "hash4", "hash5"), this.getHashes(this.fullStore));
+    }
+
+    @Test
+    public void testFastForwardAfterCompaction()
+            throws InputOutputException {
+        ObjectStore followingStore = new ObjectStore(new InMemoryStorageAdapter(), "index.json", "object", new InMemoryStorageAdapter());
+        followingStore.mergeObjectStore(this.compactedStore);
+
+        this.compactedStore.onModifyFile("myFile.txt", "hash5");
+        this.compactedStore.onModifyFile("myFile.txt", "hash6");
+        // the parent of the kept version is removed too
+        new VersionCompactor(this.compactedStore.getObjectManager(), new KeepLastRetentionPolicy(1), 1).compact();
+
+        Map<ObjectStore.MergedObjectType, Set<String>> merged = followingStore.mergeObjectStore(this.compactedStore);
+        assertThat("Modified file should be changed", merged.get(ObjectStore.MergedObjectType.CHANGED), hasItem("myFile.txt"));
+        assertThat("There should be no conflict", merged.get(ObjectStore.MergedObjectType.CONFLICT), is(IsEmptyCollection.empty()));
+        assertEquals("Latest version should be added", Arrays.asList("hash0", "hash1", "hash2", "hash3", "hash4", "hash6"), this.getHashes(followingStore));
+    }
+
+    protected List<String> getHashes(ObjectStore objectStore)
+            throws InputOutputException {
+        List<String> hashes = new ArrayList<>();
+        for (Version version : objectStore.getObjectManager().getObjectForPath("myFile.txt").getVersions()) {
+            hashes.add(version.getHash());
+        }
+
+        return hashes;
+    }
+}
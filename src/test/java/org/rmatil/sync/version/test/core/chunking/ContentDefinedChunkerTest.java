@@ -0,0 +1,139 @@
+package org.rmatil.sync.version.test.core.chunking;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.rmatil.sync.commons.hashing.Hash;
+import org.rmatil.sync.commons.hashing.HashingAlgorithm;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.DeleteType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.core.chunking.ContentDefinedChunker;
+import org.rmatil.sync.version.core.model.Chunk;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ContentDefinedChunkerTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    protected ContentDefinedChunker chunker = new ContentDefinedChunker(HashingAlgorithm.SHA_256, 1024, 4096, 16384, 0L);
+
+    protected static byte[] randomContent(int length) {
+        byte[] content = new byte[length];
+        new Random(42L).nextBytes(content);
+
+        return content;
+    }
+
+    @Test
+    public void testChunk()
+            throws IOException {
+        byte[] content = randomContent(1024 * 1024);
+        File file = this.temporaryFolder.newFile("myFile.bin");
+        Files.write(file.toPath(), content);
+
+        Version version = this.chunker.chunk(file);
+
+        assertTrue("Version should be chunked", version.isChunked());
+        assertEquals("Hash should be equal to the one of the whole file", Hash.hash(HashingAlgorithm.SHA_256, file), version.getHash());
+        assertEquals("Versions of the same content should be equal", new Version(Hash.hash(HashingAlgorithm.SHA_256, file)), version);
+
+        long offset = 0L;
+        for (int i = 0; i < version.getChunks().size(); i++) {
+            Chunk chunk = version.getChunks().get(i);
+            assertEquals("Chunks should be contiguous", offset, chunk.getOffset());
+            assertTrue("Chunk should not exceed the max size", chunk.getLength() <= 16384);
+            if (i < version.getChunks().size() - 1) {
+                assertTrue("Chunk should have the min size", chunk.getLength() >= 1024);
+            }
+
+            byte[] chunkContent = new byte[chunk.getLength()];
+            System.arraycopy(content, (int) chunk.getOffset(), chunkContent, 0, chunk.getLength());
+            assertEquals("Chunk hash should be equal", Hash.hash(HashingAlgorithm.SHA_256, chunkContent), chunk.getHash());
+
+            offset += chunk.getLength();
+        }
+
+        assertEquals("Chunks should cover the whole file", content.length, offset);
+        assertTrue("Boundaries should be content-defined", version.getChunks().size() > 1024 * 1024 / 16384);
+    }
+
+    @Test
+    public void testInsertionChangesFewChunks()
+            throws IOException {
+        byte[] content = randomContent(1024 * 1024);
+        byte[] modifiedContent = new byte[content.length + 3];
+        System.arraycopy(content, 0, modifiedContent, 0, 500 * 1024);
+        modifiedContent[500 * 1024] = 1;
+        modifiedContent[500 * 1024 + 1] = 2;
+        modifiedContent[500 * 1024 + 2] = 3;
+        System.arraycopy(content, 500 * 1024, modifiedContent, 500 * 1024 + 3, content.length - 500 * 1024);
+
+        Version version = this.chunker.chunk(new ByteArrayInputStream(content));
+        Version modifiedVersion = this.chunker.chunk(new ByteArrayInputStream(modifiedContent));
+
+        assertNotEquals("Versions should differ", version, modifiedVersion);
+
+        List<Chunk> changedChunks = modifiedVersion.getChunksNotIn(version);
+        assertTrue("Only the chunks around the insertion should change", changedChunks.size() <= 2);
+        assertFalse("The chunk containing the insertion should change", changedChunks.isEmpty());
+        assertEquals("All chunks should be missing in an unchunked version", modifiedVersion.getChunks(), modifiedVersion.getChunksNotIn(new Version("someHash")));
+    }
+
+    @Test
+    public void testShouldChunk()
+            throws IOException {
+        ContentDefinedChunker largeFileChunker = new ContentDefinedChunker(HashingAlgorithm.SHA_256, 1024, 4096, 16384, 2048L);
+
+        File smallFile = this.temporaryFolder.newFile("small.bin");
+        Files.write(smallFile.toPath(), randomContent(100));
+        File largeFile = this.temporaryFolder.newFile("large.bin");
+        Files.write(largeFile.toPath(), randomContent(4096));
+
+        assertFalse("Small files should not be chunked", largeFileChunker.shouldChunk(smallFile));
+        assertTrue("Large files should be chunked", largeFileChunker.shouldChunk(largeFile));
+        assertFalse("Directories should not be chunked", largeFileChunker.shouldChunk(this.temporaryFolder.getRoot()));
+    }
+
+    @Test
+    public void testInvalidAverageSize() {
+        thrown.expect(IllegalArgumentException.class);
+        new ContentDefinedChunker(HashingAlgorithm.SHA_256, 1024, 3000, 16384, 0L);
+    }
+
+    @Test
+    public void testJson()
+            throws IOException {
+        Version chunkedVersion = this.chunker.chunk(new ByteArrayInputStream(randomContent(64 * 1024)));
+        List<Version> versions = new ArrayList<>();
+        versions.add(new Version("unchunkedHash"));
+        versions.add(chunkedVersion);
+
+        PathObject pathObject = new PathObject("myFile.bin", "", PathType.FILE, AccessType.WRITE, false, new Delete(DeleteType.EXISTENT, new ArrayList<>()), null, new HashSet<>(), versions);
+        String json = pathObject.toJson();
+
+        PathObject restored = PathObject.fromJson(json);
+
+        assertFalse("Unchunked version should not have chunks", restored.getVersions().get(0).isChunked());
+        assertEquals("Chunks should be restored", chunkedVersion.getChunks(), restored.getVersions().get(1).getChunks());
+        assertEquals("Only the chunked version should list chunks", json.indexOf("\"chunks\""), json.lastIndexOf("\"chunks\""));
+    }
+}
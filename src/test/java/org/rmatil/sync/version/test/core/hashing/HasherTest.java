@@ -0,0 +1,142 @@
+package org.rmatil.sync.version.test.core.hashing;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rmatil.sync.commons.hashing.Hash;
+import org.rmatil.sync.commons.hashing.HashingAlgorithm;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.IHasher;
+import org.rmatil.sync.version.config.ObjectStoreConfig;
+import org.rmatil.sync.version.core.ObjectStore;
+import org.rmatil.sync.version.core.hashing.DigestHasher;
+import org.rmatil.sync.version.core.hashing.PathHashCache;
+import org.rmatil.sync.version.core.hashing.XxHash64Hasher;
+import org.rmatil.sync.version.core.metrics.JmxMetricRegistry;
+import org.rmatil.sync.version.core.metrics.MetricNames;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class HasherTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testDigestHasher()
+            throws IOException {
+        IHasher hasher = new DigestHasher(HashingAlgorithm.SHA_256);
+
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(42L).nextBytes(content);
+        File file = this.temporaryFolder.newFile("myFile.bin");
+        Files.write(file.toPath(), content);
+
+        assertEquals("Name should be the one of the algorithm", "SHA_256", hasher.getName());
+        assertEquals("Path hash should be equal", Hash.hash(HashingAlgorithm.SHA_256, "myDir/myFile.txt"), hasher.hash("myDir/myFile.txt"));
+        assertEquals("Byte hash should be equal", Hash.hash(HashingAlgorithm.SHA_256, content), hasher.hash(content));
+        assertEquals("File hash should be equal", Hash.hash(HashingAlgorithm.SHA_256, file), hasher.hash(file));
+        assertEquals("Directory hash should be equal", Hash.hash(HashingAlgorithm.SHA_256, this.temporaryFolder.getRoot()), hasher.hash(this.temporaryFolder.getRoot()));
+
+        // digests are reused per thread
+        String expected = hasher.hash("someValue");
+        assertTrue("Hashes should be equal on all threads", IntStream.range(0, 1000).parallel().allMatch(i -> expected.equals(hasher.hash("someValue"))));
+    }
+
+    @Test
+    public void testXxHash64Hasher()
+            throws IOException {
+        IHasher hasher = new XxHash64Hasher();
+
+        // reference values of the specification
+        assertEquals("Hash of nothing should be equal", "ef46db3751d8e999", hasher.hash(new byte[0]));
+        assertEquals("Hash of abc should be equal", "44bc2cf5ad770999", hasher.hash("abc"));
+
+        // streaming across buffer and stripe boundaries
+        byte[] content = new byte[1024 * 1024 + 37];
+        new Random(42L).nextBytes(content);
+        File file = this.temporaryFolder.newFile("myFile.bin");
+        Files.write(file.toPath(), content);
+
+        assertEquals("File hash should be equal to the one of its bytes", hasher.hash(content), hasher.hash(file));
+
+        content[1024 * 1024 + 36]++;
+        assertNotEquals("Hash should change", hasher.hash(content), hasher.hash(file));
+        assertNotEquals("Hash should depend on the seed", hasher.hash("abc"), new XxHash64Hasher(1L).hash("abc"));
+        assertEquals("Hash should be 16 hex digits", 16, hasher.hash("abc".getBytes(StandardCharsets.UTF_8)).length());
+    }
+
+    @Test
+    public void testPathHashCache() {
+        JmxMetricRegistry metricRegistry = new JmxMetricRegistry("path-hash-cache-test");
+        try {
+            IHasher hasher = new DigestHasher(HashingAlgorithm.SHA_256);
+            PathHashCache cache = new PathHashCache(hasher, 1000, metricRegistry.counter(MetricNames.PATH_HASH_COMPUTATIONS), metricRegistry.counter(MetricNames.PATH_HASH_CACHE_HITS));
+
+            assertEquals("Capacity should be rounded to a power of two", 1024, cache.getCapacity());
+            assertEquals("Hash should be equal", hasher.hash("myDir/myFile.txt"), cache.hash("myDir/myFile.txt"));
+            assertEquals("Cached hash should be equal", hasher.hash("myDir/myFile.txt"), cache.hash("myDir/myFile.txt"));
+            assertEquals("Path should be hashed once", 1L, metricRegistry.counter(MetricNames.PATH_HASH_COMPUTATIONS).getCount());
+            assertEquals("Second lookup should hit", 1L, metricRegistry.counter(MetricNames.PATH_HASH_CACHE_HITS).getCount());
+
+            // concurrent lookups of more paths than the capacity
+            assertTrue("Hashes should be correct on all threads", IntStream.range(0, 20000).parallel().allMatch(
+                    i -> hasher.hash("path/" + (i % 3000)).equals(cache.hash("path/" + (i % 3000)))
+            ));
+
+            long computations = metricRegistry.counter(MetricNames.PATH_HASH_COMPUTATIONS).getCount();
+            cache.clear();
+            cache.hash("myDir/myFile.txt");
+            assertEquals("Path should be hashed again after clearing", computations + 1L, metricRegistry.counter(MetricNames.PATH_HASH_COMPUTATIONS).getCount());
+
+            // the underlying hasher bypasses the cache and its counters
+            long hits = metricRegistry.counter(MetricNames.PATH_HASH_CACHE_HITS).getCount();
+            assertEquals("Underlying hash should be equal", hasher.hash("myDir/myFile.txt"), cache.getHasher().hash("myDir/myFile.txt"));
+            assertEquals("Underlying hasher should not count computations", computations + 1L, metricRegistry.counter(MetricNames.PATH_HASH_COMPUTATIONS).getCount());
+            assertEquals("Underlying hasher should not count hits", hits, metricRegistry.counter(MetricNames.PATH_HASH_CACHE_HITS).getCount());
+        } finally {
+            metricRegistry.unregister();
+        }
+    }
+
+    @Test
+    public void testChangeDetection()
+            throws IOException, InputOutputException {
+        File root = this.temporaryFolder.getRoot();
+        File syncFolder = this.temporaryFolder.newFolder(".sync");
+        File file = new File(root, "myFile.txt");
+        Files.write(file.toPath(), "some content".getBytes());
+
+        JmxMetricRegistry metricRegistry = new JmxMetricRegistry("hasher-test");
+        try {
+            ObjectStoreConfig config = new ObjectStoreConfig();
+            config.setChangeDetectionHasher(new XxHash64Hasher());
+            config.setMetricRegistry(metricRegistry);
+
+            ObjectStore objectStore = new ObjectStore(new LocalStorageAdapter(root.toPath()), "index.json", "object", new LocalStorageAdapter(syncFolder.toPath()), config);
+
+            objectStore.sync();
+            objectStore.sync();
+
+            assertEquals("Content should be hashed once", 1L, metricRegistry.counter(MetricNames.CONTENT_HASH_COMPUTATIONS).getCount());
+            assertEquals("Second hash should be skipped", 1L, metricRegistry.counter(MetricNames.CONTENT_HASH_SKIPS).getCount());
+
+            Files.write(file.toPath(), "some changed content".getBytes());
+            objectStore.sync();
+
+            assertEquals("Changed content should be hashed", 2L, metricRegistry.counter(MetricNames.CONTENT_HASH_COMPUTATIONS).getCount());
+            assertEquals("Version should be added", 2, objectStore.getObjectManager().getObjectForPath("myFile.txt").getVersions().size());
+            assertEquals("Canonical hash should be SHA-256", Hash.hash(HashingAlgorithm.SHA_256, file), objectStore.getObjectManager().getObjectForPath("myFile.txt").getVersions().get(1).getHash());
+        } finally {
+            metricRegistry.unregister();
+        }
+    }
+}
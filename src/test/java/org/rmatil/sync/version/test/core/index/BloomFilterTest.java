@@ -0,0 +1,41 @@
+package org.rmatil.sync.version.test.core.index;
+
+import org.junit.Test;
+import org.rmatil.sync.version.core.index.BloomFilter;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testBloomFilter() {
+        BloomFilter filter = new BloomFilter(10000, 0.01d);
+
+        for (int i = 0; i < 10000; i++) {
+            filter.add("myDir/myFile" + i + ".txt");
+        }
+
+        assertEquals("All paths should be counted", 10000, filter.size());
+        for (int i = 0; i < 10000; i++) {
+            assertTrue("Added path should be contained", filter.mightContain("myDir/myFile" + i + ".txt"));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("otherDir/otherFile" + i + ".txt")) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue("False positive rate should be close to the configured one", falsePositives < 200);
+
+        filter.clear();
+        assertEquals("Filter should be empty", 0, filter.size());
+        assertFalse("Path should not be contained after clearing", filter.mightContain("myDir/myFile0.txt"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProbability() {
+        new BloomFilter(100, 1d);
+    }
+}
@@ -0,0 +1,124 @@
+package org.rmatil.sync.version.test.core.index;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.DeleteType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.core.ObjectManager;
+import org.rmatil.sync.version.core.VersionManager;
+import org.rmatil.sync.version.core.index.ContentIndex;
+import org.rmatil.sync.version.core.model.Chunk;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ContentIndexTest {
+
+    protected ObjectManager objectManager;
+
+    @Before
+    public void before()
+            throws InputOutputException {
+        this.objectManager = new ObjectManager("index.json", "objects", new InMemoryStorageAdapter());
+    }
+
+    protected static PathObject createPathObject(String name, Version... versions) {
+        List<Version> versionList = new ArrayList<>(Arrays.asList(versions));
+
+        return new PathObject(name, "", PathType.FILE, AccessType.WRITE, false, new Delete(DeleteType.EXISTENT, new ArrayList<>()), null, new HashSet<>(), versionList);
+    }
+
+    @Test
+    public void testReferences() {
+        ContentIndex index = new ContentIndex();
+
+        Version chunked = new Version("large", Arrays.asList(new Chunk(0L, 10, "chunk1"), new Chunk(10L, 10, "chunk2")));
+        Version reverted = new Version("large", Arrays.asList(new Chunk(0L, 10, "chunk1"), new Chunk(10L, 10, "chunk2")));
+        Version modified = new Version("modified", Arrays.asList(new Chunk(0L, 10, "chunk1"), new Chunk(10L, 12, "chunk3")));
+
+        index.update(createPathObject("myFile.bin", chunked, modified, reverted));
+        index.update(createPathObject("myCopy.bin", new Version("large")));
+
+        assertEquals("Content should be referenced by three versions", 3, index.getContentReferenceCount("large"));
+        assertEquals("Content should be held by two paths", 2, index.getPathsWithContent("large").size());
+        assertEquals("Chunk should be referenced by three versions", 3, index.getChunkReferenceCount("chunk1"));
+        assertEquals("Chunk should be referenced once", 1, index.getChunkReferenceCount("chunk3"));
+        assertEquals("Two contents should be known", 2, index.getContentCount());
+        assertEquals("Three chunks should be known", 3, index.getChunkCount());
+
+        // remove the modified version
+        index.update(createPathObject("myFile.bin", chunked, reverted));
+
+        assertEquals("Modified content should not be referenced anymore", 0, index.getContentReferenceCount("modified"));
+        assertEquals("Chunk should still be referenced", 2, index.getChunkReferenceCount("chunk1"));
+
+        Set<String> unreferenced = index.removeUnreferenced();
+        assertEquals("Modified content and its chunk should be unreferenced", new HashSet<>(Arrays.asList("modified", "chunk3")), unreferenced);
+        assertTrue("Unreferenced content should only be returned once", index.removeUnreferenced().isEmpty());
+
+        index.remove("myFile.bin");
+
+        assertEquals("Copy should still reference the content", 1, index.getContentReferenceCount("large"));
+        assertEquals("Only the copy should hold the content", 1, index.getPathsWithContent("large").size());
+        assertEquals("Chunks should be unreferenced", new HashSet<>(Arrays.asList("chunk1", "chunk2")), index.removeUnreferenced());
+    }
+
+    @Test
+    public void testAppendVersion()
+            throws InputOutputException {
+        InMemoryStorageAdapter storageAdapter = new InMemoryStorageAdapter();
+        ObjectManager objectManager = new ObjectManager("index.json", "objects", storageAdapter);
+        objectManager.writeObject(createPathObject("myFile.txt", new Version("hash1")));
+        assertEquals("Content should be referenced once", 1, objectManager.getContentReferenceCount("hash1"));
+
+        // the appended version is indexed without reading the object again
+        storageAdapter.resetStatistics();
+        objectManager.appendVersion(objectManager.getHashForPath("myFile.txt"), new Version("hash2", Arrays.asList(new Chunk(0L, 10, "chunk1"))));
+        assertEquals("Only the end of the version log should be read", 1L, storageAdapter.getReadOps());
+
+        assertEquals("Appended content should be referenced", 1, objectManager.getContentReferenceCount("hash2"));
+        assertEquals("Appended chunk should be referenced", 1, objectManager.getChunkReferenceCount("chunk1"));
+        assertEquals("Previous content should still be referenced", 1, objectManager.getContentReferenceCount("hash1"));
+        assertEquals("Path should have the appended content", new HashSet<>(Arrays.asList("myFile.txt")), objectManager.getPathsWithContentHash("hash2"));
+        assertTrue("Path should not have the previous content anymore", objectManager.getPathsWithContentHash("hash1").isEmpty());
+
+        // releasing the path releases the appended references too
+        objectManager.removeObject(objectManager.getHashForPath("myFile.txt"));
+        assertEquals("All content should be unreferenced", new HashSet<>(Arrays.asList("hash1", "hash2", "chunk1")), objectManager.removeUnreferencedContent());
+    }
+
+    @Test
+    public void testObjectManager()
+            throws InputOutputException {
+        this.objectManager.writeObject(createPathObject("myFile.txt", new Version("hash1")));
+
+        // built lazily from the stored objects
+        assertEquals("Content should be referenced once", 1, this.objectManager.getContentReferenceCount("hash1"));
+
+        this.objectManager.writeObject(createPathObject("myCopy.txt", new Version("hash1")));
+        assertEquals("Copy should reference the same content", 2, this.objectManager.getContentReferenceCount("hash1"));
+        assertEquals("Both paths should hold the content", 2, this.objectManager.getPathsWithContent("hash1").size());
+
+        VersionManager versionManager = new VersionManager(this.objectManager);
+        versionManager.addVersion(new Version("hash2"), "myCopy.txt");
+        versionManager.removeVersion(new Version("hash1"), "myCopy.txt");
+        versionManager.removeVersion(new Version("hash2"), "myCopy.txt");
+
+        assertEquals("Only hash2 should be unreferenced", new HashSet<>(Arrays.asList("hash2")), this.objectManager.removeUnreferencedContent());
+
+        this.objectManager.removeObject(this.objectManager.getHashForPath("myFile.txt"));
+        assertEquals("Content should be unreferenced after removal", new HashSet<>(Arrays.asList("hash1")), this.objectManager.removeUnreferencedContent());
+        assertEquals("No chunk should be referenced", 0, this.objectManager.getChunkReferenceCount("someChunk"));
+    }
+}
@@ -0,0 +1,232 @@
+package org.rmatil.sync.version.test.core.index;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.core.ObjectManager;
+import org.rmatil.sync.version.config.ObjectStoreConfig;
+import org.rmatil.sync.version.core.index.MappedPathTable;
+import org.rmatil.sync.version.core.metrics.JmxMetricRegistry;
+import org.rmatil.sync.version.core.metrics.MetricNames;
+import org.rmatil.sync.version.core.metrics.NoOpMetricRegistry;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
+import org.rmatil.sync.version.test.util.APathTest;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MappedPathTableTest {
+
+    protected static final Path TABLE_FILE = APathTest.ROOT_TEST_DIR.resolve("index.bin");
+
+    @BeforeClass
+    public static void setUp() {
+        APathTest.setUp();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        APathTest.tearDown();
+    }
+
+    @Before
+    public void before()
+            throws IOException {
+        MappedPathTable.delete(TABLE_FILE);
+    }
+
+    @After
+    public void after()
+            throws IOException {
+        MappedPathTable.delete(TABLE_FILE);
+    }
+
+    @Test
+    public void testReopen()
+            throws IOException {
+        MappedPathTable pathTable = new MappedPathTable(TABLE_FILE);
+        assertFalse("New table should not be restored", pathTable.isRestored());
+
+        for (int i = 0; i < 10000; i++) {
+            pathTable.add("dir-" + (i / 100) + "/file-" + i);
+        }
+        pathTable.remove("dir-0/file-0");
+        pathTable.setSourceChecksum(42L);
+        long generation = pathTable.getGeneration();
+        pathTable.close();
+
+        MappedPathTable reopened = new MappedPathTable(TABLE_FILE);
+        assertTrue("Table should be restored", reopened.isRestored());
+        assertEquals("Generation should be equal", generation, reopened.getGeneration());
+        assertEquals("Source checksum should be equal", 42L, reopened.getSourceChecksum());
+        assertEquals("All paths should be restored", 9999, reopened.size());
+        assertFalse("Removed path should not be restored", reopened.contains("dir-0/file-0"));
+        assertTrue("Path should be restored", reopened.contains("dir-99/file-9999"));
+        assertEquals("All paths should be iterated", 9999, this.toList(reopened.iterator()).size());
+
+        reopened.add("otherDir/otherFile");
+        assertTrue("Generation should be incremented on modification", reopened.getGeneration() > generation);
+        assertTrue("Added path should be contained", reopened.contains("otherDir/otherFile"));
+        reopened.close();
+    }
+
+    @Test
+    public void testCrash()
+            throws IOException {
+        MappedPathTable pathTable = new MappedPathTable(TABLE_FILE);
+        pathTable.add("myDir/myFile.txt");
+        pathTable.flush();
+
+        // simulate a crash while modifying, i.e. without flushing
+        pathTable.add("myDir/otherFile.txt");
+
+        MappedPathTable crashedTable = new MappedPathTable(TABLE_FILE);
+        assertFalse("Dirty table should not be restored", crashedTable.isRestored());
+        assertEquals("Dirty table should be reset", 0, crashedTable.size());
+
+        crashedTable.close();
+        pathTable.close();
+    }
+
+    @Test
+    public void testCorruptHeader()
+            throws IOException {
+        MappedPathTable pathTable = new MappedPathTable(TABLE_FILE);
+        pathTable.add("myDir/myFile.txt");
+        pathTable.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(TABLE_FILE.toFile(), "rw")) {
+            // overwrite the number of paths
+            file.seek(28);
+            file.writeInt(1000);
+        }
+
+        MappedPathTable corruptTable = new MappedPathTable(TABLE_FILE);
+        assertFalse("Corrupt table should not be restored", corruptTable.isRestored());
+        corruptTable.close();
+    }
+
+    @Test
+    public void testObjectManager()
+            throws InputOutputException, IOException {
+        Path objectStoreDir = APathTest.ROOT_TEST_DIR.resolve("mapped");
+        Files.createDirectories(objectStoreDir);
+
+        ObjectManager objectManager = new ObjectManager("index.json", "objects", new LocalStorageAdapter(objectStoreDir), NoOpMetricRegistry.INSTANCE, TABLE_FILE);
+        objectManager.writeObject(this.createPathObject("myFile.txt"));
+        objectManager.writeObject(this.createPathObject("otherFile.txt"));
+        objectManager.close();
+
+        ObjectManager reopened = new ObjectManager("index.json", "objects", new LocalStorageAdapter(objectStoreDir), NoOpMetricRegistry.INSTANCE, TABLE_FILE);
+        assertEquals("Both paths should be restored", 2, reopened.getIndex().getPaths().size());
+        assertNotNull("Object should be found", reopened.getObjectForPath("myFile.txt"));
+        reopened.close();
+
+        // change the index file without updating the mapped index
+        ObjectManager heapObjectManager = new ObjectManager("index.json", "objects", new LocalStorageAdapter(objectStoreDir));
+        heapObjectManager.writeObject(this.createPathObject("thirdFile.txt"));
+
+        ObjectManager rebuilt = new ObjectManager("index.json", "objects", new LocalStorageAdapter(objectStoreDir), NoOpMetricRegistry.INSTANCE, TABLE_FILE);
+        assertEquals("Index should be rebuilt from the index file", 3, rebuilt.getIndex().getPaths().size());
+        assertTrue("Index should contain new path", rebuilt.getIndex().containsPath("thirdFile.txt"));
+
+        rebuilt.clear();
+        assertEquals("Index should be cleared", 0, rebuilt.getIndex().getPaths().size());
+        rebuilt.close();
+    }
+
+    @Test
+    public void testReopenWithoutReadingIndexFile()
+            throws InputOutputException {
+        ObjectStoreConfig config = new ObjectStoreConfig();
+        config.setMappedIndexFile(TABLE_FILE);
+
+        InMemoryStorageAdapter storageAdapter = new InMemoryStorageAdapter();
+        ObjectManager objectManager = new ObjectManager("index.json", "objects", storageAdapter, config);
+        for (int i = 0; i < 100; i++) {
+            objectManager.writeObject(this.createPathObject("file" + i + ".txt"));
+        }
+        objectManager.close();
+
+        storageAdapter.resetStatistics();
+        ObjectManager reopened = new ObjectManager("index.json", "objects", storageAdapter, config);
+        assertEquals("Only the checksum of the index file and the client id should be read", 2L, storageAdapter.getReadOps());
+        assertTrue("Index file should not be read", storageAdapter.getBytesRead() < 100L);
+        assertEquals("All paths should be restored", 100, reopened.getIndex().getPaths().size());
+
+        // the filter is built on the first lookup
+        assertTrue("Path should exist", reopened.exists("file0.txt"));
+        assertFalse("Missing path should not exist", reopened.exists("missingFile.txt"));
+        reopened.close();
+    }
+
+    @Test
+    public void testExists()
+            throws InputOutputException {
+        JmxMetricRegistry metricRegistry = new JmxMetricRegistry("mapped-exists-test");
+        try {
+            ObjectStoreConfig config = new ObjectStoreConfig();
+            config.setMetricRegistry(metricRegistry);
+            config.setMappedIndexFile(TABLE_FILE);
+
+            InMemoryStorageAdapter storageAdapter = new InMemoryStorageAdapter();
+            ObjectManager objectManager = new ObjectManager("index.json", "objects", storageAdapter, config);
+            objectManager.writeObject(this.createPathObject("myFile.txt"));
+            storageAdapter.resetStatistics();
+
+            assertTrue("Written path should exist", objectManager.exists("myFile.txt"));
+            for (int i = 0; i < 1000; i++) {
+                assertFalse("Missing path should not exist", objectManager.exists("missingFile" + i + ".txt"));
+            }
+
+            assertEquals("No object should be read", 0L, storageAdapter.getReadOps());
+            assertTrue("Most misses should be answered by the filter", metricRegistry.counter(MetricNames.EXISTS_FILTER_MISSES).getCount() > 900L);
+
+            objectManager.removeObject(objectManager.getHashForPath("myFile.txt"));
+            assertFalse("Removed path should not exist", objectManager.exists("myFile.txt"));
+
+            // exceed the size of the filter
+            for (int i = 0; i < 1100; i++) {
+                objectManager.writeObject(this.createPathObject("file" + i + ".txt"));
+            }
+            for (int i = 0; i < 1100; i++) {
+                assertTrue("Path should exist after rebuilding the filter", objectManager.exists("file" + i + ".txt"));
+            }
+
+            objectManager.clear();
+            assertFalse("Cleared path should not exist", objectManager.exists("file0.txt"));
+            objectManager.close();
+        } finally {
+            metricRegistry.unregister();
+        }
+    }
+
+    protected PathObject createPathObject(String name) {
+        return new PathObject(name, "", PathType.FILE, AccessType.WRITE, false, new Delete(null, new ArrayList<>()), null, new HashSet<>(), new ArrayList<>());
+    }
+
+    protected List<String> toList(Iterator<String> iterator) {
+        List<String> list = new ArrayList<>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+
+        return list;
+    }
+}
@@ -0,0 +1,181 @@
+package org.rmatil.sync.version.test.core.index;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rmatil.sync.version.api.IPathTable;
+import org.rmatil.sync.version.core.index.PathTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PathTableTest {
+
+    protected PathTable pathTable;
+
+    @Before
+    public void before() {
+        this.pathTable = new PathTable();
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        assertTrue("Path should be added", this.pathTable.add("myDir/innerDir/myFile.txt"));
+        assertFalse("Path should not be added twice", this.pathTable.add("myDir/innerDir/myFile.txt"));
+
+        assertTrue("Path should be contained", this.pathTable.contains("myDir/innerDir/myFile.txt"));
+        assertFalse("Parent should not be contained", this.pathTable.contains("myDir/innerDir"));
+        assertFalse("Prefix should not be contained", this.pathTable.contains("myDir/innerDir/myFile"));
+        assertEquals("Size should be one", 1, this.pathTable.size());
+        assertEquals("All segments should be nodes", 3, this.pathTable.getNodeCount());
+
+        assertTrue("Parent should be added", this.pathTable.add("myDir"));
+        assertEquals("Parent should reuse its node", 3, this.pathTable.getNodeCount());
+
+        assertTrue("Path should be removed", this.pathTable.remove("myDir/innerDir/myFile.txt"));
+        assertFalse("Path should not be removed twice", this.pathTable.remove("myDir/innerDir/myFile.txt"));
+        assertFalse("Path should not be contained anymore", this.pathTable.contains("myDir/innerDir/myFile.txt"));
+        assertEquals("Unused parents should be removed", 1, this.pathTable.getNodeCount());
+        assertTrue("Contained parent should remain", this.pathTable.contains("myDir"));
+
+        this.pathTable.clear();
+        assertEquals("Table should be empty", 0, this.pathTable.size());
+        assertFalse("Table should be empty", this.pathTable.iterator().hasNext());
+    }
+
+    @Test
+    public void testHandles() {
+        this.pathTable.add("a/b");
+        this.pathTable.add("a/c");
+
+        int handle = this.pathTable.getHandle("a/c");
+        assertNotEquals("Path should have a handle", IPathTable.NO_HANDLE, handle);
+        assertEquals("Path of handle should be equal", "a/c", this.pathTable.getPath(handle));
+        assertEquals("Parent should not have a handle", IPathTable.NO_HANDLE, this.pathTable.getHandle("a"));
+
+        this.pathTable.remove("a/c");
+        this.pathTable.add("a/d");
+        assertEquals("Handle should be reused", handle, this.pathTable.getHandle("a/d"));
+    }
+
+    @Test
+    public void testSpecialPaths() {
+        List<String> paths = Arrays.asList("", "/leading", "trailing/", "double//slash", "ümlaut/😀.txt");
+        for (String path : paths) {
+            this.pathTable.add(path);
+        }
+
+        for (String path : paths) {
+            assertTrue("Path " + path + " should be contained", this.pathTable.contains(path));
+            assertEquals("Path " + path + " should be restored", path, this.pathTable.getPath(this.pathTable.getHandle(path)));
+        }
+
+        assertEquals("All paths should be iterated", new HashSet<>(paths), this.toSet(this.pathTable.iterator()));
+    }
+
+    @Test
+    public void testIteration() {
+        this.pathTable.add("otherDir");
+        this.pathTable.add("myDir/b.txt");
+        this.pathTable.add("myDir/a.txt");
+        this.pathTable.add("myDir");
+        this.pathTable.add("myDir.txt");
+        this.pathTable.add("myDir/inner/c.txt");
+
+        List<String> expected = Arrays.asList("myDir", "myDir/a.txt", "myDir/b.txt", "myDir/inner/c.txt", "myDir.txt", "otherDir");
+        assertEquals("Paths should be iterated depth first by name", expected, this.toList(this.pathTable.iterator()));
+
+        assertEquals("Only paths below myDir should be iterated", Arrays.asList("myDir/a.txt", "myDir/b.txt", "myDir/inner/c.txt"), this.toList(this.pathTable.iterator("myDir")));
+        assertEquals("Paths below a parent which is not contained should be iterated", Arrays.asList("myDir/inner/c.txt"), this.toList(this.pathTable.iterator("myDir/inner")));
+        assertFalse("Nothing should be iterated for an unknown parent", this.pathTable.iterator("unknown").hasNext());
+
+        Iterator<String> iterator = this.pathTable.iterator("myDir");
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+
+        assertEquals("Paths should be removed", Arrays.asList("myDir", "myDir.txt", "otherDir"), this.toList(this.pathTable.iterator()));
+    }
+
+    @Test
+    public void testManyPaths() {
+        int count = 100000;
+        for (int i = 0; i < count; i++) {
+            this.pathTable.add("dir-" + (i / 100) + "/file-" + i);
+        }
+
+        assertEquals("All paths should be added", count, this.pathTable.size());
+        for (int i = 0; i < count; i += 7) {
+            assertTrue("Path should be contained", this.pathTable.contains("dir-" + (i / 100) + "/file-" + i));
+        }
+
+        // the node, the hash table and the name of each path
+        // including the growth reserve of the arrays
+        assertTrue("A path should take less than 100 bytes", this.pathTable.getMemoryUsage() / count < 100L);
+
+        for (int i = 0; i < count; i += 2) {
+            this.pathTable.remove("dir-" + (i / 100) + "/file-" + i);
+        }
+
+        assertEquals("Half of the paths should be removed", count / 2, this.pathTable.size());
+        assertEquals("All remaining paths should be iterated", count / 2, this.toList(this.pathTable.iterator()).size());
+        for (int i = 1; i < count; i += 2) {
+            assertTrue("Path should still be contained", this.pathTable.contains("dir-" + (i / 100) + "/file-" + i));
+        }
+    }
+
+    @Test
+    public void testConcurrentLookups()
+            throws InterruptedException {
+        int count = 2000;
+        for (int i = 0; i < count; i++) {
+            this.pathTable.add("dir-" + (i % 10) + "/file-" + i);
+        }
+
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            // each reader looks up other paths, so that their segments differ
+            int offset = t * (count / 4);
+            Thread reader = new Thread(() -> {
+                for (int round = 0; round < 20; round++) {
+                    for (int i = 0; i < count; i++) {
+                        int file = (offset + i) % count;
+                        if (! this.pathTable.contains("dir-" + (file % 10) + "/file-" + file) ||
+                                this.pathTable.contains("dir-" + (file % 10) + "/missing-" + file)) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals("Concurrent lookups should not interfere", 0, failures.get());
+    }
+
+    protected List<String> toList(Iterator<String> iterator) {
+        List<String> list = new ArrayList<>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+
+        return list;
+    }
+
+    protected Set<String> toSet(Iterator<String> iterator) {
+        return new HashSet<>(this.toList(iterator));
+    }
+}
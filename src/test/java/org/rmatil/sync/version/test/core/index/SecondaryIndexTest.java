@@ -0,0 +1,121 @@
+package org.rmatil.sync.version.test.core.index;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.DeleteType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.core.ObjectManager;
+import org.rmatil.sync.version.core.SharerManager;
+import org.rmatil.sync.version.core.index.SecondaryIndex;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Sharer;
+import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SecondaryIndexTest {
+
+    protected InMemoryStorageAdapter storageAdapter;
+
+    protected ObjectManager objectManager;
+
+    @Before
+    public void before()
+            throws InputOutputException {
+        this.storageAdapter = new InMemoryStorageAdapter();
+        this.objectManager = new ObjectManager("index.json", "objects", this.storageAdapter);
+    }
+
+    protected static PathObject createPathObject(String name, String owner, DeleteType deleteType, String contentHash, Sharer... sharers) {
+        Set<Sharer> sharerSet = new HashSet<>();
+        for (Sharer sharer : sharers) {
+            sharerSet.add(sharer);
+        }
+
+        List<Version> versions = new ArrayList<>();
+        versions.add(new Version("oldHash"));
+        versions.add(new Version(contentHash));
+
+        return new PathObject(name, "myDir", PathType.FILE, AccessType.WRITE, ! sharerSet.isEmpty(), new Delete(deleteType, new ArrayList<>()), owner, sharerSet, versions);
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        SecondaryIndex index = new SecondaryIndex();
+
+        PathObject file = createPathObject("myFile.txt", "Alice", DeleteType.EXISTENT, "hash1",
+                new Sharer("Bob", AccessType.WRITE, new ArrayList<>()),
+                new Sharer("Carol", AccessType.ACCESS_REMOVED, new ArrayList<>())
+        );
+        index.update(file);
+
+        assertEquals("File should be shared with Bob", 1, index.getPathsSharedWith("Bob").size());
+        assertTrue("File should not be shared with Carol", index.getPathsSharedWith("Carol").isEmpty());
+        assertTrue("File should be owned by Alice", index.getPathsOwnedBy("Alice").contains("myDir/myFile.txt"));
+        assertTrue("File should exist", index.getPathsWithDeleteType(DeleteType.EXISTENT).contains("myDir/myFile.txt"));
+        assertTrue("Only the latest version should be indexed", index.getPathsWithContentHash("oldHash").isEmpty());
+        assertTrue("Latest version should be indexed", index.getPathsWithContentHash("hash1").contains("myDir/myFile.txt"));
+
+        // replaces the previous attributes
+        index.update(createPathObject("myFile.txt", "Dave", DeleteType.DELETED, "hash2"));
+
+        assertTrue("File should not be shared anymore", index.getPathsSharedWith("Bob").isEmpty());
+        assertTrue("File should not be owned by Alice anymore", index.getPathsOwnedBy("Alice").isEmpty());
+        assertTrue("File should be owned by Dave", index.getPathsOwnedBy("Dave").contains("myDir/myFile.txt"));
+        assertTrue("File should not exist anymore", index.getPathsWithDeleteType(DeleteType.EXISTENT).isEmpty());
+        assertTrue("File should be deleted", index.getPathsWithDeleteType(DeleteType.DELETED).contains("myDir/myFile.txt"));
+        assertTrue("Old hash should be removed", index.getPathsWithContentHash("hash1").isEmpty());
+
+        index.remove("myDir/myFile.txt");
+
+        assertTrue("No path should be owned by Dave", index.getPathsOwnedBy("Dave").isEmpty());
+        assertTrue("No path should be deleted", index.getPathsWithDeleteType(DeleteType.DELETED).isEmpty());
+        assertTrue("No path should have hash2", index.getPathsWithContentHash("hash2").isEmpty());
+    }
+
+    @Test
+    public void testObjectManager()
+            throws InputOutputException {
+        this.objectManager.writeObject(createPathObject("myFile.txt", "Alice", DeleteType.EXISTENT, "sameHash",
+                new Sharer("Bob", AccessType.READ, new ArrayList<>())
+        ));
+
+        // built lazily from the stored objects
+        assertEquals("One path should be shared with Bob", 1, this.objectManager.getPathsSharedWith("Bob").size());
+
+        this.objectManager.writeObject(createPathObject("myCopy.txt", "Alice", DeleteType.EXISTENT, "sameHash"));
+        this.objectManager.writeObject(createPathObject("myOtherFile.txt", "Bob", DeleteType.DELETED, "otherHash"));
+
+        // maintained on writes without reading any object
+        long readOps = this.storageAdapter.getReadOps();
+
+        Set<String> duplicates = this.objectManager.getPathsWithContentHash("sameHash");
+        assertEquals("Both copies should be found", 2, duplicates.size());
+        assertTrue("Copy should be found", duplicates.contains("myDir/myCopy.txt"));
+        assertEquals("Two paths should be owned by Alice", 2, this.objectManager.getPathsOwnedBy("Alice").size());
+        assertEquals("One path should be deleted", 1, this.objectManager.getPathsWithDeleteType(DeleteType.DELETED).size());
+        assertEquals("Queries should not read objects", readOps, this.storageAdapter.getReadOps());
+
+        SharerManager sharerManager = new SharerManager(this.objectManager);
+        sharerManager.removeSharer("Bob", "myDir/myFile.txt");
+        assertTrue("No path should be shared with Bob", sharerManager.getPathsSharedWith("Bob").isEmpty());
+
+        sharerManager.addOwner("Carol", "myDir/myCopy.txt");
+        assertEquals("One path should be owned by Carol", 1, sharerManager.getPathsOwnedBy("Carol").size());
+
+        this.objectManager.removeObject(this.objectManager.getHashForPath("myDir/myCopy.txt"));
+        assertEquals("Removed copy should not be found", 1, this.objectManager.getPathsWithContentHash("sameHash").size());
+
+        this.objectManager.clear();
+        assertTrue("No path should be owned by Alice", this.objectManager.getPathsOwnedBy("Alice").isEmpty());
+    }
+}
@@ -0,0 +1,132 @@
+package org.rmatil.sync.version.test.core.index;
+
+import org.junit.Test;
+import org.rmatil.sync.version.core.index.VersionGraph;
+import org.rmatil.sync.version.core.model.Version;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VersionGraphTest {
+
+    protected static Version child(String hash, Version... parents) {
+        List<String> parentIds = new ArrayList<>();
+        for (Version parent : parents) {
+            parentIds.add(parent.getId());
+        }
+
+        return new Version(hash, null, 0L, parentIds);
+    }
+
+    @Test
+    public void testLinearHistory() {
+        List<Version> versions = new ArrayList<>();
+        versions.add(child("hash0"));
+        for (int i = 1; i < 1000; i++) {
+            versions.add(child("hash" + (i % 3), versions.get(i - 1)));
+        }
+
+        VersionGraph graph = new VersionGraph();
+        graph.addAll(versions);
+
+        assertEquals("All versions should be contained", 1000, graph.size());
+        assertNotEquals("Reverted content should result in another version", versions.get(0).getId(), versions.get(3).getId());
+
+        String first = versions.get(0).getId();
+        String middle = versions.get(500).getId();
+        String last = versions.get(999).getId();
+
+        assertTrue("First version should be an ancestor of the last", graph.isAncestor(first, last));
+        assertTrue("Middle version should be an ancestor of the last", graph.isAncestor(middle, last));
+        assertFalse("Last version should not be an ancestor of the first", graph.isAncestor(last, first));
+        assertTrue("Version should be its own ancestor", graph.isAncestor(middle, middle));
+        assertFalse("Unknown version should not be an ancestor", graph.isAncestor("unknown", last));
+
+        assertEquals("Common ancestor should be the older version", middle, graph.getLowestCommonAncestor(middle, last));
+        assertEquals("Common ancestor should be the older version", middle, graph.getLowestCommonAncestor(last, middle));
+    }
+
+    @Test
+    public void testBranches() {
+        Version base = child("base");
+        Version left1 = child("left1", base);
+        Version left2 = child("left2", left1);
+        Version right1 = child("right1", base);
+
+        VersionGraph graph = new VersionGraph();
+        graph.addAll(Arrays.asList(base, left1, left2));
+        graph.addAll(Arrays.asList(base, right1));
+
+        assertEquals("Base should not be added twice", 4, graph.size());
+        assertFalse("Branches should not be ancestors of each other", graph.isAncestor(left2.getId(), right1.getId()));
+        assertFalse("Branches should not be ancestors of each other", graph.isAncestor(right1.getId(), left2.getId()));
+        assertEquals("Common ancestor should be the base", base.getId(), graph.getLowestCommonAncestor(left2.getId(), right1.getId()));
+
+        // join both branches
+        Version merge = child("merge", left2, right1);
+        Version after = child("after", merge);
+        graph.addAll(Arrays.asList(merge, after));
+
+        assertTrue("First branch should be an ancestor", graph.isAncestor(left1.getId(), after.getId()));
+        assertTrue("Second branch should be an ancestor", graph.isAncestor(right1.getId(), after.getId()));
+        assertFalse("Later version should not be an ancestor", graph.isAncestor(after.getId(), right1.getId()));
+        assertEquals("Common ancestor should be the second branch", right1.getId(), graph.getLowestCommonAncestor(right1.getId(), after.getId()));
+        assertEquals("Common ancestor should be the first branch", left1.getId(), graph.getLowestCommonAncestor(after.getId(), left1.getId()));
+    }
+
+    @Test
+    public void testMergedAncestry() {
+        Version base = child("base");
+        Version left = child("left", base);
+        Version right = child("right", base);
+        Version merge = child("merge", left, right);
+        Version after = child("after", merge);
+
+        VersionGraph graph = new VersionGraph();
+        graph.addAll(Arrays.asList(base, left, right, merge, after));
+
+        assertTrue("Base should be an ancestor", graph.isAncestor(base.getId(), after.getId()));
+        assertTrue("Both branches should be ancestors of the merge", graph.isAncestor(right.getId(), merge.getId()));
+        assertFalse("Later version should not be an ancestor", graph.isAncestor(after.getId(), right.getId()));
+        assertFalse("Branches should not be ancestors of each other", graph.isAncestor(left.getId(), right.getId()));
+
+        // versions added after querying are considered by further queries
+        Version latest = child("latest", after);
+        graph.addAll(Arrays.asList(after, latest));
+        assertTrue("Added version should be a descendant", graph.isAncestor(left.getId(), latest.getId()));
+        assertEquals("Branch should be the common ancestor", right.getId(), graph.getLowestCommonAncestor(latest.getId(), right.getId()));
+    }
+
+    @Test
+    public void testDescendants() {
+        Version base = child("base");
+        Version left = child("left", base);
+        Version right = child("right", base);
+        Version merge = child("merge", left, right);
+        Version legacy = new Version("legacy");
+
+        assertEquals("Only versions based on the given one should be returned", Arrays.asList(merge, legacy), VersionGraph.getDescendants(left.getId(), Arrays.asList(base, left, right, merge, legacy)));
+        assertTrue("Latest version should have no descendants", VersionGraph.getDescendants(legacy.getHash(), Arrays.asList(base, left, legacy)).isEmpty());
+    }
+
+    @Test
+    public void testUntrackedParents() {
+        // versions created before parents were tracked follow each other
+        Version legacy1 = new Version("hash1");
+        Version legacy2 = new Version("hash2");
+        Version tracked = new Version("hash3").withParentsIfUnknown(Arrays.asList(VersionGraph.getKey(legacy2)));
+
+        assertNull("Legacy version should have no id", legacy1.getId());
+        assertSame("Known parents should be kept", tracked, tracked.withParentsIfUnknown(new ArrayList<>()));
+
+        VersionGraph graph = new VersionGraph();
+        graph.addAll(Arrays.asList(legacy1, legacy2, tracked));
+
+        assertTrue("Legacy version should be an ancestor", graph.isAncestor("hash1", tracked.getId()));
+        assertEquals("Common ancestor should be the legacy version", "hash2", graph.getLowestCommonAncestor("hash2", tracked.getId()));
+        assertNull("Unrelated versions should have no common ancestor", graph.getLowestCommonAncestor(tracked.getId(), child("other").getId()));
+    }
+}
@@ -0,0 +1,139 @@
+package org.rmatil.sync.version.test.core.index;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.config.ObjectStoreConfig;
+import org.rmatil.sync.version.core.ObjectManager;
+import org.rmatil.sync.version.core.VersionManager;
+import org.rmatil.sync.version.core.index.VersionSnapshot;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
+import org.rmatil.sync.version.test.util.APathTest;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class VersionSnapshotTest {
+
+    protected static final Path SNAPSHOT_FILE = APathTest.ROOT_TEST_DIR.resolve("versions.bin");
+
+    @BeforeClass
+    public static void setUp() {
+        APathTest.setUp();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        APathTest.tearDown();
+    }
+
+    @Before
+    @After
+    public void deleteSnapshot()
+            throws IOException {
+        Files.deleteIfExists(SNAPSHOT_FILE);
+    }
+
+    @Test
+    public void testReopen()
+            throws IOException {
+        SortedMap<String, byte[]> entries = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.put("hash" + i, new Version("content" + i).toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        VersionSnapshot.write(SNAPSHOT_FILE, 7L, 42L, entries);
+
+        assertNull("Snapshot of another index file should not be used", VersionSnapshot.open(SNAPSHOT_FILE, 43L));
+
+        VersionSnapshot snapshot = VersionSnapshot.open(SNAPSHOT_FILE, 42L);
+        assertNotNull("Snapshot should be opened", snapshot);
+        assertEquals("Generation should be restored", 7L, snapshot.getGeneration());
+        assertEquals("All objects should be contained", 1000, snapshot.size());
+        assertEquals("Latest version should be found", "content500", snapshot.getLatestVersion("hash500").getHash());
+        assertNull("Missing object should not be found", snapshot.getLatestVersion("missing"));
+        assertEquals("Entries should be returned without changes", entries.keySet(), snapshot.getEntries().keySet());
+        snapshot.close();
+
+        assertNull("Opened snapshot should not be used again", VersionSnapshot.open(SNAPSHOT_FILE, 42L));
+    }
+
+    @Test
+    public void testCorruptEntry()
+            throws IOException {
+        SortedMap<String, byte[]> entries = new TreeMap<>();
+        entries.put("hash", new Version("content").toJson().getBytes(StandardCharsets.UTF_8));
+        VersionSnapshot.write(SNAPSHOT_FILE, 1L, 42L, entries);
+
+        try (RandomAccessFile file = new RandomAccessFile(SNAPSHOT_FILE.toFile(), "rw")) {
+            file.seek(file.length() - 3);
+            file.write('x');
+        }
+
+        assertNull("Corrupt snapshot should not be used", VersionSnapshot.open(SNAPSHOT_FILE, 42L));
+    }
+
+    @Test
+    public void testObjectManager()
+            throws InputOutputException {
+        ObjectStoreConfig config = new ObjectStoreConfig();
+        config.setVersionSnapshotFile(SNAPSHOT_FILE);
+        InMemoryStorageAdapter storageAdapter = new InMemoryStorageAdapter();
+
+        ObjectManager objectManager = new ObjectManager("index.json", "objects", storageAdapter, config);
+        for (int i = 0; i < 10; i++) {
+            objectManager.writeObject(createPathObject("file" + i + ".txt", "content" + i));
+        }
+        objectManager.close();
+
+        // restart: unchanged files do not read any version log
+        ObjectManager restarted = new ObjectManager("index.json", "objects", storageAdapter, config);
+        VersionManager versionManager = new VersionManager(restarted);
+        storageAdapter.resetStatistics();
+
+        for (int i = 0; i < 10; i++) {
+            versionManager.addVersion(new Version("content" + i), "file" + i + ".txt");
+        }
+        assertEquals("No object should be read", 0L, storageAdapter.getReadOps());
+
+        versionManager.addVersion(new Version("changed"), "file0.txt");
+        restarted.removeObject(restarted.getHashForPath("file1.txt"));
+        assertNull("Removed object should have no version", restarted.getLatestVersion(restarted.getHashForPath("file1.txt")));
+        assertEquals("Appended version should be the latest", "changed", restarted.getLatestVersion(restarted.getHashForPath("file0.txt")).getHash());
+        restarted.close();
+
+        ObjectManager reopened = new ObjectManager("index.json", "objects", storageAdapter, config);
+        storageAdapter.resetStatistics();
+        assertEquals("Changed version should be in the snapshot", "changed", reopened.getLatestVersion(reopened.getHashForPath("file0.txt")).getHash());
+        assertEquals("Unchanged version should be kept", "content9", reopened.getLatestVersion(reopened.getHashForPath("file9.txt")).getHash());
+        assertEquals("No object should be read", 0L, storageAdapter.getReadOps());
+
+        // not closing, e.g. due to a crash, falls back to the version logs
+        reopened.writeObject(createPathObject("file2.txt", "other"));
+
+        ObjectManager recovered = new ObjectManager("index.json", "objects", storageAdapter, config);
+        storageAdapter.resetStatistics();
+        assertEquals("Version written after the snapshot should be read", "other", recovered.getLatestVersion(recovered.getHashForPath("file2.txt")).getHash());
+        assertTrue("Version log should be read", storageAdapter.getReadOps() > 0L);
+        recovered.close();
+    }
+
+    protected static PathObject createPathObject(String name, String hash) {
+        return new PathObject(name, "", PathType.FILE, null, false, new Delete(null, new ArrayList<>()), null, null, new ArrayList<>(Arrays.asList(new Version(hash))));
+    }
+}
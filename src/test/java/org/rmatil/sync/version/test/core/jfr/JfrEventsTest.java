@@ -0,0 +1,114 @@
+package org.rmatil.sync.version.test.core.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.ObjectStore;
+import org.rmatil.sync.version.core.jfr.FlightRecorderSupport;
+import org.rmatil.sync.version.test.util.APathTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JfrEventsTest {
+
+    protected static final Path SYNC_DIR = APathTest.ROOT_TEST_DIR.resolve("jfr");
+
+    protected static final Path OBJECT_STORE_DIR = APathTest.ROOT_TEST_DIR.resolve("jfr-store");
+
+    @BeforeClass
+    public static void setUp()
+            throws IOException {
+        APathTest.setUp();
+
+        Files.createDirectories(SYNC_DIR.resolve("myDir"));
+        Files.createDirectories(OBJECT_STORE_DIR);
+        Files.write(SYNC_DIR.resolve("myFile.txt"), "content".getBytes());
+        Files.write(SYNC_DIR.resolve("myDir/innerFile.txt"), "inner content".getBytes());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        APathTest.tearDown();
+    }
+
+    @Test
+    public void testEvents()
+            throws InputOutputException, IOException {
+        assertTrue("Flight recorder should be available on this runtime", FlightRecorderSupport.isAvailable());
+
+        ObjectStore objectStore = new ObjectStore(
+                new LocalStorageAdapter(SYNC_DIR),
+                "index.json",
+                "object",
+                new LocalStorageAdapter(OBJECT_STORE_DIR)
+        );
+
+        Path dump = APathTest.ROOT_TEST_DIR.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.rmatil.sync.version.Sync");
+            recording.enable("org.rmatil.sync.version.SyncChild");
+            recording.enable("org.rmatil.sync.version.Hash");
+            recording.enable("org.rmatil.sync.version.WriteObject");
+            recording.enable("org.rmatil.sync.version.IndexPersist");
+            recording.enable("org.rmatil.sync.version.Merge");
+            recording.start();
+
+            objectStore.sync();
+            objectStore.mergeObjectStore(objectStore);
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+        List<RecordedEvent> syncEvents = filter(events, "org.rmatil.sync.version.Sync");
+        assertEquals("One sync should be recorded", 1, syncEvents.size());
+        assertEquals("All three paths should be synced", 3, syncEvents.get(0).getInt("syncedPaths"));
+        assertEquals("No path should be removed", 0, syncEvents.get(0).getInt("removedPaths"));
+
+        List<RecordedEvent> syncChildEvents = filter(events, "org.rmatil.sync.version.SyncChild");
+        assertEquals("Each path should be synced", 3, syncChildEvents.size());
+        for (RecordedEvent event : syncChildEvents) {
+            assertTrue("Path " + event.getString("path") + " should be created", event.getBoolean("created"));
+        }
+
+        List<RecordedEvent> hashEvents = filter(events, "org.rmatil.sync.version.Hash");
+        assertEquals("Each path should be hashed", 3, hashEvents.size());
+        for (RecordedEvent event : hashEvents) {
+            if ("myFile.txt".equals(event.getString("path"))) {
+                assertEquals("File size should be recorded", 7L, event.getLong("bytes"));
+            }
+        }
+
+        assertTrue("Each path should be written", filter(events, "org.rmatil.sync.version.WriteObject").size() >= 3);
+        assertFalse("Index persists should be recorded", filter(events, "org.rmatil.sync.version.IndexPersist").isEmpty());
+
+        List<RecordedEvent> mergeEvents = filter(events, "org.rmatil.sync.version.Merge");
+        assertEquals("One merge should be recorded", 1, mergeEvents.size());
+        assertEquals("Merging with itself should not change any path", 0, mergeEvents.get(0).getInt("changedPaths"));
+        assertEquals("Merging with itself should not create conflicts", 0, mergeEvents.get(0).getInt("conflictPaths"));
+    }
+
+    protected static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> filtered = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (name.equals(event.getEventType().getName())) {
+                filtered.add(event);
+            }
+        }
+
+        return filtered;
+    }
+}
@@ -0,0 +1,103 @@
+package org.rmatil.sync.version.test.core.metrics;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.ICounter;
+import org.rmatil.sync.version.api.IHistogram;
+import org.rmatil.sync.version.api.ITimer;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.core.ObjectManager;
+import org.rmatil.sync.version.core.metrics.JmxMetricRegistry;
+import org.rmatil.sync.version.core.metrics.MetricNames;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.test.util.APathTest;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class JmxMetricRegistryTest {
+
+    protected static MBeanServer mBeanServer;
+
+    protected static JmxMetricRegistry metricRegistry;
+
+    @BeforeClass
+    public static void setUp() {
+        APathTest.setUp();
+
+        mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        metricRegistry = new JmxMetricRegistry("jmx-metric-registry-test");
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        metricRegistry.unregister();
+        APathTest.tearDown();
+    }
+
+    @Test
+    public void testMetrics()
+            throws JMException {
+        ICounter counter = metricRegistry.counter("test.counter");
+        assertSame("Counter should be reused", counter, metricRegistry.counter("test.counter"));
+
+        counter.increment();
+        counter.increment(4);
+        assertEquals("Count should be 5", 5L, counter.getCount());
+        assertEquals("Count should be exposed via JMX", 5L, mBeanServer.getAttribute(metricRegistry.getObjectName("Counter", "test.counter"), "Count"));
+
+        ITimer timer = metricRegistry.timer("test.timer");
+        timer.record(1000000L);
+        timer.record(3000000L);
+        assertEquals("Timer should have two records", 2L, timer.getCount());
+        assertEquals("Mean should be 2ms", 2d, (double) mBeanServer.getAttribute(metricRegistry.getObjectName("Timer", "test.timer"), "MeanMillis"), 0.0001d);
+        assertEquals("Max should be 3ms", 3d, (double) mBeanServer.getAttribute(metricRegistry.getObjectName("Timer", "test.timer"), "MaxMillis"), 0.0001d);
+
+        IHistogram histogram = metricRegistry.histogram("test.histogram");
+        histogram.update(10);
+        histogram.update(30);
+        assertEquals("Sum should be 40", 40L, histogram.getSum());
+        assertEquals("Min should be 10", 10L, mBeanServer.getAttribute(metricRegistry.getObjectName("Histogram", "test.histogram"), "Min"));
+        assertEquals("Max should be 30", 30L, mBeanServer.getAttribute(metricRegistry.getObjectName("Histogram", "test.histogram"), "Max"));
+    }
+
+    @Test
+    public void testObjectManagerMetrics()
+            throws InputOutputException {
+        JmxMetricRegistry registry = new JmxMetricRegistry("object-manager-metrics-test");
+        ObjectManager objectManager = new ObjectManager("index.json", "objects", new LocalStorageAdapter(APathTest.ROOT_TEST_DIR), registry);
+        objectManager.clear();
+
+        long indexWrites = registry.counter(MetricNames.INDEX_WRITES).getCount();
+
+        PathObject pathObject = new PathObject("myFile.txt", "", PathType.FILE, AccessType.WRITE, false, new Delete(null, new ArrayList<>()), null, new HashSet<>(), new ArrayList<>());
+        objectManager.writeObject(pathObject);
+        objectManager.getObjectForPath("myFile.txt");
+
+        try {
+            objectManager.getObjectForPath("someNonExistingFile.txt");
+            fail("Reading a non existing object should fail");
+        } catch (InputOutputException e) {
+            // expected
+        }
+
+        assertEquals("Index should be rewritten once", indexWrites + 1, registry.counter(MetricNames.INDEX_WRITES).getCount());
+        assertEquals("One object should be written", 1L, registry.counter(MetricNames.OBJECT_WRITES).getCount());
+        assertEquals("One object should be read", 1L, registry.counter(MetricNames.OBJECT_READS).getCount());
+        assertEquals("One read should have missed", 1L, registry.counter(MetricNames.OBJECT_READ_MISSES).getCount());
+        assertEquals("Read and written bytes should be equal", registry.histogram(MetricNames.OBJECT_BYTES_WRITTEN).getSum(), registry.histogram(MetricNames.OBJECT_BYTES_READ).getSum());
+
+        objectManager.clear();
+        registry.unregister();
+    }
+}
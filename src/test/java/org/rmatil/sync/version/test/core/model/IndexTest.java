@@ -2,10 +2,13 @@ package org.rmatil.sync.version.test.core.model;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.rmatil.sync.commons.hashing.Hash;
+import org.rmatil.sync.version.config.Config;
 import org.rmatil.sync.version.core.model.Index;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.UUID;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -19,14 +22,69 @@ public class IndexTest {
 
     @BeforeClass
     public static void setUp() {
-        index = new Index(new HashMap<>());
+        index = new Index();
     }
 
     @Test
     public void testAccessors() {
-        index.addPath(PATH_TO_FILE, HASH_OF_FILE_PATH);
+        index.addPath(PATH_TO_FILE);
         assertEquals("PathIdentifier is not added", 1, index.getPaths().size());
+        assertEquals("Hash should be computed from the path", Hash.hash(Config.DEFAULT.getHashingAlgorithm(), PATH_TO_FILE), index.getPaths().get(PATH_TO_FILE));
+        assertNull("Hash of a path not in the index should be null", index.getPaths().get("path/to/otherFile.txt"));
         index.removePath(PATH_TO_FILE);
         assertEquals("PathIdentifier is not removed", 0, index.getPaths().size());
     }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedAccessors() {
+        Index legacyIndex = new Index(new HashMap<>());
+        legacyIndex.addPath(PATH_TO_FILE, HASH_OF_FILE_PATH);
+        assertEquals("PathIdentifier is not added", 1, legacyIndex.getPaths().size());
+        legacyIndex.removePath(PATH_TO_FILE);
+        assertEquals("PathIdentifier is not removed", 0, legacyIndex.getPaths().size());
+
+        Map<String, String> paths = new HashMap<>();
+        paths.put(PATH_TO_FILE, HASH_OF_FILE_PATH);
+        assertTrue("Paths of the map should be added", new Index(paths).containsPath(PATH_TO_FILE));
+    }
+
+    @Test
+    public void testJson() {
+        Index index = new Index(Arrays.asList("myDir/myFile.txt", "myDir", "myDir/otherFile.txt", "otherDir", "😀a", "😁b"));
+
+        String expectedJson = "{\n" +
+                "  \"paths\": [\n" +
+                "    \"0:myDir\",\n" +
+                "    \"5:/myFile.txt\",\n" +
+                "    \"6:otherFile.txt\",\n" +
+                "    \"0:otherDir\",\n" +
+                "    \"0:😀a\",\n" +
+                "    \"0:😁b\"\n" +
+                "  ]\n" +
+                "}";
+
+        assertEquals("Paths should be front-coded", expectedJson, index.toJson());
+        assertEquals("Decoded paths should be equal", index.getPathSet(), Index.fromJson(index.toJson()).getPathSet());
+    }
+
+    @Test
+    public void testLegacyJson() {
+        String json = "{\n" +
+                "  \"paths\": {\n" +
+                "    \"myDir\": \"someHash\",\n" +
+                "    \"myDir/myFile.txt\": \"otherHash\"\n" +
+                "  }\n" +
+                "}";
+
+        Index index = Index.fromJson(json);
+
+        assertEquals("Both paths should be read", 2, index.getPaths().size());
+        assertTrue("Index should contain myDir/myFile.txt", index.containsPath("myDir/myFile.txt"));
+        for (Map.Entry<String, String> entry : index.getPaths().entrySet()) {
+            assertEquals("Hash should be computed from the path", Hash.hash(Config.DEFAULT.getHashingAlgorithm(), entry.getKey()), entry.getValue());
+        }
+
+        assertTrue("Index should be written in the new format", index.toJson().contains("\"5:/myFile.txt\""));
+    }
 }
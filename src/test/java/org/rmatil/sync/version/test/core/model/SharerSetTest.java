@@ -0,0 +1,53 @@
+package org.rmatil.sync.version.test.core.model;
+
+import org.junit.Test;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.Sharer;
+import org.rmatil.sync.version.core.model.SharerSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class SharerSetTest {
+
+    @Test
+    public void testReplaceByUsername() {
+        Sharer reader = new Sharer("Eleanor Fant", AccessType.READ, new ArrayList<>(Arrays.asList("h1")));
+        Sharer writer = new Sharer("Eleanor Fant", AccessType.WRITE, new ArrayList<>(Arrays.asList("h1", "h2")));
+        Sharer other = new Sharer("Justin Case", AccessType.READ, new ArrayList<>(Arrays.asList("h1")));
+
+        SharerSet sharers = new SharerSet(Arrays.asList(reader, other));
+
+        assertEquals("Sharer should be found by username", reader, sharers.get("Eleanor Fant"));
+        assertFalse("Equal sharer should not be added again", sharers.add(new Sharer("Eleanor Fant", AccessType.READ, new ArrayList<>(Arrays.asList("h1")))));
+        assertTrue("Changed sharer should be added", sharers.add(writer));
+        assertEquals("Sharer of the same user should be replaced", 2, sharers.size());
+        assertEquals("Latest sharer should be kept", writer, sharers.get("Eleanor Fant"));
+
+        assertFalse("Replaced sharer should not be contained", sharers.contains(reader));
+        assertFalse("Replaced sharer should not be removed", sharers.remove(reader));
+        assertTrue("Sharer should be removed", sharers.remove(writer));
+        assertNull("Removed sharer should not be found", sharers.get("Eleanor Fant"));
+        assertEquals("Set should equal any set of the same sharers", new HashSet<>(Arrays.asList(other)), sharers);
+    }
+
+    @Test
+    public void testJson() {
+        Sharer sharer = new Sharer("Eleanor Fant", AccessType.WRITE, new ArrayList<>(Arrays.asList("h1", "h2")));
+        PathObject pathObject = new PathObject("file.txt", "dir", PathType.FILE, null, true, new Delete(null, new ArrayList<>()), null, new HashSet<>(Arrays.asList(sharer)), null);
+
+        String json = pathObject.toJson();
+        assertTrue("Sharers should be written as list", json.replaceAll("\\s", "").contains("\"sharers\":[{\"username\":\"EleanorFant\""));
+
+        PathObject readObject = PathObject.fromJson(json);
+        assertEquals("Sharers should be read", pathObject.getSharers(), readObject.getSharers());
+        assertEquals("Sharer should be found by username", sharer, readObject.getSharer("Eleanor Fant"));
+        assertTrue("Same history should be detected", sharer.hasSameHistory(readObject.getSharer("Eleanor Fant")));
+    }
+}
@@ -0,0 +1,63 @@
+package org.rmatil.sync.version.test.core.model;
+
+import org.junit.Test;
+import org.rmatil.sync.version.api.AccessType;
+import org.rmatil.sync.version.api.DeleteType;
+import org.rmatil.sync.version.api.PathType;
+import org.rmatil.sync.version.api.VectorOrdering;
+import org.rmatil.sync.version.core.model.Delete;
+import org.rmatil.sync.version.core.model.PathObject;
+import org.rmatil.sync.version.core.model.VersionVector;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class VersionVectorTest {
+
+    @Test
+    public void testCompare() {
+        VersionVector vector = new VersionVector();
+        VersionVector otherVector = new VersionVector();
+
+        assertTrue("New vector should be empty", vector.isEmpty());
+        assertEquals("Empty vectors should be equal", VectorOrdering.EQUAL, vector.compare(otherVector));
+
+        vector.increment("client1");
+        vector.increment("client1");
+        assertEquals("Counter should be incremented", 2L, vector.get("client1"));
+        assertEquals("Unknown client should have no changes", 0L, vector.get("client2"));
+
+        assertEquals("Vector should be after", VectorOrdering.AFTER, vector.compare(otherVector));
+        assertEquals("Other vector should be before", VectorOrdering.BEFORE, otherVector.compare(vector));
+
+        otherVector.increment("client2");
+        assertEquals("Vectors should be concurrent", VectorOrdering.CONCURRENT, vector.compare(otherVector));
+        assertEquals("Vectors should be concurrent", VectorOrdering.CONCURRENT, otherVector.compare(vector));
+
+        otherVector.merge(vector);
+        assertEquals("Merged vector should be after", VectorOrdering.AFTER, otherVector.compare(vector));
+        assertEquals("Maximum of counters should be taken", 2L, otherVector.get("client1"));
+
+        vector.merge(otherVector);
+        assertEquals("Vectors should be equal after merging both", VectorOrdering.EQUAL, vector.compare(otherVector));
+        assertEquals("Vectors should be equal after merging both", otherVector, vector);
+    }
+
+    @Test
+    public void testSerialization() {
+        PathObject pathObject = new PathObject("myFile.txt", "", PathType.FILE, AccessType.WRITE, false, new Delete(DeleteType.EXISTENT, new ArrayList<>()), null, null, null);
+        pathObject.getVersionVector().increment("client1");
+        pathObject.getVersionVector().increment("client2");
+
+        PathObject readObject = PathObject.fromJson(pathObject.toJson());
+        assertEquals("Vector should be equal after reading", pathObject.getVersionVector(), readObject.getVersionVector());
+
+        readObject.getVersionVector().increment("client1");
+        assertEquals("Read vector should be after", VectorOrdering.AFTER, readObject.getVersionVector().compare(pathObject.getVersionVector()));
+
+        // objects written before version vectors were kept
+        PathObject legacyObject = PathObject.fromJson(pathObject.toJson().replaceAll("\"versionVector\"", "\"unknown\""));
+        assertTrue("Vector of legacy object should be empty", legacyObject.getVersionVector().isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package org.rmatil.sync.version.test.core.retention;
+
+import org.junit.Test;
+import org.rmatil.sync.version.api.IRetentionPolicy;
+import org.rmatil.sync.version.core.model.Version;
+import org.rmatil.sync.version.core.retention.KeepLastRetentionPolicy;
+import org.rmatil.sync.version.core.retention.MaxAgeRetentionPolicy;
+import org.rmatil.sync.version.core.retention.ThinningRetentionPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RetentionPolicyTest {
+
+    protected static final long NOW = TimeUnit.DAYS.toMillis(1000L);
+
+    @Test
+    public void testKeepLast() {
+        IRetentionPolicy policy = new KeepLastRetentionPolicy(3);
+
+        List<Version> versions = this.createVersions(TimeUnit.MINUTES.toMillis(1L), 10);
+        List<Version> retained = policy.retain(versions, NOW);
+
+        assertEquals("Three versions should be kept", 3, retained.size());
+        assertEquals("Oldest kept version should be the third latest", "hash7", retained.get(0).getHash());
+        assertEquals("Latest version should be kept", "hash9", retained.get(2).getHash());
+
+        List<Version> shortHistory = versions.subList(0, 2);
+        assertSame("Short histories should be kept as they are", shortHistory, policy.retain(shortHistory, NOW));
+    }
+
+    @Test
+    public void testMaxAge() {
+        IRetentionPolicy policy = new MaxAgeRetentionPolicy(1L, TimeUnit.HOURS);
+
+        List<Version> versions = new ArrayList<>();
+        versions.add(new Version("unknownAge"));
+        versions.add(new Version("old", null, NOW - TimeUnit.HOURS.toMillis(2L)));
+        versions.add(new Version("recent", null, NOW - TimeUnit.MINUTES.toMillis(30L)));
+
+        List<Version> retained = policy.retain(versions, NOW);
+        assertEquals("Old version should be removed", 2, retained.size());
+        assertEquals("Version of unknown age should be kept", "unknownAge", retained.get(0).getHash());
+        assertEquals("Recent version should be kept", "recent", retained.get(1).getHash());
+
+        // the latest version is kept regardless of its age
+        List<Version> oldVersions = new ArrayList<>();
+        oldVersions.add(new Version("old1", null, NOW - TimeUnit.DAYS.toMillis(2L)));
+        oldVersions.add(new Version("old2", null, NOW - TimeUnit.DAYS.toMillis(1L)));
+        retained = policy.retain(oldVersions, NOW);
+        assertEquals("Only the latest version should be kept", 1, retained.size());
+        assertEquals("Latest version should be kept", "old2", retained.get(0).getHash());
+    }
+
+    @Test
+    public void testThinning() {
+        IRetentionPolicy policy = ThinningRetentionPolicy.hourlyDailyWeekly();
+
+        // one version every ten minutes during the last 60 days
+        long interval = TimeUnit.MINUTES.toMillis(10L);
+        int count = (int) (TimeUnit.DAYS.toMillis(60L) / interval);
+        List<Version> versions = this.createVersions(interval, count);
+
+        List<Version> retained = policy.retain(versions, NOW);
+
+        int lastHour = 0;
+        int lastDay = 0;
+        for (Version version : retained) {
+            long age = NOW - version.getTimestamp();
+            if (age <= TimeUnit.HOURS.toMillis(1L)) {
+                lastHour++;
+            } else if (age <= TimeUnit.DAYS.toMillis(1L)) {
+                lastDay++;
+            }
+        }
+
+        assertEquals("All versions of the last hour should be kept", 7, lastHour);
+        assertTrue("About one version per hour of the last day should be kept", lastDay >= 22 && lastDay <= 24);
+        assertTrue("History should be thinned out", retained.size() < 7 + 24 + 30 + 10);
+        assertEquals("Latest version should be kept", versions.get(versions.size() - 1), retained.get(retained.size() - 1));
+
+        for (int i = 1; i < retained.size(); i++) {
+            assertTrue("Order should be kept", retained.get(i - 1).getTimestamp() < retained.get(i).getTimestamp());
+        }
+    }
+
+    /**
+     * Creates versions from the oldest to the latest, the latest being created now
+     *
+     * @param interval The time between two versions
+     * @param count    The number of versions
+     *
+     * @return The versions
+     */
+    protected List<Version> createVersions(long interval, int count) {
+        List<Version> versions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            versions.add(new Version("hash" + i, null, NOW - (count - 1 - i) * interval));
+        }
+
+        return versions;
+    }
+}
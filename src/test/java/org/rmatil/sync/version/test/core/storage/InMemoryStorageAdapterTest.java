@@ -0,0 +1,195 @@
+package org.rmatil.sync.version.test.core.storage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.rmatil.sync.persistence.api.IFileMetaInfo;
+import org.rmatil.sync.persistence.api.StorageType;
+import org.rmatil.sync.persistence.core.tree.TreePathElement;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+import org.rmatil.sync.version.core.ObjectStore;
+import org.rmatil.sync.version.core.storage.InMemoryStorageAdapter;
+import org.rmatil.sync.version.core.storage.LatencyProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InMemoryStorageAdapterTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    protected InMemoryStorageAdapter storageAdapter;
+
+    @Before
+    public void before() {
+        this.storageAdapter = new InMemoryStorageAdapter();
+    }
+
+    @Test
+    public void testPersistAndRead()
+            throws InputOutputException {
+        TreePathElement dir = new TreePathElement("myDir");
+        TreePathElement file = new TreePathElement("myDir/myFile.txt");
+
+        this.storageAdapter.persist(StorageType.DIRECTORY, dir, null);
+        this.storageAdapter.persist(StorageType.FILE, file, "Hello World".getBytes());
+
+        assertTrue("Dir should exist", this.storageAdapter.exists(StorageType.DIRECTORY, dir));
+        assertFalse("Dir should not be a file", this.storageAdapter.exists(StorageType.FILE, dir));
+        assertTrue("File should exist", this.storageAdapter.isFile(new TreePathElement("/myDir/myFile.txt")));
+        assertArrayEquals("Content should be equal", "Hello World".getBytes(), this.storageAdapter.read(file));
+        assertArrayEquals("Partial content should be equal", "World".getBytes(), this.storageAdapter.read(file, 6L, 100));
+
+        this.storageAdapter.persist(StorageType.FILE, file, 6L, "Earth!".getBytes());
+        assertArrayEquals("Content should be overwritten and extended", "Hello Earth!".getBytes(), this.storageAdapter.read(file));
+
+        IFileMetaInfo metaInfo = this.storageAdapter.getMetaInformation(file);
+        assertEquals("Size should be 12", 12L, metaInfo.getTotalFileSize());
+        assertEquals("Extension should be txt", "txt", metaInfo.getFileExtension());
+        assertTrue("Should be a directory", this.storageAdapter.getMetaInformation(dir).isDirectory());
+    }
+
+    @Test
+    public void testOffHeap()
+            throws InputOutputException {
+        InMemoryStorageAdapter offHeapAdapter = new InMemoryStorageAdapter("/", true, LatencyProfile.NONE);
+        TreePathElement file = new TreePathElement("myFile.txt");
+
+        offHeapAdapter.persist(StorageType.FILE, file, "Hello".getBytes());
+        offHeapAdapter.persist(StorageType.FILE, file, 5L, " World".getBytes());
+
+        assertArrayEquals("Content should be equal", "Hello World".getBytes(), offHeapAdapter.read(file));
+        assertEquals("Checksum should equal the one of the heap adapter", this.checksum("Hello World"), offHeapAdapter.getChecksum(file));
+        assertEquals("Size should be 11", 11L, offHeapAdapter.getSize());
+    }
+
+    @Test
+    public void testMissingParent()
+            throws InputOutputException {
+        thrown.expect(InputOutputException.class);
+        this.storageAdapter.persist(StorageType.FILE, new TreePathElement("notExisting/myFile.txt"), new byte[0]);
+    }
+
+    @Test
+    public void testReadMissing()
+            throws InputOutputException {
+        thrown.expect(InputOutputException.class);
+        this.storageAdapter.read(new TreePathElement("myFile.txt"));
+    }
+
+    @Test
+    public void testDirectoryContentsMoveAndDelete()
+            throws InputOutputException {
+        this.storageAdapter.persist(StorageType.DIRECTORY, new TreePathElement("myDir"), null);
+        this.storageAdapter.persist(StorageType.DIRECTORY, new TreePathElement("myDir/inner"), null);
+        this.storageAdapter.persist(StorageType.FILE, new TreePathElement("myDir/inner/file.txt"), "content".getBytes());
+        // shares the prefix with myDir but is not contained in it
+        this.storageAdapter.persist(StorageType.FILE, new TreePathElement("myDir.txt"), "content".getBytes());
+
+        assertEquals("myDir should contain two elements", this.toPaths("myDir/inner", "myDir/inner/file.txt"), this.getContents("myDir"));
+        assertEquals("Root should contain all elements", 4, this.getContents("").size());
+
+        this.storageAdapter.move(StorageType.DIRECTORY, new TreePathElement("myDir"), new TreePathElement("movedDir"));
+        assertFalse("myDir should not exist anymore", this.storageAdapter.isDir(new TreePathElement("myDir")));
+        assertEquals("Contents should be moved", this.toPaths("movedDir/inner", "movedDir/inner/file.txt"), this.getContents("movedDir"));
+        assertArrayEquals("Content of moved file should be equal", "content".getBytes(), this.storageAdapter.read(new TreePathElement("movedDir/inner/file.txt")));
+
+        this.storageAdapter.delete(new TreePathElement("movedDir"));
+        assertEquals("Only myDir.txt should remain", this.toPaths("myDir.txt"), this.getContents(""));
+    }
+
+    @Test
+    public void testStatistics()
+            throws InputOutputException {
+        TreePathElement file = new TreePathElement("myFile.txt");
+
+        this.storageAdapter.persist(StorageType.FILE, file, "12345".getBytes());
+        this.storageAdapter.read(file);
+        this.storageAdapter.read(file, 1L, 2);
+        this.storageAdapter.exists(StorageType.FILE, file);
+        this.storageAdapter.delete(file);
+
+        assertEquals("One persist should be counted", 1L, this.storageAdapter.getPersistOps());
+        assertEquals("Two reads should be counted", 2L, this.storageAdapter.getReadOps());
+        assertEquals("One exists should be counted", 1L, this.storageAdapter.getExistsOps());
+        assertEquals("One delete should be counted", 1L, this.storageAdapter.getDeleteOps());
+        assertEquals("5 bytes should be written", 5L, this.storageAdapter.getBytesWritten());
+        assertEquals("7 bytes should be read", 7L, this.storageAdapter.getBytesRead());
+
+        this.storageAdapter.resetStatistics();
+        assertEquals("Counters should be reset", 0L, this.storageAdapter.getPersistOps());
+        assertEquals("Counters should be reset", 0L, this.storageAdapter.getBytesRead());
+    }
+
+    @Test
+    public void testLatencyProfile()
+            throws InputOutputException {
+        InMemoryStorageAdapter slowAdapter = new InMemoryStorageAdapter("/", false, new LatencyProfile(20L, 10L, 0L, 0L, TimeUnit.MILLISECONDS));
+        TreePathElement file = new TreePathElement("myFile.txt");
+
+        long start = System.nanoTime();
+        slowAdapter.persist(StorageType.FILE, file, new byte[10]);
+        slowAdapter.read(file);
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue("Write and read should take at least 30ms", elapsed >= TimeUnit.MILLISECONDS.toNanos(30L));
+        assertEquals("Transfer of 1000 bytes with 1000 B/s should take a second", TimeUnit.SECONDS.toNanos(1L), new LatencyProfile(0L, 0L, 0L, 1000L, TimeUnit.NANOSECONDS).getReadDelay(1000L));
+    }
+
+    @Test
+    public void testObjectStoreIO()
+            throws InputOutputException {
+        InMemoryStorageAdapter folderStorageAdapter = new InMemoryStorageAdapter();
+        ObjectStore objectStore = new ObjectStore(folderStorageAdapter, "index.json", "object", this.storageAdapter);
+
+        folderStorageAdapter.persist(StorageType.FILE, new TreePathElement("myFile.txt"), "content".getBytes());
+        objectStore.onCreateFile("myFile.txt", "hash1");
+
+        for (int i = 2; i < 100; i++) {
+            objectStore.onModifyFile("myFile.txt", "hash" + i);
+        }
+
+        this.storageAdapter.resetStatistics();
+        objectStore.onModifyFile("myFile.txt", "hash100");
+
+        // the record, its offset and the header counting the change
+        assertTrue("Modifying should write at most three files", this.storageAdapter.getPersistOps() <= 3L);
+        assertTrue("Modifying should read at most the latest version, its offsets and the header", this.storageAdapter.getReadOps() <= 4L);
+        // a single record including the id of its parent and the header, the whole history would be about 20KB
+        assertTrue("Modifying should not read the whole history", this.storageAdapter.getBytesRead() < 1000L);
+        assertEquals("Modifying should not delete anything", 0L, this.storageAdapter.getDeleteOps());
+        assertEquals("Object should have all versions", 100, objectStore.getObjectManager().getObjectForPath("myFile.txt").getVersions().size());
+    }
+
+    protected List<String> getContents(String directory)
+            throws InputOutputException {
+        List<String> paths = new ArrayList<>();
+        for (TreePathElement element : this.storageAdapter.getDirectoryContents(new TreePathElement(directory))) {
+            paths.add(element.getPath());
+        }
+
+        return paths;
+    }
+
+    protected List<String> toPaths(String... paths) {
+        List<String> list = new ArrayList<>();
+        for (String path : paths) {
+            list.add(path);
+        }
+
+        return list;
+    }
+
+    protected String checksum(String content)
+            throws InputOutputException {
+        TreePathElement file = new TreePathElement("checksum.txt");
+        this.storageAdapter.persist(StorageType.FILE, file, content.getBytes());
+
+        return this.storageAdapter.getChecksum(file);
+    }
+}